@@ -0,0 +1,124 @@
+/*********************************************************************\
+ * GCodeImportBenchmark.java - xmlCam G-Code Generator               *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+package bench;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Locale;
+
+import controller.Generator;
+import model.ColumnarRowStore;
+import model.Environment;
+import model.GCodeDialect;
+import model.GCodeReader;
+import model.GCodeWriter;
+import model.Program;
+import model.Settings;
+
+/**
+ * Measures the throughput of the G-Code import in MB/s.
+ * The G-Code of an XML file is generated and written repeatedly into a temporary file of the requested size.
+ * The file is then imported line by line with BufferedReader and GCodeHelpers.parseRow (the former import) and memory-mapped with the GCodeReader,
+ * once in the calling thread and once with the chunks parsed in parallel on the common fork/join pool.
+ * Both imports go into a program with a ColumnarRowStore, so the heap does not limit the file size.
+ * <pre>
+ * java bench.GCodeImportBenchmark [xml file] [megabytes] [iterations]
+ * </pre>
+ * @author Christian Kirsch
+ */
+public class GCodeImportBenchmark {
+	
+	public static void main(String[] args) throws IOException {
+		String xmlFile = args.length > 0 ? args[0] : "program.xml";
+		long megabytes = args.length > 1 ? Long.parseLong(args[1]) : 64;
+		int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+		
+		Settings settings = new Settings();
+		settings.readSettings();
+		Program template = new Program();
+		try (FileReader reader = new FileReader(xmlFile)) {
+			new Generator(new Environment(settings, new GCodeDialect(settings), template), reader).generate();
+		}
+		
+		File file = File.createTempFile("xmlcam-import", ".gcode");
+		file.deleteOnExit();
+		try (GCodeWriter writer = new GCodeWriter(file)) {
+			while(file.length() < megabytes * 1024 * 1024) {
+				writer.writeProgram(template);
+				writer.flush();
+			}
+		}
+		double size = file.length() / (1024.0 * 1024.0);
+		
+		System.out.println(String.format(Locale.ROOT, "Import of %.1f MB generated from %s, best of %d runs, %d processors", size, xmlFile, iterations,
+				Runtime.getRuntime().availableProcessors()));
+		System.out.println(String.format(Locale.ROOT, "%-20s %12s %12s %12s", "Import", "Rows", "Time [ms]", "MB/s"));
+		
+		String[] methods = { "BufferedReader", "GCodeReader serial", "GCodeReader parallel" };
+		long rows = 0;
+		for(int method = 0; method < methods.length; method++) {
+			long best = Long.MAX_VALUE;
+			for(int i = 0; i < iterations; i++) {
+				Program program = new Program(new ColumnarRowStore());
+				long start = System.nanoTime();
+				if(method == 0) {
+					readLineByLine(file, program);
+				} else {
+					GCodeReader reader = new GCodeReader(file);
+					reader.setParallel(method == 2);
+					program.beginUpdate();
+					try {
+						reader.read(program);
+					} finally {
+						program.endUpdate();
+					}
+				}
+				best = Math.min(best, System.nanoTime() - start);
+				if(rows != 0 && rows != program.sizeRow()) {
+					throw new IllegalStateException("Imports differ in the number of rows.");
+				}
+				rows = program.sizeRow();
+			}
+			System.out.println(String.format(Locale.ROOT, "%-20s %12d %12.1f %12.1f", methods[method],
+					rows, best / 1e6, size / (best / 1e9)));
+		}
+	}
+	
+	/**
+	 * The former import: reads the file line by line and parses every line with a Scanner.
+	 * @param file The file
+	 * @param program The program
+	 * @throws IOException If the file could not be read
+	 */
+	private static void readLineByLine(File file, Program program) throws IOException {
+		String line;
+		program.beginUpdate();
+		try (BufferedReader reader = new BufferedReader(new FileReader(file))) {
+			while((line = reader.readLine()) != null) {
+				program.readFromRow(line);
+			}
+		} finally {
+			program.endUpdate();
+		}
+	}
+
+}
@@ -0,0 +1,291 @@
+/*********************************************************************\
+ * GeometryBenchmark.java - xmlCam G-Code Generator                  *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+package bench;
+
+import java.awt.geom.Area;
+import java.awt.geom.Rectangle2D;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Properties;
+
+import controller.GenerationProfile;
+import controller.Generator;
+import generator.Text;
+import model.Environment;
+import model.GCodeDialect;
+import model.Program;
+import model.Settings;
+
+/**
+ * Measures the hot paths of the geometry and the G-Code generation on representative inputs:
+ * <ul>
+ * <li>Text.execute with a long string</li>
+ * <li>ElementClosed.createPocket with a large pocket and a small tool</li>
+ * <li>ElementClosed.createInsetArea and createOutsetArea on the outline of a string</li>
+ * <li>Polyline.deCasteljau with many bezier and spline points (measured with Polyline.execute, because deCasteljau is private)</li>
+ * <li>GCodeEmitter.createGCode with deep Z stepping</li>
+ * </ul>
+ * Every case is run for a number of warmup iterations, which are not measured, and then for the measured iterations (like JMH in the mode average time).
+ * The generation cases are measured with a GenerationProfile, so only the time of the phase under test is taken and not the XML parsing.
+ * The generation runs serial in the calling thread, so the results do not depend on the number of processors.
+ * <p>
+ * The results can be saved as baseline and compared with the baseline of a former build. A case is marked if its mean differs by more than 10 % from the baseline.
+ * <pre>
+ * java bench.GeometryBenchmark [iterations] [warmup] [baseline file] [save]
+ * </pre>
+ * @author Christian Kirsch
+ */
+public class GeometryBenchmark {
+	
+	/**
+	 * The deviation from the baseline, which is reported as faster or slower.
+	 */
+	private static final double THRESHOLD = 0.1;
+	
+	/**
+	 * Consumes the results, so the JIT can not remove the measured code.
+	 */
+	private static volatile long blackhole;
+	
+	private Settings settings;
+	private GCodeDialect dialect;
+	
+	public GeometryBenchmark(Settings settings) {
+		this.settings = settings;
+		this.dialect = new GCodeDialect(settings);
+	}
+	
+	public static void main(String[] args) throws IOException {
+		int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+		int warmup = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+		File baselineFile = new File(args.length > 2 ? args[2] : "bench/baseline/geometry.properties");
+		boolean save = args.length > 3 && args[3].equals("save");
+		
+		Settings settings = new Settings();
+		settings.readSettings();
+		settings.setParallelGeneration(false);
+		GeometryBenchmark benchmark = new GeometryBenchmark(settings);
+		
+		Properties baseline = new Properties();
+		if(!save && baselineFile.isFile()) {
+			try (InputStream in = new FileInputStream(baselineFile)) {
+				baseline.load(in);
+			}
+		}
+		
+		System.out.println(String.format(Locale.ROOT, "Geometry and G-Code generation, %d warmup and %d measured iterations, Java %s", warmup, iterations,
+				System.getProperty("java.version")));
+		System.out.println(String.format(Locale.ROOT, "%-22s %12s %12s %12s %12s %10s", "Benchmark", "Mean [ms]", "Error [ms]", "Min [ms]", "Baseline", "Ratio"));
+		
+		Properties results = new Properties();
+		ArrayList<Case> cases = benchmark.createCases();
+		for(int i = 0; i < cases.size(); i++) {
+			Case c = cases.get(i);
+			for(int j = 0; j < warmup; j++) {
+				c.run();
+			}
+			double[] times = new double[iterations];
+			for(int j = 0; j < iterations; j++) {
+				times[j] = c.run() / 1e6;
+			}
+			
+			double mean = 0;
+			double min = Double.MAX_VALUE;
+			for(int j = 0; j < times.length; j++) {
+				mean += times[j] / times.length;
+				min = Math.min(min, times[j]);
+			}
+			double variance = 0;
+			for(int j = 0; j < times.length; j++) {
+				variance += (times[j] - mean) * (times[j] - mean) / Math.max(1, times.length - 1);
+			}
+			double error = 2 * Math.sqrt(variance / times.length); // About 95 % confidence
+			results.setProperty(c.name, String.format(Locale.ROOT, "%.3f", mean));
+			
+			String reference = baseline.getProperty(c.name);
+			String ratio = "";
+			if(reference != null) {
+				double r = mean / Double.parseDouble(reference);
+				ratio = String.format(Locale.ROOT, "%.2f", r) + (r > 1 + THRESHOLD ? " slower" : r < 1 - THRESHOLD ? " faster" : "");
+			}
+			System.out.println(String.format(Locale.ROOT, "%-22s %12.3f %12.3f %12.3f %12s %10s", c.name, mean, error, min, reference != null ? reference : "-", ratio));
+		}
+		
+		if(save) {
+			File dir = baselineFile.getAbsoluteFile().getParentFile();
+			if(!dir.isDirectory() && !dir.mkdirs()) {
+				throw new IOException("Could not create directory " + dir);
+			}
+			try (OutputStream out = new FileOutputStream(baselineFile)) {
+				results.store(out, "Mean time in ms of bench.GeometryBenchmark, Java " + System.getProperty("java.version") + ", " + 
+						Runtime.getRuntime().availableProcessors() + " processors");
+			}
+			System.out.println("Baseline saved to " + baselineFile);
+		}
+	}
+	
+	/**
+	 * Creates the cases of the benchmark.
+	 * @return The cases
+	 */
+	private ArrayList<Case> createCases() {
+		ArrayList<Case> cases = new ArrayList<Case>();
+		
+		String longText = "The quick brown fox jumps over the lazy dog 0123456789. Falsches Üben von Xylophonmusik quält jeden größeren Zwerg. ";
+		cases.add(new GenerationCase("text.execute", GenerationProfile.EXECUTE, program(
+				"<text tool=\"t1\"><content>" + longText + longText + "</content><point x=\"0\" y=\"0\"/>" + 
+				"<depth start=\"0\" end=\"-1\" step=\"1\"/><options size=\"20\" offset=\"outset\" flatness=\"0.05\"/></text>")));
+		
+		cases.add(new GenerationCase("text.pocket", GenerationProfile.EXECUTE, program(
+				"<text tool=\"t1\"><content>Pocket 08</content><point x=\"0\" y=\"0\"/>" + 
+				"<depth start=\"0\" end=\"-1\" step=\"1\"/><options size=\"80\" offset=\"inset\" pocket=\"parallel\"/></text>")));
+		
+		cases.add(new GenerationCase("circle.pocket", GenerationProfile.EXECUTE, program(
+				"<circle tool=\"t1\"><center x=\"200\" y=\"200\"/><radius value=\"200\"/>" + 
+				"<depth start=\"0\" end=\"-1\" step=\"1\"/><options segments=\"720\" offset=\"inset\" pocket=\"parallel\"/></circle>")));
+		
+		StringBuilder bezier = new StringBuilder("<polyline tool=\"t2\"><point x=\"0\" y=\"0\"/>");
+		StringBuilder spline = new StringBuilder("<polyline tool=\"t2\"><point x=\"0\" y=\"0\"/>");
+		for(int i = 1; i <= 2000; i++) {
+			double x = i * 0.2;
+			double y = 50 * Math.sin(i * 0.05);
+			String coordinates = String.format(Locale.ROOT, " x=\"%.3f\" y=\"%.3f\"/>", x, y);
+			bezier.append(i % 3 == 0 ? "<point" : "<bezier").append(coordinates);
+			spline.append("<spline").append(coordinates);
+		}
+		bezier.append("<point x=\"401\" y=\"0\"/><depth start=\"0\" end=\"-1\" step=\"1\"/></polyline>");
+		spline.append("<depth start=\"0\" end=\"-1\" step=\"1\"/></polyline>");
+		cases.add(new GenerationCase("polyline.bezier", GenerationProfile.EXECUTE, program(bezier.toString())));
+		cases.add(new GenerationCase("polyline.spline", GenerationProfile.EXECUTE, program(spline.toString())));
+		
+		cases.add(new GenerationCase("gcode.deep-z", GenerationProfile.CREATE_GCODE, program(
+				"<circle tool=\"t1\"><center x=\"100\" y=\"100\"/><radius value=\"50\"/>" + 
+				"<depth start=\"0\" end=\"-20\" step=\"0.02\"/><options segments=\"360\"/></circle>")));
+		
+		// The offsets are computed on the outline of a text
+		Program program = generate(program("<text tool=\"t1\"><content>Offset 0123456789</content><point x=\"0\" y=\"0\"/>" + 
+				"<depth start=\"0\" end=\"-1\" step=\"1\"/><options size=\"20\"/></text>"), null);
+		Text text = (Text) program.getElement(0);
+		Area outline = new Area(text.getShape());
+		cases.add(new Case("offset.inset") {
+			@Override
+			long run() {
+				long start = System.nanoTime();
+				Area area = text.createInsetArea(outline, 0.6f);
+				long time = System.nanoTime() - start;
+				consume(area.getBounds2D());
+				return time;
+			}
+		});
+		cases.add(new Case("offset.outset") {
+			@Override
+			long run() {
+				long start = System.nanoTime();
+				Area area = text.createOutsetArea(outline, 0.6f);
+				long time = System.nanoTime() - start;
+				consume(area.getBounds2D());
+				return time;
+			}
+		});
+		
+		return cases;
+	}
+	
+	/**
+	 * Wraps elements into a program with the tools of the benchmark.
+	 * @param elements The XML of the elements
+	 * @return The XML script
+	 */
+	private static String program(String elements) {
+		return "<?xml version=\"1.0\"?><program><tools><tool id=\"t1\" type=\"endmill\" diameter=\"1.2\"/>" + 
+				"<tool id=\"t2\" type=\"endmill\" diameter=\"2.5\"/></tools>" + elements + "</program>";
+	}
+	
+	/**
+	 * Generates the G-Code of a script.
+	 * @param xml The XML script
+	 * @param profile The profile or null
+	 * @return The program
+	 */
+	private Program generate(String xml, GenerationProfile profile) {
+		Program program = new Program();
+		Generator generator = new Generator(new Environment(settings, dialect, program), new StringReader(xml));
+		generator.setProfile(profile);
+		if(!generator.generate()) {
+			throw new IllegalStateException("Generation of the benchmark script failed.");
+		}
+		return program;
+	}
+	
+	private static void consume(Rectangle2D bounds) {
+		blackhole += (long) (bounds.getWidth() + bounds.getHeight());
+	}
+	
+	/**
+	 * A case of the benchmark.
+	 */
+	private static abstract class Case {
+		
+		protected String name;
+		
+		public Case(String name) {
+			this.name = name;
+		}
+		
+		/**
+		 * Runs the case once.
+		 * @return The measured time in nanoseconds
+		 */
+		abstract long run();
+		
+	}
+	
+	/**
+	 * A case, which generates a script and measures one phase of all elements with the profile.
+	 */
+	private class GenerationCase extends Case {
+		
+		private int phase;
+		private String xml;
+		
+		public GenerationCase(String name, int phase, String xml) {
+			super(name);
+			this.phase = phase;
+			this.xml = xml;
+		}
+
+		@Override
+		long run() {
+			GenerationProfile profile = new GenerationProfile();
+			Program program = generate(xml, profile);
+			blackhole += program.sizeRow();
+			return profile.getTotalTime(phase);
+		}
+		
+	}
+
+}
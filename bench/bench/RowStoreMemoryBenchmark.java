@@ -0,0 +1,133 @@
+/*********************************************************************\
+ * RowStoreMemoryBenchmark.java - xmlCam G-Code Generator            *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+package bench;
+
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.Locale;
+
+import controller.Generator;
+import model.ColumnarRowStore;
+import model.Environment;
+import model.Field;
+import model.GCodeDialect;
+import model.ListRowStore;
+import model.Program;
+import model.Row;
+import model.RowStore;
+import model.Settings;
+
+/**
+ * Compares the heap usage of the ListRowStore and the ColumnarRowStore.
+ * The G-Code of an XML file is generated once. Both stores are then filled with copies of the generated rows until they hold the requested amount of rows.
+ * The retained heap is measured after a garbage collection.
+ * <pre>
+ * java bench.RowStoreMemoryBenchmark [xml file] [rows]
+ * </pre>
+ * @author Christian Kirsch
+ */
+public class RowStoreMemoryBenchmark {
+	
+	public static void main(String[] args) throws IOException {
+		String xmlFile = args.length > 0 ? args[0] : "program.xml";
+		int rowCount = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+		
+		Settings settings = new Settings();
+		settings.readSettings();
+		Program template = new Program();
+		try (FileReader reader = new FileReader(xmlFile)) {
+			new Generator(new Environment(settings, new GCodeDialect(settings), template), reader).generate();
+		}
+		if(template.sizeRow() == 0) {
+			throw new IllegalStateException("No G-Code generated from " + xmlFile);
+		}
+		
+		System.out.println("Rows generated from " + xmlFile + ": " + template.sizeRow() + ", filled to " + rowCount + " rows");
+		System.out.println(String.format(Locale.ROOT, "%-20s %14s %12s %12s %12s", "Store", "Heap [bytes]", "Bytes/row", "Fill [ms]", "Read [ms]"));
+		
+		RowStore[] stores = { new ListRowStore(), new ColumnarRowStore() };
+		String checksum = null;
+		for(int i = 0; i < stores.length; i++) {
+			RowStore store = stores[i];
+			long before = usedMemory();
+			
+			long start = System.nanoTime();
+			for(int j = 0; j < rowCount; j++) {
+				store.add(copy(template.getRow(j % template.sizeRow())));
+			}
+			long fill = System.nanoTime() - start;
+			
+			long heap = usedMemory() - before;
+			
+			start = System.nanoTime();
+			long hash = 0;
+			for(int j = 0; j < store.size(); j++) {
+				hash = 31 * hash + store.get(j).toString().hashCode();
+			}
+			long read = System.nanoTime() - start;
+			
+			if(checksum != null && !checksum.equals(Long.toHexString(hash))) {
+				throw new IllegalStateException("Stores differ in content.");
+			}
+			checksum = Long.toHexString(hash);
+			
+			System.out.println(String.format(Locale.ROOT, "%-20s %14d %12.1f %12.1f %12.1f", store.getClass().getSimpleName(), heap,
+					(double) heap / rowCount, fill / 1e6, read / 1e6));
+			stores[i] = null; // release the store before measuring the next one
+		}
+	}
+	
+	/**
+	 * Copies a row, so that no field or comment is shared between the rows.
+	 * @param row The row
+	 * @return The copy
+	 */
+	private static Row copy(Row row) {
+		Row copy = new Row();
+		for(int i = 0; i < row.size(); i++) {
+			Field field = row.getField(i);
+			copy.addField(field.hasNumber() ? new Field(field.getLetter(), field.getFixedNumber()) : new Field(field.getLetter()));
+		}
+		if(row.getComment() != null) {
+			copy.setComment(new String(row.getComment()));
+		}
+		return copy;
+	}
+	
+	/**
+	 * Returns the used heap after garbage collection.
+	 * @return The used heap in bytes
+	 */
+	private static long usedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		long used = Long.MAX_VALUE;
+		for(int i = 0; i < 5; i++) {
+			System.gc();
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			used = Math.min(used, runtime.totalMemory() - runtime.freeMemory());
+		}
+		return used;
+	}
+
+}
@@ -0,0 +1,89 @@
+/*********************************************************************\
+ * WorkloadBenchmark.java - xmlCam G-Code Generator                  *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+package bench;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Locale;
+
+import controller.Generator;
+import controller.WorkloadGenerator;
+import model.ColumnarRowStore;
+import model.Environment;
+import model.GCodeDialect;
+import model.Program;
+import model.Settings;
+
+/**
+ * Measures the throughput of the G-Code generation in elements/s with a synthetic program of the WorkloadGenerator.
+ * The program is generated once in the calling thread and once with the elements computed in parallel on the common fork/join pool.
+ * The G-Code goes into a program with a ColumnarRowStore, so the heap does not limit the size of the program.
+ * <pre>
+ * java bench.WorkloadBenchmark [elements] [seed] [iterations] [mix]
+ * </pre>
+ * @author Christian Kirsch
+ */
+public class WorkloadBenchmark {
+	
+	public static void main(String[] args) throws IOException {
+		int elements = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		long seed = args.length > 1 ? Long.parseLong(args[1]) : 1;
+		int iterations = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+		
+		WorkloadGenerator workload = new WorkloadGenerator(seed);
+		workload.setElements(elements);
+		if(args.length > 3) {
+			workload.setMix(args[3]);
+		}
+		StringWriter writer = new StringWriter();
+		workload.write(writer);
+		String xml = writer.toString();
+		
+		Settings settings = new Settings();
+		settings.readSettings();
+		GCodeDialect dialect = new GCodeDialect(settings);
+		
+		System.out.println(String.format(Locale.ROOT, "Generation of a synthetic program with %d elements (%.1f MB, seed %d), best of %d runs, %d processors", 
+				elements, xml.length() / (1024.0 * 1024.0), seed, iterations, Runtime.getRuntime().availableProcessors()));
+		System.out.println(String.format(Locale.ROOT, "%-20s %12s %12s %12s", "Generation", "Rows", "Time [ms]", "Elements/s"));
+		
+		String[] methods = { "serial", "parallel" };
+		long rows = 0;
+		for(int method = 0; method < methods.length; method++) {
+			settings.setParallelGeneration(method == 1);
+			long best = Long.MAX_VALUE;
+			for(int i = 0; i < iterations; i++) {
+				Program program = new Program(new ColumnarRowStore());
+				long start = System.nanoTime();
+				if(!new Generator(new Environment(settings, dialect, program), new StringReader(xml)).generate()) {
+					throw new IllegalStateException("Generation of the synthetic program failed.");
+				}
+				best = Math.min(best, System.nanoTime() - start);
+				if(rows != 0 && rows != program.sizeRow()) {
+					throw new IllegalStateException("Generations differ in the number of rows.");
+				}
+				rows = program.sizeRow();
+			}
+			System.out.println(String.format(Locale.ROOT, "%-20s %12d %12.1f %12.0f", methods[method], rows, best / 1e6, elements / (best / 1e9)));
+		}
+	}
+
+}
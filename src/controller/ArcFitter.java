@@ -0,0 +1,215 @@
+/*********************************************************************\
+ * ArcFitter.java - xmlCam G-Code Generator                          *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+package controller;
+
+import java.awt.geom.Point2D;
+
+import model.ToolPath;
+
+/**
+ * This class replaces runs of short segments of a toolpath by circular arcs, which are emitted as G2/G3 instead of many G1 moves.
+ * An arc is fitted through the first, the middle and the last point of a run. The run is accepted, if all points and the middle of all segments
+ * are within the tolerance to the arc and the points go around the center in one direction. A run is extended by doubling its length
+ * and then by a binary search between the longest accepted and the shortest rejected run, so a run of n segments is checked in O(n log n)
+ * instead of O(n^2) for an extension by one segment. Every accepted arc is checked against all points of its run.
+ * The toolpath itself is not changed.
+ * @author Christian Kirsch
+ *
+ */
+public class ArcFitter {
+	
+	/**
+	 * The minimum number of segments replaced by an arc.
+	 */
+	private static final int MIN_SEGMENTS = 3;
+	/**
+	 * The maximum angle of an arc. A full circle is never emitted, because the start and end point would be the same.
+	 */
+	private static final double MAX_SWEEP = 1.5 * Math.PI;
+	/**
+	 * Arcs with a larger radius in mm are almost straight and stay lines.
+	 */
+	private static final double MAX_RADIUS = 1000;
+	/**
+	 * The minimum distance between start and end point of an arc in mm.
+	 */
+	private static final double MIN_CHORD = 0.001;
+	
+	/**
+	 * An arc from a point of the toolpath to a later point.
+	 */
+	public static class Arc {
+		
+		private final int start;
+		private final int end;
+		private final double centerX, centerY;
+		private final boolean clockwise;
+		
+		public Arc(int start, int end, double centerX, double centerY, boolean clockwise) {
+			this.start = start;
+			this.end = end;
+			this.centerX = centerX;
+			this.centerY = centerY;
+			this.clockwise = clockwise;
+		}
+		
+		public int getStart() {
+			return start;
+		}
+		
+		public int getEnd() {
+			return end;
+		}
+		
+		public double getCenterX() {
+			return centerX;
+		}
+		
+		public double getCenterY() {
+			return centerY;
+		}
+		
+		/**
+		 * Returns true if the arc goes clockwise from the start to the end point (G2), false if counterclockwise (G3).
+		 * @return true if clockwise
+		 */
+		public boolean isClockwise() {
+			return clockwise;
+		}
+	}
+	
+	/**
+	 * Fits arcs to a toolpath.
+	 * @param toolPath The toolpath
+	 * @param tolerance The maximum distance of the points and segments to the arc in mm
+	 * @return For every segment (from point i to point i + 1) the arc, which replaces the segment, or null if the segment stays a line.
+	 * Null if no arc was found.
+	 */
+	public static Arc[] fit(ToolPath toolPath, double tolerance) {
+		int last = toolPath.size() - 1;
+		Arc[] arcs = null;
+		int i = 0;
+		
+		while(i + MIN_SEGMENTS <= last) {
+			int j = i + MIN_SEGMENTS;
+			Arc arc = fitArc(toolPath, i, j, tolerance);
+			if(arc == null) {
+				i++;
+				continue;
+			}
+			int rejected = last + 1;
+			int step = 1;
+			while(j < last) {
+				int next = Math.min(j + step, last);
+				Arc longer = fitArc(toolPath, i, next, tolerance);
+				if(longer == null) {
+					rejected = next;
+					break;
+				}
+				arc = longer;
+				j = next;
+				step *= 2;
+			}
+			while(rejected - j > 1) {
+				int middle = (j + rejected) >>> 1;
+				Arc longer = fitArc(toolPath, i, middle, tolerance);
+				if(longer == null) {
+					rejected = middle;
+				} else {
+					arc = longer;
+					j = middle;
+				}
+			}
+			if(arcs == null) {
+				arcs = new Arc[last];
+			}
+			for(int k = i; k < j; k++) {
+				arcs[k] = arc;
+			}
+			i = j;
+		}
+		return arcs;
+	}
+	
+	/**
+	 * Fits an arc to the points from start to end.
+	 * @param toolPath The toolpath
+	 * @param start The index of the first point
+	 * @param end The index of the last point
+	 * @param tolerance The tolerance in mm
+	 * @return The arc or null, if the points are not on an arc
+	 */
+	private static Arc fitArc(ToolPath toolPath, int start, int end, double tolerance) {
+		Point2D.Double p1 = toolPath.get(start);
+		Point2D.Double p2 = toolPath.get((start + end) / 2);
+		Point2D.Double p3 = toolPath.get(end);
+		if(p1.distance(p3) < MIN_CHORD) {
+			return null;
+		}
+		
+		// Circumcircle of the three points
+		double ax = p2.getX() - p1.getX();
+		double ay = p2.getY() - p1.getY();
+		double bx = p3.getX() - p1.getX();
+		double by = p3.getY() - p1.getY();
+		double d = 2 * (ax * by - ay * bx);
+		if(Math.abs(d) < 1e-12) {
+			return null; // Collinear
+		}
+		double a2 = ax * ax + ay * ay;
+		double b2 = bx * bx + by * by;
+		double centerX = p1.getX() + (by * a2 - ay * b2) / d;
+		double centerY = p1.getY() + (ax * b2 - bx * a2) / d;
+		double radius = p1.distance(centerX, centerY);
+		if(radius > MAX_RADIUS) {
+			return null;
+		}
+		boolean clockwise = d < 0;
+		
+		double sweep = 0;
+		for(int k = start; k < end; k++) {
+			Point2D.Double q1 = toolPath.get(k);
+			Point2D.Double q2 = toolPath.get(k + 1);
+			if(Math.abs(q2.distance(centerX, centerY) - radius) > tolerance) {
+				return null;
+			}
+			double mx = (q1.getX() + q2.getX()) / 2;
+			double my = (q1.getY() + q2.getY()) / 2;
+			if(Math.abs(Point2D.distance(mx, my, centerX, centerY) - radius) > tolerance) {
+				return null;
+			}
+			// The points must go around the center in the direction of the arc
+			double ux = q1.getX() - centerX;
+			double uy = q1.getY() - centerY;
+			double vx = q2.getX() - centerX;
+			double vy = q2.getY() - centerY;
+			double angle = Math.atan2(ux * vy - uy * vx, ux * vx + uy * vy);
+			if(clockwise ? angle > 0 : angle < 0) {
+				return null;
+			}
+			sweep += Math.abs(angle);
+			if(sweep > MAX_SWEEP) {
+				return null;
+			}
+		}
+		return new Arc(start, end, centerX, centerY, clockwise);
+	}
+	
+}
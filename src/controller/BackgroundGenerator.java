@@ -0,0 +1,237 @@
+/*********************************************************************\
+ * BackgroundGenerator.java - xmlCam G-Code Generator                *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+package controller;
+
+import java.io.StringReader;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import main.Main;
+import model.ColumnarRowStore;
+import model.Environment;
+import model.ListRowStore;
+import model.Program;
+
+/**
+ * This class generates the G-Code of the XML script on a background thread, so the GUI is never blocked by a generation.
+ * Every run generates into a new program. When the run is finished, the result is swapped into the program of the environment on the Swing event thread.
+ * A new run cancels the previous run, so only the result of the latest run is shown.
+ * In live mode the G-Code is generated after every change of the script, as soon as the script has not been changed for a short time.
+ * A live run which fails (i.e. the script is incomplete while typing) does not replace the program, so the last valid result stays visible.
+ * All methods except the run itself must be called on the Swing event thread.
+ * @author Christian Kirsch
+ *
+ */
+public class BackgroundGenerator {
+	
+	/**
+	 * The quiet period after the last change in live mode in ms.
+	 */
+	private static final int DELAY = 500;
+	
+	private Environment env;
+	private Supplier<String> script;
+	private ElementCache cache;
+	private ToolPathCache toolPathCache;
+	private ExecutorService executor;
+	private Timer timer;
+	private boolean live;
+	/**
+	 * The number of the latest run. Results of older runs are dropped.
+	 */
+	private volatile int latestRun;
+	/**
+	 * The generator of the current run or null.
+	 */
+	private Generator current;
+	/**
+	 * The listener for the progress of every run or null.
+	 */
+	private GeneratorProgressListener progressListener;
+	/**
+	 * The profile of the last finished run or null.
+	 */
+	private volatile GenerationProfile lastProfile;
+	
+	/**
+	 * Constructs a background generator.
+	 * @param env The environment with the program, which shows the result
+	 * @param script Returns the current XML script. It is called on the Swing event thread.
+	 */
+	public BackgroundGenerator(Environment env, Supplier<String> script) {
+		this.env = env;
+		this.script = script;
+		this.cache = new ElementCache();
+		this.toolPathCache = ToolPathCache.open(env.getSettings());
+		this.executor = Executors.newSingleThreadExecutor(r -> {
+			Thread thread = new Thread(r, "xmlCAM generator");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.timer = new Timer(DELAY, e -> start(false));
+		this.timer.setRepeats(false);
+		this.live = false;
+		this.latestRun = 0;
+		this.current = null;
+		this.progressListener = null;
+		this.lastProfile = null;
+	}
+	
+	/**
+	 * Sets the live mode. In live mode every change of the script starts a new generation after the quiet period.
+	 * @param live true to enable the live mode
+	 */
+	public void setLive(boolean live) {
+		this.live = live;
+		if(live) {
+			timer.restart();
+		} else {
+			timer.stop();
+		}
+	}
+	
+	/**
+	 * Returns true if the live mode is enabled.
+	 * @return true in live mode
+	 */
+	public boolean isLive() {
+		return live;
+	}
+	
+	/**
+	 * Informs the generator about a change of the script. In live mode the generation starts after the quiet period.
+	 */
+	public void scriptChanged() {
+		if(live) {
+			timer.restart();
+		}
+	}
+	
+	/**
+	 * Starts a generation immediately. The result replaces the program even if the generation failed, like a generation in the foreground.
+	 */
+	public void generate() {
+		timer.stop();
+		start(true);
+	}
+	
+	/**
+	 * Cancels the current run. The program is not changed.
+	 */
+	public void cancel() {
+		timer.stop();
+		latestRun++;
+		synchronized(this) {
+			if(current != null) {
+				current.cancel();
+			}
+		}
+	}
+	
+	/**
+	 * Sets the listener, which is informed about the progress of every run.
+	 * @param progressListener The listener or null
+	 */
+	public void setProgressListener(GeneratorProgressListener progressListener) {
+		this.progressListener = progressListener;
+	}
+	
+	/**
+	 * Returns the profile of the last run, which was not cancelled. Every run is profiled.
+	 * @return The profile or null if no run was finished yet
+	 */
+	public GenerationProfile getLastProfile() {
+		return lastProfile;
+	}
+	
+	/**
+	 * Cancels the current run and starts a new run with the current script.
+	 * @param force true to replace the program also with the result of a failed run
+	 */
+	private void start(boolean force) {
+		String xml = script.get();
+		int run = ++latestRun;
+		synchronized(this) {
+			if(current != null) {
+				current.cancel();
+			}
+		}
+		executor.execute(() -> generate(xml, run, force));
+	}
+	
+	/**
+	 * Generates the G-Code on the background thread and swaps the result into the program.
+	 * @param xml The XML script
+	 * @param run The number of the run
+	 * @param force true to replace the program also with the result of a failed run
+	 */
+	private void generate(String xml, int run, boolean force) {
+		if(run != latestRun) {
+			return; // Superseded before it started
+		}
+		
+		Program result = new Program(env.getSettings().isColumnarProgram() ? new ColumnarRowStore() : new ListRowStore());
+		Generator generator = new Generator(new Environment(env.getSettings(), env.getDialect(), result), new StringReader(xml));
+		generator.setCache(cache);
+		generator.setToolPathCache(toolPathCache);
+		generator.setProgressListener(progressListener);
+		generator.setScriptLength(xml.length());
+		GenerationProfile profile = new GenerationProfile();
+		generator.setProfile(profile);
+		synchronized(this) {
+			current = generator;
+			if(run != latestRun) {
+				generator.cancel(); // Superseded while the generator was created
+			}
+		}
+		
+		long start = System.nanoTime();
+		boolean success = false;
+		try {
+			success = generator.generate();
+		} catch(RuntimeException e) {
+			Main.log.log(Level.SEVERE, "Generation failed; " + e);
+		} finally {
+			synchronized(this) {
+				current = null;
+			}
+		}
+		Main.log.log(Level.FINE, "Background generation {0} finished in {1} ms, success {2}.", new Object[] { run, (System.nanoTime() - start) / 1000000, success });
+		
+		if(generator.isCancelled()) {
+			return;
+		}
+		lastProfile = profile;
+		if(!success && !force) {
+			return;
+		}
+		SwingUtilities.invokeLater(() -> {
+			if(run == latestRun) {
+				env.getProgram().replace(result);
+			}
+		});
+	}
+
+}
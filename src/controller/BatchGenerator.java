@@ -0,0 +1,440 @@
+/*********************************************************************\
+ * BatchGenerator.java - xmlCam G-Code Generator                     *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+package controller;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+import main.Main;
+import model.Environment;
+import model.GCodeDialect;
+import model.GCodeFileSink;
+import model.Program;
+import model.Settings;
+
+/**
+ * This class generates G-Code for many XML files without the graphical user interface.
+ * Every file gets its own Program and Generator, so the files can be processed concurrently by a pool of workers.
+ * Settings and dialect are loaded once and are shared read only by all workers. The toolpath cache on disk (if enabled) is shared by all workers.
+ * @author Christian Kirsch
+ *
+ */
+public class BatchGenerator {
+	
+	private Settings settings;
+	private GCodeDialect dialect;
+	private ArrayList<File> inputFiles;
+	private File outputDir;
+	private int workers;
+	private ToolPathCache toolPathCache;
+	/**
+	 * The maximum time for one file in seconds. 0 for no limit.
+	 */
+	private int timeout;
+	/**
+	 * Writes a profile of every generation as JSON next to the G-Code file.
+	 */
+	private boolean profiling;
+	/**
+	 * Replaces the G-Code file also with the output of a failed generation.
+	 */
+	private boolean writeFailed;
+	/**
+	 * Cancels generations which exceed the timeout. Created with the first generation with a timeout, its thread is a daemon.
+	 */
+	private ScheduledExecutorService watchdog;
+	
+	/**
+	 * Constructs a new batch generator.
+	 * @param settings The settings shared by all workers
+	 * @param dialect The G-Code dialect shared by all workers
+	 * @param workers The number of files processed concurrently
+	 */
+	public BatchGenerator(Settings settings, GCodeDialect dialect, int workers) {
+		if(workers < 1) {
+			throw new IllegalArgumentException("The number of workers must be greater than 0.");
+		}
+		this.settings = settings;
+		this.dialect = dialect;
+		this.workers = workers;
+		this.inputFiles = new ArrayList<File>();
+		this.outputDir = null;
+		this.toolPathCache = ToolPathCache.open(settings);
+		this.timeout = 0;
+		this.profiling = false;
+		this.writeFailed = true;
+		this.watchdog = null;
+	}
+	
+	/**
+	 * Adds an XML file or a directory to the batch. All XML files of a directory will be added (not recursive).
+	 * @param file The XML file or the directory
+	 * @throws IllegalArgumentException If the file does not exist
+	 */
+	public void addInput(File file) throws IllegalArgumentException {
+		if(file.isDirectory()) {
+			File[] files = file.listFiles();
+			Arrays.sort(files);
+			for(int i = 0; i < files.length; i++) {
+				if(files[i].isFile() && files[i].getName().toLowerCase().endsWith(".xml")) {
+					inputFiles.add(files[i]);
+				}
+			}
+		} else if(file.isFile()) {
+			inputFiles.add(file);
+		} else {
+			throw new IllegalArgumentException("Input " + file + " does not exist.");
+		}
+	}
+	
+	/**
+	 * Sets the directory for the G-Code files. If no directory is set, the G-Code file will be written next to the XML file.
+	 * @param outputDir The output directory
+	 */
+	public void setOutputDir(File outputDir) {
+		this.outputDir = outputDir;
+	}
+	
+	/**
+	 * Sets the maximum time for the generation of one file. A generation which takes longer is cancelled and reported as failed.
+	 * @param timeout The timeout in seconds or 0 for no limit
+	 */
+	public void setTimeout(int timeout) {
+		if(timeout < 0) {
+			throw new IllegalArgumentException("The timeout must not be negative.");
+		}
+		this.timeout = timeout;
+	}
+	
+	/**
+	 * Enables the profiling of the generations. For every file a profile with the timings and counts of every element
+	 * is written as JSON in UTF-8 next to the G-Code file (extension .profile.json).
+	 * @param profiling true to write the profiles
+	 */
+	public void setProfiling(boolean profiling) {
+		this.profiling = profiling;
+	}
+	
+	/**
+	 * Sets if the G-Code file is replaced also with the output of a failed generation (default).
+	 * Otherwise the output of a failed generation is dropped and an existing G-Code file stays unchanged.
+	 * @param writeFailed false to keep the G-Code file if the generation failed
+	 */
+	public void setWriteFailed(boolean writeFailed) {
+		this.writeFailed = writeFailed;
+	}
+	
+	/**
+	 * Returns the amount of XML files in the batch.
+	 * @return The amount
+	 */
+	public int sizeInput() {
+		return inputFiles.size();
+	}
+	
+	/**
+	 * Returns the G-Code file for an XML file. The extension .xml will be replaced by .gcode.
+	 * @param inputFile The XML file
+	 * @return The G-Code file
+	 */
+	public File getOutputFile(File inputFile) {
+		String name = inputFile.getName();
+		int index = name.lastIndexOf('.');
+		if(index > 0) {
+			name = name.substring(0, index);
+		}
+		File dir = outputDir != null ? outputDir : inputFile.getAbsoluteFile().getParentFile();
+		return new File(dir, name + ".gcode");
+	}
+	
+	/**
+	 * Returns the profile file for a G-Code file. The extension .gcode will be replaced by .profile.json.
+	 * @param outputFile The G-Code file
+	 * @return The profile file
+	 */
+	public static File getProfileFile(File outputFile) {
+		String name = outputFile.getName();
+		int index = name.lastIndexOf('.');
+		if(index > 0) {
+			name = name.substring(0, index);
+		}
+		return new File(outputFile.getParentFile(), name + ".profile.json");
+	}
+	
+	/**
+	 * Generates the G-Code for all files in the batch.
+	 * @return The results in the order of the input files
+	 */
+	public ArrayList<Result> run() {
+		ArrayList<Result> results = new ArrayList<Result>();
+		ArrayList<Future<Result>> futures = new ArrayList<Future<Result>>();
+		
+		if(outputDir != null && !outputDir.isDirectory() && !outputDir.mkdirs()) {
+			Main.log.log(Level.SEVERE, "Could not create output directory {0}.", new Object[] { outputDir });
+			return results;
+		}
+		
+		ExecutorService executor = Executors.newFixedThreadPool(workers);
+		try {
+			for(int i = 0; i < inputFiles.size(); i++) {
+				final File inputFile = inputFiles.get(i);
+				futures.add(executor.submit(new Callable<Result>() {
+					@Override
+					public Result call() {
+						return generate(inputFile);
+					}
+				}));
+			}
+			for(int i = 0; i < futures.size(); i++) {
+				try {
+					results.add(futures.get(i).get());
+				} catch (ExecutionException e) {
+					Main.log.log(Level.SEVERE, "Generation of {0} failed. {1}", new Object[] { inputFiles.get(i), e.getCause() });
+					results.add(new Result(inputFiles.get(i), null, 0, 0, 0, false));
+				}
+			}
+		} catch (InterruptedException e) {
+			Main.log.log(Level.WARNING, "Batch generation was interrupted. " + e);
+			Thread.currentThread().interrupt();
+		} finally {
+			executor.shutdownNow();
+		}
+		return results;
+	}
+	
+	/**
+	 * Returns the watchdog for the timeout. It is created with the first call.
+	 * @return The watchdog
+	 */
+	private synchronized ScheduledExecutorService getWatchdog() {
+		if(watchdog == null) {
+			ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+				Thread thread = new Thread(r, "xmlCAM watchdog");
+				thread.setDaemon(true);
+				return thread;
+			});
+			executor.setRemoveOnCancelPolicy(true);
+			watchdog = executor;
+		}
+		return watchdog;
+	}
+	
+	/**
+	 * Generates the G-Code for one XML file and writes it to the G-Code file.
+	 * The G-Code is written to a temporary file in the output directory, which replaces the G-Code file atomically when the generation is finished.
+	 * So a reader of the output directory never sees an incomplete G-Code file. This method can be called concurrently for different files.
+	 * @param inputFile The XML file
+	 * @return The result with the row count and the wall time
+	 */
+	public Result generate(File inputFile) {
+		long start = System.nanoTime();
+		File outputFile = getOutputFile(inputFile);
+		Environment env = new Environment(settings, dialect, new Program());
+		boolean success;
+		int rows = 0;
+		int elements = 0;
+		GenerationProfile profile = profiling ? new GenerationProfile() : null;
+		File temp;
+		
+		try {
+			temp = File.createTempFile("." + outputFile.getName(), ".tmp", outputFile.getParentFile());
+		} catch (IOException e) {
+			Main.log.log(Level.SEVERE, "Error processing file {0}: {1}", new Object[] { inputFile, e });
+			return new Result(inputFile, null, 0, 0, System.nanoTime() - start, false);
+		}
+		
+		// The G-Code is streamed directly to the output file, the program of the environment stays empty.
+		// The file is read as bytes, so the parser decodes it with the encoding of the XML declaration.
+		try (InputStream in = new BufferedInputStream(new FileInputStream(inputFile)); GCodeFileSink sink = new GCodeFileSink(temp)) {
+			Generator generator = new Generator(env, in);
+			generator.setSink(sink);
+			generator.setToolPathCache(toolPathCache);
+			generator.setProfile(profile);
+			generator.setProgressListener(g -> Main.log.log(Level.FINE, "{0}: <{1}> in line {2}, {3} elements, {4} rows", 
+					new Object[] { inputFile.getName(), g.getCurrentElement(), g.getCurrentLine(), g.getElementsDone(), g.getRowsWritten() }));
+			ScheduledFuture<?> limit = timeout > 0 ? getWatchdog().schedule(generator::cancel, timeout, TimeUnit.SECONDS) : null;
+			try {
+				success = generator.generate();
+			} finally {
+				if(limit != null) {
+					limit.cancel(false);
+				}
+			}
+			if(generator.isCancelled()) {
+				Main.log.log(Level.WARNING, "Generation of {0} cancelled after {1} s at <{2}> in line {3}.", 
+						new Object[] { inputFile, timeout, generator.getCurrentElement(), generator.getCurrentLine() });
+			}
+			rows = sink.sizeRow();
+			elements = sink.sizeElements();
+		} catch (IOException e) {
+			Main.log.log(Level.SEVERE, "Error processing file {0}: {1}", new Object[] { inputFile, e });
+			success = false;
+			outputFile = null;
+		} catch (UncheckedIOException e) {
+			Main.log.log(Level.SEVERE, "Error processing file {0}: {1}", new Object[] { inputFile, e.getCause() });
+			success = false;
+			outputFile = null;
+		}
+		
+		try {
+			if(outputFile != null && (success || writeFailed)) {
+				try {
+					Files.move(temp.toPath(), outputFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+				} catch (AtomicMoveNotSupportedException e) {
+					Files.move(temp.toPath(), outputFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+				}
+			} else {
+				outputFile = null;
+			}
+		} catch (IOException e) {
+			Main.log.log(Level.SEVERE, "Error writing file {0}: {1}", new Object[] { outputFile, e });
+			success = false;
+			outputFile = null;
+		} finally {
+			temp.delete();
+		}
+		
+		if(profile != null && outputFile != null) {
+			File profileFile = getProfileFile(outputFile);
+			try (Writer writer = Files.newBufferedWriter(profileFile.toPath(), StandardCharsets.UTF_8)) {
+				profile.writeJson(writer);
+			} catch (IOException e) {
+				Main.log.log(Level.WARNING, "Could not write profile {0}: {1}", new Object[] { profileFile, e });
+			}
+		}
+		
+		Result result = new Result(inputFile, outputFile, rows, elements, System.nanoTime() - start, success);
+		Main.log.log(Level.INFO, "Generated {0}", new Object[] { result });
+		return result;
+	}
+	
+	/**
+	 * Prints a report with the wall time and the row count of every file and the throughput of the whole batch.
+	 * @param results The results of the batch
+	 * @param wallTime The wall time of the whole batch in nanoseconds
+	 * @param out The stream for the report
+	 */
+	public static void printReport(ArrayList<Result> results, long wallTime, PrintStream out) {
+		long rows = 0;
+		int failed = 0;
+		
+		out.println(String.format("%-40s %10s %10s %10s %s", "File", "Rows", "Elements", "Time [ms]", "Status"));
+		for(int i = 0; i < results.size(); i++) {
+			Result result = results.get(i);
+			out.println(String.format("%-40s %10d %10d %10.1f %s", result.getInputFile().getName(), result.getRows(), result.getElements(), result.getTime() / 1e6, result.isSuccess() ? "ok" : "failed"));
+			rows += result.getRows();
+			if(!result.isSuccess()) {
+				failed++;
+			}
+		}
+		double seconds = wallTime / 1e9;
+		out.println(String.format("%d files (%d failed), %d rows in %.2f s: %.1f files/s, %.0f rows/s", results.size(), failed, rows, seconds, results.size() / seconds, rows / seconds));
+	}
+	
+	/**
+	 * The result of the generation of one XML file.
+	 */
+	public static class Result {
+		
+		private File inputFile;
+		private File outputFile;
+		private int rows;
+		private int elements;
+		private long time;
+		private boolean success;
+		
+		public Result(File inputFile, File outputFile, int rows, int elements, long time, boolean success) {
+			this.inputFile = inputFile;
+			this.outputFile = outputFile;
+			this.rows = rows;
+			this.elements = elements;
+			this.time = time;
+			this.success = success;
+		}
+
+		public File getInputFile() {
+			return inputFile;
+		}
+
+		public File getOutputFile() {
+			return outputFile;
+		}
+
+		/**
+		 * Returns the amount of G-Code rows.
+		 * @return The amount
+		 */
+		public int getRows() {
+			return rows;
+		}
+
+		/**
+		 * Returns the amount of generated elements.
+		 * @return The amount
+		 */
+		public int getElements() {
+			return elements;
+		}
+
+		/**
+		 * Returns the wall time for reading, generation and writing in nanoseconds.
+		 * @return The wall time
+		 */
+		public long getTime() {
+			return time;
+		}
+
+		/**
+		 * Returns true, if the XML file was processed without errors.
+		 * @return true if successful
+		 */
+		public boolean isSuccess() {
+			return success;
+		}
+		
+		@Override
+		public String toString() {
+			return new String(inputFile + " -> " + outputFile + ": " + rows + " rows, " + elements + " elements in " + String.format("%.1f", time / 1e6) + " ms" + (success ? "" : " (failed)"));
+		}
+	}
+
+}
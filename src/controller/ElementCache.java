@@ -0,0 +1,248 @@
+/*********************************************************************\
+ * ElementCache.java - xmlCam G-Code Generator                       *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+package controller;
+
+import java.awt.geom.Point2D;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.logging.Level;
+
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+import generator.Element;
+import main.Main;
+import model.Tool;
+
+/**
+ * This class caches the computed elements between two generations of the same script.
+ * The key of an element is a SHA-256 hash of its XML subtree, the translation from the enclosing translation tags, the referenced tool,
+ * the geometry version and the version of xmlCam, so the key can also be used for the ToolPathCache on disk.
+ * If the key is found, the element with its toolpathes and shape is reused and not computed again, so after a small change of the script
+ * only the changed elements are computed. The toolpathes depend on the simplify-tolerance of the program, so it is part of the key.
+ * The other settings (i.e. arc-tolerance, the dialect or optimize-travel) are only used when the G-Code is written from the toolpathes, so they are not
+ * part of the key. The cached elements do not keep the generator, which computed them.
+ * The cached elements are shared between the programs of several generations and must not be changed after the computation.
+ * After a complete generation all elements which were not used by this generation are removed, so the cache never holds more than the elements of one script.
+ * @author Christian Kirsch
+ *
+ */
+public class ElementCache {
+	
+	/**
+	 * The version of the toolpath generation. It is part of the key, so toolpathes cached on disk by an older version are not reused.
+	 * Increase it with every change of execute() or purgePathes() of the elements, which changes the toolpathes.
+	 */
+	public static final int GEOMETRY_VERSION = 3;
+	
+	private HashMap<String, Element> elements;
+	private HashSet<String> used;
+	private int hits;
+	private int misses;
+	
+	/**
+	 * Constructs an empty cache.
+	 */
+	public ElementCache() {
+		this.elements = new HashMap<String, Element>();
+		this.used = new HashSet<String>();
+		this.hits = 0;
+		this.misses = 0;
+	}
+	
+	/**
+	 * Starts a new generation. The statistics are reset.
+	 */
+	public synchronized void beginGeneration() {
+		used.clear();
+		hits = 0;
+		misses = 0;
+	}
+	
+	/**
+	 * Ends a generation. If the generation was complete, the elements which were not used are removed.
+	 * If the generation was aborted by an error, all elements are kept.
+	 * @param complete true if the whole script was processed
+	 */
+	public synchronized void endGeneration(boolean complete) {
+		if(complete) {
+			Iterator<String> it = elements.keySet().iterator();
+			while(it.hasNext()) {
+				if(!used.contains(it.next())) {
+					it.remove();
+				}
+			}
+		}
+		Main.log.log(Level.FINE, "Element cache: {0} elements reused, {1} elements computed, {2} elements cached.", new Object[] { hits, misses, elements.size() });
+	}
+	
+	/**
+	 * Returns the cached element for a key.
+	 * @param key The key
+	 * @return The element or null if the key is not cached
+	 */
+	public synchronized Element get(String key) {
+		Element element = elements.get(key);
+		if(element != null) {
+			used.add(key);
+			hits++;
+		} else {
+			misses++;
+		}
+		return element;
+	}
+	
+	/**
+	 * Puts a computed element into the cache.
+	 * @param key The key
+	 * @param element The element
+	 */
+	public synchronized void put(String key, Element element) {
+		elements.put(key, element);
+		used.add(key);
+	}
+	
+	/**
+	 * Removes all elements.
+	 */
+	public synchronized void clear() {
+		elements.clear();
+		used.clear();
+	}
+	
+	/**
+	 * Returns the number of cached elements.
+	 * @return The number of elements
+	 */
+	public synchronized int size() {
+		return elements.size();
+	}
+	
+	/**
+	 * Returns the number of elements reused in the current generation.
+	 * @return The number of hits
+	 */
+	public synchronized int getHits() {
+		return hits;
+	}
+	
+	/**
+	 * Returns the number of elements not found in the current generation.
+	 * @return The number of misses
+	 */
+	public synchronized int getMisses() {
+		return misses;
+	}
+	
+	/**
+	 * Creates the key for an element.
+	 * @param node The node of the element with its subtree
+	 * @param translation The translation of the element
+	 * @param tool The tool of the element
+	 * @param simplifyTolerance The tolerance for the simplification of the program
+	 * @return The key as hex string
+	 */
+	public static String createKey(Node node, Point2D.Double translation, Tool tool, double simplifyTolerance) {
+		StringBuilder sb = new StringBuilder(256);
+		appendNode(sb, node);
+		sb.append("|translate ").append(translation.getX()).append(' ').append(translation.getY());
+		sb.append("|tool ").append(tool.getId()).append(' ').append(tool.getDiameter()).append(' ').append(tool.getType());
+		sb.append("|simplify ").append(simplifyTolerance);
+		sb.append("|geometry ").append(GEOMETRY_VERSION);
+		sb.append("|version ").append(Main.version);
+		
+		try {
+			return toHex(MessageDigest.getInstance("SHA-256").digest(sb.toString().getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 not available", e); // Every Java platform has SHA-256
+		}
+	}
+	
+	/**
+	 * Converts a hash to a string of lower case hex digits. Used for the keys of the cache and by the WatchDaemon.
+	 * @param hash The hash
+	 * @return The hex string
+	 */
+	public static String toHex(byte[] hash) {
+		StringBuilder sb = new StringBuilder(hash.length * 2);
+		for(int i = 0; i < hash.length; i++) {
+			sb.append(Character.forDigit((hash[i] >> 4) & 0xF, 16)).append(Character.forDigit(hash[i] & 0xF, 16));
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Appends a canonical form of a node and its subtree. The attributes are sorted by name and all values are escaped,
+	 * so two nodes have the same form exactly if they are equal.
+	 * @param sb The StringBuilder
+	 * @param node The node
+	 */
+	private static void appendNode(StringBuilder sb, Node node) {
+		if(node.getNodeType() == Node.TEXT_NODE || node.getNodeType() == Node.CDATA_SECTION_NODE) {
+			sb.append('"');
+			appendEscaped(sb, node.getNodeValue());
+			sb.append('"');
+			return;
+		}
+		
+		sb.append('<').append(node.getNodeName());
+		NamedNodeMap map = node.getAttributes();
+		if(map != null) {
+			String[] names = new String[map.getLength()];
+			for(int i = 0; i < names.length; i++) {
+				names[i] = map.item(i).getNodeName();
+			}
+			Arrays.sort(names);
+			for(int i = 0; i < names.length; i++) {
+				sb.append(' ').append(names[i]).append("=\"");
+				appendEscaped(sb, map.getNamedItem(names[i]).getNodeValue());
+				sb.append('"');
+			}
+		}
+		sb.append('>');
+		NodeList children = node.getChildNodes();
+		for(int i = 0; i < children.getLength(); i++) {
+			appendNode(sb, children.item(i));
+		}
+		sb.append("</>");
+	}
+	
+	/**
+	 * Appends a value with escaped quotes and backslashes.
+	 * @param sb The StringBuilder
+	 * @param value The value
+	 */
+	private static void appendEscaped(StringBuilder sb, String value) {
+		for(int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if(c == '"' || c == '\\') {
+				sb.append('\\');
+			}
+			sb.append(c);
+		}
+	}
+
+}
@@ -0,0 +1,745 @@
+/*********************************************************************\
+ * GCodeEmitter.java - xmlCam G-Code Generator                       *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+
+package controller;
+
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.logging.Level;
+
+import org.w3c.dom.Node;
+
+import main.Main;
+import model.Environment;
+import model.Field;
+import model.FixedPoint;
+import model.GCodeHelpers;
+import model.GCodeSink;
+import model.Row;
+import model.Tool;
+import model.ToolPath;
+import model.Tuple;
+
+/**
+ * This class writes the G-Code of the elements to the sink. It holds the modal state (tool, x, y, z), which is only changed on the thread of
+ * the generation in document order (or in the order of the ToolScheduler), so the G-Code is the same in serial and parallel mode.
+ * If the travel is optimized, the elements with the same tool are held back and emitted in the order with the shortest G0 moves found.
+ * @author Christian Kirsch
+ *
+ */
+class GCodeEmitter {
+	
+	private Generator generator;
+	private Environment env;
+	/**
+	 * The sink where the G-Code rows and the elements are written to.
+	 */
+	private GCodeSink sink;
+	/**
+	 * The current and the new position as fixed-point numbers. The current position is unknown (Long.MIN_VALUE) at the start.
+	 */
+	private long currentX, currentY, currentZ, newX, newY, newZ;
+	private Tool currentTool;
+	/**
+	 * The number of rows written. Written by the thread of the generation, read by the progress listener.
+	 */
+	private volatile long rowsWritten;
+	/**
+	 * True to optimize the order of the toolpathes for a short travel, see flushRun().
+	 */
+	private boolean optimizeTravel;
+	/**
+	 * The jobs of consecutive elements with the same tool, which G-Code is held back to optimize the travel.
+	 */
+	private ArrayList<Job> run;
+	/**
+	 * The ids of the elements in the run. An element, which has to be milled after one of them, ends the run.
+	 */
+	private HashSet<String> runIds;
+	/**
+	 * The length of the G0 moves between the toolpathes in mm in document order and in the optimized order.
+	 */
+	private double travelBefore, travelAfter;
+	/**
+	 * The tolerance for the arcs in mm. 0 if the segments are not replaced by arcs.
+	 */
+	private double arcTolerance;
+	/**
+	 * The number of points of the computed elements before and after the simplification.
+	 */
+	private long pointsBefore, pointsAfter;
+	
+	/**
+	 * Constructs an emitter, which writes to the program of the environment.
+	 * @param generator The generator, which is informed about the progress and can be cancelled
+	 * @param env The environment with settings, dialect and the program model
+	 */
+	public GCodeEmitter(Generator generator, Environment env) {
+		this.generator = generator;
+		this.env = env;
+		this.sink = env.getProgram();
+		this.currentX = Long.MIN_VALUE;
+		this.currentY = Long.MIN_VALUE;
+		this.currentZ = Long.MIN_VALUE;
+		this.newX = 0;
+		this.newY = 0;
+		this.newZ = 0;
+		this.currentTool = null;
+		this.rowsWritten = 0;
+		this.optimizeTravel = env.getSettings().isOptimizeTravel();
+		this.run = new ArrayList<Job>();
+		this.runIds = new HashSet<String>();
+		this.travelBefore = 0;
+		this.travelAfter = 0;
+		this.arcTolerance = env.getDialect().isArcs() ? env.getSettings().getArcTolerance() : 0;
+		this.pointsBefore = 0;
+		this.pointsAfter = 0;
+	}
+	
+	/**
+	 * Sets the sink for the generated G-Code, see Generator.setSink().
+	 * @param sink The sink
+	 */
+	public void setSink(GCodeSink sink) {
+		this.sink = sink;
+	}
+	
+	public long getRowsWritten() {
+		return rowsWritten;
+	}
+	
+	public boolean isOptimizeTravel() {
+		return optimizeTravel;
+	}
+	
+	public double getTravelBefore() {
+		return travelBefore;
+	}
+	
+	public double getTravelAfter() {
+		return travelAfter;
+	}
+	
+	public long getPointsBefore() {
+		return pointsBefore;
+	}
+	
+	public long getPointsAfter() {
+		return pointsAfter;
+	}
+	
+	/**
+	 * Writes a row to the sink and counts it.
+	 * @param row The row
+	 */
+	private void writeRow(Row row) {
+		sink.writeRow(row);
+		rowsWritten++;
+		if((rowsWritten & 0xFFF) == 0) {
+			generator.fireProgressChanged();
+		}
+	}
+	
+	/**
+	 * Emits the G-Code of an extracted element. If the travel is optimized, the elements are held back until the tool changes or a feedrate follows.
+	 * An error of the computation is thrown after the held back elements and the tool change, so at the same point of the G-Code as in serial mode.
+	 * @param job The job of the element, which is joined
+	 */
+	public void emitElement(Job job) {
+		if(optimizeTravel && job.executeError == null) {
+			if(!run.isEmpty() && (!isSameTool(run.get(0).element.getTool(), job.element.getTool()) || isAfterRun(job))) {
+				flushRun();
+			}
+			run.add(job);
+			if(job.id != null) {
+				runIds.add(job.id);
+			}
+		} else {
+			flushRun();
+			generateToolChange(job.element.getTool());
+			if(job.executeError != null) {
+				throw job.executeError;
+			}
+			writeElement(job, job.element.getToolPathes());
+		}
+	}
+	
+	/**
+	 * Emits a feedrate after the held back elements.
+	 * @param node The node with the feedrate
+	 */
+	public void emitFeedrate(Node node) {
+		flushRun();
+		setFeedRate(node);
+	}
+	
+	/**
+	 * Drops the held back elements, when the generation is aborted.
+	 */
+	public void clear() {
+		run.clear();
+		runIds.clear();
+	}
+	
+	/**
+	 * Returns true if the element has to be milled after an element of the run.
+	 * @param job The job of the element
+	 * @return true if the run must be emitted before the element
+	 */
+	private boolean isAfterRun(Job job) {
+		for(int i = 0; job.after != null && i < job.after.length; i++) {
+			if(runIds.contains(job.after[i])) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/**
+	 * Writes the G-Code of an element to the sink.
+	 * @param job The job of the element
+	 * @param toolPathes The toolpathes of the element in the order they are milled
+	 */
+	private void writeElement(Job job, ArrayList<ToolPath> toolPathes) {
+		if(job.source == GenerationProfile.COMPUTED) {
+			pointsBefore += job.element.getPointsIn();
+			for(ToolPath toolPath : job.element.getToolPathes()) {
+				pointsAfter += toolPath.size();
+			}
+		}
+		if(job.profile != null) {
+			long rows = rowsWritten;
+			long[] start = job.profile.begin();
+			createGCode(toolPathes, job.element.getZLevel());
+			job.profile.end(GenerationProfile.CREATE_GCODE, start);
+			job.profile.setResult(job.element, job.source, rowsWritten - rows);
+		} else {
+			createGCode(toolPathes, job.element.getZLevel());
+		}
+		sink.addElement(job.element);
+	}
+	
+	/**
+	 * Emits the G-Code of the held back elements, which have all the same tool, in the order with the shortest travel found.
+	 * The toolpathes of an element stay together. They are ordered so the pockets of an element are milled before its contours, then the elements are ordered.
+	 * Open toolpathes can be milled in reverse direction, closed toolpathes keep their direction of milling.
+	 * If the optimized order is not shorter, the elements are emitted in document order (with the pockets first).
+	 * The toolpathes of the elements are not changed, because they can be shared with the element cache.
+	 */
+	public void flushRun() {
+		if(run.isEmpty()) {
+			return;
+		}
+		double x = currentX != Long.MIN_VALUE ? FixedPoint.toDouble(currentX) : 0;
+		double y = currentY != Long.MIN_VALUE ? FixedPoint.toDouble(currentY) : 0;
+		ArrayList<Job> jobs = new ArrayList<Job>();
+		ArrayList<ArrayList<ToolPath>> ordered = new ArrayList<ArrayList<ToolPath>>();
+		ArrayList<TravelOptimizer.Stop> blocks = new ArrayList<TravelOptimizer.Stop>();
+		double[] position = { x, y };
+		double before = 0;
+		double pocketsFirst = 0;
+		
+		// The elements without toolpathes do not move the tool, they are emitted first
+		generateToolChange(run.get(0).element.getTool());
+		for(int i = 0; i < run.size(); i++) {
+			Job job = run.get(i);
+			ArrayList<ToolPath> toolPathes = job.element.getToolPathes();
+			if(toolPathes.isEmpty()) {
+				writeElement(job, toolPathes);
+				continue;
+			}
+			int passes = getPasses(job.element.getZLevel());
+			ArrayList<ToolPath> element = orderToolPathes(toolPathes, passes, position[0], position[1], false, !job.element.isCompensated());
+			Point2D.Double start = getEntry(element.get(0), position[0], position[1]);
+			before += getTravel(toolPathes, passes, position);
+			double[] entry = { start.getX(), start.getY() };
+			double[] exit = entry.clone();
+			getTravel(element, passes, exit);
+			blocks.add(new TravelOptimizer.Stop(jobs.size(), entry[0], entry[1], exit[0], exit[1], false));
+			jobs.add(job);
+			ordered.add(element);
+		}
+		
+		// Document order with the pockets first
+		position[0] = x;
+		position[1] = y;
+		for(int i = 0; i < jobs.size(); i++) {
+			pocketsFirst += getTravel(ordered.get(i), getPasses(jobs.get(i).element.getZLevel()), position);
+		}
+		
+		// Order the elements, then order the toolpathes again from the position where the element is entered
+		ArrayList<TravelOptimizer.Stop> tour = TravelOptimizer.optimize(blocks, x, y);
+		ArrayList<Job> optimizedJobs = new ArrayList<Job>(jobs.size());
+		ArrayList<ArrayList<ToolPath>> optimized = new ArrayList<ArrayList<ToolPath>>(jobs.size());
+		double after = 0;
+		position[0] = x;
+		position[1] = y;
+		for(int i = 0; i < tour.size(); i++) {
+			Job job = jobs.get(tour.get(i).getIndex());
+			int passes = getPasses(job.element.getZLevel());
+			ArrayList<ToolPath> element = orderToolPathes(job.element.getToolPathes(), passes, position[0], position[1], true, !job.element.isCompensated());
+			after += getTravel(element, passes, position);
+			optimizedJobs.add(job);
+			optimized.add(element);
+		}
+		if(after >= pocketsFirst) {
+			optimizedJobs = jobs;
+			optimized = ordered;
+			after = pocketsFirst;
+		}
+		travelBefore += before;
+		travelAfter += after;
+		run.clear();
+		runIds.clear();
+		
+		for(int i = 0; i < optimizedJobs.size(); i++) {
+			writeElement(optimizedJobs.get(i), optimized.get(i));
+		}
+	}
+	
+	/**
+	 * Orders the toolpathes of an element. The pockets are milled before the contours.
+	 * A closed toolpath is entered at its seam for the position where the element is entered, an open toolpath at its first point.
+	 * @param toolPathes The toolpathes of the element in document order
+	 * @param passes The number of passes in z direction
+	 * @param x The x coordinate of the position, where the element is entered
+	 * @param y The y coordinate of the position, where the element is entered
+	 * @param optimize true to order the pockets and the contours for a short travel, false to keep the document order
+	 * @param reversible true if open contours can be milled from the other end, false if their direction is given by the compensation
+	 * (see Element.isCompensated()). Open pocket toolpathes can always be reversed.
+	 * @return The ordered toolpathes. Reversed toolpathes are new copies.
+	 */
+	private ArrayList<ToolPath> orderToolPathes(ArrayList<ToolPath> toolPathes, int passes, double x, double y, boolean optimize, boolean reversible) {
+		ArrayList<TravelOptimizer.Stop> pockets = new ArrayList<TravelOptimizer.Stop>();
+		ArrayList<TravelOptimizer.Stop> contours = new ArrayList<TravelOptimizer.Stop>();
+		
+		for(int i = 0; i < toolPathes.size(); i++) {
+			ToolPath toolPath = toolPathes.get(i);
+			Point2D.Double start = getEntry(toolPath, x, y);
+			Point2D.Double end = toolPath.isClosed() ? start : toolPath.get(toolPath.size() - 1);
+			TravelOptimizer.Stop stop;
+			if(passes % 2 == 1) {
+				stop = new TravelOptimizer.Stop(i, start.getX(), start.getY(), end.getX(), end.getY(), false);
+			} else {
+				stop = new TravelOptimizer.Stop(i, start.getX(), start.getY(), start.getX(), start.getY(), false);
+			}
+			if(!start.equals(end) && (reversible || toolPath.isPocket())) {
+				// Open toolpath, can be milled from the other end
+				stop.setAlternative(new TravelOptimizer.Stop(i, end.getX(), end.getY(), passes % 2 == 1 ? start.getX() : end.getX(), 
+						passes % 2 == 1 ? start.getY() : end.getY(), true));
+			}
+			if(toolPath.isPocket()) {
+				pockets.add(stop);
+			} else {
+				contours.add(stop);
+			}
+		}
+		
+		ArrayList<TravelOptimizer.Stop> tour = pockets;
+		if(optimize) {
+			tour = TravelOptimizer.optimize(pockets, x, y);
+			if(!tour.isEmpty()) {
+				x = tour.get(tour.size() - 1).getExitX();
+				y = tour.get(tour.size() - 1).getExitY();
+			}
+			tour.addAll(TravelOptimizer.optimize(contours, x, y));
+		} else {
+			tour.addAll(contours);
+		}
+		
+		ArrayList<ToolPath> ordered = new ArrayList<ToolPath>(tour.size());
+		for(int i = 0; i < tour.size(); i++) {
+			ToolPath toolPath = toolPathes.get(tour.get(i).getIndex());
+			if(tour.get(i).isReversed()) {
+				ToolPath reversed = new ToolPath(toolPath.getName(), toolPath.isPocket());
+				for(int j = toolPath.size() - 1; j >= 0; j--) {
+					reversed.addPoint(toolPath.get(j));
+				}
+				toolPath = reversed;
+			}
+			ordered.add(toolPath);
+		}
+		return ordered;
+	}
+	
+	/**
+	 * Returns the point where a toolpath is entered from a position. This is the seam of a closed toolpath (see createGCode()) and
+	 * the first point of an open toolpath.
+	 * @param toolPath The toolpath
+	 * @param x The x coordinate of the position
+	 * @param y The y coordinate of the position
+	 * @return The entry point
+	 */
+	private static Point2D.Double getEntry(ToolPath toolPath, double x, double y) {
+		return toolPath.isClosed() ? toolPath.getSeam(x, y) : toolPath.get(0);
+	}
+	
+	/**
+	 * Returns the length of the G0 moves to and between the toolpathes.
+	 * The position after an open toolpath is its last point for an odd number of passes and its first point for an even number.
+	 * A closed toolpath starts and ends at its seam, see createGCode().
+	 * @param toolPathes The toolpathes in the order they are milled
+	 * @param passes The number of passes in z direction
+	 * @param position The x and y coordinate of the start position. Set to the position after the last toolpath.
+	 * @return The length in mm
+	 */
+	private static double getTravel(ArrayList<ToolPath> toolPathes, int passes, double[] position) {
+		double travel = 0;
+		for(int i = 0; i < toolPathes.size(); i++) {
+			ToolPath toolPath = toolPathes.get(i);
+			Point2D.Double start = getEntry(toolPath, position[0], position[1]);
+			Point2D.Double end = toolPath.isClosed() || passes % 2 == 0 ? start : toolPath.get(toolPath.size() - 1);
+			travel += start.distance(position[0], position[1]);
+			position[0] = end.getX();
+			position[1] = end.getY();
+		}
+		return travel;
+	}
+	
+	/**
+	 * Returns the number of passes in z direction, which createGCode() mills for every toolpath.
+	 * @param zLevel The milling depth (start, end, step)
+	 * @return The number of passes
+	 */
+	private static int getPasses(Tuple zLevel) {
+		long z = zLevel.getFixedValue(0);
+		long endZ = zLevel.getFixedValue(1);
+		long stepZ = zLevel.getFixedValue(2);
+		if(z == endZ || stepZ <= 0) {
+			return 1;
+		} else if(z < endZ) {
+			return 2;
+		}
+		return (int) (1 + (z - endZ + stepZ - 1) / stepZ);
+	}
+	
+	/**
+	 * Returns true if the tools are equal. The tools are compared by id, see generateToolChange().
+	 * Also used by the ToolScheduler.
+	 * @param tool The first tool
+	 * @param other The second tool
+	 * @return true if equal
+	 */
+	public static boolean isSameTool(Tool tool, Tool other) {
+		if(tool == null || other == null) {
+			return tool == other;
+		}
+		return tool.getId().equals(other.getId());
+	}
+	
+	/**
+	 * Sets the feedrate in mm/min. (Fxxx)
+	 * @param  node The node with the feedrate parameter [feedrate]
+	 */
+	private void setFeedRate(Node node) throws IllegalArgumentException {
+		Tuple feedrate = new Tuple(node);
+
+		Row row = new Row();
+		row.addField(new Field('G', FixedPoint.valueOf(0)));
+		row.addField(new Field('F', feedrate.getFixedValue(0)));
+		row.setComment(new String("Set feedrate to " + FixedPoint.toString(feedrate.getFixedValue(0))));
+		writeRow(row);
+	}
+	
+	/**
+	 * Parses the G-Code lines (i.e. from the dialect) and writes them to the sink.
+	 * @param lines The G-Code lines
+	 */
+	public void writeLines(ArrayList<String> lines) {
+		for(int i = 0; i < lines.size(); i++) {
+			writeRow(GCodeHelpers.parseRow(lines.get(i)));
+		}
+	}
+	
+	/**
+	 * Generates G-Code for a tool change, if the tool differs from previous and next element.
+	 * The tools are compared by id, because elements from the cache refer to the equal tool object of a previous generation.
+	 * @param newTool The new tool
+	 */
+	private void generateToolChange(Tool newTool) {
+		if(currentTool == null) {
+			currentTool = newTool;
+		} else {
+			if(newTool == null || !newTool.getId().equals(currentTool.getId())) {
+				currentTool = newTool;
+				try {
+					writeLines(env.getDialect().getLines("toolchange"));
+				} catch (NullPointerException e) {
+					Main.log.log(Level.SEVERE, "No dialect for toolchange G-Code defined. Please define a valid dialect in settings.yaml.");
+				}
+			}
+		}
+	}
+	
+	/**
+	 * This method creates the G-Code for the toolpath.
+	 * An open toolpath is milled forward and back in the passes of the depth. A closed toolpath is milled in the same direction in every pass
+	 * and starts at the point nearest to the current position (see ToolPath.rotate()).
+	 * Runs of segments on a circle are replaced by G2/G3 arcs (see ArcFitter), if the dialect supports arcs. In the backward passes the arcs are reversed.
+	 * 
+	 * @param toolPath The toolpath
+	 * @param zLevel The milling depth (z-axis)
+	 */
+	private void createGCode(ArrayList<ToolPath> toolPathes, Tuple zLevel) {
+		long endZ = zLevel.getFixedValue(1);
+		long stepZ = zLevel.getFixedValue(2);
+		
+				
+		if(stepZ <= 0) {
+			throw new IllegalArgumentException("The Z step must be greater than 0");
+		}
+		
+		// i is number of the toolpath
+		for(int i = 0; i < toolPathes.size(); i++) {
+			generator.checkCancelled();
+			ToolPath toolPath = toolPathes.get(i);
+			boolean closed = toolPath.isClosed();
+			if(closed && currentX != Long.MIN_VALUE && currentY != Long.MIN_VALUE) {
+				toolPath = toolPath.rotate(FixedPoint.toDouble(currentX), FixedPoint.toDouble(currentY));
+			}
+			ArcFitter.Arc[] arcs = arcTolerance > 0 ? ArcFitter.fit(toolPath, arcTolerance) : null;
+			newX = toolPath.getFixedX(0);
+			newY = toolPath.getFixedY(0);
+			newZ = zLevel.getFixedValue(0);
+			boolean forward = true;
+			
+			go0(newX, newY, "Go to start position for element " + toolPath.getName()); // go to start position
+				
+			while(true) {
+				generator.checkCancelled();
+				if(forward) {
+					go1(newX, newY, newZ);  // Z sink
+					for(int j = 1; j < toolPath.size(); j++) {
+						ArcFitter.Arc arc = arcs != null ? arcs[j - 1] : null;
+						if(arc != null) {
+							j = arc.getEnd();
+						}
+						newX = toolPath.getFixedX(j);
+						newY = toolPath.getFixedY(j);
+						if(arc != null) {
+							goArc(newX, newY, arc.getCenterX(), arc.getCenterY(), arc.isClockwise(), toolPath.getName());  // X-Y arc
+						} else {
+							go1(newX, newY, newZ, toolPath.getName());  // X-Y move
+						}
+					}
+					forward = closed;
+				} else {
+					go1(newX, newY, newZ);  // Z sink
+					for(int j = toolPath.size() - 2; j >= 0; j--) {
+						ArcFitter.Arc arc = arcs != null ? arcs[j] : null;
+						if(arc != null) {
+							j = arc.getStart();
+						}
+						newX = toolPath.getFixedX(j);
+						newY = toolPath.getFixedY(j);
+						if(arc != null) {
+							goArc(newX, newY, arc.getCenterX(), arc.getCenterY(), !arc.isClockwise(), toolPath.getName());  // X-Y arc
+						} else {
+							go1(newX, newY, newZ, toolPath.getName());  // X-Y move
+						}
+					}
+					forward = true;
+				}
+				// If last zLevel was cutted, break
+				if(newZ == endZ) {
+					break;
+				}
+				
+				newZ -= stepZ;
+				
+				// If last zLevel is < endLevel cut the last zLevel with endZ value
+				if(newZ < endZ) {
+					newZ = endZ;
+				}
+			}
+			go0(currentX, currentY, "End element " + toolPath.getName() + " Lift up at current position.");
+		}
+	}
+	
+	/**
+	 * Performs a G0 move.
+	 * For z the safety height above zero is used. If new x or y is not different to the current x and y, the field will not displayed. I.e. move from (10,10) to (10,20) the output will be G0 Y20.
+	 * 
+	 * @param x The new x coordinate
+	 * @param y The new y coordinate
+	 */
+	@SuppressWarnings("unused")
+	private void go0(long x, long y) {
+		go0(x, y, null, null);
+	}
+	
+	/**
+	 * Performs a G0 move.
+	 * For z the safety height above zero is used. If new x or y is not different to the current x and y, the field will not displayed. I.e. move from (10,10) to (10,20) the output will be G0 Y20.
+	 * 
+	 * @param x The new x coordinate
+	 * @param y The new y coordinate
+	 * @param comment A comment for the behind the G0
+	 */
+	private void go0(long x, long y, String comment) {
+		go0(x, y, null, comment);
+	}
+	
+	/**
+	 * Performs a G0 move.
+	 * For z the safety height above zero is used. If new x or y is not different to the current x and y, the field will not displayed. I.e. move from (10,10) to (10,20) the output will be G0 Y20.
+	 * 
+	 * @param x The new x coordinate
+	 * @param y The new y coordinate
+	 * @param feedrate The feedrate in mm/min
+	 * @param comment A comment for the behind the G0
+	 */
+	private void go0(long x, long y, Long feedrate, String comment) {
+		long z = FixedPoint.fromDouble(env.getSettings().getSecurityHeight());
+		
+		Row row = new Row();
+		
+		if(comment != null) {
+			row.setComment(comment);
+		}
+		
+		row.addField(new Field('G', FixedPoint.valueOf(0)));
+		
+		if(newX != currentX) {
+			row.addField(new Field('X', x));
+			this.currentX = x;
+		}
+		
+		if(newY != currentY) {
+			row.addField(new Field('Y', y));
+			this.currentY = y;
+		}
+			
+		// move z always to security high when G0 move shall performed
+		if(z != currentZ) {
+			row.addField(new Field('Z', z));
+			this.currentZ = z;
+		}
+		
+		if(feedrate != null) {
+			row.addField(new Field('F', feedrate));
+		}
+		
+		writeRow(row);
+	}
+	
+	/**
+	 * Performs a G1 move.
+	 * If new x, y or z is not different to the current x,y and z, the field will not displayed. I.e. move from (10,10,10) to (10,20,10) the output will be G1 Y20.
+	 * 
+	 * @param x The new x coordinate
+	 * @param y The new y coordinate
+	 * @param z The new z coordinate
+	 */
+	private void go1(long x, long y, long z) {
+		go1(x, y, z, null, null);
+	}
+	
+	/**
+	 * Performs a G1 move.
+	 * If new x, y or z is not different to the current x,y and z, the field will not displayed. I.e. move from (10,10,10) to (10,20,10) the output will be G1 Y20.
+	 * 
+	 * @param x The new x coordinate
+	 * @param y The new y coordinate
+	 * @param z The new z coordinate
+	 * @param comment The comment
+	 */
+	private void go1(long x, long y, long z, String comment) {
+		go1(x, y, z, null, comment);
+	}
+	
+	/**
+	 * Performs a G1 move.
+	 * If new x, y or z is not different to the current x,y and z, the field will not displayed. I.e. move from (10,10,10) to (10,20,10) the output will be G1 Y20.
+	 * 
+	 * @param x The new x coordinate
+	 * @param y The new y coordinate
+	 * @param z The new z coordinate
+	 * @param feedrate The feedrate in mm/min
+	 * @param comment A comment for behind the G1
+	 */
+	private void go1(long x, long y, long z, Long feedrate, String comment) {
+		Row row = new Row();
+		
+		if(comment != null) {
+			row.setComment(comment);
+		}
+		
+		row.addField(new Field('G', FixedPoint.valueOf(1)));
+		
+		if(newX != currentX) {
+			row.addField(new Field('X', x));
+			this.currentX = x;
+		}
+		
+		if(newY != currentY) {
+			row.addField(new Field('Y', y));
+			this.currentY = y;
+		}
+
+		if(newZ != currentZ) {
+			row.addField(new Field('Z', z));
+			this.currentZ = z;
+		}
+		
+		if(feedrate != null) {
+			row.addField(new Field('F', feedrate));
+		}
+		
+		writeRow(row);
+		
+		// remove line if there are no commands
+		/*if(env.getProgram().getLine(env.getProgram().size() - 1).size() <= 1) {
+			env.getProgram().removeLine(env.getProgram().size() - 1);
+		}*/
+
+	}
+		
+	/**
+	 * Performs a G2 (clockwise) or G3 (counterclockwise) move in the XY plane at the current z.
+	 * The center is written as offset (I, J) from the current position. X and Y are always written, so the arc is never a full circle.
+	 * 
+	 * @param x The new x coordinate
+	 * @param y The new y coordinate
+	 * @param centerX The x coordinate of the center
+	 * @param centerY The y coordinate of the center
+	 * @param clockwise true for G2, false for G3
+	 * @param comment A comment for behind the move
+	 */
+	private void goArc(long x, long y, double centerX, double centerY, boolean clockwise, String comment) {
+		Row row = new Row();
+		
+		if(comment != null) {
+			row.setComment(comment);
+		}
+		
+		row.addField(new Field('G', FixedPoint.valueOf(clockwise ? 2 : 3)));
+		row.addField(new Field('X', x));
+		row.addField(new Field('Y', y));
+		row.addField(new Field('I', FixedPoint.fromDouble(centerX) - currentX));
+		row.addField(new Field('J', FixedPoint.fromDouble(centerY) - currentY));
+		this.currentX = x;
+		this.currentY = y;
+		
+		writeRow(row);
+	}
+
+}
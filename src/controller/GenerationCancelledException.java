@@ -0,0 +1,36 @@
+/*********************************************************************\
+ * GenerationCancelledException.java - xmlCam G-Code Generator       *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+package controller;
+
+/**
+ * Thrown inside the generation, if the generation was cancelled by Generator.cancel().
+ * The generator catches the exception and generate() returns false.
+ * @author Christian Kirsch
+ *
+ */
+public class GenerationCancelledException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public GenerationCancelledException() {
+		super("Generation cancelled.");
+	}
+
+}
@@ -0,0 +1,500 @@
+/*********************************************************************\
+ * GenerationProfile.java - xmlCam G-Code Generator                  *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+package controller;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Locale;
+
+import generator.Element;
+import model.ToolPath;
+
+/**
+ * This class records the profile of a generation: for every element the wall time and the allocated bytes of the phases
+ * (extract, execute, purgePathes, createGCode), the number of toolpathes and points and the number of emitted rows.
+ * The allocated bytes are measured with the ThreadMXBean of the JVM, if it supports it (-1 otherwise).
+ * Every phase runs completely on one thread, so the measurement is also correct in parallel mode.
+ * The profile can be written as JSON, i.e. in batch mode.
+ * @author Christian Kirsch
+ *
+ */
+public class GenerationProfile {
+	
+	/**
+	 * The element was computed.
+	 */
+	public static final int COMPUTED = 0;
+	/**
+	 * The element was taken from the ElementCache.
+	 */
+	public static final int MEMORY_CACHE = 1;
+	/**
+	 * The element was read from the ToolPathCache.
+	 */
+	public static final int DISK_CACHE = 2;
+	
+	public static final int EXTRACT = 0;
+	public static final int EXECUTE = 1;
+	public static final int PURGE = 2;
+	public static final int CREATE_GCODE = 3;
+	/**
+	 * The names of the phases for reports, in the order of the constants.
+	 */
+	public static final String[] PHASES = { "extract", "execute", "purgePathes", "createGCode" };
+	
+	private static final String[] SOURCES = { "computed", "memory-cache", "disk-cache" };
+	
+	private ArrayList<ElementProfile> elements;
+	private long startTime;
+	private long wallTime;
+	/**
+	 * The length of the G0 moves in document order and in the optimized order. Negative if the travel was not optimized.
+	 */
+	private double travelBefore, travelAfter;
+	/**
+	 * The number of tool changes in document order and in the grouped order. Negative if the elements were not grouped.
+	 */
+	private int toolChangesBefore, toolChangesAfter;
+	/**
+	 * The number of points of the computed elements before and after the simplification. Negative if no element was computed.
+	 */
+	private long pointsBefore, pointsAfter;
+	
+	/**
+	 * Constructs an empty profile.
+	 */
+	public GenerationProfile() {
+		this.elements = new ArrayList<ElementProfile>();
+		this.startTime = 0;
+		this.wallTime = 0;
+		this.travelBefore = -1;
+		this.travelAfter = -1;
+		this.toolChangesBefore = -1;
+		this.toolChangesAfter = -1;
+		this.pointsBefore = -1;
+		this.pointsAfter = -1;
+	}
+	
+	/**
+	 * Starts the profile of a generation. All recorded elements are removed.
+	 */
+	public synchronized void start() {
+		elements.clear();
+		startTime = System.nanoTime();
+		wallTime = 0;
+		travelBefore = -1;
+		travelAfter = -1;
+		toolChangesBefore = -1;
+		toolChangesAfter = -1;
+		pointsBefore = -1;
+		pointsAfter = -1;
+	}
+	
+	/**
+	 * Stops the profile of a generation.
+	 */
+	public synchronized void stop() {
+		wallTime = System.nanoTime() - startTime;
+	}
+	
+	/**
+	 * Creates the profile for a new element in document order.
+	 * @param tag The tag name of the element
+	 * @param line The line of the element in the script
+	 * @return The profile of the element
+	 */
+	public synchronized ElementProfile addElement(String tag, int line) {
+		ElementProfile profile = new ElementProfile(elements.size(), tag, line);
+		elements.add(profile);
+		return profile;
+	}
+	
+	/**
+	 * Returns the number of profiled elements.
+	 * @return The number of elements
+	 */
+	public synchronized int size() {
+		return elements.size();
+	}
+	
+	/**
+	 * Returns the profile of an element.
+	 * @param index The index in document order
+	 * @return The profile
+	 */
+	public synchronized ElementProfile get(int index) {
+		return elements.get(index);
+	}
+	
+	/**
+	 * Returns the wall time of the whole generation.
+	 * @return The time in nanoseconds
+	 */
+	public synchronized long getWallTime() {
+		return wallTime;
+	}
+	
+	/**
+	 * Sets the length of the G0 moves, if the travel was optimized.
+	 * @param before The length in document order in mm
+	 * @param after The length in the optimized order in mm
+	 */
+	public synchronized void setTravel(double before, double after) {
+		travelBefore = before;
+		travelAfter = after;
+	}
+	
+	/**
+	 * Returns the length of the G0 moves in document order.
+	 * @return The length in mm or a negative value, if the travel was not optimized
+	 */
+	public synchronized double getTravelBefore() {
+		return travelBefore;
+	}
+	
+	/**
+	 * Returns the length of the G0 moves in the optimized order.
+	 * @return The length in mm or a negative value, if the travel was not optimized
+	 */
+	public synchronized double getTravelAfter() {
+		return travelAfter;
+	}
+	
+	/**
+	 * Sets the number of tool changes, if the elements were grouped by tool.
+	 * @param before The number in document order
+	 * @param after The number in the grouped order
+	 */
+	public synchronized void setToolChanges(int before, int after) {
+		toolChangesBefore = before;
+		toolChangesAfter = after;
+	}
+	
+	/**
+	 * Returns the number of tool changes in document order.
+	 * @return The number or a negative value, if the elements were not grouped
+	 */
+	public synchronized int getToolChangesBefore() {
+		return toolChangesBefore;
+	}
+	
+	/**
+	 * Returns the number of tool changes in the grouped order.
+	 * @return The number or a negative value, if the elements were not grouped
+	 */
+	public synchronized int getToolChangesAfter() {
+		return toolChangesAfter;
+	}
+	
+	/**
+	 * Sets the number of points of the computed elements before and after the simplification of the toolpathes.
+	 * @param before The number before the simplification
+	 * @param after The number after the simplification
+	 */
+	public synchronized void setPoints(long before, long after) {
+		pointsBefore = before;
+		pointsAfter = after;
+	}
+	
+	/**
+	 * Returns the number of points of the computed elements before the simplification.
+	 * @return The number or a negative value, if no element was computed
+	 */
+	public synchronized long getPointsBefore() {
+		return pointsBefore;
+	}
+	
+	/**
+	 * Returns the number of points of the computed elements after the simplification.
+	 * @return The number or a negative value, if no element was computed
+	 */
+	public synchronized long getPointsAfter() {
+		return pointsAfter;
+	}
+	
+	/**
+	 * Returns the sum of a phase over all elements.
+	 * @param phase The phase, i.e. EXECUTE
+	 * @return The time in nanoseconds
+	 */
+	public synchronized long getTotalTime(int phase) {
+		long time = 0;
+		for(int i = 0; i < elements.size(); i++) {
+			time += elements.get(i).getTime(phase);
+		}
+		return time;
+	}
+	
+	/**
+	 * Writes the profile as JSON.
+	 * @param out The writer
+	 * @throws IOException If the profile could not be written
+	 */
+	public synchronized void writeJson(Writer out) throws IOException {
+		StringBuilder sb = new StringBuilder(256 + elements.size() * 256);
+		sb.append("{\n  \"wallTimeMs\": ").append(format(wallTime / 1e6));
+		sb.append(",\n  \"totalTimeMs\": {");
+		for(int i = 0; i < PHASES.length; i++) {
+			sb.append(i > 0 ? ", " : " ").append('"').append(PHASES[i]).append("\": ").append(format(getTotalTime(i) / 1e6));
+		}
+		sb.append(" },");
+		if(toolChangesBefore >= 0) {
+			sb.append("\n  \"toolChanges\": { \"before\": ").append(toolChangesBefore).append(", \"after\": ").append(toolChangesAfter).append(" },");
+		}
+		if(pointsBefore >= 0) {
+			sb.append("\n  \"points\": { \"before\": ").append(pointsBefore).append(", \"after\": ").append(pointsAfter).append(" },");
+		}
+		if(travelBefore >= 0) {
+			sb.append("\n  \"travelMm\": { \"before\": ").append(format(travelBefore)).append(", \"after\": ").append(format(travelAfter)).append(" },");
+		}
+		sb.append("\n  \"elements\": [");
+		for(int i = 0; i < elements.size(); i++) {
+			ElementProfile element = elements.get(i);
+			sb.append(i > 0 ? ",\n    {" : "\n    {");
+			sb.append(" \"index\": ").append(element.getIndex());
+			sb.append(", \"tag\": ");
+			appendJsonString(sb, element.getTag());
+			sb.append(", \"line\": ").append(element.getLine());
+			sb.append(", \"name\": ");
+			appendJsonString(sb, element.getName());
+			sb.append(", \"tool\": ");
+			appendJsonString(sb, element.getTool());
+			sb.append(", \"source\": \"").append(element.getSourceName()).append('"');
+			sb.append(", \"timeMs\": {");
+			for(int j = 0; j < PHASES.length; j++) {
+				sb.append(j > 0 ? ", " : " ").append('"').append(PHASES[j]).append("\": ").append(format(element.getTime(j) / 1e6));
+			}
+			sb.append(" }, \"allocatedBytes\": ").append(element.getAllocatedBytes());
+			sb.append(", \"toolPathes\": ").append(element.getToolPathes());
+			sb.append(", \"pointsIn\": ").append(element.getPointsIn());
+			sb.append(", \"points\": ").append(element.getPoints());
+			sb.append(", \"rows\": ").append(element.getRows());
+			sb.append(" }");
+		}
+		sb.append(elements.isEmpty() ? "]\n}\n" : "\n  ]\n}\n");
+		out.write(sb.toString());
+	}
+	
+	/**
+	 * Formats a number with three decimals for JSON.
+	 * @param value The value
+	 * @return The String
+	 */
+	private static String format(double value) {
+		return String.format(Locale.ROOT, "%.3f", value);
+	}
+	
+	/**
+	 * Appends a String as JSON string or null.
+	 * @param sb The StringBuilder
+	 * @param value The value or null
+	 */
+	private static void appendJsonString(StringBuilder sb, String value) {
+		if(value == null) {
+			sb.append("null");
+			return;
+		}
+		sb.append('"');
+		for(int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if(c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			} else if(c < 0x20) {
+				sb.append(String.format("\\u%04x", (int) c));
+			} else {
+				sb.append(c);
+			}
+		}
+		sb.append('"');
+	}
+	
+	/**
+	 * Returns the bytes allocated by the current thread.
+	 * @return The bytes or -1 if the JVM does not support the measurement
+	 */
+	static long getThreadAllocatedBytes() {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if(bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean sunBean = (com.sun.management.ThreadMXBean) bean;
+			if(sunBean.isThreadAllocatedMemorySupported() && sunBean.isThreadAllocatedMemoryEnabled()) {
+				return sunBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+			}
+		}
+		return -1;
+	}
+	
+	/**
+	 * The profile of one element. The phases are measured with begin() and end() on the thread, which runs the phase.
+	 */
+	public static class ElementProfile {
+		
+		private int index;
+		private String tag;
+		private int line;
+		private volatile String name;
+		private volatile String tool;
+		private volatile int source;
+		private long[] times;
+		private volatile long allocatedBytes;
+		private volatile int toolPathes;
+		private volatile int pointsIn;
+		private volatile int points;
+		private volatile long rows;
+		
+		private ElementProfile(int index, String tag, int line) {
+			this.index = index;
+			this.tag = tag;
+			this.line = line;
+			this.name = null;
+			this.tool = null;
+			this.source = COMPUTED;
+			this.times = new long[PHASES.length];
+			this.allocatedBytes = 0;
+			this.toolPathes = 0;
+			this.pointsIn = 0;
+			this.points = 0;
+			this.rows = 0;
+		}
+		
+		/**
+		 * Returns the start values of a measurement (time and allocated bytes of the current thread).
+		 * @return The start values
+		 */
+		long[] begin() {
+			return new long[] { System.nanoTime(), getThreadAllocatedBytes() };
+		}
+		
+		/**
+		 * Ends the measurement of a phase and adds the time and allocated bytes.
+		 * @param phase The phase
+		 * @param start The start values from begin()
+		 */
+		synchronized void end(int phase, long[] start) {
+			times[phase] += System.nanoTime() - start[0];
+			if(start[1] >= 0 && allocatedBytes >= 0) {
+				allocatedBytes += getThreadAllocatedBytes() - start[1];
+			} else {
+				allocatedBytes = -1;
+			}
+		}
+		
+		/**
+		 * Sets the results of the element after its G-Code was emitted.
+		 * @param element The element
+		 * @param source COMPUTED, MEMORY_CACHE or DISK_CACHE
+		 * @param rows The number of emitted rows
+		 */
+		void setResult(Element element, int source, long rows) {
+			this.name = element.getName();
+			this.tool = element.getTool() != null ? element.getTool().getId() : null;
+			this.source = source;
+			int count = 0;
+			for(ToolPath toolPath : element.getToolPathes()) {
+				count += toolPath.size();
+			}
+			this.toolPathes = element.getToolPathes().size();
+			this.pointsIn = source == COMPUTED ? element.getPointsIn() : count;
+			this.points = count;
+			this.rows = rows;
+		}
+		
+		public int getIndex() {
+			return index;
+		}
+		
+		public String getTag() {
+			return tag;
+		}
+		
+		public int getLine() {
+			return line;
+		}
+		
+		public String getName() {
+			return name;
+		}
+		
+		public String getTool() {
+			return tool;
+		}
+		
+		public int getSource() {
+			return source;
+		}
+		
+		public String getSourceName() {
+			return SOURCES[source];
+		}
+		
+		/**
+		 * Returns the wall time of a phase.
+		 * @param phase The phase, i.e. EXECUTE
+		 * @return The time in nanoseconds
+		 */
+		public synchronized long getTime(int phase) {
+			return times[phase];
+		}
+		
+		/**
+		 * Returns the wall time of all phases.
+		 * @return The time in nanoseconds
+		 */
+		public synchronized long getTotalTime() {
+			long time = 0;
+			for(int i = 0; i < times.length; i++) {
+				time += times[i];
+			}
+			return time;
+		}
+		
+		/**
+		 * Returns the bytes allocated in all phases.
+		 * @return The bytes or -1 if not supported by the JVM
+		 */
+		public long getAllocatedBytes() {
+			return allocatedBytes;
+		}
+		
+		public int getToolPathes() {
+			return toolPathes;
+		}
+		
+		/**
+		 * Returns the number of points before the simplification. For elements from a cache the number after the simplification.
+		 * @return The number of points
+		 */
+		public int getPointsIn() {
+			return pointsIn;
+		}
+		
+		public int getPoints() {
+			return points;
+		}
+		
+		public long getRows() {
+			return rows;
+		}
+		
+	}
+
+}
@@ -0,0 +1,391 @@
+/*********************************************************************\
+ * GenerationServer.java - xmlCam G-Code Generator                   *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+package controller;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import main.Main;
+import model.Environment;
+import model.GCodeDialect;
+import model.GCodeFileSink;
+import model.GCodeWriter;
+import model.Program;
+import model.Settings;
+
+/**
+ * This class implements a local HTTP service for the G-Code generation, i.e. for a manufacturing execution system.
+ * The server uses the HTTP server of the JDK and listens on the loopback address only.
+ * <ul>
+ * <li>POST /generate with the XML program as body returns the G-Code as text/plain (UTF-8). The body is decoded like an XML file,
+ * i.e. by the encoding declaration of the program or as UTF-8 without declaration. The charset of the Content-Type is ignored.</li>
+ * <li>GET /stats returns the counters of the requests and the latencies as JSON.</li>
+ * </ul>
+ * Every request gets its own Program, Environment and Generator, only the settings, the dialect and the toolpath cache on disk are shared.
+ * The G-Code is written to a temporary file and then streamed back, so the status code shows if the generation succeeded and the program is
+ * never held in memory. The number of concurrent generations is limited. A request above the limit is rejected with 503, a generation which
+ * exceeds the timeout is cancelled and answered with 504. A program which could not be generated is answered with 422.
+ * @author Christian Kirsch
+ *
+ */
+public class GenerationServer {
+	
+	/**
+	 * The maximum size of an XML program in bytes.
+	 */
+	public static final int MAX_REQUEST_SIZE = 64 * 1024 * 1024;
+	
+	private Settings settings;
+	private GCodeDialect dialect;
+	private ToolPathCache toolPathCache;
+	private int port;
+	private int concurrency;
+	private int timeout;
+	private HttpServer server;
+	private ExecutorService executor;
+	private ScheduledExecutorService watchdog;
+	private Semaphore permits;
+	private long startTime;
+	
+	private AtomicLong requests;
+	private AtomicLong succeeded;
+	private AtomicLong failed;
+	private AtomicLong rejected;
+	private AtomicLong timedOut;
+	private AtomicLong active;
+	private AtomicLong rows;
+	private AtomicLong bytesIn;
+	private AtomicLong bytesOut;
+	private AtomicLong latencySum;
+	private AtomicLong latencyMax;
+	/**
+	 * The latencies of the last generations in ns for the percentiles.
+	 */
+	private long[] latencies;
+	private int latencyCount;
+	
+	/**
+	 * Constructs a server. It is started with start().
+	 * @param settings The settings shared by all requests
+	 * @param dialect The G-Code dialect shared by all requests
+	 * @param port The port on the loopback address or 0 for any free port
+	 * @param concurrency The maximum number of concurrent generations
+	 */
+	public GenerationServer(Settings settings, GCodeDialect dialect, int port, int concurrency) {
+		if(concurrency < 1) {
+			throw new IllegalArgumentException("The number of concurrent generations must be greater than 0.");
+		}
+		this.settings = settings;
+		this.dialect = dialect;
+		this.toolPathCache = ToolPathCache.open(settings);
+		this.port = port;
+		this.concurrency = concurrency;
+		this.timeout = 0;
+		this.server = null;
+		this.permits = new Semaphore(concurrency);
+		this.requests = new AtomicLong();
+		this.succeeded = new AtomicLong();
+		this.failed = new AtomicLong();
+		this.rejected = new AtomicLong();
+		this.timedOut = new AtomicLong();
+		this.active = new AtomicLong();
+		this.rows = new AtomicLong();
+		this.bytesIn = new AtomicLong();
+		this.bytesOut = new AtomicLong();
+		this.latencySum = new AtomicLong();
+		this.latencyMax = new AtomicLong();
+		this.latencies = new long[1024];
+		this.latencyCount = 0;
+	}
+	
+	/**
+	 * Sets the maximum time of a generation. A generation which takes longer is cancelled.
+	 * @param timeout The timeout in seconds or 0 for no limit
+	 */
+	public void setTimeout(int timeout) {
+		if(timeout < 0) {
+			throw new IllegalArgumentException("The timeout must not be negative.");
+		}
+		this.timeout = timeout;
+	}
+	
+	/**
+	 * Starts the server.
+	 * @throws IOException If the port could not be opened
+	 */
+	public synchronized void start() throws IOException {
+		server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+		// Some more threads than generations, so rejected requests and the statistics are answered while all generations are running
+		executor = Executors.newFixedThreadPool(concurrency + 2, r -> {
+			Thread thread = new Thread(r, "xmlCAM server");
+			thread.setDaemon(true);
+			return thread;
+		});
+		ScheduledThreadPoolExecutor scheduler = new ScheduledThreadPoolExecutor(1, r -> {
+			Thread thread = new Thread(r, "xmlCAM server watchdog");
+			thread.setDaemon(true);
+			return thread;
+		});
+		scheduler.setRemoveOnCancelPolicy(true);
+		watchdog = scheduler;
+		server.setExecutor(executor);
+		server.createContext("/generate", this::handleGenerate);
+		server.createContext("/stats", this::handleStats);
+		server.start();
+		startTime = System.nanoTime();
+		Main.log.log(Level.INFO, "Generation server listening on http://{0}:{1}/generate with {2} concurrent generations.", 
+				new Object[] { server.getAddress().getHostString(), String.valueOf(getPort()), concurrency });
+	}
+	
+	/**
+	 * Stops the server. Running generations are given some seconds to finish.
+	 * @param delay The maximum time to wait for running requests in seconds
+	 */
+	public synchronized void stop(int delay) {
+		if(server == null) {
+			return;
+		}
+		server.stop(delay);
+		executor.shutdown();
+		watchdog.shutdownNow();
+		server = null;
+		Main.log.log(Level.INFO, "Generation server stopped. {0}", new Object[] { getStatistics() });
+	}
+	
+	/**
+	 * Returns the port of the server.
+	 * @return The port, also if any free port was requested
+	 */
+	public synchronized int getPort() {
+		return server != null ? server.getAddress().getPort() : port;
+	}
+	
+	/**
+	 * Handles POST /generate.
+	 * @param exchange The exchange
+	 * @throws IOException If the response could not be sent
+	 */
+	private void handleGenerate(HttpExchange exchange) throws IOException {
+		try {
+			if(!exchange.getRequestMethod().equals("POST")) {
+				exchange.getResponseHeaders().set("Allow", "POST");
+				sendText(exchange, 405, "Use POST with the XML program as body.");
+				return;
+			}
+			requests.incrementAndGet();
+			if(!permits.tryAcquire()) {
+				rejected.incrementAndGet();
+				exchange.getResponseHeaders().set("Retry-After", "1");
+				sendText(exchange, 503, "Too many concurrent generations.");
+				return;
+			}
+			try {
+				active.incrementAndGet();
+				generate(exchange);
+			} finally {
+				active.decrementAndGet();
+				permits.release();
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+	
+	/**
+	 * Generates the G-Code of the request body and sends it back.
+	 * @param exchange The exchange
+	 * @throws IOException If the request could not be read or the response could not be sent
+	 */
+	private void generate(HttpExchange exchange) throws IOException {
+		long start = System.nanoTime();
+		byte[] xml = readBody(exchange.getRequestBody());
+		if(xml == null) {
+			failed.incrementAndGet();
+			sendText(exchange, 413, "The XML program is larger than " + MAX_REQUEST_SIZE + " bytes.");
+			return;
+		}
+		bytesIn.addAndGet(xml.length);
+		
+		File temp = File.createTempFile("xmlcam-server", ".gcode");
+		try {
+			Environment env = new Environment(settings, dialect, new Program());
+			Generator generator;
+			boolean success;
+			int rowCount;
+			try (GCodeFileSink sink = new GCodeFileSink(new GCodeWriter(FileChannel.open(temp.toPath(), StandardOpenOption.WRITE, 
+							StandardOpenOption.TRUNCATE_EXISTING), StandardCharsets.UTF_8), null)) {
+				generator = new Generator(env, new ByteArrayInputStream(xml));
+				generator.setSink(sink);
+				generator.setToolPathCache(toolPathCache);
+				ScheduledFuture<?> limit = timeout > 0 ? watchdog.schedule(generator::cancel, timeout, TimeUnit.SECONDS) : null;
+				try {
+					success = generator.generate();
+				} finally {
+					if(limit != null) {
+						limit.cancel(false);
+					}
+				}
+				rowCount = sink.sizeRow();
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			
+			if(generator.isCancelled()) {
+				timedOut.incrementAndGet();
+				Main.log.log(Level.WARNING, "Request from {0} cancelled after {1} s at <{2}> in line {3}.", 
+						new Object[] { exchange.getRemoteAddress(), timeout, generator.getCurrentElement(), generator.getCurrentLine() });
+				sendText(exchange, 504, "Generation cancelled after " + timeout + " s at <" + generator.getCurrentElement() + "> in line " + generator.getCurrentLine() + ".");
+				return;
+			}
+			if(!success) {
+				failed.incrementAndGet();
+				sendText(exchange, 422, "The XML program could not be generated. See the log of the server.");
+				return;
+			}
+			
+			long length = temp.length();
+			exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+			exchange.getResponseHeaders().set("X-xmlCAM-Rows", String.valueOf(rowCount));
+			exchange.getResponseHeaders().set("X-xmlCAM-Elements", String.valueOf(generator.getElementsDone()));
+			exchange.sendResponseHeaders(200, length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				Files.copy(temp.toPath(), out);
+			}
+			succeeded.incrementAndGet();
+			rows.addAndGet(rowCount);
+			bytesOut.addAndGet(length);
+			recordLatency(System.nanoTime() - start);
+			Main.log.log(Level.FINE, "Request from {0}: {1} rows in {2} ms.", 
+					new Object[] { exchange.getRemoteAddress(), rowCount, (System.nanoTime() - start) / 1000000 });
+		} finally {
+			temp.delete();
+		}
+	}
+	
+	/**
+	 * Handles GET /stats.
+	 * @param exchange The exchange
+	 * @throws IOException If the response could not be sent
+	 */
+	private void handleStats(HttpExchange exchange) throws IOException {
+		try {
+			byte[] body = getStatistics().getBytes(StandardCharsets.UTF_8);
+			exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+			exchange.sendResponseHeaders(200, body.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(body);
+			}
+		} finally {
+			exchange.close();
+		}
+	}
+	
+	/**
+	 * Returns the counters of the server as JSON. The latencies are measured from the begin of the request to the end of the response
+	 * of successful generations. The percentiles are computed from the last 1024 generations.
+	 * @return The statistics
+	 */
+	public String getStatistics() {
+		double uptime = (System.nanoTime() - startTime) / 1e9;
+		long count = succeeded.get();
+		long[] sorted;
+		synchronized(latencies) {
+			sorted = new long[Math.min(latencyCount, latencies.length)];
+			System.arraycopy(latencies, 0, sorted, 0, sorted.length);
+		}
+		Arrays.sort(sorted);
+		return String.format(Locale.ROOT, "{ \"uptimeS\": %.1f, \"requests\": %d, \"succeeded\": %d, \"failed\": %d, \"rejected\": %d, \"timedOut\": %d, " + 
+				"\"active\": %d, \"concurrency\": %d, \"rows\": %d, \"bytesIn\": %d, \"bytesOut\": %d, \"requestsPerS\": %.3f, \"rowsPerS\": %.1f, " + 
+				"\"latencyMs\": { \"mean\": %.1f, \"p50\": %.1f, \"p99\": %.1f, \"max\": %.1f } }\n", 
+				uptime, requests.get(), count, failed.get(), rejected.get(), timedOut.get(), active.get(), concurrency, rows.get(), bytesIn.get(), bytesOut.get(), 
+				count / Math.max(uptime, 1e-3), rows.get() / Math.max(uptime, 1e-3), count > 0 ? latencySum.get() / 1e6 / count : 0.0, 
+				percentile(sorted, 0.5) / 1e6, percentile(sorted, 0.99) / 1e6, latencyMax.get() / 1e6);
+	}
+	
+	private void recordLatency(long latency) {
+		latencySum.addAndGet(latency);
+		latencyMax.accumulateAndGet(latency, Math::max);
+		synchronized(latencies) {
+			latencies[latencyCount % latencies.length] = latency;
+			latencyCount++;
+		}
+	}
+	
+	private static double percentile(long[] sorted, double p) {
+		if(sorted.length == 0) {
+			return 0;
+		}
+		return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+	}
+	
+	/**
+	 * Reads the request body up to the maximum size.
+	 * @param in The request body
+	 * @return The body or null if it is too large
+	 * @throws IOException If the body could not be read
+	 */
+	private static byte[] readBody(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(65536);
+		byte[] buffer = new byte[65536];
+		int count;
+		while((count = in.read(buffer)) > 0) {
+			if(out.size() + count > MAX_REQUEST_SIZE) {
+				return null;
+			}
+			out.write(buffer, 0, count);
+		}
+		return out.toByteArray();
+	}
+	
+	private static void sendText(HttpExchange exchange, int status, String message) throws IOException {
+		byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=UTF-8");
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+}
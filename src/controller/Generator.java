@@ -20,176 +20,756 @@
 package controller;
 
 import java.awt.geom.Point2D;
-import java.io.IOException;
-import java.io.StringReader;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 
-import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.w3c.dom.Document;
 import org.w3c.dom.NamedNodeMap;
 import org.w3c.dom.Node;
 import org.w3c.dom.NodeList;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
 
 import generator.Circle;
 import generator.Drill;
+import generator.Element;
 import generator.Line;
 import generator.Polyline;
 import generator.Rectangle;
 import generator.Text;
 import main.Main;
 import model.Environment;
-import model.Field;
-import model.Row;
+import model.GCodeSink;
 import model.Tool;
-import model.ToolPath;
-import model.Tuple;
-import xml.XMLView;
 
 /**
  * This class is the heart piece of xmlCam. Here all G-Code will generated from XML.
+ * The script is read here and every element becomes a Job, which computes its toolpathes (in parallel mode on a pool).
+ * With group-tools the jobs are ordered by the ToolScheduler. The G-Code is written by the GCodeEmitter in the order of emission.
  * @author Christian Kirsch
  *
  */
 public class Generator {
 	
 	private Environment env;
-	private XMLView xmlEditorPane;
-	private BigDecimal currentX, currentY, currentZ, newX, newY, newZ;
+	private Reader script;
+	/**
+	 * The XML script as bytes, if the generator was constructed with a stream. The parser detects the encoding from the XML declaration.
+	 */
+	private InputStream scriptStream;
 	private ArrayList<Point2D.Double> translation;
 	private HashMap<String, Tool> tools;
-	private Tool currentTool;
+	/**
+	 * The pool for the computation of the toolpathes in parallel mode. Null in serial mode.
+	 */
+	private ForkJoinPool pool;
+	/**
+	 * The jobs in document order, which G-Code is not emitted yet.
+	 */
+	private ArrayDeque<Job> pendingJobs;
+	/**
+	 * The maximum number of pending jobs in parallel mode.
+	 */
+	private int window;
+	/**
+	 * The owner document for the nodes read from the XML stream. The nodes are only read on the thread of generate(), because the DOM is
+	 * not thread-safe, even for reading (i.e. the node list cache of the document). The elements are extracted before their jobs are forked.
+	 */
+	private Document document;
+	/**
+	 * Writes the G-Code of the elements to the sink and holds the modal state.
+	 */
+	private GCodeEmitter emitter;
+	/**
+	 * The cache with the elements of the previous generation. Null if no cache is used.
+	 */
+	private ElementCache cache;
+	/**
+	 * The cache with the toolpathes on disk. Null if no cache is used.
+	 */
+	private ToolPathCache toolPathCache;
+	/**
+	 * Set by another thread to abort the generation.
+	 */
+	private volatile boolean cancelled;
+	/**
+	 * The listener for the progress or null.
+	 */
+	private GeneratorProgressListener progressListener;
+	/**
+	 * The profile of the generation or null.
+	 */
+	private GenerationProfile profile;
+	/**
+	 * The progress of the generation. Written by the thread of the generation, read by the listener.
+	 */
+	private volatile int elementsDone;
+	private volatile String currentElement;
+	private volatile int currentLine;
+	private volatile long scriptPosition;
+	private long scriptLength;
+	/**
+	 * The time of the last information of the progress listener in ns, see fireProgressChanged().
+	 */
+	private final AtomicLong lastProgress;
+	/**
+	 * Informs the progress listener while an element takes longer than PROGRESS_INTERVAL or null, see generate().
+	 */
+	private ScheduledFuture<?> progressTicker;
+	/**
+	 * The minimal interval between two informations of the progress listener in ms.
+	 */
+	public static final int PROGRESS_INTERVAL = 100;
+	/**
+	 * The timer of the progress tickers of all generators, created on demand.
+	 */
+	private static ScheduledExecutorService progressTimer;
+	/**
+	 * True to emit the elements grouped by tool, see ToolScheduler.
+	 */
+	private boolean groupTools;
+	/**
+	 * The last feedrate read from the script and the last feedrate emitted. Used in the grouped mode, where the feedrate is a state of the elements.
+	 */
+	private Node currentFeedrate, emittedFeedrate;
+	private int feedrates;
+	/**
+	 * The number of tool changes in document order and in the grouped order.
+	 */
+	private int toolChangesBefore, toolChangesAfter;
+	/**
+	 * The tolerance for the simplification of the toolpathes in mm, if an element has no own tolerance.
+	 */
+	private double simplifyTolerance;
 	
 	/**
 	 * Constructs a new G-Code Generator.
-	 * @param programModel The model with the changeable items
-	 * @param xmlEditorPane The editorPane with the XML script
+	 * The generator does not depend on the GUI, so it can be used by the XMLView as well as headless by the batch mode.
+	 * @param env The environment with settings, dialect and the program model
+	 * @param script The reader with the XML script
 	 */
-	public Generator(Environment env, XMLView xmlEditorPane) {
+	public Generator(Environment env, Reader script) {
 		this.env = env;
-		this.xmlEditorPane = xmlEditorPane;
-		this.currentX = new BigDecimal(Double.MIN_VALUE);
-		this.currentY = new BigDecimal(Double.MIN_VALUE);
-		this.currentZ = new BigDecimal(Double.MIN_VALUE);
-		this.newX = new BigDecimal(0);
-		this.newY = new BigDecimal(0);
-		this.newZ = new BigDecimal(0);
+		this.script = script;
+		this.scriptStream = null;
 		this.translation = new ArrayList<Point2D.Double>();
 		this.tools = new HashMap<String, Tool>();
-		this.currentTool = null;
+		this.pendingJobs = new ArrayDeque<Job>();
+		if(env.getSettings().isParallelGeneration()) {
+			this.pool = ForkJoinPool.commonPool();
+			this.window = pool.getParallelism() * 4;
+		} else {
+			this.pool = null;
+			this.window = 0;
+		}
+		this.emitter = new GCodeEmitter(this, env);
+		this.cache = null;
+		this.toolPathCache = null;
+		this.cancelled = false;
+		this.progressListener = null;
+		this.profile = null;
+		this.elementsDone = 0;
+		this.currentElement = null;
+		this.currentLine = 0;
+		this.scriptPosition = 0;
+		this.scriptLength = -1;
+		this.lastProgress = new AtomicLong();
+		this.progressTicker = null;
+		this.groupTools = env.getSettings().isGroupTools();
+		this.currentFeedrate = null;
+		this.emittedFeedrate = null;
+		this.feedrates = 0;
+		this.toolChangesBefore = 0;
+		this.toolChangesAfter = 0;
+		this.simplifyTolerance = Math.max(0, env.getSettings().getSimplifyTolerance());
+	}
+	
+	/**
+	 * Constructs a new G-Code Generator for a script read from a stream, i.e. a file.
+	 * The encoding is taken from the XML declaration (UTF-8 without declaration), so it does not depend on the platform charset.
+	 * @param env The environment with settings, dialect and the program model
+	 * @param script The stream with the XML script
+	 */
+	public Generator(Environment env, InputStream script) {
+		this(env, (Reader) null);
+		this.scriptStream = script;
+	}
+	
+	/**
+	 * Sets the sink for the generated G-Code. Default is the program of the environment.
+	 * With a GCodeFileSink the G-Code is written directly to a file without holding the rows in memory.
+	 * @param sink The sink
+	 */
+	public void setSink(GCodeSink sink) {
+		emitter.setSink(sink);
+	}
+	
+	/**
+	 * Sets the cache for the elements. Unchanged elements are taken from the cache instead of being computed again.
+	 * The same cache can be used for many generators, but not concurrently. Default is no cache.
+	 * @param cache The cache or null
+	 */
+	public void setCache(ElementCache cache) {
+		this.cache = cache;
+	}
+	
+	/**
+	 * Sets the cache for the toolpathes on disk. Elements which are not in the element cache are read from this cache after the extraction
+	 * instead of being computed. Computed elements are written to it. Default is no cache.
+	 * @param toolPathCache The cache or null
+	 */
+	public void setToolPathCache(ToolPathCache toolPathCache) {
+		this.toolPathCache = toolPathCache;
+	}
+	
+	/**
+	 * Cancels the generation. The generation stops at the next check (i.e. the next XML tag, toolpath, depth or scanline) and generate() returns false.
+	 * Can be called from any thread.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+	
+	/**
+	 * Returns true if the generation was cancelled.
+	 * @return true if cancelled
+	 */
+	public boolean isCancelled() {
+		return cancelled;
+	}
+	
+	/**
+	 * Throws a GenerationCancelledException if the generation was cancelled.
+	 * The elements call this method in their long loops, so also the computation of a single element can be cancelled.
+	 * @throws GenerationCancelledException If the generation was cancelled
+	 */
+	public void checkCancelled() throws GenerationCancelledException {
+		if(cancelled) {
+			throw new GenerationCancelledException();
+		}
+	}
+	
+	/**
+	 * Sets the listener for the progress of the generation. Default is no listener.
+	 * @param progressListener The listener or null
+	 */
+	public void setProgressListener(GeneratorProgressListener progressListener) {
+		this.progressListener = progressListener;
+	}
+	
+	/**
+	 * Sets the profile, which records the timings and counts of every element. Default is no profile.
+	 * The profile is started at the begin of generate() and contains the elements of the last generation.
+	 * @param profile The profile or null
+	 */
+	public void setProfile(GenerationProfile profile) {
+		this.profile = profile;
+	}
+	
+	/**
+	 * Sets the length of the script in characters, so the progress can be computed from the position in the script.
+	 * @param scriptLength The length or -1 if unknown
+	 */
+	public void setScriptLength(long scriptLength) {
+		this.scriptLength = scriptLength;
+	}
+	
+	/**
+	 * Returns the length of the script.
+	 * @return The length in characters or -1 if unknown
+	 */
+	public long getScriptLength() {
+		return scriptLength;
+	}
+	
+	/**
+	 * Returns the position of the last read tag in the script.
+	 * @return The position in characters
+	 */
+	public long getScriptPosition() {
+		return scriptPosition;
+	}
+	
+	/**
+	 * Returns the number of elements, which G-Code was emitted.
+	 * @return The number of elements
+	 */
+	public int getElementsDone() {
+		return elementsDone;
+	}
+	
+	/**
+	 * Returns the number of G-Code rows written to the sink.
+	 * @return The number of rows
+	 */
+	public long getRowsWritten() {
+		return emitter.getRowsWritten();
+	}
+	
+	/**
+	 * Returns the length of the G0 moves between the toolpathes in document order. Only measured if the travel is optimized.
+	 * @return The length in mm
+	 */
+	public double getTravelBefore() {
+		return emitter.getTravelBefore();
+	}
+	
+	/**
+	 * Returns the length of the G0 moves between the toolpathes in the optimized order. Only measured if the travel is optimized.
+	 * @return The length in mm
+	 */
+	public double getTravelAfter() {
+		return emitter.getTravelAfter();
+	}
+	
+	/**
+	 * Returns the number of tool changes in document order. Only counted if the elements are grouped by tool.
+	 * @return The number of tool changes
+	 */
+	public int getToolChangesBefore() {
+		return toolChangesBefore;
+	}
+	
+	/**
+	 * Returns the number of tool changes in the grouped order. Only counted if the elements are grouped by tool.
+	 * @return The number of tool changes
+	 */
+	public int getToolChangesAfter() {
+		return toolChangesAfter;
+	}
+	
+	/**
+	 * Returns the tolerance for the simplification of the toolpathes of the elements without an own tolerance.
+	 * @return The tolerance in mm
+	 */
+	public double getSimplifyTolerance() {
+		return simplifyTolerance;
+	}
+	
+	/**
+	 * Returns the number of points of the computed elements before the simplification. The elements from the caches are not counted.
+	 * @return The number of points
+	 */
+	public long getPointsBefore() {
+		return emitter.getPointsBefore();
+	}
+	
+	/**
+	 * Returns the number of points of the computed elements after the simplification. The elements from the caches are not counted.
+	 * @return The number of points
+	 */
+	public long getPointsAfter() {
+		return emitter.getPointsAfter();
+	}
+	
+	/**
+	 * Returns the tag name of the last element read from the script, i.e. text.
+	 * @return The name or null if no element was read yet
+	 */
+	public String getCurrentElement() {
+		return currentElement;
+	}
+	
+	/**
+	 * Returns the line of the last element read from the script.
+	 * @return The line number
+	 */
+	public int getCurrentLine() {
+		return currentLine;
+	}
+	
+	/**
+	 * Informs the progress listener, if the last information is older than PROGRESS_INTERVAL.
+	 * Called by the thread of the generation (also from the GCodeEmitter) and by the progress ticker, but only one of them informs the listener per interval.
+	 */
+	void fireProgressChanged() {
+		if(progressListener != null) {
+			long now = System.nanoTime();
+			long last = lastProgress.get();
+			if(now - last >= PROGRESS_INTERVAL * 1000000L && lastProgress.compareAndSet(last, now)) {
+				progressListener.progressChanged(this);
+			}
+		}
+	}
+	
+	/**
+	 * Informs the progress listener from the progress ticker, i.e. while a single element takes longer than PROGRESS_INTERVAL.
+	 * Synchronized with the end of the generation, so that the listener is not informed after generationFinished().
+	 */
+	private synchronized void tickProgress() {
+		if(progressTicker != null) {
+			fireProgressChanged();
+		}
+	}
+	
+	/**
+	 * Gets the timer for the progress tickers. The thread is a daemon and does not prevent the exit of the application.
+	 * @return The timer
+	 */
+	private static synchronized ScheduledExecutorService getProgressTimer() {
+		if(progressTimer == null) {
+			ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, r -> {
+				Thread thread = new Thread(r, "xmlCAM progress");
+				thread.setDaemon(true);
+				return thread;
+			});
+			executor.setRemoveOnCancelPolicy(true);
+			progressTimer = executor;
+		}
+		return progressTimer;
 	}
 	
 	/**
-	 * Goes through the DOM recursively. Needed if translation tag is used.
-	 * @param node the
+	 * Reads the program from the XML stream. Only the node of the current command (i.e. an element or the tools) is built as a small DOM tree,
+	 * the whole document is never held in memory. The node is released after the command was processed.
+	 * The translation tags are handled as a stack. The translation is pushed at the start tag and removed at the end tag.
+	 * @param reader The XML stream reader, positioned at the start tag of the program
+	 * @throws XMLStreamException If the XML is not well-formed
 	 */
-	private void getChildNodes(Node node) throws IllegalArgumentException {
-		NodeList commands = null;
-		commands = node.getChildNodes();
-		int commandNumber = 0;
+	private void readProgram(XMLStreamReader reader) throws XMLStreamException, IllegalArgumentException {
+		int depth = 0;
 		
-		/*for(commandNumber = 0; commandNumber < commands.getLength(); commandNumber++) {
-			System.out.println(commands.item(commandNumber). + " ;" + commands.item(commandNumber));
-		}*/
-		for(commandNumber = 0; commandNumber < commands.getLength(); commandNumber++) {
+		while(reader.hasNext()) {
+			int event = reader.next();
 			
-			if(commands.item(commandNumber).getNodeName() == "tools") {
-				setTools(commands.item(commandNumber));
-			} else if(commands.item(commandNumber).getNodeName() == "drill") {
-				Drill item = new Drill(commands.item(commandNumber), this);
-				item.extract();
-				generateToolChange(item.getTool());
-				item.execute();
-				createGCode(item.getToolPathes(), item.getZLevel());
-				env.getProgram().addElement(item);
-			} else if(commands.item(commandNumber).getNodeName() == "line") {
-				Line item = new Line(commands.item(commandNumber), this);
-				item.extract();
-				generateToolChange(item.getTool());
-				item.execute();
-				createGCode(item.getToolPathes(), item.getZLevel());
-				env.getProgram().addElement(item);
-			} else if(commands.item(commandNumber).getNodeName() == "polyline") {
-				Polyline item = new Polyline(commands.item(commandNumber), this);
-				item.extract();
-				generateToolChange(item.getTool());
-				item.execute();
-				item.purgePathes();
-				createGCode(item.getToolPathes(), item.getZLevel());
-				env.getProgram().addElement(item);
-			} else if(commands.item(commandNumber).getNodeName() == "circle") {
-				Circle item = new Circle(commands.item(commandNumber), this);
-				item.extract();
-				generateToolChange(item.getTool());
-				item.execute();
-				//item.showToolPathes();
-				item.purgePathes();
-				//item.showToolPathes();
-				createGCode(item.getToolPathes(), item.getZLevel());
-				env.getProgram().addElement(item);
-			} else if(commands.item(commandNumber).getNodeName() == "rectangle") {
-				Rectangle item = new Rectangle(commands.item(commandNumber), this);
-				item.extract();
-				generateToolChange(item.getTool());
-				item.execute();
-				//item.showToolPathes();
-				item.purgePathes();
-				//item.showToolPathes();
-				createGCode(item.getToolPathes(), item.getZLevel());
-				env.getProgram().addElement(item);
-			} else if(commands.item(commandNumber).getNodeName() == "text") {
-				Text item = new Text(commands.item(commandNumber), this);
-				item.extract();
-				generateToolChange(item.getTool());
-				item.execute();
-				item.purgePathes();
-				//item.showToolPathes();
-				createGCode(item.getToolPathes(), item.getZLevel());
-				env.getProgram().addElement(item);
-			} else if(commands.item(commandNumber).getNodeName() == "feedrate") {
-				setFeedRate(commands.item(commandNumber));
-			} else if(commands.item(commandNumber).getNodeName() == "translate") {
-				setTranslation(commands.item(commandNumber));
-				getChildNodes(commands.item(commandNumber));
+			if(event == XMLStreamConstants.START_ELEMENT) {
+				checkCancelled();
+				scriptPosition = reader.getLocation().getCharacterOffset();
+				String name = reader.getLocalName();
+				if(name.equals("translate")) {
+					setTranslation(readNode(reader, false));
+					depth++;
+				} else if(name.equals("tools")) {
+					setTools(readNode(reader, true));
+				} else if(name.equals("feedrate")) {
+					if(groupTools) {
+						currentFeedrate = readNode(reader, true);
+						feedrates++;
+					} else {
+						submit(new Job(readNode(reader, true)));
+					}
+				} else {
+					currentElement = name;
+					currentLine = reader.getLocation().getLineNumber();
+					fireProgressChanged();
+					Node node = readNode(reader, true);
+					Element item = createElement(node);
+					if(item != null) {
+						submit(createJob(item, node));
+					}
+				}
+			} else if(event == XMLStreamConstants.END_ELEMENT) {
+				if(depth == 0) {
+					return; // End of program
+				}
 				// Translate tag closed. Remove the last translation value.
 				this.translation.remove(translation.size() - 1);
+				depth--;
+			}
+		}
+	}
+	
+	/**
+	 * Builds a DOM node with the attributes of the current start tag. The names are interned, so they can be compared with == like the names of a parsed DOM.
+	 * @param reader The XML stream reader, positioned at a start tag
+	 * @param subtree true to read the whole subtree until the end tag, false to read only the start tag
+	 * @return The node
+	 * @throws XMLStreamException If the XML is not well-formed
+	 */
+	private Node readNode(XMLStreamReader reader, boolean subtree) throws XMLStreamException {
+		org.w3c.dom.Element node = createNode(reader);
+		org.w3c.dom.Element parent = node;
+		int depth = 0;
+		
+		while(subtree && reader.hasNext()) {
+			int event = reader.next();
+			
+			if(event == XMLStreamConstants.START_ELEMENT) {
+				org.w3c.dom.Element child = createNode(reader);
+				parent.appendChild(child);
+				parent = child;
+				depth++;
+			} else if(event == XMLStreamConstants.CHARACTERS || event == XMLStreamConstants.CDATA || event == XMLStreamConstants.SPACE) {
+				parent.appendChild(document.createTextNode(reader.getText()));
+			} else if(event == XMLStreamConstants.END_ELEMENT) {
+				if(depth == 0) {
+					break;
+				}
+				parent = (org.w3c.dom.Element) parent.getParentNode();
+				depth--;
+			}
+		}
+		return node;
+	}
+	
+	/**
+	 * Creates a DOM node with the name and the attributes of the current start tag.
+	 * @param reader The XML stream reader, positioned at a start tag
+	 * @return The node
+	 */
+	private org.w3c.dom.Element createNode(XMLStreamReader reader) {
+		org.w3c.dom.Element node = document.createElement(reader.getLocalName().intern());
+		for(int i = 0; i < reader.getAttributeCount(); i++) {
+			node.setAttribute(reader.getAttributeLocalName(i).intern(), reader.getAttributeValue(i));
+		}
+		return node;
+	}
+	
+	/**
+	 * Creates the element for a node.
+	 * @param node The node
+	 * @return The element or null, if the node is no element
+	 */
+	private Element createElement(Node node) {
+		if(node.getNodeName() == "drill") {
+			return new Drill(node, this);
+		} else if(node.getNodeName() == "line") {
+			return new Line(node, this);
+		} else if(node.getNodeName() == "polyline") {
+			return new Polyline(node, this);
+		} else if(node.getNodeName() == "circle") {
+			return new Circle(node, this);
+		} else if(node.getNodeName() == "rectangle") {
+			return new Rectangle(node, this);
+		} else if(node.getNodeName() == "text") {
+			return new Text(node, this);
+		}
+		return null;
+	}
+	
+	/**
+	 * Creates the job for an element. If the element is found in the element cache, the job gets the cached element and is already done.
+	 * Otherwise the job gets the key, so the element can be read from the toolpath cache and is put into the caches after it was computed.
+	 * @param element The element
+	 * @param node The node of the element
+	 * @return The job
+	 */
+	private Job createJob(Element element, Node node) {
+		Job job = new Job(element);
+		if(cache != null || toolPathCache != null) {
+			Node toolId = node.getAttributes().getNamedItem("tool");
+			Tool tool = toolId != null ? tools.get(toolId.getTextContent()) : null;
+			if(tool != null) {
+				String key = ElementCache.createKey(node, element.getTranslation(), tool, simplifyTolerance);
+				Element cached = cache != null ? cache.get(key) : null;
+				if(cached != null) {
+					job = new Job(cached);
+					job.source = GenerationProfile.MEMORY_CACHE;
+					job.complete(null);
+				} else {
+					job.key = key;
+					job.toolPathCache = toolPathCache;
+				}
+			}
+		}
+		if(profile != null) {
+			job.profile = profile.addElement(node.getNodeName(), currentLine);
+		}
+		Node id = node.getAttributes().getNamedItem("id");
+		if(id != null && !id.getTextContent().trim().isEmpty()) {
+			job.id = id.getTextContent().trim();
+		}
+		Node after = node.getAttributes().getNamedItem("after");
+		if(after != null && !after.getTextContent().trim().isEmpty()) {
+			job.after = after.getTextContent().trim().split("\\s+");
+		}
+		job.line = currentLine;
+		job.activeFeedrate = currentFeedrate;
+		job.feedrateIndex = feedrates;
+		if(!job.isDone()) {
+			job.extract();
+		}
+		return job;
+	}
+	
+	/**
+	 * Submits a job in document order.
+	 * In serial mode the job is computed and emitted immediately. In parallel mode the toolpathes of the element are computed on the pool
+	 * and the G-Code of the oldest job is emitted as soon as too many jobs are pending.
+	 * If the elements are grouped by tool, all jobs are pending until the end of the script.
+	 * @param job The job
+	 */
+	private void submit(Job job) {
+		if(pool == null) {
+			if(job.element != null && !job.isDone()) {
+				job.invoke();
+			}
+			if(groupTools) {
+				pendingJobs.add(job);
+			} else {
+				emit(job);
+			}
+		} else {
+			if(job.element != null && !job.isDone()) {
+				pool.execute(job);
+			}
+			pendingJobs.add(job);
+			if(!groupTools && pendingJobs.size() > window) {
+				emit(pendingJobs.poll());
+			}
+		}
+	}
+	
+	/**
+	 * Emits the G-Code of all pending jobs in document order and of the held back elements.
+	 * If the elements are grouped by tool, the jobs are emitted in the order of the ToolScheduler. The feedrate of an element is set before the element,
+	 * if it differs from the last emitted feedrate.
+	 */
+	private void emitPendingJobs() {
+		if(groupTools) {
+			ArrayList<Job> jobs = ToolScheduler.schedule(new ArrayList<Job>(pendingJobs));
+			toolChangesBefore = ToolScheduler.countToolChanges(new ArrayList<Job>(pendingJobs));
+			toolChangesAfter = ToolScheduler.countToolChanges(jobs);
+			for(int i = 0; i < jobs.size(); i++) {
+				Job job = jobs.get(i);
+				if(job.activeFeedrate != null && job.activeFeedrate != emittedFeedrate) {
+					emit(new Job(job.activeFeedrate));
+					emittedFeedrate = job.activeFeedrate;
+				}
+				emit(job);
 			}
+			pendingJobs.clear();
+		}
+		while(!pendingJobs.isEmpty()) {
+			emit(pendingJobs.poll());
+		}
+		emitter.flushRun();
+	}
+	
+	/**
+	 * Emits the G-Code of a job with the GCodeEmitter, which holds the modal state (tool, x, y, z). The jobs are emitted only on the thread of generate(),
+	 * so the G-Code is the same in serial and parallel mode. Errors of the extraction and the computation are thrown at the same point of the G-Code
+	 * as in serial mode.
+	 * @param job The job
+	 */
+	private void emit(Job job) {
+		checkCancelled();
+		if(job.feedrate != null) {
+			emitter.emitFeedrate(job.feedrate);
+			return;
+		}
+		
+		job.join();
+		if(job.extractError != null) {
+			emitter.flushRun();
+			throw job.extractError;
+		}
+		emitter.emitElement(job);
+		elementsDone++;
+		fireProgressChanged();
+		if(job.key != null && cache != null) {
+			cache.put(job.key, job.element);
 		}
 	}
 	
 	/**
 	 * Generate G-Code from the script;
+	 * The registered listeners of the program are informed once after the generation.
+	 * @return true if the whole script was processed, false if the generation was aborted by an error
+	 */
+	public boolean generate() {
+		boolean success = false;
+		env.getProgram().beginUpdate();
+		if(cache != null) {
+			cache.beginGeneration();
+		}
+		if(profile != null) {
+			profile.start();
+		}
+		if(progressListener != null) {
+			synchronized(this) {
+				progressTicker = getProgressTimer().scheduleAtFixedRate(this::tickProgress, PROGRESS_INTERVAL, PROGRESS_INTERVAL, TimeUnit.MILLISECONDS);
+			}
+		}
+		try {
+			success = generateProgram();
+			return success;
+		} finally {
+			if(cache != null) {
+				cache.endGeneration(success);
+			}
+			if(groupTools && success) {
+				Main.log.log(Level.INFO, "Tool changes reduced from " + toolChangesBefore + " to " + toolChangesAfter + " by grouping the elements by tool.");
+				if(profile != null) {
+					profile.setToolChanges(toolChangesBefore, toolChangesAfter);
+				}
+			}
+			if(emitter.getPointsBefore() > 0) {
+				Main.log.log(Level.INFO, "Points of the toolpathes simplified from " + emitter.getPointsBefore() + " to " + emitter.getPointsAfter() + ".");
+				if(profile != null) {
+					profile.setPoints(emitter.getPointsBefore(), emitter.getPointsAfter());
+				}
+			}
+			if(emitter.isOptimizeTravel()) {
+				Main.log.log(Level.INFO, "Travel of the G0 moves optimized from " + String.format(Locale.ROOT, "%.1f mm to %.1f mm.", 
+						emitter.getTravelBefore(), emitter.getTravelAfter()));
+				if(profile != null) {
+					profile.setTravel(emitter.getTravelBefore(), emitter.getTravelAfter());
+				}
+			}
+			if(profile != null) {
+				profile.stop();
+			}
+			env.getProgram().endUpdate();
+			if(progressListener != null) {
+				synchronized(this) {
+					progressTicker.cancel(false);
+					progressTicker = null;
+				}
+				progressListener.generationFinished(this, success);
+			}
+		}
+	}
+	
+	/**
+	 * Generates the G-Code while the listeners of the program are not informed.
+	 * @return true if the whole script was processed, false if the generation was aborted by an error
 	 */
-	public void generate() {
-		Node mainNode;
+	private boolean generateProgram() {
+		XMLStreamReader reader = null;
+		boolean success = false;
 		
 		env.getProgram().clear();
 		
 		// Insert start G-Code
 		try {
-			env.getProgram().readFromArrayList(env.getDialect().getLines("start"));
+			emitter.writeLines(env.getDialect().getLines("start"));
 		} catch (NullPointerException e) {
 			Main.log.log(Level.SEVERE, "No dialect for start G-Code defined. Please define a valid dialect in settings.yaml.");
 		}
 		
 		try {
-			DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-			DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-			Document doc = dBuilder.parse(new InputSource(new StringReader(xmlEditorPane.getText())));
+			document = DocumentBuilderFactory.newInstance().newDocumentBuilder().newDocument();
+			XMLInputFactory factory = XMLInputFactory.newInstance();
+			factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+			reader = scriptStream != null ? factory.createXMLStreamReader(scriptStream) : factory.createXMLStreamReader(script);
 			
-			mainNode = doc.getFirstChild();
-			if(mainNode.getNodeName() == "program") {
-				getChildNodes(mainNode);
+			reader.nextTag();
+			if(reader.getLocalName().equals("program")) {
+				readProgram(reader);
+				emitPendingJobs();
+				success = true;
 			}
 			
-		} catch (SAXException | IOException | ParserConfigurationException e) {
+		} catch (XMLStreamException | ParserConfigurationException e) {
 			Main.log.log(Level.SEVERE, "XML parsing failed; " + e);
 			//e.printStackTrace();
 		} catch(NullPointerException | IndexOutOfBoundsException e) {
@@ -201,27 +781,35 @@ public class Generator {
 		} catch(IllegalArgumentException e) {
 			Main.log.log(Level.SEVERE, "Illegal parameter(s) in XML; " + e);
 			//e.printStackTrace();
+		} catch(UncheckedIOException e) {
+			Main.log.log(Level.SEVERE, "Error writing G-Code; " + e.getCause());
+			return false;
+		} catch(GenerationCancelledException e) {
+			Main.log.log(Level.FINE, "Generation cancelled.");
+			return false;
+		} finally {
+			// Generation aborted. Drop the jobs which are not emitted.
+			while(!pendingJobs.isEmpty()) {
+				pendingJobs.poll().cancel(false);
+			}
+			emitter.clear();
+			try {
+				if(reader != null) {
+					reader.close();
+				}
+			} catch (XMLStreamException e) {
+				Main.log.log(Level.WARNING, "Could not close XML reader; " + e);
+			}
 		}
 		
 		// Insert end G-Code
 		try {
-			env.getProgram().readFromArrayList(env.getDialect().getLines("end"));
+			emitter.writeLines(env.getDialect().getLines("end"));
 		} catch (NullPointerException e) {
 			Main.log.log(Level.SEVERE, "No dialect for end G-Code defined. Please define a valid dialect in settings.yaml.");
 		}
-	}
-	
-	/**
-	 * Sets the feedrate in mm/min. (Fxxx)
-	 * @param  node The node with the feedrate parameter [feedrate]
-	 */
-	private void setFeedRate(Node node) throws IllegalArgumentException {
-		Tuple feedrate = new Tuple(node);
-
-		env.getProgram().addRow(new Row());
-		env.getProgram().addField(new Field('G', new BigDecimal(0)));
-		env.getProgram().addField(new Field('F', feedrate.getValue(0)));
-		env.getProgram().setComment(new String("Set feedrate to " + feedrate.getValue(0)));
+		
+		return success;
 	}
 	
 	/**
@@ -272,25 +860,6 @@ public class Generator {
 		}
 	}
 	
-	/**
-	 * Generates G-Code for a tool change, if the tool differs from previous and next element.
-	 * @param newTool The new tool
-	 */
-	private void generateToolChange(Tool newTool) {
-		if(currentTool == null) {
-			currentTool = newTool;
-		} else {
-			if(newTool != currentTool) {
-				currentTool = newTool;
-				try {
-					env.getProgram().readFromArrayList(env.getDialect().getLines("toolchange"));
-				} catch (NullPointerException e) {
-					Main.log.log(Level.SEVERE, "No dialect for toolchange G-Code defined. Please define a valid dialect in settings.yaml.");
-				}
-			}
-		}
-	}
-	
 	/**
 	 * Returns the current tool with specified id from the tool list.
 	 * @param id The tool id
@@ -337,201 +906,6 @@ public class Generator {
 		translation.add(new Point2D.Double(x, y));
 	}	
 
-	/**
-	 * This method creates the G-Code for the toolpath.
-	 * 
-	 * @param toolPath The toolpath
-	 * @param zLevel The milling depth (z-axis)
-	 */
-	private void createGCode(ArrayList<ToolPath> toolPathes, Tuple zLevel) {
-		BigDecimal endZ = zLevel.getValue(1);
-		BigDecimal stepZ = zLevel.getValue(2);
-		
-				
-		if(stepZ.doubleValue() <= 0) {
-			throw new IllegalArgumentException("The Z step must be greater than 0");
-		}
-		
-		// i is number of the toolpath
-		for(int i = 0; i < toolPathes.size(); i++) {
-			ToolPath toolPath = toolPathes.get(i);
-			newX = toolPath.getX(0);
-			newY = toolPath.getY(0);
-			newZ = zLevel.getValue(0);
-			boolean forward = true;
-			
-			go0(newX, newY, "Go to start position for element " + toolPath.getName()); // go to start position
-				
-			while(true) {
-				if(forward) {
-					go1(newX, newY, newZ);  // Z sink
-					for(int j = 1; j < toolPath.size(); j++) {
-						newX = toolPath.getX(j);
-						newY = toolPath.getY(j);
-						go1(newX, newY, newZ, toolPath.getName());  // X-Y move
-					}
-					forward = false;
-				} else {
-					go1(newX, newY, newZ);  // Z sink
-					for(int j = toolPath.size() - 2; j >= 0; j--) {
-						newX = toolPath.getX(j);
-						newY = toolPath.getY(j);
-						go1(newX, newY, newZ, toolPath.getName());  // X-Y move
-					}
-					forward = true;
-				}
-				// If last zLevel was cutted, break
-				if(newZ.doubleValue() == endZ.doubleValue()) {
-					break;
-				}
-				
-				newZ = newZ.subtract(stepZ);
-				
-				// If last zLevel is < endLevel cut the last zLevel with endZ value
-				if(newZ.doubleValue() < endZ.doubleValue()) {
-					newZ = new BigDecimal(endZ.doubleValue());
-				}
-			}
-			go0(currentX, currentY, "End element " + toolPath.getName() + " Lift up at current position.");
-		}
-	}
-	
-	/**
-	 * Performs a G0 move.
-	 * For z the safety height above zero is used. If new x or y is not different to the current x and y, the field will not displayed. I.e. move from (10,10) to (10,20) the output will be G0 Y20.
-	 * 
-	 * @param x The new x coordinate
-	 * @param y The new y coordinate
-	 */
-	@SuppressWarnings("unused")
-	private void go0(BigDecimal x, BigDecimal y) {
-		go0(x, y, null, null);
-	}
-	
-	/**
-	 * Performs a G0 move.
-	 * For z the safety height above zero is used. If new x or y is not different to the current x and y, the field will not displayed. I.e. move from (10,10) to (10,20) the output will be G0 Y20.
-	 * 
-	 * @param x The new x coordinate
-	 * @param y The new y coordinate
-	 * @param comment A comment for the behind the G0
-	 */
-	private void go0(BigDecimal x, BigDecimal y, String comment) {
-		go0(x, y, null, comment);
-	}
-	
-	/**
-	 * Performs a G0 move.
-	 * For z the safety height above zero is used. If new x or y is not different to the current x and y, the field will not displayed. I.e. move from (10,10) to (10,20) the output will be G0 Y20.
-	 * 
-	 * @param x The new x coordinate
-	 * @param y The new y coordinate
-	 * @param feedrate The feedrate in mm/min
-	 * @param comment A comment for the behind the G0
-	 */
-	private void go0(BigDecimal x, BigDecimal y, BigDecimal feedrate, String comment) {
-		BigDecimal z = new BigDecimal(env.getSettings().getSecurityHeight());
-		
-		env.getProgram().addRow(new Row());
-		
-		if(comment != null) {
-			env.getProgram().setComment(env.getProgram().sizeRow() - 1, comment);
-		}
-		
-		env.getProgram().addField(new Field('G', new BigDecimal(0)));
-		
-		if(!newX.equals(currentX)) {
-			env.getProgram().addField(new Field('X', x));
-			this.currentX = x;
-		}
-		
-		if(!newY.equals(currentY)) {
-			env.getProgram().addField(new Field('Y', y));
-			this.currentY = y;
-		}
-			
-		// move z always to security high when G0 move shall performed
-		if(!z.equals(currentZ)) {
-			env.getProgram().addField(new Field('Z', z));
-			this.currentZ = z;
-		}
-		
-		if(feedrate != null) {
-			env.getProgram().addField(new Field('F', feedrate));
-		}
-	
-	}
-	
-	/**
-	 * Performs a G1 move.
-	 * If new x, y or z is not different to the current x,y and z, the field will not displayed. I.e. move from (10,10,10) to (10,20,10) the output will be G1 Y20.
-	 * 
-	 * @param x The new x coordinate
-	 * @param y The new y coordinate
-	 * @param z The new z coordinate
-	 */
-	private void go1(BigDecimal x, BigDecimal y, BigDecimal z) {
-		go1(x, y, z, null, null);
-	}
-	
-	/**
-	 * Performs a G1 move.
-	 * If new x, y or z is not different to the current x,y and z, the field will not displayed. I.e. move from (10,10,10) to (10,20,10) the output will be G1 Y20.
-	 * 
-	 * @param x The new x coordinate
-	 * @param y The new y coordinate
-	 * @param z The new z coordinate
-	 * @param comment The comment
-	 */
-	private void go1(BigDecimal x, BigDecimal y, BigDecimal z, String comment) {
-		go1(x, y, z, null, comment);
-	}
-	
-	/**
-	 * Performs a G1 move.
-	 * If new x, y or z is not different to the current x,y and z, the field will not displayed. I.e. move from (10,10,10) to (10,20,10) the output will be G1 Y20.
-	 * 
-	 * @param x The new x coordinate
-	 * @param y The new y coordinate
-	 * @param z The new z coordinate
-	 * @param feedrate The feedrate in mm/min
-	 * @param comment A comment for behind the G1
-	 */
-	private void go1(BigDecimal x, BigDecimal y, BigDecimal z, BigDecimal feedrate, String comment) {
-		env.getProgram().addRow(new Row());
-		
-		if(comment != null) {
-			env.getProgram().setComment(env.getProgram().sizeRow() - 1, comment);
-		}
-		
-		env.getProgram().addField(new Field('G', new BigDecimal(1)));
-		
-		if(!newX.equals(currentX)) {
-			env.getProgram().addField(new Field('X', x));
-			this.currentX = x;
-		}
-		
-		if(!newY.equals(currentY)) {
-			env.getProgram().addField(new Field('Y', y));
-			this.currentY = y;
-		}
-
-		if(!newZ.equals(currentZ)) {
-			env.getProgram().addField(new Field('Z', z));
-			this.currentZ = z;
-		}
-		
-		if(feedrate != null) {
-			env.getProgram().addField(new Field('F', feedrate));
-		}
-		
-		// remove line if there are no commands
-		/*if(env.getProgram().getLine(env.getProgram().size() - 1).size() <= 1) {
-			env.getProgram().removeLine(env.getProgram().size() - 1);
-		}*/
-
-	}
-		
 	/**
 	 * Returns the current translation value, which is the sum of al translation points. 
 	 * @return The current translation value;
@@ -546,4 +920,5 @@ public class Generator {
 		return new Point2D.Double(x, y);
 	}
 
+
 }
@@ -0,0 +1,46 @@
+/*********************************************************************\
+ * GeneratorProgressListener.java - xmlCam G-Code Generator          *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+package controller;
+
+/**
+ * Listener for the progress of a generation.
+ * The methods are invoked on the thread of the generation or on the thread of the progress timer, which are not the Swing event thread in the GUI.
+ * @author Christian Kirsch
+ *
+ */
+public interface GeneratorProgressListener {
+	
+	/**
+	 * Gets invoked while the script is read and the G-Code is emitted at most every 100 ms (Generator.PROGRESS_INTERVAL), also while a single element takes longer.
+	 * The progress is read from the generator (i.e. getElementsDone(), getRowsWritten(), getCurrentElement()).
+	 * @param generator The generator
+	 */
+	public void progressChanged(Generator generator);
+	
+	/**
+	 * Gets invoked once at the end of the generation.
+	 * @param generator The generator
+	 * @param success true if the whole script was processed, false if the generation failed or was cancelled
+	 */
+	public default void generationFinished(Generator generator, boolean success) {
+		progressChanged(generator);
+	}
+
+}
@@ -0,0 +1,163 @@
+/*********************************************************************\
+ * Job.java - xmlCam G-Code Generator                                *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+
+package controller;
+
+import java.util.concurrent.RecursiveAction;
+
+import org.w3c.dom.Node;
+
+import generator.Element;
+
+/**
+ * A job is one step of the program in document order. It is either an element or a feedrate.
+ * For an element the extraction is done in extract() when the job is created and the computation of the toolpathes in compute(),
+ * which does not change the modal state of the generator.
+ * Errors are stored and thrown when the job is emitted. A job with an element from the cache is completed without compute().
+ * The fields are set by the Generator, which creates the job, and read by the ToolScheduler and the GCodeEmitter.
+ * @author Christian Kirsch
+ *
+ */
+class Job extends RecursiveAction {
+	
+	private static final long serialVersionUID = 1L;
+	Element element;
+	Node feedrate;
+	RuntimeException extractError;
+	RuntimeException executeError;
+	/**
+	 * The key for the element cache or null, if the element is not put into the cache.
+	 */
+	String key;
+	/**
+	 * The cache with the toolpathes on disk. Null if no cache is used.
+	 */
+	ToolPathCache toolPathCache;
+	/**
+	 * The profile of the element or null, if the generation is not profiled.
+	 */
+	GenerationProfile.ElementProfile profile;
+	/**
+	 * Where the toolpathes come from, see GenerationProfile.
+	 */
+	int source;
+	/**
+	 * The id of the element and the ids of the elements, which have to be milled before. Null if not defined.
+	 */
+	String id;
+	String[] after;
+	/**
+	 * The line of the element in the script.
+	 */
+	int line;
+	/**
+	 * The feedrate, which is active at the element in document order, and the number of feedrates before the element. Used in the grouped mode.
+	 */
+	Node activeFeedrate;
+	int feedrateIndex;
+	/**
+	 * The index in document order and the number of predecessors, which are not scheduled yet. Used in schedule().
+	 */
+	int index;
+	int predecessors;
+	boolean scheduled;
+	
+	public Job(Element element) {
+		this.element = element;
+		this.feedrate = null;
+	}
+	
+	public Job(Node feedrate) {
+		this.element = null;
+		this.feedrate = feedrate;
+	}
+	
+	/**
+	 * Returns the priority for the choice of the next tool. The elements before the first feedrate come first, then the document order.
+	 * @return The priority, lower is first
+	 */
+	int getPriority() {
+		return feedrateIndex == 0 ? index - Integer.MAX_VALUE : index;
+	}
+
+	/**
+	 * Extracts the element from its node and releases the node. Called on the thread of generate(), which reads the script,
+	 * so the DOM is never read on the pool.
+	 */
+	void extract() {
+		long[] start = profile != null ? profile.begin() : null;
+		try {
+			element.extract();
+		} catch(RuntimeException e) {
+			extractError = e;
+		} finally {
+			element.releaseNode();
+			if(profile != null) {
+				profile.end(GenerationProfile.EXTRACT, start);
+			}
+		}
+	}
+
+	/**
+	 * Computes the toolpathes of the extracted element. If the generation is profiled, the phases are measured on the thread of the job.
+	 * Reading the toolpathes from the toolpath cache is recorded as execute. Afterwards the element releases the generator.
+	 */
+	@Override
+	protected void compute() {
+		try {
+			computeToolPathes();
+		} finally {
+			element.releaseGenerator();
+		}
+	}
+	
+	private void computeToolPathes() {
+		if(extractError != null) {
+			return;
+		}
+		long[] start = profile != null ? profile.begin() : null;
+		if(key != null && toolPathCache != null && toolPathCache.read(key, element)) {
+			source = GenerationProfile.DISK_CACHE;
+			if(profile != null) {
+				profile.end(GenerationProfile.EXECUTE, start);
+			}
+			return;
+		}
+		try {
+			element.execute();
+			if(profile != null) {
+				profile.end(GenerationProfile.EXECUTE, start);
+				start = profile.begin();
+			}
+			element.purgePathes();
+			if(profile != null) {
+				profile.end(GenerationProfile.PURGE, start);
+			}
+		} catch(RuntimeException e) {
+			executeError = e;
+			return;
+		}
+		if(key != null && toolPathCache != null) {
+			toolPathCache.write(key, element);
+		}
+	}
+	
+}
+
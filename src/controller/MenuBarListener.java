@@ -19,6 +19,8 @@
 
 package controller;
 
+import java.awt.Toolkit;
+import java.awt.datatransfer.StringSelection;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
@@ -35,6 +37,7 @@ import javax.swing.filechooser.FileNameExtensionFilter;
 import main.Main;
 import main.MainWindow;
 import model.Environment;
+import model.GCodeWriter;
 import xml.XMLView;
 
 /**
@@ -164,6 +167,10 @@ public class MenuBarListener implements ActionListener {
 					Main.log.log(Level.SEVERE, "Error writing file: " + e);
 				}
 			}
+		} else if(menuItem.getActionCommand() == "copy_gcode") {
+			StringSelection selection = new StringSelection(GCodeWriter.toString(env.getProgram()));
+			Toolkit.getDefaultToolkit().getSystemClipboard().setContents(selection, null);
+			Main.log.log(Level.INFO, "Copied {0} rows of G-Code to the clipboard.", new Object[] { env.getProgram().sizeRow() });
 		}
 	}
 
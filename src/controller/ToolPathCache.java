@@ -0,0 +1,396 @@
+/*********************************************************************\
+ * ToolPathCache.java - xmlCam G-Code Generator                      *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+package controller;
+
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Level;
+
+import generator.Element;
+import main.Main;
+import model.Settings;
+import model.ToolPath;
+
+/**
+ * This class stores the computed toolpathes and shapes of the elements on disk, so they are reused across sessions and batch runs.
+ * The cache is content-addressed: the file name is the key from ElementCache.createKey, which contains the XML subtree, the translation,
+ * the tool, the simplification tolerance of the program, the geometry version and the version of xmlCam. Every file holds the name, the shape, the transformation and the cleaned toolpathes of one element
+ * in a binary form (coordinates as doubles, so the result is exactly the same as computed).
+ * The size of the cache is limited. If it is exceeded, the least recently used files are deleted. The last use is kept in the modification time
+ * of the files, so the order survives a restart. Files are written to a temporary file and moved into place, so several processes can share the directory.
+ * All methods are thread safe. Errors are logged and handled as cache miss, the generation never fails because of the cache.
+ * @author Christian Kirsch
+ *
+ */
+public class ToolPathCache {
+	
+	private static final int MAGIC = 0x58435450; // XCTP
+	private static final int FORMAT_VERSION = 1;
+	private static final String SUFFIX = ".tpc";
+	
+	private File dir;
+	private long maxSize;
+	private long size;
+	/**
+	 * The size of the files by key in the order of the last use, the least recently used first.
+	 */
+	private LinkedHashMap<String, Long> files;
+	private int hits;
+	private int misses;
+	
+	/**
+	 * Opens the cache in a directory. The directory is created if it does not exist.
+	 * @param dir The directory
+	 * @param maxSize The maximum size in bytes
+	 * @throws IOException If the directory could not be created
+	 */
+	public ToolPathCache(File dir, long maxSize) throws IOException {
+		this.dir = dir;
+		this.maxSize = maxSize;
+		this.size = 0;
+		this.files = new LinkedHashMap<String, Long>(16, 0.75f, true);
+		
+		Files.createDirectories(dir.toPath());
+		File[] list = dir.listFiles();
+		if(list == null) {
+			throw new IOException("Could not read directory " + dir);
+		}
+		
+		// Sort by the last use, so the LRU order is restored
+		long[] modified = new long[list.length];
+		Integer[] order = new Integer[list.length];
+		for(int i = 0; i < list.length; i++) {
+			modified[i] = list[i].lastModified();
+			order[i] = i;
+		}
+		Arrays.sort(order, Comparator.comparingLong(i -> modified[i]));
+		
+		for(int i = 0; i < order.length; i++) {
+			File file = list[order[i]];
+			String name = file.getName();
+			if(name.endsWith(SUFFIX) && file.isFile()) {
+				files.put(name.substring(0, name.length() - SUFFIX.length()), file.length());
+				size += file.length();
+			}
+		}
+		evict();
+		Main.log.log(Level.FINE, "Opened toolpath cache {0} with {1} files and {2} bytes.", new Object[] { dir, files.size(), size });
+	}
+	
+	/**
+	 * Opens the cache from the settings.
+	 * @param settings The settings
+	 * @return The cache or null if the cache is disabled or could not be opened
+	 */
+	public static ToolPathCache open(Settings settings) {
+		if(settings.getToolPathCacheDir() == null) {
+			return null;
+		}
+		try {
+			return new ToolPathCache(settings.getToolPathCacheDir(), settings.getToolPathCacheSize() * 1024L * 1024L);
+		} catch (IOException e) {
+			Main.log.log(Level.WARNING, "Could not open toolpath cache; " + e);
+			return null;
+		}
+	}
+	
+	/**
+	 * Reads the toolpathes and the shape of an element from the cache. The element must be extracted.
+	 * @param key The key
+	 * @param element The element
+	 * @return true if the element was found and restored, false if it must be computed
+	 */
+	public boolean read(String key, Element element) {
+		File file = getFile(key);
+		synchronized(this) {
+			if(!files.containsKey(key)) {
+				if(!file.isFile()) {
+					misses++;
+					return false;
+				}
+				// Written by another process since the cache was opened
+				files.put(key, file.length());
+				size += file.length();
+			}
+		}
+		
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+			if(in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+				throw new IOException("Unknown format");
+			}
+			String name = in.readBoolean() ? in.readUTF() : null;
+			Path2D.Double shape = in.readBoolean() ? readShape(in) : null;
+			AffineTransform at = null;
+			if(in.readBoolean()) {
+				double[] matrix = new double[6];
+				for(int i = 0; i < matrix.length; i++) {
+					matrix[i] = in.readDouble();
+				}
+				at = new AffineTransform(matrix);
+			}
+			int count = in.readInt();
+			ArrayList<ToolPath> toolPathes = new ArrayList<ToolPath>(count);
+			for(int i = 0; i < count; i++) {
+				String pathName = in.readBoolean() ? in.readUTF() : null;
+				ToolPath toolPath = new ToolPath(pathName, in.readBoolean());
+				int points = in.readInt();
+				toolPath.ensureCapacity(points);
+				for(int j = 0; j < points; j++) {
+					toolPath.addPoint(in.readDouble(), in.readDouble());
+				}
+				toolPathes.add(toolPath);
+			}
+			element.restore(name, shape, at, toolPathes);
+		} catch (IOException e) {
+			Main.log.log(Level.WARNING, "Could not read toolpath cache file " + file + "; " + e);
+			synchronized(this) {
+				remove(key);
+				misses++;
+			}
+			return false;
+		}
+		
+		file.setLastModified(System.currentTimeMillis());
+		synchronized(this) {
+			files.get(key); // Mark as recently used
+			hits++;
+		}
+		return true;
+	}
+	
+	/**
+	 * Writes the toolpathes and the shape of a computed element into the cache.
+	 * @param key The key
+	 * @param element The element
+	 */
+	public void write(String key, Element element) {
+		File temp = null;
+		try {
+			temp = File.createTempFile(key, ".tmp", dir);
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp), 1 << 16))) {
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				writeString(out, element.getName());
+				out.writeBoolean(element.getShape() != null);
+				if(element.getShape() != null) {
+					writeShape(out, element.getShape());
+				}
+				out.writeBoolean(element.getTransform() != null);
+				if(element.getTransform() != null) {
+					double[] matrix = new double[6];
+					element.getTransform().getMatrix(matrix);
+					for(int i = 0; i < matrix.length; i++) {
+						out.writeDouble(matrix[i]);
+					}
+				}
+				ArrayList<ToolPath> toolPathes = element.getToolPathes();
+				out.writeInt(toolPathes.size());
+				for(int i = 0; i < toolPathes.size(); i++) {
+					ToolPath toolPath = toolPathes.get(i);
+					writeString(out, toolPath.getName());
+					out.writeBoolean(toolPath.isPocket());
+					out.writeInt(toolPath.size());
+					for(int j = 0; j < toolPath.size(); j++) {
+						out.writeDouble(toolPath.get(j).getX());
+						out.writeDouble(toolPath.get(j).getY());
+					}
+				}
+			}
+			
+			File file = getFile(key);
+			try {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			temp = null;
+			
+			synchronized(this) {
+				Long old = files.put(key, file.length());
+				size += file.length() - (old != null ? old : 0);
+				evict();
+			}
+		} catch (IOException e) {
+			Main.log.log(Level.WARNING, "Could not write toolpath cache; " + e);
+		} finally {
+			if(temp != null) {
+				temp.delete();
+			}
+		}
+	}
+	
+	/**
+	 * Returns the number of elements read from the cache since it was opened.
+	 * @return The number of hits
+	 */
+	public synchronized int getHits() {
+		return hits;
+	}
+	
+	/**
+	 * Returns the number of elements not found in the cache since it was opened.
+	 * @return The number of misses
+	 */
+	public synchronized int getMisses() {
+		return misses;
+	}
+	
+	/**
+	 * Returns the size of all files in the cache.
+	 * @return The size in bytes
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+	
+	/**
+	 * Deletes the least recently used files until the size is within the limit.
+	 */
+	private void evict() {
+		Iterator<Map.Entry<String, Long>> it = files.entrySet().iterator();
+		while(size > maxSize && it.hasNext()) {
+			Map.Entry<String, Long> entry = it.next();
+			getFile(entry.getKey()).delete();
+			size -= entry.getValue();
+			it.remove();
+		}
+	}
+	
+	/**
+	 * Removes a file from the cache.
+	 * @param key The key
+	 */
+	private void remove(String key) {
+		Long length = files.remove(key);
+		if(length != null) {
+			size -= length;
+		}
+		getFile(key).delete();
+	}
+	
+	/**
+	 * Returns the file for a key.
+	 * @param key The key
+	 * @return The file
+	 */
+	private File getFile(String key) {
+		return new File(dir, key + SUFFIX);
+	}
+	
+	/**
+	 * Writes a String, which may be null.
+	 * @param out The stream
+	 * @param value The String or null
+	 * @throws IOException If the String could not be written
+	 */
+	private static void writeString(DataOutputStream out, String value) throws IOException {
+		out.writeBoolean(value != null);
+		if(value != null) {
+			out.writeUTF(value);
+		}
+	}
+	
+	/**
+	 * Writes the segments of a shape.
+	 * @param out The stream
+	 * @param shape The shape
+	 * @throws IOException If the shape could not be written
+	 */
+	private static void writeShape(DataOutputStream out, Path2D.Double shape) throws IOException {
+		out.writeByte(shape.getWindingRule());
+		double[] coords = new double[6];
+		PathIterator it = shape.getPathIterator(null);
+		while(!it.isDone()) {
+			int type = it.currentSegment(coords);
+			out.writeByte(type);
+			for(int i = 0; i < getCoordinates(type); i++) {
+				out.writeDouble(coords[i]);
+			}
+			it.next();
+		}
+		out.writeByte(-1); // End of the shape
+	}
+	
+	/**
+	 * Reads the segments of a shape.
+	 * @param in The stream
+	 * @return The shape
+	 * @throws IOException If the shape could not be read
+	 */
+	private static Path2D.Double readShape(DataInputStream in) throws IOException {
+		Path2D.Double shape = new Path2D.Double(in.readByte());
+		double[] c = new double[6];
+		int type;
+		while((type = in.readByte()) != -1) {
+			for(int i = 0; i < getCoordinates(type); i++) {
+				c[i] = in.readDouble();
+			}
+			if(type == PathIterator.SEG_MOVETO) {
+				shape.moveTo(c[0], c[1]);
+			} else if(type == PathIterator.SEG_LINETO) {
+				shape.lineTo(c[0], c[1]);
+			} else if(type == PathIterator.SEG_QUADTO) {
+				shape.quadTo(c[0], c[1], c[2], c[3]);
+			} else if(type == PathIterator.SEG_CUBICTO) {
+				shape.curveTo(c[0], c[1], c[2], c[3], c[4], c[5]);
+			} else if(type == PathIterator.SEG_CLOSE) {
+				shape.closePath();
+			} else {
+				throw new IOException("Unknown segment type " + type);
+			}
+		}
+		return shape;
+	}
+	
+	/**
+	 * Returns the number of coordinates of a segment type.
+	 * @param type The segment type
+	 * @return The number of coordinates
+	 */
+	private static int getCoordinates(int type) {
+		if(type == PathIterator.SEG_MOVETO || type == PathIterator.SEG_LINETO) {
+			return 2;
+		} else if(type == PathIterator.SEG_QUADTO) {
+			return 4;
+		} else if(type == PathIterator.SEG_CUBICTO) {
+			return 6;
+		}
+		return 0;
+	}
+
+}
@@ -0,0 +1,166 @@
+/*********************************************************************\
+ * ToolScheduler.java - xmlCam G-Code Generator                      *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+
+package controller;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.PriorityQueue;
+
+/**
+ * This class orders the jobs of the elements by tool for the grouped mode (group-tools), so the tools are changed as seldom as possible.
+ * The after attributes of the elements are respected.
+ * @author Christian Kirsch
+ *
+ */
+class ToolScheduler {
+	
+	/**
+	 * Orders the elements, so every tool is loaded as seldom as possible. The order is a topological order of the after constraints of the elements.
+	 * From the elements, which can be milled next, an element with the current tool is taken. Otherwise the tool of the first element in document order
+	 * is loaded. The elements of a tool are taken in the order of their feedrates and then in document order. The elements before the first feedrate
+	 * are taken before all other elements, because their feedrate can not be restored. The jobs are joined before.
+	 * @param jobs The jobs of the elements in document order
+	 * @return The jobs in the grouped order
+	 * @throws IllegalArgumentException If an id is defined twice, an unknown id is referenced or the constraints are cyclic
+	 */
+	public static ArrayList<Job> schedule(ArrayList<Job> jobs) throws IllegalArgumentException {
+		HashMap<String, Job> ids = new HashMap<String, Job>();
+		HashMap<Job, ArrayList<Job>> successors = new HashMap<Job, ArrayList<Job>>();
+		
+		for(int i = 0; i < jobs.size(); i++) {
+			Job job = jobs.get(i);
+			job.join();
+			job.index = i;
+			job.predecessors = 0;
+			job.scheduled = false;
+			if(job.id != null && ids.put(job.id, job) != null) {
+				throw new IllegalArgumentException("Element with id " + job.id + " already exists.");
+			}
+		}
+		for(int i = 0; i < jobs.size(); i++) {
+			Job job = jobs.get(i);
+			for(int j = 0; job.after != null && j < job.after.length; j++) {
+				Job predecessor = ids.get(job.after[j]);
+				if(predecessor == null) {
+					throw new IllegalArgumentException("Unknown element id " + job.after[j] + " in after of the element in line " + job.line + ".");
+				}
+				ArrayList<Job> list = successors.get(predecessor);
+				if(list == null) {
+					list = new ArrayList<Job>();
+					successors.put(predecessor, list);
+				}
+				list.add(job);
+				job.predecessors++;
+			}
+		}
+		
+		// The jobs which can be emitted next, by tool and over all tools
+		HashMap<String, PriorityQueue<Job>> ready = new HashMap<String, PriorityQueue<Job>>();
+		PriorityQueue<Job> first = new PriorityQueue<Job>(16, (a, b) -> Integer.compare(a.getPriority(), b.getPriority()));
+		for(int i = 0; i < jobs.size(); i++) {
+			if(jobs.get(i).predecessors == 0) {
+				addReady(jobs.get(i), ready, first);
+			}
+		}
+		
+		ArrayList<Job> scheduled = new ArrayList<Job>(jobs.size());
+		String tool = null;
+		Job head;
+		while((head = peekReady(first)) != null) {
+			Job job = tool != null ? peekReady(ready.get(tool)) : null;
+			if(job == null || (job.feedrateIndex > 0 && head.feedrateIndex == 0)) {
+				tool = getToolId(head);
+			}
+			job = peekReady(ready.get(tool));
+			ready.get(tool).poll();
+			job.scheduled = true;
+			scheduled.add(job);
+			ArrayList<Job> list = successors.get(job);
+			for(int i = 0; list != null && i < list.size(); i++) {
+				if(--list.get(i).predecessors == 0) {
+					addReady(list.get(i), ready, first);
+				}
+			}
+		}
+		if(scheduled.size() < jobs.size()) {
+			for(int i = 0; i < jobs.size(); i++) {
+				if(jobs.get(i).predecessors > 0) {
+					throw new IllegalArgumentException("Cyclic after constraints at the element in line " + jobs.get(i).line + ".");
+				}
+			}
+		}
+		return scheduled;
+	}
+	
+	/**
+	 * Adds a job to the jobs, which can be emitted next.
+	 * @param job The job
+	 * @param ready The jobs by tool id
+	 * @param first The jobs over all tools
+	 */
+	private static void addReady(Job job, HashMap<String, PriorityQueue<Job>> ready, PriorityQueue<Job> first) {
+		String tool = getToolId(job);
+		PriorityQueue<Job> queue = ready.get(tool);
+		if(queue == null) {
+			queue = new PriorityQueue<Job>(16, (a, b) -> a.feedrateIndex != b.feedrateIndex ? Integer.compare(a.feedrateIndex, b.feedrateIndex) : Integer.compare(a.index, b.index));
+			ready.put(tool, queue);
+		}
+		queue.add(job);
+		first.add(job);
+	}
+	
+	/**
+	 * Returns the first job of the queue, which is not scheduled yet. The scheduled jobs are removed lazily from the queues.
+	 * @param queue The queue
+	 * @return The job or null, if the queue is empty
+	 */
+	private static Job peekReady(PriorityQueue<Job> queue) {
+		while(!queue.isEmpty() && queue.peek().scheduled) {
+			queue.poll();
+		}
+		return queue.peek();
+	}
+	
+	/**
+	 * Returns the id of the tool of a job. An element, which could not be extracted, has no tool.
+	 * @param job The job
+	 * @return The id or an empty String
+	 */
+	private static String getToolId(Job job) {
+		return job.element.getTool() != null ? job.element.getTool().getId() : "";
+	}
+	
+	/**
+	 * Counts the tool changes like GCodeEmitter.generateToolChange().
+	 * @param jobs The jobs in the order they are emitted
+	 * @return The number of tool changes
+	 */
+	public static int countToolChanges(ArrayList<Job> jobs) {
+		int changes = 0;
+		for(int i = 1; i < jobs.size(); i++) {
+			if(!GCodeEmitter.isSameTool(jobs.get(i - 1).element.getTool(), jobs.get(i).element.getTool())) {
+				changes++;
+			}
+		}
+		return changes;
+	}
+
+}
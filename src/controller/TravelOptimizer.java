@@ -0,0 +1,348 @@
+/*********************************************************************\
+ * TravelOptimizer.java - xmlCam G-Code Generator                    *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+package controller;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * This class orders stops (i.e. toolpathes or elements) so the G0 moves between them are short.
+ * A stop is entered at its entry point and left at its exit point. A reversible stop has an alternative with swapped points.
+ * The tour is built with the nearest neighbour heuristic and improved by 2-opt and Or-opt moves.
+ * The tour starts at a given position and is open at the end, because the next tour continues at the last exit point.
+ * @author Christian Kirsch
+ *
+ */
+public class TravelOptimizer {
+	
+	/**
+	 * Tours with more stops are only built with the nearest neighbour heuristic, because the improvement is quadratic per sweep.
+	 */
+	public static final int MAX_IMPROVE = 1000;
+	/**
+	 * The maximum number of improvement sweeps over the whole tour.
+	 */
+	private static final int MAX_SWEEPS = 50;
+	/**
+	 * The maximum length of the segments moved by Or-opt.
+	 */
+	private static final int OR_OPT_LENGTH = 3;
+	private static final double EPSILON = 1e-9;
+	
+	/**
+	 * A stop of the tour.
+	 */
+	public static class Stop {
+		
+		private final int index;
+		private final double entryX, entryY, exitX, exitY;
+		private final boolean reversed;
+		private Stop alternative;
+		
+		/**
+		 * Constructs a stop.
+		 * @param index The index of the stop in the original order
+		 * @param entryX The x coordinate of the entry point
+		 * @param entryY The y coordinate of the entry point
+		 * @param exitX The x coordinate of the exit point
+		 * @param exitY The y coordinate of the exit point
+		 * @param reversed true if this is the reversed alternative of a stop
+		 */
+		public Stop(int index, double entryX, double entryY, double exitX, double exitY, boolean reversed) {
+			this.index = index;
+			this.entryX = entryX;
+			this.entryY = entryY;
+			this.exitX = exitX;
+			this.exitY = exitY;
+			this.reversed = reversed;
+			this.alternative = null;
+		}
+		
+		/**
+		 * Sets the reversed alternative of the stop. The optimizer chooses the direction, which is entered first.
+		 * @param alternative The alternative with the same index
+		 */
+		public void setAlternative(Stop alternative) {
+			this.alternative = alternative;
+			alternative.alternative = this;
+		}
+		
+		public int getIndex() {
+			return index;
+		}
+		
+		public boolean isReversed() {
+			return reversed;
+		}
+		
+		public double getExitX() {
+			return exitX;
+		}
+		
+		public double getExitY() {
+			return exitY;
+		}
+	}
+	
+	/**
+	 * Returns the length of the G0 moves of a tour.
+	 * @param tour The stops in the order of the tour
+	 * @param x The x coordinate of the start position
+	 * @param y The y coordinate of the start position
+	 * @return The length in mm
+	 */
+	public static double getTravel(List<Stop> tour, double x, double y) {
+		double travel = 0;
+		for(int i = 0; i < tour.size(); i++) {
+			Stop stop = tour.get(i);
+			travel += distance(x, y, stop.entryX, stop.entryY);
+			x = stop.exitX;
+			y = stop.exitY;
+		}
+		return travel;
+	}
+	
+	/**
+	 * Orders the stops. The list of stops is not changed.
+	 * @param stops The stops in the original order (the forward alternatives)
+	 * @param x The x coordinate of the start position
+	 * @param y The y coordinate of the start position
+	 * @return The stops in the order of the tour. For reversible stops the chosen alternative is returned.
+	 */
+	public static ArrayList<Stop> optimize(List<Stop> stops, double x, double y) {
+		Stop[] tour = buildNearestNeighbour(stops, x, y);
+		if(tour.length <= MAX_IMPROVE) {
+			for(int sweep = 0; sweep < MAX_SWEEPS; sweep++) {
+				boolean improved = improveTwoOpt(tour, x, y);
+				improved |= improveOrOpt(tour, x, y);
+				if(!improved) {
+					break;
+				}
+			}
+		}
+		ArrayList<Stop> result = new ArrayList<Stop>(tour.length);
+		for(int i = 0; i < tour.length; i++) {
+			result.add(tour[i]);
+		}
+		return result;
+	}
+	
+	/**
+	 * Builds the tour by going always to the nearest stop, which was not visited yet.
+	 * @param stops The stops
+	 * @param x The x coordinate of the start position
+	 * @param y The y coordinate of the start position
+	 * @return The tour
+	 */
+	private static Stop[] buildNearestNeighbour(List<Stop> stops, double x, double y) {
+		int n = stops.size();
+		Stop[] candidates = stops.toArray(new Stop[n]);
+		Stop[] tour = new Stop[n];
+		
+		for(int k = 0; k < n; k++) {
+			int best = -1;
+			Stop bestStop = null;
+			double bestDistance = Double.MAX_VALUE;
+			for(int i = k; i < n; i++) {
+				Stop stop = candidates[i];
+				double d = distance(x, y, stop.entryX, stop.entryY);
+				if(d < bestDistance) {
+					best = i;
+					bestStop = stop;
+					bestDistance = d;
+				}
+				if(stop.alternative != null) {
+					d = distance(x, y, stop.alternative.entryX, stop.alternative.entryY);
+					if(d < bestDistance) {
+						best = i;
+						bestStop = stop.alternative;
+						bestDistance = d;
+					}
+				}
+			}
+			// Move the chosen stop to the front of the candidates which are not visited yet
+			candidates[best] = candidates[k];
+			candidates[k] = bestStop;
+			tour[k] = bestStop;
+			x = bestStop.exitX;
+			y = bestStop.exitY;
+		}
+		return tour;
+	}
+	
+	/**
+	 * Reverses segments of the tour, if the tour gets shorter. The stops itself keep their direction.
+	 * The costs of the segments are taken from prefix sums, so every move is tested in constant time.
+	 * @param tour The tour
+	 * @param x The x coordinate of the start position
+	 * @param y The y coordinate of the start position
+	 * @return true if the tour was improved
+	 */
+	private static boolean improveTwoOpt(Stop[] tour, double x, double y) {
+		int n = tour.length;
+		if(n < 2) {
+			return false;
+		}
+		double[] forward = new double[n];
+		double[] backward = new double[n];
+		boolean improved = false;
+		
+		updatePrefixSums(tour, forward, backward);
+		for(int i = 0; i < n - 1; i++) {
+			double in = i > 0 ? cost(tour[i - 1], tour[i]) : distance(x, y, tour[i].entryX, tour[i].entryY);
+			int best = -1;
+			double bestDelta = -EPSILON;
+			for(int j = i + 1; j < n; j++) {
+				double oldCost = in + forward[j] - forward[i];
+				double newCost = (i > 0 ? cost(tour[i - 1], tour[j]) : distance(x, y, tour[j].entryX, tour[j].entryY)) + backward[j] - backward[i];
+				if(j < n - 1) {
+					oldCost += cost(tour[j], tour[j + 1]);
+					newCost += cost(tour[i], tour[j + 1]);
+				}
+				if(newCost - oldCost < bestDelta) {
+					best = j;
+					bestDelta = newCost - oldCost;
+				}
+			}
+			if(best >= 0) {
+				for(int a = i, b = best; a < b; a++, b--) {
+					Stop stop = tour[a];
+					tour[a] = tour[b];
+					tour[b] = stop;
+				}
+				updatePrefixSums(tour, forward, backward);
+				improved = true;
+			}
+		}
+		return improved;
+	}
+	
+	/**
+	 * Computes the prefix sums of the costs along the tour and against it.
+	 * @param tour The tour
+	 * @param forward The sums of the costs from stop k to stop k + 1 up to the index
+	 * @param backward The sums of the costs from stop k + 1 to stop k up to the index
+	 */
+	private static void updatePrefixSums(Stop[] tour, double[] forward, double[] backward) {
+		forward[0] = 0;
+		backward[0] = 0;
+		for(int k = 1; k < tour.length; k++) {
+			forward[k] = forward[k - 1] + cost(tour[k - 1], tour[k]);
+			backward[k] = backward[k - 1] + cost(tour[k], tour[k - 1]);
+		}
+	}
+	
+	/**
+	 * Moves short segments of the tour to another position, if the tour gets shorter.
+	 * @param tour The tour
+	 * @param x The x coordinate of the start position
+	 * @param y The y coordinate of the start position
+	 * @return true if the tour was improved
+	 */
+	private static boolean improveOrOpt(Stop[] tour, double x, double y) {
+		int n = tour.length;
+		boolean improved = false;
+		
+		for(int length = 1; length <= OR_OPT_LENGTH && length < n; length++) {
+			for(int i = 0; i + length <= n; i++) {
+				Stop first = tour[i];
+				Stop last = tour[i + length - 1];
+				Stop before = i > 0 ? tour[i - 1] : null;
+				Stop after = i + length < n ? tour[i + length] : null;
+				// Gain of removing the segment
+				double removed = cost(x, y, before, first) + (after != null ? cost(last, after) - cost(x, y, before, after) : 0);
+				int best = -1;
+				double bestDelta = -EPSILON;
+				// Insert the segment behind position p (-1 is the start position)
+				for(int p = -1; p < n; p++) {
+					if(p >= i - 1 && p < i + length) {
+						continue;
+					}
+					Stop a = p >= 0 ? tour[p] : null;
+					Stop b = p + 1 < n ? tour[p + 1] : null;
+					double inserted = cost(x, y, a, first);
+					if(b != null) {
+						inserted += cost(last, b) - cost(x, y, a, b);
+					}
+					if(inserted - removed < bestDelta) {
+						best = p;
+						bestDelta = inserted - removed;
+					}
+				}
+				if(best >= 0) {
+					moveSegment(tour, i, length, best);
+					improved = true;
+				}
+			}
+		}
+		return improved;
+	}
+	
+	/**
+	 * Moves a segment of the tour behind another position.
+	 * @param tour The tour
+	 * @param i The index of the first stop of the segment
+	 * @param length The length of the segment
+	 * @param p The index of the stop, behind which the segment is inserted (-1 for the start)
+	 */
+	static void moveSegment(Stop[] tour, int i, int length, int p) {
+		Stop[] segment = new Stop[length];
+		System.arraycopy(tour, i, segment, 0, length);
+		if(p < i) {
+			System.arraycopy(tour, p + 1, tour, p + 1 + length, i - p - 1);
+			System.arraycopy(segment, 0, tour, p + 1, length);
+		} else {
+			System.arraycopy(tour, i + length, tour, i, p - i - length + 1);
+			System.arraycopy(segment, 0, tour, p - length + 1, length);
+		}
+	}
+	
+	/**
+	 * Returns the cost from a stop or the start position to a stop.
+	 * @param x The x coordinate of the start position
+	 * @param y The y coordinate of the start position
+	 * @param from The stop or null for the start position
+	 * @param to The stop
+	 * @return The distance
+	 */
+	private static double cost(double x, double y, Stop from, Stop to) {
+		if(from == null) {
+			return distance(x, y, to.entryX, to.entryY);
+		}
+		return cost(from, to);
+	}
+	
+	/**
+	 * Returns the cost from the exit of a stop to the entry of another stop.
+	 * @param from The stop
+	 * @param to The next stop
+	 * @return The distance
+	 */
+	private static double cost(Stop from, Stop to) {
+		return distance(from.exitX, from.exitY, to.entryX, to.entryY);
+	}
+	
+	private static double distance(double x1, double y1, double x2, double y2) {
+		double dx = x2 - x1;
+		double dy = y2 - y1;
+		return Math.sqrt(dx * dx + dy * dy);
+	}
+	
+}
@@ -0,0 +1,480 @@
+/*********************************************************************\
+ * WatchDaemon.java - xmlCam G-Code Generator                        *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+package controller;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+import main.Main;
+import model.GCodeDialect;
+import model.Settings;
+
+/**
+ * This class watches a directory and generates the G-Code of every XML file, which is created or changed in it.
+ * Settings and dialect are loaded once and shared by all generations (see BatchGenerator). The files are generated on a bounded pool of workers.
+ * A file is generated after it was not changed for a short time, so a file which is still copied into the directory is not generated too early.
+ * The G-Code file is replaced atomically, so the operators never pick up an incomplete file. If a generation fails, the former G-Code file stays.
+ * <p>
+ * The SHA-256 hash of every generated XML file is stored in the output directory (.xmlcam-watch.properties). A file with the same content
+ * is not generated again, also not after a restart. The hashes are dropped if the version of xmlCAM or the settings.yaml has changed.
+ * The state file is written at most every SAVE_INTERVAL while files are generated and when the daemon stops. If the daemon is killed,
+ * the files generated since the last write are generated again after the restart.
+ * @author Christian Kirsch
+ *
+ */
+public class WatchDaemon {
+	
+	/**
+	 * The quiet period after the last change of a file in ms.
+	 */
+	private static final long DELAY = 500;
+	/**
+	 * The minimal interval between two writes of the state file in ms.
+	 */
+	private static final long SAVE_INTERVAL = 5000;
+	/**
+	 * The name of the file with the hashes of the generated XML files.
+	 */
+	public static final String STATE_FILE = ".xmlcam-watch.properties";
+	/**
+	 * The key of the fingerprint of version and settings in the state file.
+	 */
+	private static final String FINGERPRINT = "#fingerprint";
+	
+	private File inputDir;
+	private File outputDir;
+	private BatchGenerator batch;
+	private int workers;
+	private ThreadPoolExecutor executor;
+	private WatchService watchService;
+	private Properties hashes;
+	private String fingerprint;
+	/**
+	 * True if the hashes have changed since the state file was written.
+	 */
+	private boolean dirty;
+	private long lastSave;
+	/**
+	 * The files which are generated or waiting for a worker. The value is true, if the file was changed again in the meantime.
+	 */
+	private HashMap<String, Boolean> active;
+	private volatile boolean stopped;
+	private AtomicInteger generated;
+	private AtomicInteger skipped;
+	private AtomicInteger failed;
+	
+	/**
+	 * Constructs a daemon for a directory.
+	 * @param settings The settings shared by all generations
+	 * @param dialect The G-Code dialect shared by all generations
+	 * @param inputDir The directory with the XML files
+	 * @param outputDir The directory for the G-Code files or null for the input directory
+	 * @param workers The number of files generated concurrently
+	 */
+	public WatchDaemon(Settings settings, GCodeDialect dialect, File inputDir, File outputDir, int workers) {
+		this.inputDir = inputDir.getAbsoluteFile();
+		this.outputDir = outputDir != null ? outputDir.getAbsoluteFile() : this.inputDir;
+		this.batch = new BatchGenerator(settings, dialect, workers);
+		this.batch.setOutputDir(this.outputDir);
+		this.batch.setWriteFailed(false);
+		this.workers = workers;
+		this.executor = null;
+		this.watchService = null;
+		this.hashes = new Properties();
+		this.fingerprint = null;
+		this.dirty = false;
+		this.lastSave = 0;
+		this.active = new HashMap<String, Boolean>();
+		this.stopped = false;
+		this.generated = new AtomicInteger();
+		this.skipped = new AtomicInteger();
+		this.failed = new AtomicInteger();
+	}
+	
+	/**
+	 * Sets the maximum time for the generation of one file.
+	 * @param timeout The timeout in seconds or 0 for no limit
+	 */
+	public void setTimeout(int timeout) {
+		batch.setTimeout(timeout);
+	}
+	
+	/**
+	 * Generates all XML files in the directory, which have changed since the last run, and then watches the directory until stop() is called.
+	 * The generations which are running when the daemon is stopped are finished.
+	 * @throws IOException If the directory can not be watched
+	 * @throws IllegalArgumentException If the input directory does not exist
+	 */
+	public void run() throws IOException, IllegalArgumentException {
+		if(!inputDir.isDirectory()) {
+			throw new IllegalArgumentException("Input directory " + inputDir + " does not exist.");
+		}
+		if(!outputDir.isDirectory() && !outputDir.mkdirs()) {
+			throw new IOException("Could not create output directory " + outputDir + ".");
+		}
+		loadState();
+		
+		synchronized(this) {
+			if(stopped) {
+				return;
+			}
+			watchService = FileSystems.getDefault().newWatchService();
+		}
+		executor = new ThreadPoolExecutor(workers, workers, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(workers * 16), r -> {
+			Thread thread = new Thread(r, "xmlCAM watch worker");
+			thread.setDaemon(true);
+			return thread;
+		}, new ThreadPoolExecutor.CallerRunsPolicy()); // A full queue slows down the watching, the events are buffered by the watch service
+		
+		LinkedHashMap<String, Long> pending = new LinkedHashMap<String, Long>();
+		Main.log.log(Level.INFO, "Watching {0} for XML files, G-Code is written to {1}.", new Object[] { inputDir, outputDir });
+		
+		try {
+			inputDir.toPath().register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+			scan(pending, 0);
+			
+			while(!stopped) {
+				WatchKey key;
+				if(pending.isEmpty()) {
+					key = isDirty() ? watchService.poll(SAVE_INTERVAL, TimeUnit.MILLISECONDS) : watchService.take();
+				} else {
+					long wait = pending.values().iterator().next() + DELAY - System.currentTimeMillis();
+					key = watchService.poll(Math.max(1, wait), TimeUnit.MILLISECONDS);
+				}
+				
+				if(key != null) {
+					for(WatchEvent<?> event : key.pollEvents()) {
+						if(event.kind() == StandardWatchEventKinds.OVERFLOW) {
+							Main.log.log(Level.WARNING, "Too many changes in {0}, scanning the whole directory.", new Object[] { inputDir });
+							scan(pending, System.currentTimeMillis());
+						} else {
+							String name = ((Path) event.context()).toString();
+							if(isXml(name)) {
+								pending.remove(name); // Keep the map in the order of the last change
+								pending.put(name, System.currentTimeMillis());
+							}
+						}
+					}
+					if(!key.reset()) {
+						Main.log.log(Level.SEVERE, "Directory {0} is no longer accessible.", new Object[] { inputDir });
+						break;
+					}
+				}
+				
+				long now = System.currentTimeMillis();
+				Iterator<Map.Entry<String, Long>> iterator = pending.entrySet().iterator();
+				while(iterator.hasNext()) {
+					Map.Entry<String, Long> entry = iterator.next();
+					if(entry.getValue() + DELAY > now) {
+						break;
+					}
+					iterator.remove();
+					submit(entry.getKey());
+				}
+				saveState(false);
+			}
+		} catch (ClosedWatchServiceException e) {
+			// Stopped
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} finally {
+			stop();
+			executor.shutdown();
+			try {
+				executor.awaitTermination(1, TimeUnit.HOURS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			saveState(true);
+			Main.log.log(Level.INFO, "Stopped watching {0}: {1} files generated, {2} unchanged, {3} failed.", 
+					new Object[] { inputDir, generated.get(), skipped.get(), failed.get() });
+		}
+	}
+	
+	/**
+	 * Stops the daemon. Can be called from any thread, i.e. from a shutdown hook.
+	 */
+	public void stop() {
+		synchronized(this) {
+			stopped = true;
+			if(watchService != null) {
+				try {
+					watchService.close();
+				} catch (IOException e) {
+					Main.log.log(Level.WARNING, "Could not close watch service; " + e);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Returns the number of generated files.
+	 * @return The number
+	 */
+	public int getGenerated() {
+		return generated.get();
+	}
+	
+	/**
+	 * Returns the number of files, which were not generated, because their content has not changed.
+	 * @return The number
+	 */
+	public int getSkipped() {
+		return skipped.get();
+	}
+	
+	/**
+	 * Returns the number of failed generations.
+	 * @return The number
+	 */
+	public int getFailed() {
+		return failed.get();
+	}
+	
+	/**
+	 * Adds all XML files of the input directory to the pending files.
+	 * @param pending The pending files with the time of their last change
+	 * @param time The time of the change
+	 */
+	private void scan(LinkedHashMap<String, Long> pending, long time) {
+		String[] names = inputDir.list();
+		if(names == null) {
+			return;
+		}
+		Arrays.sort(names);
+		for(int i = 0; i < names.length; i++) {
+			if(isXml(names[i]) && new File(inputDir, names[i]).isFile()) {
+				pending.remove(names[i]);
+				pending.put(names[i], time);
+			}
+		}
+	}
+	
+	/**
+	 * Submits a file to the workers. If the file is already generated or waiting, it is generated again afterwards.
+	 * @param name The name of the XML file
+	 */
+	private void submit(String name) {
+		synchronized(active) {
+			if(active.containsKey(name)) {
+				active.put(name, true);
+				return;
+			}
+			active.put(name, false);
+		}
+		executor.execute(() -> process(name));
+	}
+	
+	/**
+	 * Generates a file if its content has changed. Runs on a worker.
+	 * @param name The name of the XML file
+	 */
+	private void process(String name) {
+		File file = new File(inputDir, name);
+		do {
+			try {
+				if(file.isFile()) {
+					String hash = hash(file);
+					if(hash.equals(getHash(name))) {
+						skipped.incrementAndGet();
+						Main.log.log(Level.FINE, "{0} has not changed.", new Object[] { file });
+					} else {
+						BatchGenerator.Result result = batch.generate(file);
+						if(result.isSuccess()) {
+							generated.incrementAndGet();
+							putHash(name, hash);
+						} else {
+							failed.incrementAndGet();
+							Main.log.log(Level.WARNING, "Generation of {0} failed, the G-Code file is not changed.", new Object[] { file });
+						}
+					}
+				}
+			} catch (IOException e) {
+				failed.incrementAndGet();
+				Main.log.log(Level.SEVERE, "Error processing file {0}: {1}", new Object[] { file, e });
+			} catch (RuntimeException e) {
+				failed.incrementAndGet();
+				Main.log.log(Level.SEVERE, "Generation of {0} failed. {1}", new Object[] { file, e });
+			}
+		} while(isChangedAgain(name));
+	}
+	
+	/**
+	 * Checks if a file was changed while it was generated. Otherwise the file is no longer active.
+	 * @param name The name of the XML file
+	 * @return true if the file must be generated again
+	 */
+	private boolean isChangedAgain(String name) {
+		synchronized(active) {
+			if(active.get(name)) {
+				active.put(name, false);
+				return true;
+			}
+			active.remove(name);
+			return false;
+		}
+	}
+	
+	private synchronized String getHash(String name) {
+		return hashes.getProperty(name);
+	}
+	
+	/**
+	 * Stores the hash of a generated file. The state file is written if the last write is older than SAVE_INTERVAL.
+	 * @param name The name of the XML file
+	 * @param hash The hash of its content
+	 */
+	private synchronized void putHash(String name, String hash) {
+		hashes.setProperty(name, hash);
+		dirty = true;
+		saveState(false);
+	}
+	
+	private synchronized boolean isDirty() {
+		return dirty;
+	}
+	
+	/**
+	 * Writes the state file, if the hashes have changed.
+	 * @param force true to write immediately, false to write only if the last write is older than SAVE_INTERVAL
+	 */
+	private synchronized void saveState(boolean force) {
+		long now = System.currentTimeMillis();
+		if(!dirty || (!force && now - lastSave < SAVE_INTERVAL)) {
+			return;
+		}
+		dirty = false;
+		lastSave = now;
+		File temp = null;
+		try {
+			temp = File.createTempFile(STATE_FILE, ".tmp", outputDir);
+			try (OutputStream out = new FileOutputStream(temp)) {
+				hashes.store(out, "SHA-256 of the generated XML files");
+			}
+			File stateFile = new File(outputDir, STATE_FILE);
+			try {
+				Files.move(temp.toPath(), stateFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp.toPath(), stateFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} catch (IOException e) {
+			Main.log.log(Level.WARNING, "Could not write {0}: {1}", new Object[] { STATE_FILE, e });
+		} finally {
+			if(temp != null) {
+				temp.delete();
+			}
+		}
+	}
+	
+	/**
+	 * Reads the hashes of the generated files. The hashes are dropped, if the fingerprint of version and settings has changed.
+	 */
+	private synchronized void loadState() {
+		fingerprint = createFingerprint();
+		hashes.clear();
+		File stateFile = new File(outputDir, STATE_FILE);
+		if(stateFile.isFile()) {
+			try (InputStream in = new FileInputStream(stateFile)) {
+				hashes.load(in);
+			} catch (IOException | IllegalArgumentException e) {
+				Main.log.log(Level.WARNING, "Could not read {0}, all files are generated again. {1}", new Object[] { stateFile, e });
+				hashes.clear();
+			}
+			if(!fingerprint.equals(hashes.getProperty(FINGERPRINT))) {
+				Main.log.log(Level.INFO, "Version or settings have changed, all files are generated again.");
+				hashes.clear();
+			}
+		}
+		hashes.setProperty(FINGERPRINT, fingerprint);
+	}
+	
+	/**
+	 * Creates the fingerprint of the version of xmlCAM and the settings.yaml.
+	 * @return The fingerprint
+	 */
+	private static String createFingerprint() {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			digest.update(Main.version.getBytes(StandardCharsets.UTF_8));
+			File settings = new File("settings.yaml");
+			if(settings.isFile()) {
+				digest.update(Files.readAllBytes(settings.toPath()));
+			}
+			return ElementCache.toHex(digest.digest());
+		} catch (IOException e) {
+			return Main.version;
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 not available", e); // Every Java platform has SHA-256
+		}
+	}
+	
+	/**
+	 * Returns the SHA-256 hash of the content of a file.
+	 * @param file The file
+	 * @return The hash as hex string
+	 * @throws IOException If the file could not be read
+	 */
+	private static String hash(File file) throws IOException {
+		try (InputStream in = new FileInputStream(file)) {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			byte[] buffer = new byte[65536];
+			int count;
+			while((count = in.read(buffer)) > 0) {
+				digest.update(buffer, 0, count);
+			}
+			return ElementCache.toHex(digest.digest());
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 not available", e); // Every Java platform has SHA-256
+		}
+	}
+	
+	private static boolean isXml(String name) {
+		return name.toLowerCase().endsWith(".xml") && !name.startsWith(".");
+	}
+
+}
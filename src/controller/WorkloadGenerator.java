@@ -0,0 +1,431 @@
+/*********************************************************************\
+ * WorkloadGenerator.java - xmlCam G-Code Generator                  *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+package controller;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * This class creates synthetic XML programs for benchmarks and soak tests. The programs conform to the schema (xml/Schema.xsd).
+ * The mix of the elements is given by a weight for every tag. The elements are placed in blocks, which are nested in translate tags
+ * up to the given depth. Closed elements get an offset and (with the given probability) a pocket.
+ * The program is written as a stream, so also programs with millions of elements can be created without holding them in memory.
+ * The same seed and parameters always create the same program.
+ * @author Christian Kirsch
+ *
+ */
+public class WorkloadGenerator {
+	
+	/**
+	 * The tags, which can be created. The weights are given in this order.
+	 */
+	public static final String[] TAGS = { "drill", "line", "polyline", "circle", "rectangle", "text", "feedrate" };
+	
+	private static final String[] WORDS = { "xmlCAM", "Fräse", "Platte", "Deckel", "Gehäuse", "Halter", "Test", "Nut", "Loch", "Rahmen", "A1", "B2", "42" };
+	private static final String[] OFFSETS = { "engraving", "inset", "outset" };
+	private static final String[] STYLES = { "plain", "bold", "italic", "bolditalic" };
+	
+	private long seed;
+	private int elements;
+	private int[] weights;
+	private int nesting;
+	private int tools;
+	private double pockets;
+	private double width;
+	private double height;
+	private Random random;
+	private Writer out;
+	
+	/**
+	 * Constructs a workload generator with the default mix (mostly simple elements, few texts), translate depth 3, 4 tools and 5 % pockets.
+	 * @param seed The seed for the random numbers
+	 */
+	public WorkloadGenerator(long seed) {
+		this.seed = seed;
+		this.elements = 1000;
+		this.weights = new int[] { 20, 25, 15, 20, 10, 8, 2 };
+		this.nesting = 3;
+		this.tools = 4;
+		this.pockets = 0.05;
+		this.width = 500;
+		this.height = 500;
+	}
+	
+	/**
+	 * Sets the seed for the random numbers.
+	 * @param seed The seed
+	 */
+	public void setSeed(long seed) {
+		this.seed = seed;
+	}
+	
+	/**
+	 * Sets the number of elements (including feedrates, without translate tags).
+	 * @param elements The number of elements
+	 */
+	public void setElements(int elements) {
+		if(elements < 1) {
+			throw new IllegalArgumentException("The number of elements must be greater than 0.");
+		}
+		this.elements = elements;
+	}
+	
+	/**
+	 * Sets the weight of a tag in the mix. A weight of 0 disables the tag.
+	 * @param tag The tag, see TAGS
+	 * @param weight The weight
+	 * @throws IllegalArgumentException If the tag is unknown or the weight is negative
+	 */
+	public void setWeight(String tag, int weight) throws IllegalArgumentException {
+		if(weight < 0) {
+			throw new IllegalArgumentException("The weight of " + tag + " must not be negative.");
+		}
+		for(int i = 0; i < TAGS.length; i++) {
+			if(TAGS[i].equals(tag)) {
+				weights[i] = weight;
+				return;
+			}
+		}
+		throw new IllegalArgumentException("Unknown element " + tag + " in mix.");
+	}
+	
+	/**
+	 * Sets the mix of the elements. Tags not given in the mix are disabled.
+	 * @param mix The weights as list, i.e. drill:4,line:2,text:1
+	 * @throws IllegalArgumentException If the mix can not be parsed
+	 */
+	public void setMix(String mix) throws IllegalArgumentException {
+		int[] previous = weights.clone();
+		weights = new int[TAGS.length];
+		try {
+			String[] parts = mix.split(",");
+			for(int i = 0; i < parts.length; i++) {
+				String[] part = parts[i].trim().split(":");
+				if(part.length != 2) {
+					throw new IllegalArgumentException("Illegal mix " + mix + ". Expected tag:weight,tag:weight,...");
+				}
+				setWeight(part[0].trim(), Integer.parseInt(part[1].trim()));
+			}
+			int sum = 0;
+			for(int i = 0; i < weights.length; i++) {
+				sum += weights[i];
+			}
+			if(weights[TAGS.length - 1] == sum) {
+				throw new IllegalArgumentException("The mix must contain at least one element besides feedrate.");
+			}
+		} catch(IllegalArgumentException e) {
+			weights = previous;
+			throw e;
+		}
+	}
+	
+	/**
+	 * Sets the maximum depth of nested translate tags. 0 creates no translate tags.
+	 * @param nesting The depth
+	 */
+	public void setNesting(int nesting) {
+		if(nesting < 0) {
+			throw new IllegalArgumentException("The nesting depth must not be negative.");
+		}
+		this.nesting = nesting;
+	}
+	
+	/**
+	 * Sets the number of tools. The elements use the tools at random.
+	 * @param tools The number of tools
+	 */
+	public void setTools(int tools) {
+		if(tools < 1) {
+			throw new IllegalArgumentException("The number of tools must be greater than 0.");
+		}
+		this.tools = tools;
+	}
+	
+	/**
+	 * Sets the probability of a pocket for circles, rectangles, closed polylines and texts.
+	 * @param pockets The probability between 0 and 1
+	 */
+	public void setPockets(double pockets) {
+		if(pockets < 0 || pockets > 1) {
+			throw new IllegalArgumentException("The probability of pockets must be between 0 and 1.");
+		}
+		this.pockets = pockets;
+	}
+	
+	/**
+	 * Sets the size of the area in mm, in which the elements are placed.
+	 * @param width The width
+	 * @param height The height
+	 */
+	public void setArea(double width, double height) {
+		if(width < 50 || height < 50) {
+			throw new IllegalArgumentException("The area must be at least 50 x 50 mm.");
+		}
+		this.width = width;
+		this.height = height;
+	}
+	
+	/**
+	 * Writes the program. The writer is not closed.
+	 * @param out The writer
+	 * @throws IOException If the program could not be written
+	 */
+	public void write(Writer out) throws IOException {
+		this.out = out;
+		this.random = new Random(seed);
+		
+		out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+		out.write("<!-- Synthetic program: " + elements + " elements, seed " + seed + " -->\n");
+		out.write("<program>\n\t<tools>\n");
+		for(int i = 1; i <= tools; i++) {
+			out.write("\t\t<tool id=\"t" + i + "\" type=\"" + (i % 2 == 0 ? "ballend" : "endmill") + "\" diameter=\"" + format(getDiameter(i)) + "\"/>\n");
+		}
+		out.write("\t</tools>\n");
+		
+		int written = 0;
+		while(written < elements) {
+			int depth = nesting > 0 ? random.nextInt(nesting + 1) : 0;
+			int block = Math.min(elements - written, 1 + random.nextInt(50));
+			String indent = "\t";
+			for(int i = 0; i < depth; i++) {
+				out.write(indent + "<translate x=\"" + format(random.nextDouble() * 20 - 10) + "\" y=\"" + format(random.nextDouble() * 20 - 10) + "\">\n");
+				indent += "\t";
+			}
+			for(int i = 0; i < block; i++) {
+				writeElement(indent);
+			}
+			for(int i = 0; i < depth; i++) {
+				indent = indent.substring(1);
+				out.write(indent + "</translate>\n");
+			}
+			written += block;
+		}
+		out.write("</program>\n");
+		out.flush();
+		this.out = null;
+	}
+	
+	/**
+	 * Writes one element of the mix.
+	 * @param indent The indent of the element
+	 * @throws IOException If the element could not be written
+	 */
+	private void writeElement(String indent) throws IOException {
+		int tag = chooseTag();
+		if(TAGS[tag].equals("feedrate")) {
+			out.write(indent + "<feedrate>" + (100 + random.nextInt(20) * 50) + "</feedrate>\n");
+			return;
+		}
+		int tool = 1 + random.nextInt(tools);
+		double diameter = getDiameter(tool);
+		String inner = indent + "\t";
+		StringBuilder sb = new StringBuilder(256);
+		sb.append(indent).append('<').append(TAGS[tag]).append(" tool=\"t").append(tool).append("\">\n");
+		
+		switch(TAGS[tag]) {
+			case "drill":
+				appendPoint(sb, inner, "point", x(0), y(0));
+				sb.append(inner).append("<depth start=\"0\" end=\"").append(format(-0.5 - random.nextInt(6) * 0.5)).append("\"/>\n");
+				break;
+			case "line":
+				appendPoint(sb, inner, "point", x(0), y(0));
+				appendPoint(sb, inner, "point", x(0), y(0));
+				appendDepth(sb, inner);
+				break;
+			case "circle": {
+				double radius = diameter + 1 + random.nextInt(40) * 0.5;
+				appendPoint(sb, inner, "center", x(radius), y(radius));
+				sb.append(inner).append("<radius value=\"").append(format(radius)).append("\"/>\n");
+				appendDepth(sb, inner);
+				sb.append(inner).append("<options segments=\"").append(8 + random.nextInt(57)).append('"');
+				appendClosedOptions(sb);
+				sb.append("/>\n");
+				break;
+			}
+			case "rectangle": {
+				double x = x(0);
+				double y = y(0);
+				double size = 2 * diameter + 2;
+				x = Math.min(x, width - size);
+				y = Math.min(y, height - size);
+				appendPoint(sb, inner, "point", x, y);
+				appendPoint(sb, inner, "point", Math.min(width, x + size + random.nextInt(60)), Math.min(height, y + size + random.nextInt(60)));
+				appendDepth(sb, inner);
+				sb.append(inner).append("<options");
+				appendClosedOptions(sb);
+				sb.append("/>\n");
+				break;
+			}
+			case "polyline":
+				if(random.nextDouble() < pockets) {
+					appendPolygon(sb, inner, diameter);
+				} else {
+					appendPolyline(sb, inner);
+				}
+				break;
+			default:
+				sb.append(inner).append("<content>").append(WORDS[random.nextInt(WORDS.length)]);
+				if(random.nextBoolean()) {
+					sb.append(' ').append(WORDS[random.nextInt(WORDS.length)]);
+				}
+				sb.append("</content>\n");
+				appendPoint(sb, inner, "point", x(0), y(0));
+				appendDepth(sb, inner);
+				sb.append(inner).append("<options size=\"").append(5 + (int) (diameter * 4) + random.nextInt(16)).append("\" style=\"").append(STYLES[random.nextInt(STYLES.length)])
+						.append("\" flatness=\"").append(format(0.05 + random.nextInt(4) * 0.05)).append('"');
+				appendClosedOptions(sb);
+				sb.append("/>\n");
+				break;
+		}
+		sb.append(indent).append("</").append(TAGS[tag]).append(">\n");
+		out.write(sb.toString());
+	}
+	
+	/**
+	 * Appends an open polyline with straight segments, bezier curves and splines.
+	 * @param sb The StringBuilder
+	 * @param inner The indent of the children
+	 */
+	private void appendPolyline(StringBuilder sb, String inner) {
+		double x = x(0);
+		double y = y(0);
+		appendPoint(sb, inner, "point", x, y);
+		int segments = 1 + random.nextInt(6);
+		for(int i = 0; i < segments; i++) {
+			int type = random.nextInt(3);
+			int count = type == 0 ? 1 : 1 + random.nextInt(3);
+			for(int j = 0; j < count; j++) {
+				x = clamp(x + random.nextDouble() * 40 - 20, width);
+				y = clamp(y + random.nextDouble() * 40 - 20, height);
+				appendPoint(sb, inner, type == 0 ? "point" : type == 1 ? "bezier" : "spline", x, y);
+			}
+			if(type == 1) {
+				x = clamp(x + random.nextDouble() * 40 - 20, width);
+				y = clamp(y + random.nextDouble() * 40 - 20, height);
+				appendPoint(sb, inner, "point", x, y);
+			}
+		}
+		appendDepth(sb, inner);
+	}
+	
+	/**
+	 * Appends a closed, star-shaped polygon with a pocket. The polygon is large enough for the inset of the tool.
+	 * @param sb The StringBuilder
+	 * @param inner The indent of the children
+	 * @param diameter The diameter of the tool
+	 */
+	private void appendPolygon(StringBuilder sb, String inner, double diameter) {
+		double minRadius = 2 * diameter + 3;
+		double maxRadius = minRadius + 20;
+		double centerX = x(maxRadius);
+		double centerY = y(maxRadius);
+		int corners = 3 + random.nextInt(10);
+		double firstX = 0;
+		double firstY = 0;
+		for(int i = 0; i < corners; i++) {
+			double angle = 2 * Math.PI * i / corners;
+			double radius = minRadius + random.nextDouble() * (maxRadius - minRadius);
+			double x = centerX + radius * Math.cos(angle);
+			double y = centerY + radius * Math.sin(angle);
+			appendPoint(sb, inner, "point", x, y);
+			if(i == 0) {
+				firstX = x;
+				firstY = y;
+			}
+		}
+		appendPoint(sb, inner, "point", firstX, firstY);
+		appendDepth(sb, inner);
+		sb.append(inner).append("<options offset=\"inset\" pocket=\"parallel\"/>\n");
+	}
+	
+	/**
+	 * Appends the offset and pocket attributes of a closed element.
+	 * @param sb The StringBuilder
+	 */
+	private void appendClosedOptions(StringBuilder sb) {
+		if(random.nextDouble() < pockets) {
+			sb.append(" offset=\"inset\" pocket=\"parallel\"");
+		} else {
+			sb.append(" offset=\"").append(OFFSETS[random.nextInt(OFFSETS.length)]).append('"');
+		}
+	}
+	
+	private void appendPoint(StringBuilder sb, String indent, String tag, double x, double y) {
+		sb.append(indent).append('<').append(tag).append(" x=\"").append(format(x)).append("\" y=\"").append(format(y)).append("\"/>\n");
+	}
+	
+	private void appendDepth(StringBuilder sb, String indent) {
+		double step = 0.5 + random.nextInt(3) * 0.25;
+		sb.append(indent).append("<depth start=\"0\" end=\"").append(format(-step * (1 + random.nextInt(4)))).append("\" step=\"").append(format(step)).append("\"/>\n");
+	}
+	
+	/**
+	 * Chooses a tag by the weights.
+	 * @return The index of the tag
+	 */
+	private int chooseTag() {
+		int sum = 0;
+		for(int i = 0; i < weights.length; i++) {
+			sum += weights[i];
+		}
+		int value = random.nextInt(sum);
+		for(int i = 0; i < weights.length; i++) {
+			value -= weights[i];
+			if(value < 0) {
+				return i;
+			}
+		}
+		throw new IllegalStateException("No element in mix.");
+	}
+	
+	/**
+	 * Returns the diameter of a tool. The diameters repeat from 0.5 to 3 mm.
+	 * @param tool The number of the tool, starting with 1
+	 * @return The diameter in mm
+	 */
+	private static double getDiameter(int tool) {
+		return 0.5 + (tool - 1) % 6 * 0.5;
+	}
+	
+	private double x(double margin) {
+		return margin + random.nextDouble() * (width - 2 * margin);
+	}
+	
+	private double y(double margin) {
+		return margin + random.nextDouble() * (height - 2 * margin);
+	}
+	
+	private static double clamp(double value, double max) {
+		return Math.max(0, Math.min(max, value));
+	}
+	
+	/**
+	 * Formats a coordinate with two decimals, as the schema allows it (no exponent).
+	 * @param value The value
+	 * @return The String
+	 */
+	private static String format(double value) {
+		String s = String.format(Locale.ROOT, "%.2f", value);
+		return s.equals("-0.00") ? "0.00" : s;
+	}
+
+}
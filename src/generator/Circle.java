@@ -75,6 +75,7 @@ public class Circle extends ElementClosed {
 		setTool(gen.getTool(map.getNamedItem("tool").getTextContent()));
 		
 		for(int i = 0; i < children.getLength(); i++) {
+			gen.checkCancelled();
 			Node item = children.item(i);
 			if(item.getNodeName() == "center") {
 				map = item.getAttributes();
@@ -137,8 +138,8 @@ public class Circle extends ElementClosed {
 		shape.closePath();
 		
         at = new AffineTransform();
-        at.translate(center.getValue(0).doubleValue(), center.getValue(1).doubleValue());
-        at.translate(gen.getTranslation().getX(), gen.getTranslation().getY()); //Translation from translation tag
+        at.translate(center.getDoubleValue(0), center.getDoubleValue(1));
+        at.translate(translation.getX(), translation.getY()); //Translation from translation tag
         
         Path2D.Double pathShape = createOffsetShape(shape);
         
@@ -151,7 +152,7 @@ public class Circle extends ElementClosed {
 			addToolPathes(createPocket(pathShape, at, getTool()));
 		}
 		
-		Main.log.log(Level.FINE, "Circle element: circle at {0} with translation {1} and radius {2} with {3} points. Step for phi is {4}.", new Object[] { center, gen.getTranslation(), radius, getToolPath(0).size(), phi });	
+		Main.log.log(Level.FINE, "Circle element: circle at {0} with translation {1} and radius {2} with {3} points. Step for phi is {4}.", new Object[] { center, translation, radius, getToolPath(0).size(), phi });	
 	}
 
 }
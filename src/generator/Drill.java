@@ -67,6 +67,7 @@ public class Drill extends Element {
 		setTool(gen.getTool(map.getNamedItem("tool").getTextContent()));
 		
 		for(int i = 0; i < children.getLength(); i++) {
+			gen.checkCancelled();
 			Node item = children.item(i);
 			if(item.getNodeName() == "point") {
 				map = item.getAttributes();
@@ -90,7 +91,7 @@ public class Drill extends Element {
 		}
 		
 		// add one whole step to endZ
-		zLevel.addValue(zLevel.getValue(1).abs().doubleValue());
+		zLevel.addValue(Math.abs(zLevel.getDoubleValue(1)));
 	}
 	
 
@@ -101,10 +102,11 @@ public class Drill extends Element {
 		shape.moveTo(point.getX(), point.getY());
 		
 		at = new AffineTransform();
-		at.translate(gen.getTranslation().getX(), gen.getTranslation().getY()); //Translation from translation tag
+		at.translate(translation.getX(), translation.getY()); //Translation from translation tag
 		
 		addToolPathes(generateToolPathes(shape, at, 0.1, new String("Drill at " + point)));
 
-		Main.log.log(Level.FINE, "Drill element: drill at {0} and translation {1}", new Object[] { point, gen.getTranslation() } );			
+		Main.log.log(Level.FINE, "Drill element: drill at {0} and translation {1}", new Object[] { point, translation } );			
 	}
+
 }
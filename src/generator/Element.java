@@ -51,6 +51,18 @@ public abstract class Element {
 	protected AffineTransform at;
 	private Tool tool;
 	protected Tuple zLevel;
+	/**
+	 * The translation from the enclosing translation tags at the time the element was read.
+	 */
+	protected Point2D.Double translation;
+	/**
+	 * The tolerance for the simplification of the toolpathes in mm from the options of the element. Negative to use the tolerance of the program.
+	 */
+	private double simplifyTolerance;
+	/**
+	 * The number of points of the toolpathes before purgePathes() simplified them.
+	 */
+	private int pointsIn;
 	
 	public Element(Node node, Generator gen) {
 		toolPathes = new ArrayList<ToolPath>();
@@ -59,12 +71,46 @@ public abstract class Element {
 		this.shape = null;
 		this.at = null;
 		this.tool = null;
+		this.translation = gen.getTranslation();
+		this.simplifyTolerance = -1;
+		this.pointsIn = 0;
 	}
 	
 	public abstract void extract() throws IllegalArgumentException;
 	
 	public abstract void execute();
 	
+	/**
+	 * Sets the results of execute() and purgePathes() from a cache instead of computing them.
+	 * The element must be extracted before.
+	 * @param name The name of the element
+	 * @param shape The shape
+	 * @param at The transformation of the shape
+	 * @param toolPathes The cleaned toolpathes
+	 */
+	public void restore(String name, Path2D.Double shape, AffineTransform at, ArrayList<ToolPath> toolPathes) {
+		this.name = name;
+		this.shape = shape;
+		this.at = at;
+		this.toolPathes = toolPathes;
+	}
+	
+	/**
+	 * Releases the XML node after the extraction. The element keeps only the extracted values, so the node can be garbage collected
+	 * while the element with its toolPathes stays in the program model.
+	 */
+	public void releaseNode() {
+		node = null;
+	}
+	
+	/**
+	 * Releases the generator after the toolPathes were computed. Cached elements are reused by later generations, so they must not keep
+	 * the generator, which created them, with its program.
+	 */
+	public void releaseGenerator() {
+		gen = null;
+	}
+	
 	/**
 	 * Returns the toolPath at the index.
 	 * @param index The index
@@ -125,6 +171,15 @@ public abstract class Element {
 		return toolPathes.size();
 	}
 	
+	/**
+	 * Returns the translation from the enclosing translation tags.
+	 * The translation is taken when the element is constructed, so the element can be executed later on another thread.
+	 * @return The translation
+	 */
+	public Point2D.Double getTranslation() {
+		return translation;
+	}
+	
 	/**
 	 * Returns the zLevel tuple (i.E. (0,-1,0.1).
 	 * @return The tuple
@@ -133,6 +188,15 @@ public abstract class Element {
 		return zLevel;
 	}
 	
+	/**
+	 * Returns if the contours are offset to one side of the shape (inset or outset). The direction of such a contour decides between
+	 * climb and conventional milling, so it must not be reversed.
+	 * @return true if the contours are compensated
+	 */
+	public boolean isCompensated() {
+		return false;
+	}
+	
 	/**
 	 * Adds an collection of ToolPathes to the Element.
 	 * @param toolPathes The collection of ToolPathes
@@ -262,71 +326,35 @@ public abstract class Element {
     }
     
     /**
-     * Cleanup the generated ToolPathes for the element
+     * Cleanup the generated ToolPathes for the element. Closed contours without an area are removed. With a tolerance of getSimplifyTolerance()
+     * greater than 0 the points of the contours are simplified within the tolerance, with 0 only almost equal and collinear points are removed
+     * (see PathSimplifier.cleanup()). The pockets are simplified with a tolerance limited by the stepover (the diameter of the tool),
+     * so the distance between the pocket lines is kept (see PathSimplifier.simplifyPocket()). With 0 the pockets are not changed.
      */
     public void purgePathes() {
+    	double tolerance = getSimplifyTolerance();
+    	pointsIn = 0;
+    	int count = 0;
     	for(int i = 0; i < toolPathes.size(); i++) {
-    		if(!toolPathes.get(i).isPocket()) {
-	    		if(isPathValid(toolPathes.get(i))) {
-	    			deleteNarrowPoints(toolPathes.get(i));
-	    			deleteCollinearPoints(toolPathes.get(i));
-	    		} else {
-	    			toolPathes.remove(i);
-	    			i--;
-	    		}
+    		ToolPath toolPath = toolPathes.get(i);
+    		pointsIn += toolPath.size();
+    		if(toolPath.isPocket()) {
+    			if(tolerance > 0) {
+    				PathSimplifier.simplifyPocket(toolPath, tolerance, tool.getDiameter());
+    			}
+    		} else {
+    			if(toolPath.isClosed() && !isPathValid(toolPath)) {
+    				continue;
+    			}
+    			if(tolerance > 0) {
+    				PathSimplifier.simplify(toolPath, tolerance);
+    			} else {
+    				PathSimplifier.cleanup(toolPath);
+    			}
     		}
-    			
+    		toolPathes.set(count++, toolPath);
     	}
-   	
-    }
-    
-    /**
-     * Delete the almost equal points in a toolpath.
-     * @param path The path to cleanup
-     * @return The same cleaned path 
-     */
-    private ToolPath deleteNarrowPoints(ToolPath path) {
-        double tol = 0.0001;
-
-        for (int i = 1; i < path.size(); i++) {
-            Point2D.Double p0 = path.get(i - 1);
-            Point2D.Double p1 = path.get(i);
-
-            double dx = p1.x - p0.x;
-            double dy = p1.y - p0.y;
-
-            if (dx * dx + dy * dy < tol) {
-                path.remove(i);
-                i--;
-            }
-        }
-
-    	return path;
-    }
-    
-    /**
-     * Delete the collinear points.
-     * @param path The path to cleanup
-     * @return The same cleaned path 
-     */
-    private ToolPath deleteCollinearPoints(ToolPath path) {
-    	double tol = 0.000001;
-    	
-    	for (int i = 1; i < path.size() - 1; i++) {
-    		Point2D.Double prev = path.get(i - 1);
-    		Point2D.Double current = path.get(i);
-    		Point2D.Double next = path.get(i + 1);
-  
-	        // Flächeninhalt des Dreiecks ≈ 0?
-	        double area =
-		              (current.getX() - prev.getX()) * (next.getY() - prev.getY())
-		            - (current.getY() - prev.getY()) * (next.getX() - prev.getX());
-	        if(Math.abs(area) < tol) {
-	        	path.remove(i);
-	        	i--;
-	        }
-    	}
-    	return path;
+    	toolPathes.subList(count, toolPathes.size()).clear();
     }
     
     /**
@@ -363,6 +391,31 @@ public abstract class Element {
     }
 
     
+    /**
+     * Returns the tolerance for the simplification of the toolpathes, the value of the options or else the value of the program.
+     * Only used by purgePathes(), before the generator is released.
+     * @return The tolerance in mm
+     */
+    public double getSimplifyTolerance() {
+    	return simplifyTolerance >= 0 ? simplifyTolerance : gen.getSimplifyTolerance();
+    }
+    
+    /**
+     * Sets the tolerance for the simplification of the toolpathes of this element.
+     * @param simplifyTolerance The tolerance in mm, negative to use the tolerance of the program
+     */
+    protected void setSimplifyTolerance(double simplifyTolerance) {
+    	this.simplifyTolerance = simplifyTolerance;
+    }
+    
+    /**
+     * Returns the number of points of the toolpathes before they were simplified.
+     * @return The number of points or 0, if the toolpathes were not purged (i.e. read from a cache)
+     */
+    public int getPointsIn() {
+    	return pointsIn;
+    }
+    
     public void showToolPathes() {
     	System.out.println("Toolpathes for " + this.getName());
     	for(int i = 0; i < toolPathes.size(); i++) {
@@ -77,6 +77,11 @@ abstract class ElementClosed extends Element {
 			}
 		} catch (NullPointerException e) {
 		} 
+		
+		try {
+			setSimplifyTolerance(Double.parseDouble(map.getNamedItem("simplify").getTextContent()));
+		} catch (NullPointerException e) {
+		} 
 	}
 	
 	/**
@@ -202,6 +207,8 @@ abstract class ElementClosed extends Element {
         // Sammele Linesegmente des Shapes und füge diese für jede Zeile dem lineSegments hinzu
         for(double y = bounds.getMinY(); y <= bounds.getMaxY() + tool.getDiameter() * overlap; y += tool.getDiameter()) {
 		
+        	gen.checkCancelled();
+        	
         	// Erstelle eine dünne horizontale "Scan-Area"
             Rectangle2D.Double scanRect = new Rectangle2D.Double(
                 bounds.getMinX() - 1, y, bounds.getWidth() + 2, 0.001
@@ -240,6 +247,7 @@ abstract class ElementClosed extends Element {
         ToolPath ptp = new ToolPath("Pocket part " + stage++ + " for " + this.getName(), true);
         // Toolpath für Zick-Zack-Bewegung erzeugen
         while(!lineSegments.isEmpty()) {
+        	gen.checkCancelled();
         	LineSegment ls = lineSegments.get(j);
 
     		start = new Point2D.Double(ls.get(0), ls.getY());
@@ -364,6 +372,11 @@ abstract class ElementClosed extends Element {
 	public int getPathOffset() {
 		return pathOffset;
 	}
+	
+	@Override
+	public boolean isCompensated() {
+		return pathOffset != ElementClosed.ENGRAVING;
+	}
 
 	public boolean isPocket() {
 		if(pocket == ElementClosed.PARALLEL_POCKET) {
@@ -68,6 +68,7 @@ public class Line extends Element {
 		setTool(gen.getTool(map.getNamedItem("tool").getTextContent()));
 		
 		for(int i = 0; i < children.getLength(); i++) {
+			gen.checkCancelled();
 			Node item = children.item(i);
 			if(item.getNodeName() == "point") {
 				map = item.getAttributes();
@@ -91,15 +92,15 @@ public class Line extends Element {
 	public void execute() {
 		shape = new Path2D.Double();
 		
-		shape.moveTo(points.get(0).getValue(0).doubleValue(), points.get(0).getValue(1).doubleValue());
-		shape.lineTo(points.get(1).getValue(0).doubleValue(), points.get(1).getValue(1).doubleValue());
+		shape.moveTo(points.get(0).getDoubleValue(0), points.get(0).getDoubleValue(1));
+		shape.lineTo(points.get(1).getDoubleValue(0), points.get(1).getDoubleValue(1));
 		
         at = new AffineTransform();
-        at.translate(gen.getTranslation().getX(), gen.getTranslation().getY()); //Translation from translation tag
+        at.translate(translation.getX(), translation.getY()); //Translation from translation tag
         
         addToolPathes(generateToolPathes(shape, at, 0.1, new String("Line from " + points.get(0) + " to " + points.get(1))));
 		
-		Main.log.log(Level.FINE, "Line element: line from {0} to {1} with translation {3}.",  new Object[] { points.get(0), points.get(1), gen.getTranslation() } );
+		Main.log.log(Level.FINE, "Line element: line from {0} to {1} with translation {3}.",  new Object[] { points.get(0), points.get(1), translation } );
 	}
 
 }
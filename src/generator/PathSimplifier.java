@@ -0,0 +1,221 @@
+/*********************************************************************\
+ * PathSimplifier.java - xmlCam G-Code Generator                     *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+package generator;
+
+import java.awt.geom.Point2D;
+
+import model.ToolPath;
+
+/**
+ * This class removes points of a toolpath, which are not needed within a tolerance (the maximum distance of a removed point to the simplified path).
+ * First the points equal to the previous point are dropped, then the path is simplified with the Douglas-Peucker algorithm. Every removed point is within
+ * the tolerance to the segment between the kept points around it.
+ * A closed toolpath is split at the point farthest from its first point, so the first and last point stay the same.
+ * The coordinates are copied to primitive arrays and the toolpath is compacted in one pass at the end.
+ * Without a tolerance the toolpathes are only cleaned up from almost equal and collinear points, see cleanup().
+ * The toolpathes of pockets are simplified with a tolerance limited by the stepover, see simplifyPocket().
+ * @author Christian Kirsch
+ *
+ */
+public class PathSimplifier {
+	
+	/**
+	 * The part of the stepover, which limits the tolerance for the toolpathes of pockets.
+	 */
+	public static final double POCKET_TOLERANCE = 0.05;
+	
+	/**
+	 * Simplifies a toolpath. The first and the last point are always kept.
+	 * @param path The toolpath, which is changed
+	 * @param tolerance The tolerance in mm. With 0 only equal points and points exactly on the line between their neighbours are removed.
+	 * @return The number of points after the simplification
+	 */
+	public static int simplify(ToolPath path, double tolerance) {
+		int n = path.size();
+		if(n < 3) {
+			return n;
+		}
+		boolean closed = path.isClosed();
+		double tol2 = tolerance * tolerance;
+		
+		// Drop the points equal to the previous point. The last point is kept instead of its previous point.
+		int[] index = new int[n];
+		double[] x = new double[n];
+		double[] y = new double[n];
+		int m = 0;
+		for(int i = 0; i < n; i++) {
+			Point2D.Double p = path.get(i);
+			if(m > 0 && x[m - 1] == p.x && y[m - 1] == p.y) {
+				if(i < n - 1) {
+					continue;
+				}
+				if(m > 1) {
+					m--;
+				}
+			}
+			index[m] = i;
+			x[m] = p.x;
+			y[m] = p.y;
+			m++;
+		}
+		
+		boolean[] keep = new boolean[m];
+		keep[0] = true;
+		keep[m - 1] = true;
+		if(closed && m > 3) {
+			int far = 1;
+			double max = -1;
+			for(int i = 1; i < m - 1; i++) {
+				double d = distance2(x[0], y[0], x[i], y[i]);
+				if(d > max) {
+					max = d;
+					far = i;
+				}
+			}
+			keep[far] = true;
+			douglasPeucker(x, y, 0, far, tol2, keep);
+			douglasPeucker(x, y, far, m - 1, tol2, keep);
+		} else {
+			douglasPeucker(x, y, 0, m - 1, tol2, keep);
+		}
+		
+		int count = 0;
+		for(int i = 0; i < m; i++) {
+			if(keep[i]) {
+				path.set(count++, path.get(index[i]));
+			}
+		}
+		path.subList(count, n).clear();
+		return count;
+	}
+	
+	/**
+	 * Simplifies a toolpath of a pocket. The tolerance is limited to POCKET_TOLERANCE of the stepover, so two neighbouring lines of the pocket
+	 * come nearer or move apart by not more than two times this part of the stepover and no material is left between them.
+	 * @param path The toolpath, which is changed
+	 * @param tolerance The tolerance in mm
+	 * @param stepover The distance between the lines of the pocket in mm
+	 * @return The number of points after the simplification
+	 */
+	public static int simplifyPocket(ToolPath path, double tolerance, double stepover) {
+		return simplify(path, Math.min(tolerance, stepover * POCKET_TOLERANCE));
+	}
+	
+	/**
+	 * Removes the points, which are nearer than 0.01 mm to the previous kept point, and then the points, which are on the line between
+	 * their neighbours (the doubled area of the triangle is less than 0.000001). This is the cleanup of the toolpathes without a tolerance.
+	 * Toolpathes with less than three points (i.e. of lines and drills) are not changed.
+	 * @param path The toolpath, which is changed
+	 * @return The number of points after the cleanup
+	 */
+	public static int cleanup(ToolPath path) {
+		int n = path.size();
+		if(n < 3) {
+			return n;
+		}
+		
+		int m = 1;
+		for(int i = 1; i < n; i++) {
+			Point2D.Double p = path.get(i);
+			if(distance2(path.get(m - 1).x, path.get(m - 1).y, p.x, p.y) >= 0.0001) {
+				path.set(m++, p);
+			}
+		}
+		
+		int count = 1;
+		for(int i = 1; i < m - 1; i++) {
+			Point2D.Double previous = path.get(count - 1);
+			Point2D.Double current = path.get(i);
+			Point2D.Double next = path.get(i + 1);
+			double area = (current.x - previous.x) * (next.y - previous.y) - (current.y - previous.y) * (next.x - previous.x);
+			if(Math.abs(area) >= 0.000001) {
+				path.set(count++, current);
+			}
+		}
+		if(m > 1) {
+			path.set(count++, path.get(m - 1));
+		}
+		path.subList(count, n).clear();
+		return count;
+	}
+	
+	/**
+	 * Marks the points between first and last, which are farther than the tolerance from the simplified path. Uses a stack instead of recursion,
+	 * so long toolpathes cannot overflow the call stack.
+	 * @param x The x coordinates
+	 * @param y The y coordinates
+	 * @param first The index of the first point, which is kept
+	 * @param last The index of the last point, which is kept
+	 * @param tol2 The square of the tolerance
+	 * @param keep The marks of the kept points
+	 */
+	private static void douglasPeucker(double[] x, double[] y, int first, int last, double tol2, boolean[] keep) {
+		int[] stack = new int[2 * (last - first + 1)];
+		int top = 0;
+		stack[top++] = first;
+		stack[top++] = last;
+		while(top > 0) {
+			int end = stack[--top];
+			int start = stack[--top];
+			int far = -1;
+			double max = tol2;
+			for(int i = start + 1; i < end; i++) {
+				double d = segmentDistance2(x[i], y[i], x[start], y[start], x[end], y[end]);
+				if(d > max) {
+					max = d;
+					far = i;
+				}
+			}
+			if(far >= 0) {
+				keep[far] = true;
+				stack[top++] = start;
+				stack[top++] = far;
+				stack[top++] = far;
+				stack[top++] = end;
+			}
+		}
+	}
+	
+	/**
+	 * Returns the square of the distance of a point to a segment.
+	 */
+	private static double segmentDistance2(double px, double py, double ax, double ay, double bx, double by) {
+		double dx = bx - ax;
+		double dy = by - ay;
+		double length2 = dx * dx + dy * dy;
+		if(length2 == 0) {
+			return distance2(px, py, ax, ay);
+		}
+		double t = ((px - ax) * dx + (py - ay) * dy) / length2;
+		if(t <= 0) {
+			return distance2(px, py, ax, ay);
+		} else if(t >= 1) {
+			return distance2(px, py, bx, by);
+		}
+		return distance2(px, py, ax + t * dx, ay + t * dy);
+	}
+	
+	private static double distance2(double x1, double y1, double x2, double y2) {
+		double dx = x2 - x1;
+		double dy = y2 - y1;
+		return dx * dx + dy * dy;
+	}
+
+}
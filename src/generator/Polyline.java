@@ -77,6 +77,7 @@ public class Polyline extends ElementClosed {
 		setTool(gen.getTool(map.getNamedItem("tool").getTextContent()));
 		
 		for(int i = 0; i < children.getLength(); i++) {
+			gen.checkCancelled();
 			Node item = children.item(i);
 			if(item.getNodeName() == "point") {
 				map = item.getAttributes();
@@ -123,9 +124,9 @@ public class Polyline extends ElementClosed {
 		for(int i = 0; i < points.size(); i++) {
 			if(points.get(i).getType() == Tuple.POINT) {
 				if(i == 0) {
-					shape.moveTo(points.get(i).getValue(0).doubleValue(), points.get(i).getValue(1).doubleValue());
+					shape.moveTo(points.get(i).getDoubleValue(0), points.get(i).getDoubleValue(1));
 				} else {
-					shape.lineTo(points.get(i).getValue(0).doubleValue(), points.get(i).getValue(1).doubleValue());
+					shape.lineTo(points.get(i).getDoubleValue(0), points.get(i).getDoubleValue(1));
 				}
 				Main.log.log(Level.FINE, "Polyline element: line to (" + points.get(i));
 			} else if(points.get(i).getType() == Tuple.BEZIER) {
@@ -142,28 +143,28 @@ public class Polyline extends ElementClosed {
 				deCasteljau(b, 0.5, shape, 4);
 		
 				i += n - 1; 			// Skip the next inner control points (b1 - bn-1)
-				Main.log.log(Level.FINE, "Polyline element: bezier curve grade " + (n + 1) + " to (" + b.get(b.size() - 1).getValue(0).doubleValue() + ", " + b.get(b.size() - 1).getValue(1).doubleValue() + ").");
+				Main.log.log(Level.FINE, "Polyline element: bezier curve grade " + (n + 1) + " to (" + b.get(b.size() - 1).getDoubleValue(0) + ", " + b.get(b.size() - 1).getDoubleValue(1) + ").");
 			} else if(points.get(i).getType() == Tuple.SPLINE) {
 				ArrayList<Tuple> splinePoints = new ArrayList<Tuple>();
 				
-				double dx = points.get(i).getValue(0).doubleValue() - points.get(i - 1).getValue(0).doubleValue();
-				double dy = points.get(i).getValue(1).doubleValue() - points.get(i - 1).getValue(1).doubleValue();
+				double dx = points.get(i).getDoubleValue(0) - points.get(i - 1).getDoubleValue(0);
+				double dy = points.get(i).getDoubleValue(1) - points.get(i - 1).getDoubleValue(1);
 				
 				for(int j = -1; j < 1; j++) {
 					splinePoints.add(points.get(i + j));
 				}
 				
 				if(i == 1) { // If are not two points before the first spline
-					splinePoints.add(0, new Tuple(new double[] { points.get(i - 1).getValue(0).doubleValue() - dx, points.get(i - 1).getValue(1).doubleValue() - dy } ));	
+					splinePoints.add(0, new Tuple(new double[] { points.get(i - 1).getDoubleValue(0) - dx, points.get(i - 1).getDoubleValue(1) - dy } ));	
 				} else {
 					splinePoints.add(0, points.get(i - 2));
 				}
 				if(i == points.size() -1) { // If the last point is missing
 					if(points.get(i).equals(points.get(0))) { // Check if last point is the same then first point (closed shape).
 						Main.log.log(Level.FINER, "Closed shape!");
-						splinePoints.add(new Tuple(new double[] { points.get(1).getValue(0).doubleValue(), points.get(1).getValue(1).doubleValue() } ));
+						splinePoints.add(new Tuple(new double[] { points.get(1).getDoubleValue(0), points.get(1).getDoubleValue(1) } ));
 					} else {
-						splinePoints.add(new Tuple(new double[] { points.get(i).getValue(0).doubleValue() + dx, points.get(i).getValue(1).doubleValue() + dy } ));
+						splinePoints.add(new Tuple(new double[] { points.get(i).getDoubleValue(0) + dx, points.get(i).getDoubleValue(1) + dy } ));
 					}
 				} else {
 					splinePoints.add(points.get(i + 1));
@@ -181,15 +182,15 @@ public class Polyline extends ElementClosed {
 				
 				// insert last point of curve, because we do not add the last control point to the toolpath
 				if(splinePoints.get(3).getType() == Tuple.POINT) {
-					shape.lineTo(splinePoints.get(2).getValue(0).doubleValue(), splinePoints.get(2).getValue(1).doubleValue());
+					shape.lineTo(splinePoints.get(2).getDoubleValue(0), splinePoints.get(2).getDoubleValue(1));
 				}
 				
-				Main.log.log(Level.FINE, "Polyline element: spline to (" + splinePoints.get(splinePoints.size() - 2).getValue(0).doubleValue() + ", " + splinePoints.get(splinePoints.size() - 2).getValue(1).doubleValue() + ").");
+				Main.log.log(Level.FINE, "Polyline element: spline to (" + splinePoints.get(splinePoints.size() - 2).getDoubleValue(0) + ", " + splinePoints.get(splinePoints.size() - 2).getDoubleValue(1) + ").");
 			}
 		}
 		
 		at = new AffineTransform();
-		at.translate(gen.getTranslation().getX(), gen.getTranslation().getY()); //Translation from translation tag
+		at.translate(translation.getX(), translation.getY()); //Translation from translation tag
 		
 		Path2D.Double pathShape = createOffsetShape(shape);
 		
@@ -202,7 +203,7 @@ public class Polyline extends ElementClosed {
 			addToolPathes(createPocket(pathShape, at, getTool()));
 		}
 		
-		Main.log.log(Level.FINE, "Generated polyline element from {0} with translation {1} with {2} points.", new Object[] { points.get(0), gen.getTranslation(), getToolPath(0).size() });
+		Main.log.log(Level.FINE, "Generated polyline element from {0} with translation {1} with {2} points.", new Object[] { points.get(0), translation, getToolPath(0).size() });
 	}
 	
 	/**
@@ -226,8 +227,8 @@ public class Polyline extends ElementClosed {
 		Main.log.finer("Recursion level:" + level);
 		
 		for(int k = 0; k < n; k++) {
-            bx[0][k] = points.get(k).getValue(0).floatValue();
-            by[0][k] = points.get(k).getValue(1).floatValue();
+            bx[0][k] = (float) points.get(k).getDoubleValue(0);
+            by[0][k] = (float) points.get(k).getDoubleValue(1);
         }
 
 		for(int j = 1; j < n; j++) {
@@ -296,32 +297,32 @@ public class Polyline extends ElementClosed {
 		pointList.add(points.get(1));
 		
 		if(points.get(1).getType() == Tuple.SPLINE) {
-			dx1 = 0.5 * (points.get(2).getValue(0).doubleValue() - points.get(0).getValue(0).doubleValue());
-			dy1 = 0.5 * (points.get(2).getValue(1).doubleValue() - points.get(0).getValue(1).doubleValue());
-			point[0] = points.get(1).getValue(0).doubleValue() + (1 / 3.0) * dx1;
-			point[1] = points.get(1).getValue(1).doubleValue() + (1 / 3.0) * dy1;
+			dx1 = 0.5 * (points.get(2).getDoubleValue(0) - points.get(0).getDoubleValue(0));
+			dy1 = 0.5 * (points.get(2).getDoubleValue(1) - points.get(0).getDoubleValue(1));
+			point[0] = points.get(1).getDoubleValue(0) + (1 / 3.0) * dx1;
+			point[1] = points.get(1).getDoubleValue(1) + (1 / 3.0) * dy1;
 			pointList.add(new Tuple(point));
 		} else {
-			dx1 = points.get(1).getValue(0).doubleValue() - points.get(0).getValue(0).doubleValue();
-			dy1 = points.get(1).getValue(1).doubleValue() - points.get(0).getValue(1).doubleValue();
+			dx1 = points.get(1).getDoubleValue(0) - points.get(0).getDoubleValue(0);
+			dy1 = points.get(1).getDoubleValue(1) - points.get(0).getDoubleValue(1);
 			double unitFactor = Math.sqrt(Math.pow(dx1, 2) + Math.pow(dy1, 2)); // Einheitsvektor
-			point[0] = points.get(1).getValue(0).doubleValue() + 1 / unitFactor * dx1 * distance * 0.4;
-			point[1] = points.get(1).getValue(1).doubleValue() + 1 / unitFactor * dy1 * distance * 0.4;
+			point[0] = points.get(1).getDoubleValue(0) + 1 / unitFactor * dx1 * distance * 0.4;
+			point[1] = points.get(1).getDoubleValue(1) + 1 / unitFactor * dy1 * distance * 0.4;
 			pointList.add(new Tuple(point));
 		}
 		
 		if(points.get(3).getType() == Tuple.SPLINE) {
-			dx2 = 0.5 * (points.get(3).getValue(0).doubleValue() - points.get(1).getValue(0).doubleValue());
-			dy2 = 0.5 * (points.get(3).getValue(1).doubleValue() - points.get(1).getValue(1).doubleValue());
-			point[0] = points.get(2).getValue(0).doubleValue() - (1 / 3.0) * dx2;
-			point[1] = points.get(2).getValue(1).doubleValue() - (1 / 3.0) * dy2;
+			dx2 = 0.5 * (points.get(3).getDoubleValue(0) - points.get(1).getDoubleValue(0));
+			dy2 = 0.5 * (points.get(3).getDoubleValue(1) - points.get(1).getDoubleValue(1));
+			point[0] = points.get(2).getDoubleValue(0) - (1 / 3.0) * dx2;
+			point[1] = points.get(2).getDoubleValue(1) - (1 / 3.0) * dy2;
 			pointList.add(new Tuple(point));
 		} else {
-			dx2 = points.get(2).getValue(0).doubleValue() - points.get(3).getValue(0).doubleValue();
-			dy2 = points.get(2).getValue(1).doubleValue() - points.get(3).getValue(1).doubleValue();
+			dx2 = points.get(2).getDoubleValue(0) - points.get(3).getDoubleValue(0);
+			dy2 = points.get(2).getDoubleValue(1) - points.get(3).getDoubleValue(1);
 			double unitFactor = Math.sqrt(Math.pow(dx2, 2) + Math.pow(dy2, 2)); // Einheitsvektor
-			point[0] = points.get(2).getValue(0).doubleValue() + (1 / unitFactor) * dx2 * distance * 0.4;
-			point[1] = points.get(2).getValue(1).doubleValue() + (1 / unitFactor) * dy2 * distance * 0.4;
+			point[0] = points.get(2).getDoubleValue(0) + (1 / unitFactor) * dx2 * distance * 0.4;
+			point[1] = points.get(2).getDoubleValue(1) + (1 / unitFactor) * dy2 * distance * 0.4;
 			pointList.add(new Tuple(point));
 		}
 
@@ -71,6 +71,7 @@ public class Rectangle extends ElementClosed {
 		setTool(gen.getTool(map.getNamedItem("tool").getTextContent()));
 		
 		for(int i = 0; i < children.getLength(); i++) {
+			gen.checkCancelled();
 			Node item = children.item(i);
 			if(item.getNodeName() == "point") {
 				map = item.getAttributes();
@@ -99,14 +100,14 @@ public class Rectangle extends ElementClosed {
 	public void execute() {
 		shape = new Path2D.Double();
 		
-		shape.moveTo(points.get(0).getValue(0).doubleValue(), points.get(0).getValue(1).doubleValue());
-		shape.lineTo(points.get(1).getValue(0).doubleValue(), points.get(0).getValue(1).doubleValue());
-		shape.lineTo(points.get(1).getValue(0).doubleValue(), points.get(1).getValue(1).doubleValue());
-		shape.lineTo(points.get(0).getValue(0).doubleValue(), points.get(1).getValue(1).doubleValue());
+		shape.moveTo(points.get(0).getDoubleValue(0), points.get(0).getDoubleValue(1));
+		shape.lineTo(points.get(1).getDoubleValue(0), points.get(0).getDoubleValue(1));
+		shape.lineTo(points.get(1).getDoubleValue(0), points.get(1).getDoubleValue(1));
+		shape.lineTo(points.get(0).getDoubleValue(0), points.get(1).getDoubleValue(1));
 		shape.closePath();
 		
 		at = new AffineTransform();
-		at.translate(gen.getTranslation().getX(), gen.getTranslation().getY()); //Translation from translation tag
+		at.translate(translation.getX(), translation.getY()); //Translation from translation tag
 		
 		Path2D.Double pathShape = createOffsetShape(shape);
 		
@@ -119,7 +120,7 @@ public class Rectangle extends ElementClosed {
 			addToolPathes(createPocket(pathShape, at, getTool()));
 		}
 
-		Main.log.log(Level.FINE, "Rectangle element: rectangle from {0} to {1} with translation {2}.", new Object[] { points.get(0), points.get(1), gen.getTranslation() } );	
+		Main.log.log(Level.FINE, "Rectangle element: rectangle from {0} to {1} with translation {2}.", new Object[] { points.get(0), points.get(1), translation } );	
 	}
 
 }
@@ -86,6 +86,7 @@ public class Text extends ElementClosed {
 		setTool(gen.getTool(map.getNamedItem("tool").getTextContent()));
 		
 		for(int i = 0; i < children.getLength(); i++) {
+			gen.checkCancelled();
 			Node item = children.item(i);
 
 			if(item.getNodeName() == "content") {
@@ -160,12 +161,13 @@ public class Text extends ElementClosed {
     	
         // Transformation, um den Text an die Startposition (startX, startY) zu verschieben
         at = new AffineTransform();
-        at.translate(point.getValue(0).doubleValue(), point.getValue(1).doubleValue());
-        at.translate(gen.getTranslation().getX(), gen.getTranslation().getY()); //Translation from translation tag
+        at.translate(point.getDoubleValue(0), point.getDoubleValue(1));
+        at.translate(translation.getX(), translation.getY()); //Translation from translation tag
         at.scale(1.0, -1.0);
         
         ArrayList<Path2D.Double> subShapes = mergeContainedPaths(splitIntoSubpaths(shape));
         for(int i = 0; i < subShapes.size(); i++) {
+        	gen.checkCancelled();
         	Path2D.Double pathShape = createOffsetShape(subShapes.get(i));
         	addToolPathes(generateToolPathes(pathShape, at, flatness, new String("Text: " + content)));
     		if(isPocket()) {
@@ -181,7 +183,7 @@ public class Text extends ElementClosed {
     		}
         }
         
-        Main.log.log(Level.FINE, "Text element: text {0} at {1} and translation {2} with type {3} size {4} and flatness {5}" , new Object[] { content, point, gen.getTranslation(), font.getFontName(), font.getSize(), flatness } );
+        Main.log.log(Level.FINE, "Text element: text {0} at {1} and translation {2} with type {3} size {4} and flatness {5}" , new Object[] { content, point, translation, font.getFontName(), font.getSize(), flatness } );
 	}
 
 }
@@ -19,13 +19,28 @@
 
 package main;
 
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.FileHandler;
 import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import controller.BatchGenerator;
+import controller.GenerationServer;
+import controller.WatchDaemon;
+import controller.WorkloadGenerator;
+import model.ColumnarRowStore;
+import model.ListRowStore;
 import model.Program;
 import model.Settings;
 import model.Environment;
@@ -45,13 +60,84 @@ public class Main {
 
 	public static void main (String[] arguments) {
 		String[] arg = null;
+		ArrayList<File> batchInputs = new ArrayList<File>();
+		File outputDir = null;
+		int workers = Runtime.getRuntime().availableProcessors();
+		Boolean parallel = null;
+		Boolean optimize = null;
+		Boolean group = null;
+		Double arcs = null;
+		Double simplify = null;
+		int timeout = 0;
+		boolean profile = false;
+		File synthFile = null;
+		File watchDir = null;
+		int serverPort = -1;
+		WorkloadGenerator workload = null;
+		
 		for(int i = 0; i < arguments.length; i++) {
-			arg = arguments[i].split("=");
-			if(arg[i].equals("loglevel")) {
+			arg = arguments[i].split("=", 2);
+			if(arg[0].equals("loglevel")) {
 				log.setLevel(Level.parse(arg[1].toUpperCase()));
-			} else if(arg[i].equals("help")) {
+			} else if(arg[0].equals("batch")) {
+				batchInputs.add(new File(arg[1]));
+			} else if(arg[0].equals("out")) {
+				outputDir = new File(arg[1]);
+			} else if(arg[0].equals("workers")) {
+				workers = Integer.parseInt(arg[1]);
+			} else if(arg[0].equals("parallel")) {
+				parallel = Boolean.parseBoolean(arg[1]);
+			} else if(arg[0].equals("optimize")) {
+				optimize = Boolean.parseBoolean(arg[1]);
+			} else if(arg[0].equals("group")) {
+				group = Boolean.parseBoolean(arg[1]);
+			} else if(arg[0].equals("arcs")) {
+				arcs = Double.parseDouble(arg[1]);
+			} else if(arg[0].equals("simplify")) {
+				simplify = Double.parseDouble(arg[1]);
+			} else if(arg[0].equals("timeout")) {
+				timeout = Integer.parseInt(arg[1]);
+			} else if(arg[0].equals("profile")) {
+				profile = Boolean.parseBoolean(arg[1]);
+			} else if(arg[0].equals("watch")) {
+				watchDir = new File(arg[1]);
+			} else if(arg[0].equals("server")) {
+				serverPort = Integer.parseInt(arg[1]);
+			} else if(arg[0].equals("synth")) {
+				synthFile = new File(arg[1]);
+			} else if(arg[0].equals("seed") || arg[0].equals("elements") || arg[0].equals("mix") || arg[0].equals("nesting") || 
+					arg[0].equals("tools") || arg[0].equals("pockets")) {
+				if(workload == null) {
+					workload = new WorkloadGenerator(1);
+				}
+				try {
+					setWorkloadOption(workload, arg[0], arg[1]);
+				} catch(IllegalArgumentException e) {
+					System.out.println("Illegal value for option " + arg[0] + ": " + e.getMessage());
+					System.exit(2);
+				}
+			} else if(arg[0].equals("help")) {
 				System.out.println("Options:");
 				System.out.println("loglevel=<level>  <level>=fine|warning|error");
+				System.out.println("batch=<path>      Generate G-Code without GUI for an XML file or all XML files in a directory. Can be repeated.");
+				System.out.println("out=<dir>         Output directory for batch mode. Default is the directory of the XML file.");
+				System.out.println("workers=<n>       Number of files generated concurrently in batch mode. Default is the number of processors.");
+				System.out.println("parallel=<bool>   Compute the toolpathes of the elements in parallel. Overrides parallel-generation in settings.yaml.");
+				System.out.println("optimize=<bool>   Reorder the toolpathes of the same tool for shorter G0 moves. Overrides optimize-travel in settings.yaml.");
+				System.out.println("group=<bool>      Mill the elements grouped by tool to save tool changes. Overrides group-tools in settings.yaml.");
+				System.out.println("arcs=<mm>         Tolerance for replacing segments by G2/G3 arcs, 0 disables the arcs. Overrides arc-tolerance in settings.yaml.");
+				System.out.println("simplify=<mm>     Tolerance for removing points of the toolpathes. Overrides simplify-tolerance in settings.yaml.");
+				System.out.println("timeout=<s>       Cancel the generation of a file in batch mode after s seconds. Default is no limit.");
+				System.out.println("watch=<dir>       Watch a directory and generate every new or changed XML file without GUI until the program is stopped. Uses out, workers and timeout.");
+				System.out.println("server=<port>     Run a local HTTP service (POST /generate, GET /stats) on 127.0.0.1 without GUI. workers limits the concurrent generations, timeout cancels a generation.");
+				System.out.println("synth=<file>      Write a synthetic XML program for benchmarks and soak tests and exit (or generate it with batch=<file>).");
+				System.out.println("seed=<n>          Seed of the synthetic program. Default is 1.");
+				System.out.println("elements=<n>      Number of elements of the synthetic program. Default is 1000.");
+				System.out.println("mix=<tag:weight,...> Mix of the synthetic program, i.e. drill:4,line:2,circle:2,text:1. Tags: drill, line, polyline, circle, rectangle, text, feedrate.");
+				System.out.println("nesting=<n>       Maximum depth of nested translate tags in the synthetic program. Default is 3.");
+				System.out.println("tools=<n>         Number of tools in the synthetic program. Default is 4.");
+				System.out.println("pockets=<p>       Probability of a pocket for closed elements in the synthetic program (0..1). Default is 0.05.");
+				System.out.println("profile=<bool>    Write a profile with the timings of every element as JSON next to the G-Code file in batch mode.");
 				System.exit(0);
 			} else {
 				System.out.println("Type option help for more information.");
@@ -76,13 +162,199 @@ public class Main {
 		
 		Main.log.log(Level.INFO, "Welcome to xmlCAM build " + version);
 		
-		Program program = new Program();
+		if(synthFile != null) {
+			int result = writeWorkload(workload != null ? workload : new WorkloadGenerator(1), synthFile);
+			if(result != 0 || batchInputs.isEmpty()) {
+				System.exit(result);
+			}
+		}
+		
 		Settings settings = new Settings();
 		settings.readSettings();
+		if(parallel != null) {
+			settings.setParallelGeneration(parallel);
+		}
+		if(optimize != null) {
+			settings.setOptimizeTravel(optimize);
+		}
+		if(group != null) {
+			settings.setGroupTools(group);
+		}
+		if(arcs != null) {
+			settings.setArcTolerance(arcs);
+		}
+		if(simplify != null) {
+			settings.setSimplifyTolerance(simplify);
+		}
+		
+		if(serverPort >= 0) {
+			System.exit(runServer(settings, serverPort, workers, timeout));
+		}
+		
+		if(watchDir != null) {
+			System.exit(runWatch(settings, watchDir, outputDir, workers, timeout));
+		}
+		
+		if(!batchInputs.isEmpty()) {
+			System.exit(runBatch(settings, batchInputs, outputDir, workers, timeout, profile));
+		}
+		
+		Program program = new Program(settings.isColumnarProgram() ? new ColumnarRowStore() : new ListRowStore());
 		GCodeDialect dialect = new GCodeDialect(settings);
 		Environment env = new Environment(settings, dialect, program);
 		
 		new MainWindow(env);
 	}
 	
+	/**
+	 * Sets an option of the synthetic program from the command line.
+	 * @param workload The workload generator
+	 * @param key The option
+	 * @param value The value of the option
+	 * @throws IllegalArgumentException If the value is not valid
+	 */
+	private static void setWorkloadOption(WorkloadGenerator workload, String key, String value) throws IllegalArgumentException {
+		if(key.equals("seed")) {
+			workload.setSeed(Long.parseLong(value));
+		} else if(key.equals("elements")) {
+			workload.setElements(Integer.parseInt(value));
+		} else if(key.equals("mix")) {
+			workload.setMix(value);
+		} else if(key.equals("nesting")) {
+			workload.setNesting(Integer.parseInt(value));
+		} else if(key.equals("tools")) {
+			workload.setTools(Integer.parseInt(value));
+		} else if(key.equals("pockets")) {
+			workload.setPockets(Double.parseDouble(value));
+		}
+	}
+	
+	/**
+	 * Writes a synthetic XML program.
+	 * @param workload The workload generator with the options
+	 * @param file The XML file
+	 * @return The exit code. 0 if the program was written.
+	 */
+	private static int writeWorkload(WorkloadGenerator workload, File file) {
+		long start = System.nanoTime();
+		try (Writer writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8))) {
+			workload.write(writer);
+		} catch (IOException e) {
+			Main.log.log(Level.SEVERE, "Could not write synthetic program {0}: {1}", new Object[] { file, e });
+			return 2;
+		}
+		Main.log.log(Level.INFO, "Synthetic program {0} written in {1} ms, {2} bytes.", new Object[] { file, (System.nanoTime() - start) / 1000000, file.length() });
+		return 0;
+	}
+	
+	/**
+	 * Runs the local HTTP service for the G-Code generation until the program is stopped (i.e. by Ctrl+C).
+	 * @param settings The settings
+	 * @param port The port on the loopback address
+	 * @param concurrency The maximum number of concurrent generations
+	 * @param timeout The maximum time for one generation in seconds or 0 for no limit
+	 * @return The exit code, if the server could not be started
+	 */
+	private static int runServer(Settings settings, int port, int concurrency, int timeout) {
+		System.setProperty("java.awt.headless", "true");
+		
+		try {
+			GenerationServer server = new GenerationServer(settings, new GCodeDialect(settings), port, concurrency);
+			server.setTimeout(timeout);
+			server.start();
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(5)));
+			new CountDownLatch(1).await(); // The server runs until the program is stopped
+			return 0;
+		} catch (IllegalArgumentException e) {
+			Main.log.log(Level.SEVERE, e.getMessage());
+			return 2;
+		} catch (IOException e) {
+			Main.log.log(Level.SEVERE, "Could not start server on port {0}: {1}", new Object[] { String.valueOf(port), e });
+			return 2;
+		} catch (InterruptedException e) {
+			return 0;
+		}
+	}
+	
+	/**
+	 * Watches a directory and generates the G-Code of new or changed XML files without the GUI, until the program is stopped (i.e. by Ctrl+C).
+	 * Generations which are running when the program is stopped are finished.
+	 * @param settings The settings
+	 * @param inputDir The directory with the XML files
+	 * @param outputDir The output directory or null
+	 * @param workers The number of files generated concurrently
+	 * @param timeout The maximum time for one file in seconds or 0 for no limit
+	 * @return The exit code. 0 if the daemon was stopped normally.
+	 */
+	private static int runWatch(Settings settings, File inputDir, File outputDir, int workers, int timeout) {
+		System.setProperty("java.awt.headless", "true");
+		
+		try {
+			WatchDaemon daemon = new WatchDaemon(settings, new GCodeDialect(settings), inputDir, outputDir, workers);
+			daemon.setTimeout(timeout);
+			CountDownLatch finished = new CountDownLatch(1);
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				daemon.stop();
+				try {
+					finished.await(60, TimeUnit.SECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}));
+			try {
+				daemon.run();
+			} finally {
+				finished.countDown();
+			}
+			return 0;
+		} catch (IllegalArgumentException e) {
+			Main.log.log(Level.SEVERE, e.getMessage());
+			return 2;
+		} catch (IOException e) {
+			Main.log.log(Level.SEVERE, "Could not watch directory {0}: {1}", new Object[] { inputDir, e });
+			return 2;
+		}
+	}
+	
+	/**
+	 * Generates the G-Code for the XML files without the GUI and prints a report to the console.
+	 * @param settings The settings
+	 * @param inputs The XML files or directories
+	 * @param outputDir The output directory or null
+	 * @param workers The number of files generated concurrently
+	 * @param timeout The maximum time for one file in seconds or 0 for no limit
+	 * @param profile true to write a profile for every file
+	 * @return The exit code. 0 if all files were generated successfully.
+	 */
+	private static int runBatch(Settings settings, ArrayList<File> inputs, File outputDir, int workers, int timeout, boolean profile) {
+		System.setProperty("java.awt.headless", "true");
+		
+		GCodeDialect dialect = new GCodeDialect(settings);
+		
+		try {
+			BatchGenerator batch = new BatchGenerator(settings, dialect, workers);
+			for(int i = 0; i < inputs.size(); i++) {
+				batch.addInput(inputs.get(i));
+			}
+			batch.setOutputDir(outputDir);
+			batch.setTimeout(timeout);
+			batch.setProfiling(profile);
+			
+			Main.log.log(Level.INFO, "Start batch generation of {0} files with {1} workers.", new Object[] { batch.sizeInput(), workers });
+			long start = System.nanoTime();
+			ArrayList<BatchGenerator.Result> results = batch.run();
+			BatchGenerator.printReport(results, System.nanoTime() - start, System.out);
+			
+			for(int i = 0; i < results.size(); i++) {
+				if(!results.get(i).isSuccess()) {
+					return 1;
+				}
+			}
+			return results.size() == batch.sizeInput() ? 0 : 1;
+		} catch (IllegalArgumentException e) {
+			Main.log.log(Level.SEVERE, e.getMessage());
+			return 2;
+		}
+	}
+	
 }
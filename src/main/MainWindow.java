@@ -59,6 +59,7 @@ import view.GraphicViewActionListener;
 import view.GraphicViewMenuBarListener;
 import view.ProgramModelListener;
 import view.TableViewDummyModel;
+import xml.GeneratorProgressView;
 import xml.ScriptValidator;
 import xml.ScriptValidatorErrorView;
 import xml.XMLView;
@@ -79,6 +80,7 @@ public class MainWindow extends JFrame {
 	private XMLView xmlEditorPane;
 	private JMenuBar menuBar;
 	private GraphicView graphicView;
+	private XMLViewActionListener xmlViewActionListener;
 	private boolean unsavedXML;
 	private boolean unsavedGCode;
 	
@@ -301,6 +303,24 @@ public class MainWindow extends JFrame {
 		menuItem.setActionCommand("save_gcode");
 		menuItem.addActionListener(menuBarListener);
 		menu.add(menuItem);
+		
+		menuItem = new JMenuItem("In Zwischenablage kopieren");
+		menuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_K, ActionEvent.ALT_MASK));
+		menuItem.setActionCommand("copy_gcode");
+		menuItem.addActionListener(menuBarListener);
+		menu.add(menuItem);
+		
+		checkBoxMenuItem = new JCheckBoxMenuItem("Live-Generierung");
+		checkBoxMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_L, ActionEvent.ALT_MASK));
+		checkBoxMenuItem.setSelected(false);
+		checkBoxMenuItem.setActionCommand("live_gcode");
+		checkBoxMenuItem.addActionListener(xmlViewActionListener);
+		menu.add(checkBoxMenuItem);
+		
+		menuItem = new JMenuItem("Profil anzeigen");
+		menuItem.setActionCommand("profile_gcode");
+		menuItem.addActionListener(xmlViewActionListener);
+		menu.add(menuItem);
 			
 		menu = new JMenu("Grafikansicht");
 		menuBar.add(menu);
@@ -413,13 +433,19 @@ public class MainWindow extends JFrame {
 		
 	    panel.add(scrollPane, BorderLayout.CENTER);
 		
-	    XMLViewActionListener generatorViewButtonActionListener = new XMLViewActionListener(env, xmlEditorPane);
+	    GeneratorProgressView progressView = new GeneratorProgressView();
+	    xmlViewActionListener = new XMLViewActionListener(env, xmlEditorPane, progressView);
 	    
 		JPanel ButtonPanel = new JPanel();
 		JButton generateGCodeButton = new JButton ("G-Code generieren");
 		generateGCodeButton.setActionCommand("generate_gcode");
-		generateGCodeButton.addActionListener(generatorViewButtonActionListener);
+		generateGCodeButton.addActionListener(xmlViewActionListener);
 		ButtonPanel.add(generateGCodeButton);
+		ButtonPanel.add(progressView);
+		JButton cancelButton = new JButton ("Abbrechen");
+		cancelButton.setActionCommand("cancel_gcode");
+		cancelButton.addActionListener(xmlViewActionListener);
+		ButtonPanel.add(cancelButton);
 	    
 		panel.add(ButtonPanel, BorderLayout.SOUTH);
 		
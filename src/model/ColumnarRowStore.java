@@ -0,0 +1,248 @@
+/*********************************************************************\
+ * ColumnarRowStore.java - xmlCam G-Code Generator                   *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * This store holds the rows in parallel primitive arrays instead of Row and Field objects.
+ * The fields of all rows are stored one after another. For every field the letter is stored as byte and the number as fixed-point long.
+ * For every row the offset of the first field and the id of the comment is stored. Equal comments are stored only once.
+ * <pre>
+ * letters	G	X	Y	G	Z	...
+ * values	1	10	20	0	5	...
+ * offsets	0		3		...
+ * comments	-1		0		...
+ * </pre>
+ * The get() method builds a new Row object from the arrays. A field needs 9 bytes, so million-line programs fit in a small heap.
+ * @author Christian Kirsch
+ *
+ */
+public class ColumnarRowStore implements RowStore {
+	
+	private static final int INITIAL_CAPACITY = 64;
+	private static final int HAS_NUMBER = 0x80;
+	private static final int NO_COMMENT = -1;
+	
+	private byte[] letters; // The letter of a field, bit 7 is set if the field has a number
+	private long[] values;
+	private int fieldCount;
+	private int[] offsets; // The index of the first field of a row, offsets[size] is the fieldCount
+	private int[] comments;
+	private int size;
+	private ArrayList<String> commentTable;
+	private HashMap<String, Integer> commentIds;
+	
+	/**
+	 * Constructs an empty store.
+	 */
+	public ColumnarRowStore() {
+		this.letters = new byte[INITIAL_CAPACITY * 4];
+		this.values = new long[INITIAL_CAPACITY * 4];
+		this.offsets = new int[INITIAL_CAPACITY + 1];
+		this.comments = new int[INITIAL_CAPACITY];
+		this.commentTable = new ArrayList<String>();
+		this.commentIds = new HashMap<String, Integer>();
+		clear();
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Row get(int index) {
+		checkIndex(index, size - 1);
+		Row row = new Row();
+		for(int i = offsets[index]; i < offsets[index + 1]; i++) {
+			char letter = (char) (letters[i] & 0x7F);
+			if((letters[i] & HAS_NUMBER) != 0) {
+				row.addField(new Field(letter, values[i]));
+			} else {
+				row.addField(new Field(letter));
+			}
+		}
+		if(comments[index] != NO_COMMENT) {
+			row.setComment(commentTable.get(comments[index]));
+		}
+		return row;
+	}
+
+	@Override
+	public void add(Row row) {
+		add(size, row);
+	}
+
+	/**
+	 * Inserts a row at index. All following fields and rows are moved, so appending at the end is the fast case.
+	 * @throws IllegalArgumentException If a letter of the row is not an ASCII character
+	 */
+	@Override
+	public void add(int index, Row row) throws IllegalArgumentException {
+		checkIndex(index, size);
+		checkLetters(row);
+		int n = row.size();
+		ensureCapacity(size + 1, fieldCount + n);
+		
+		int start = offsets[index];
+		System.arraycopy(letters, start, letters, start + n, fieldCount - start);
+		System.arraycopy(values, start, values, start + n, fieldCount - start);
+		for(int i = size; i >= index; i--) {
+			offsets[i + 1] = offsets[i] + n;
+		}
+		System.arraycopy(comments, index, comments, index + 1, size - index);
+		size++;
+		fieldCount += n;
+		
+		writeRow(index, row);
+	}
+
+	/**
+	 * Replaces the row at index. If the new row has the same amount of fields, it is written in place.
+	 * @throws IllegalArgumentException If a letter of the row is not an ASCII character
+	 */
+	@Override
+	public void set(int index, Row row) throws IllegalArgumentException {
+		checkIndex(index, size - 1);
+		checkLetters(row);
+		if(offsets[index + 1] - offsets[index] == row.size()) {
+			writeRow(index, row);
+		} else {
+			remove(index);
+			add(index, row);
+		}
+	}
+
+	@Override
+	public void remove(int index) {
+		removeRange(index, index + 1);
+	}
+
+	@Override
+	public void removeRange(int from, int to) {
+		checkIndex(from, size);
+		checkIndex(to, size);
+		if(from >= to) {
+			return;
+		}
+		int rows = to - from;
+		int start = offsets[from];
+		int end = offsets[to];
+		int n = end - start;
+		
+		System.arraycopy(letters, end, letters, start, fieldCount - end);
+		System.arraycopy(values, end, values, start, fieldCount - end);
+		for(int i = to; i <= size; i++) {
+			offsets[i - rows] = offsets[i] - n;
+		}
+		System.arraycopy(comments, to, comments, from, size - to);
+		size -= rows;
+		fieldCount -= n;
+	}
+
+	@Override
+	public void clear() {
+		size = 0;
+		fieldCount = 0;
+		offsets[0] = 0;
+		commentTable.clear();
+		commentIds.clear();
+	}
+	
+	/**
+	 * Checks if all letters of the row could be stored as byte.
+	 * @param row The row
+	 * @throws IllegalArgumentException If a letter of the row is not an ASCII character
+	 */
+	private void checkLetters(Row row) throws IllegalArgumentException {
+		for(int i = 0; i < row.size(); i++) {
+			if(row.getField(i).getLetter() >= HAS_NUMBER) {
+				throw new IllegalArgumentException("Letter " + row.getField(i).getLetter() + " is not an ASCII character.");
+			}
+		}
+	}
+	
+	/**
+	 * Writes the fields and the comment of the row into the arrays. The space for the fields must already be reserved.
+	 * @param index The row index
+	 * @param row The row
+	 */
+	private void writeRow(int index, Row row) {
+		int start = offsets[index];
+		for(int i = 0; i < row.size(); i++) {
+			Field field = row.getField(i);
+			letters[start + i] = (byte) (field.hasNumber() ? field.getLetter() | HAS_NUMBER : field.getLetter());
+			values[start + i] = field.getFixedNumber();
+		}
+		comments[index] = internComment(row.getComment());
+	}
+	
+	/**
+	 * Returns the id of the comment. A new comment is added to the comment table.
+	 * @param comment The comment or null
+	 * @return The id of the comment or NO_COMMENT
+	 */
+	private int internComment(String comment) {
+		if(comment == null) {
+			return NO_COMMENT;
+		}
+		Integer id = commentIds.get(comment);
+		if(id == null) {
+			id = commentTable.size();
+			commentTable.add(comment);
+			commentIds.put(comment, id);
+		}
+		return id;
+	}
+	
+	/**
+	 * Grows the arrays, if they are to small for the amount of rows and fields.
+	 * @param rows The amount of rows
+	 * @param fields The amount of fields
+	 */
+	private void ensureCapacity(int rows, int fields) {
+		if(rows > comments.length) {
+			int capacity = Math.max(rows, comments.length * 2);
+			comments = Arrays.copyOf(comments, capacity);
+			offsets = Arrays.copyOf(offsets, capacity + 1);
+		}
+		if(fields > letters.length) {
+			int capacity = Math.max(fields, letters.length * 2);
+			letters = Arrays.copyOf(letters, capacity);
+			values = Arrays.copyOf(values, capacity);
+		}
+	}
+	
+	/**
+	 * Checks if the index is between 0 and max.
+	 * @param index The index
+	 * @param max The maximum index
+	 * @throws IndexOutOfBoundsException If the index is out of range
+	 */
+	private void checkIndex(int index, int max) throws IndexOutOfBoundsException {
+		if(index < 0 || index > max) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+
+}
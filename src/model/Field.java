@@ -20,12 +20,12 @@
 package model;
 
 import java.math.BigDecimal;
-import java.math.MathContext;
 
 /**
  * This class represents a G-Code field like G0.
  * A field could be only a character or character with a number. These fields are usually organized in lines. An example is for minimum homing G161 X Y Z F1800.
  * G161 is the command, X Y Z the affected axis and F1800 the feedrate for the home moves. 
+ * The number is stored as fixed-point number (see FixedPoint) with 6 decimal places.
  * @author Christian Kirsch
  */
 
@@ -33,11 +33,11 @@ public class Field {
 
 	private char letter;
 	private boolean hasNumber;
-	private BigDecimal number;
+	private long number;
 	
 	public Field() {
 		this.setLetter('X');
-		this.number = new BigDecimal(0);
+		this.number = 0;
 		this.hasNumber = false;	
 	}
 	
@@ -46,16 +46,25 @@ public class Field {
 		this.hasNumber = false;	
 	}
 	
-	public Field(char letter, BigDecimal number) {
+	/**
+	 * Constructs a field with a number. The number is rounded to 6 decimal places.
+	 * @param letter The letter
+	 * @param number The number
+	 * @throws NumberFormatException If the number is too large
+	 */
+	public Field(char letter, BigDecimal number) throws NumberFormatException {
+		this(letter, FixedPoint.fromBigDecimal(number));
+	}
+	
+	/**
+	 * Constructs a field with a fixed-point number.
+	 * @param letter The letter
+	 * @param number The fixed-point number (i.e. FixedPoint.valueOf(1) for G1)
+	 */
+	public Field(char letter, long number) {
 		this.setLetter(letter);
 		this.hasNumber = true;
-		// Check if number has decimal places. If yes then round them to 8 decimal places.
-		if(number.scale() > 0) {
-			double value = number.round(new MathContext(8)).doubleValue();
-			this.number = new BigDecimal(value);
-		} else {
-			this.number= number;
-		}
+		this.number = number;
 	}
 	
 	/**
@@ -79,18 +88,35 @@ public class Field {
 	 * @return the number
 	 */
 	public BigDecimal getNumber() {
+		return FixedPoint.toBigDecimal(getFixedNumber());
+	}
+	
+	/**
+	 * Returns the number from a field as fixed-point number.
+	 * @return the fixed-point number or 0 if the field has no number
+	 */
+	public long getFixedNumber() {
 		if(!hasNumber) {
-			return new BigDecimal(0);
+			return 0;
 		}
 		return number;
 	}
+	
+	/**
+	 * Returns the number from a field as double.
+	 * @return the number or 0 if the field has no number
+	 */
+	public double getDoubleNumber() {
+		return FixedPoint.toDouble(getFixedNumber());
+	}
 
 	/**
 	 * Sets the number of the field.
 	 * @param number the number
+	 * @throws NumberFormatException If the number is too large
 	 */
-	protected void setNumber(BigDecimal number) {
-		this.number = number;
+	protected void setNumber(BigDecimal number) throws NumberFormatException {
+		this.number = FixedPoint.fromBigDecimal(number);
 		this.hasNumber = true;
 	}
 	
@@ -109,21 +135,27 @@ public class Field {
 		return this.hasNumber;
 	}
 	
+	/**
+	 * Appends the field to a StringBuilder (i.e. Z4.839).
+	 * If the number has no decimal place the output is i.e. G0 instead of G0.0.
+	 * @param out The StringBuilder
+	 * @return The StringBuilder
+	 */
+	public StringBuilder appendTo(StringBuilder out) {
+		out.append(letter);
+		if(hasNumber) {
+			FixedPoint.append(out, number);
+		}
+		return out;
+	}
+	
 	/**
 	 * Output of a field (i.e. Z4.839).
-	 * If the float value has no decimal place the output is i.e. G0 instead of G0.0.
+	 * If the number has no decimal place the output is i.e. G0 instead of G0.0.
 	 */
 	@Override
 	public String toString() {
-		if(hasNumber) {
-			if(number.doubleValue() % 1 != 0) { // check if decimal place is greater than 0
-				return new String() + letter + number.doubleValue();
-			} else {
-				return new String() + letter + number.intValue();
-			}
-		} else {
-			return new String() + letter;
-		}
+		return appendTo(new StringBuilder(16)).toString();
 	}
 	
 }
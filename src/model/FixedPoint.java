@@ -0,0 +1,149 @@
+/*********************************************************************\
+ * FixedPoint.java - xmlCam G-Code Generator                         *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+package model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * This class offers methods for fixed-point numbers.
+ * Coordinates and all other G-Code numbers are represented as long values with a resolution of 10^-6 mm (nanometre).
+ * I.e. 12.5 mm is stored as 12500000. Comparisons of fixed-point numbers are exact and the output has never an exponent.
+ * @author Christian Kirsch
+ *
+ */
+public class FixedPoint {
+	
+	/**
+	 * The number of decimal places of a fixed-point number.
+	 */
+	public static final int DECIMALS = 6;
+	
+	/**
+	 * The fixed-point value of 1.
+	 */
+	public static final long ONE = 1000000L;
+	
+	/**
+	 * Converts an integer to a fixed-point number.
+	 * @param value The integer
+	 * @return The fixed-point number
+	 */
+	public static long valueOf(int value) {
+		return value * ONE;
+	}
+	
+	/**
+	 * Converts a double to a fixed-point number. The value is rounded to the resolution.
+	 * @param value The double value
+	 * @return The fixed-point number
+	 * @throws IllegalArgumentException If the value is not finite or too large
+	 */
+	public static long fromDouble(double value) throws IllegalArgumentException {
+		double scaled = value * ONE;
+		if(Double.isNaN(scaled) || Math.abs(scaled) >= Long.MAX_VALUE) {
+			throw new IllegalArgumentException("Number " + value + " out of range.");
+		}
+		return Math.round(scaled);
+	}
+	
+	/**
+	 * Converts a BigDecimal to a fixed-point number. The value is rounded to the resolution.
+	 * @param value The BigDecimal
+	 * @return The fixed-point number
+	 * @throws NumberFormatException If the value is too large
+	 */
+	public static long fromBigDecimal(BigDecimal value) throws NumberFormatException {
+		try {
+			return value.setScale(DECIMALS, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+		} catch(ArithmeticException e) {
+			throw new NumberFormatException("Number " + value + " out of range.");
+		}
+	}
+	
+	/**
+	 * Converts a fixed-point number to a double.
+	 * @param value The fixed-point number
+	 * @return The double value
+	 */
+	public static double toDouble(long value) {
+		return (double) value / ONE;
+	}
+	
+	/**
+	 * Converts a fixed-point number to a BigDecimal.
+	 * @param value The fixed-point number
+	 * @return The BigDecimal
+	 */
+	public static BigDecimal toBigDecimal(long value) {
+		return BigDecimal.valueOf(value, DECIMALS);
+	}
+	
+	/**
+	 * Appends a fixed-point number to a StringBuilder without trailing zeros (i.e. 12.5, -0.001, 10).
+	 * @param out The StringBuilder
+	 * @param value The fixed-point number
+	 * @return The StringBuilder
+	 */
+	public static StringBuilder append(StringBuilder out, long value) {
+		if(value < 0) {
+			out.append('-');
+		}
+		long integer = Math.abs(value / ONE);
+		long fraction = Math.abs(value % ONE);
+		out.append(integer);
+		if(fraction != 0) {
+			int digits = DECIMALS;
+			while(fraction % 10 == 0) {
+				fraction /= 10;
+				digits--;
+			}
+			out.append('.');
+			for(long limit = pow10(digits - 1); limit > fraction; limit /= 10) { // leading zeros of the fraction
+				out.append('0');
+			}
+			out.append(fraction);
+		}
+		return out;
+	}
+	
+	/**
+	 * Returns a fixed-point number as String without trailing zeros (i.e. 12.5, -0.001, 10).
+	 * @param value The fixed-point number
+	 * @return The String
+	 */
+	public static String toString(long value) {
+		return append(new StringBuilder(24), value).toString();
+	}
+	
+	/**
+	 * Returns 10^exponent.
+	 * @param exponent The exponent
+	 * @return 10^exponent
+	 */
+	private static long pow10(int exponent) {
+		long result = 1;
+		for(int i = 0; i < exponent; i++) {
+			result *= 10;
+		}
+		return result;
+	}
+
+}
@@ -39,9 +39,18 @@ public class GCodeDialect {
         return obj.sections.get(section);
     }
     
+    /**
+     * Returns true if the firmware supports arcs (G2/G3). Default is true, a dialect can disable the arcs with arcs: false.
+     * @return true if arcs can be emitted
+     */
+    public boolean isArcs() {
+        return obj == null || obj.arcs == null || obj.arcs;
+    }
+    
     public static class Dialect {
         public String name;
         public Map<String, ArrayList<String>> sections;
+        public Boolean arcs;
 
         public Dialect() {}
     }
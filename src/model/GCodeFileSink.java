@@ -0,0 +1,113 @@
+/*********************************************************************\
+ * GCodeFileSink.java - xmlCam G-Code Generator                      *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+package model;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import generator.Element;
+
+/**
+ * This sink writes the G-Code rows directly to a file.
+ * Only the chunk of the GCodeWriter is held in memory, not the whole program. Optional the rows and elements could be captured
+ * into a program at the same time, i.e. to show them in the GUI.
+ * @author Christian Kirsch
+ *
+ */
+public class GCodeFileSink implements GCodeSink, Closeable {
+	
+	private GCodeWriter writer;
+	private Program capture;
+	private int rowCount;
+	private int elementCount;
+	
+	/**
+	 * Constructs a sink which writes to a file.
+	 * @param file The G-Code file
+	 * @throws IOException If the file could not be opened
+	 */
+	public GCodeFileSink(File file) throws IOException {
+		this(new GCodeWriter(file), null);
+	}
+	
+	/**
+	 * Constructs a sink which writes to a G-Code writer and captures the output into a program.
+	 * @param writer The G-Code writer
+	 * @param capture The program for the capture or null
+	 */
+	public GCodeFileSink(GCodeWriter writer, Program capture) {
+		this.writer = writer;
+		this.capture = capture;
+		this.rowCount = 0;
+		this.elementCount = 0;
+	}
+
+	/**
+	 * Writes the row as a line to the file.
+	 * @throws UncheckedIOException If the row could not be written
+	 */
+	@Override
+	public void writeRow(Row row) {
+		try {
+			writer.writeRow(row);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		rowCount++;
+		if(capture != null) {
+			capture.writeRow(row);
+		}
+	}
+
+	@Override
+	public void addElement(Element element) {
+		elementCount++;
+		if(capture != null) {
+			capture.addElement(element);
+		}
+	}
+	
+	/**
+	 * Returns the amount of rows written.
+	 * @return The amount
+	 */
+	public int sizeRow() {
+		return rowCount;
+	}
+	
+	/**
+	 * Returns the amount of elements added.
+	 * @return The amount
+	 */
+	public int sizeElements() {
+		return elementCount;
+	}
+
+	/**
+	 * Flushes the buffer and closes the file.
+	 */
+	@Override
+	public void close() throws IOException {
+		writer.close();
+	}
+
+}
@@ -20,6 +20,10 @@
 package model;
 
 import java.math.BigDecimal;
+import java.util.Scanner;
+import java.util.logging.Level;
+
+import main.Main;
 
 /**
  * This class offers methods for common G-Code operations.
@@ -57,6 +61,42 @@ public class GCodeHelpers {
 		return fieldObject;
 	}
 	
+	/**
+	 * Parses a String with a G-Code line and returns a Row object.
+	 * Fields which could not be parsed are skipped.
+	 * @param line The String with the G-Code
+	 * @return The Row object
+	 */
+	public static Row parseRow(String line) {
+		Row row = new Row();
+		Field field;
+		
+		// Read comments
+		int index = line.indexOf(';');
+		if(index > -1) {      // Found a comment
+			row.setComment(line.substring(index + 1).trim());
+			line = line.substring(0, index);   // Cut comment
+		}
+		
+		Scanner textLine = new Scanner(line);    // Split into fields
+		
+		while(textLine.hasNext()) {
+			String fieldBuffer = new String(textLine.next());
+			
+			try {						
+				field = GCodeHelpers.parseField(fieldBuffer);
+				row.addField(field);
+			} catch(NumberFormatException e) {
+				Main.log.log(Level.SEVERE, "Could not read parameter. Field skipped. {0}", new Object[] { e });
+			} catch(IllegalArgumentException e) {
+				Main.log.log(Level.SEVERE, "Could not read parameter. Field skipped. {0}", new Object[] { e });
+			}
+		}	
+	
+		textLine.close();
+		return row;
+	}
+	
 	/**
 	 * Checks if a string is a valid field.
 	 * @param field The field to be checked.
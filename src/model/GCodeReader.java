@@ -0,0 +1,389 @@
+/*********************************************************************\
+ * GCodeReader.java - xmlCam G-Code Generator                        *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+package model;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.logging.Level;
+
+import main.Main;
+
+/**
+ * This class reads G-Code files into a program.
+ * The file is mapped into memory window by window and the lines are tokenised directly from the bytes without a String per line or field.
+ * The numbers are parsed into fixed-point values without BigDecimal. Fields which the fast lexer does not understand (i.e. numbers with exponent)
+ * are parsed by GCodeHelpers.parseField, so the result is the same as reading line by line with GCodeHelpers.parseRow.
+ * The rows are appended to the program in batches. Large files are split at line boundaries into chunks, which are parsed concurrently. The charset of the file must be compatible with ASCII (i.e. UTF-8 or ISO-8859-1).
+ * @author Christian Kirsch
+ *
+ */
+public class GCodeReader {
+	
+	private static final int WINDOW_SIZE = 1 << 26;
+	private static final int BATCH_SIZE = 4096;
+	private static final int MIN_CHUNK_SIZE = 1 << 20;
+	private static final int MAX_DIGITS = 12; // Integer digits, which fit into a fixed-point long
+	
+	private File file;
+	private Charset charset;
+	private long bytesRead;
+	private long rowsRead;
+	private boolean parallel;
+	
+	/**
+	 * Constructs a reader for a file with the default charset of the platform.
+	 * @param file The G-Code file
+	 */
+	public GCodeReader(File file) {
+		this.file = file;
+		this.charset = Charset.defaultCharset();
+		this.parallel = true;
+	}
+	
+	/**
+	 * Sets if large files are parsed in parallel. Default is true. With only one processor the file is always parsed in the calling thread.
+	 * @param parallel true to parse the chunks of a window concurrently
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+	
+	/**
+	 * Reads all lines of the file and appends them as rows at the end of the program.
+	 * Every mapped window is split at line boundaries into chunks. If the window is large enough, the chunks are parsed concurrently
+	 * into row blocks, which are appended to the program in the order of the file.
+	 * @param program The program
+	 * @throws IOException If the file could not be read or a line is longer than the mapping window
+	 */
+	public void read(Program program) throws IOException {
+		bytesRead = 0;
+		rowsRead = 0;
+		
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			long position = 0;
+			
+			while(position < size) {
+				int length = (int) Math.min(WINDOW_SIZE, size - position);
+				boolean last = position + length == size;
+				MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+				
+				int end = last ? length : lastLineEnd(window, length);
+				if(end == 0) {
+					throw new IOException("Line longer than " + WINDOW_SIZE + " bytes at position " + position + ".");
+				}
+				
+				int processors = Runtime.getRuntime().availableProcessors();
+				int chunks = parallel && processors > 1 ? Math.min(processors * 4, end / MIN_CHUNK_SIZE) : 1;
+				if(chunks > 1) {
+					readParallel(window, end, chunks, program);
+				} else {
+					readSerial(window, end, program);
+				}
+				
+				position += end;
+				bytesRead = position;
+			}
+		}
+	}
+	
+	/**
+	 * Parses the lines of a window in the calling thread and appends the rows in batches.
+	 * @param window The mapped window
+	 * @param end The end of the last complete line in the window
+	 * @param program The program
+	 */
+	private void readSerial(MappedByteBuffer window, int end, Program program) {
+		ArrayList<Row> batch = new ArrayList<Row>(BATCH_SIZE);
+		int start = 0;
+		while(start < end) {
+			start = parseLines(window, start, end, BATCH_SIZE, batch);
+			program.addRows(batch);
+			rowsRead += batch.size();
+			batch.clear();
+		}
+	}
+	
+	/**
+	 * Splits a window at line boundaries into chunks, parses them concurrently and appends the row blocks in order.
+	 * @param window The mapped window
+	 * @param end The end of the last complete line in the window
+	 * @param chunks The number of chunks
+	 * @param program The program
+	 */
+	private void readParallel(MappedByteBuffer window, int end, int chunks, Program program) {
+		ArrayList<ForkJoinTask<ArrayList<Row>>> tasks = new ArrayList<ForkJoinTask<ArrayList<Row>>>(chunks);
+		int start = 0;
+		for(int i = 1; i <= chunks && start < end; i++) {
+			int chunkEnd = i == chunks ? end : nextLineStart(window, (int) ((long) end * i / chunks), end);
+			final int chunkStart = start;
+			final int chunkStop = chunkEnd;
+			tasks.add(ForkJoinPool.commonPool().submit(() -> {
+				ArrayList<Row> block = new ArrayList<Row>();
+				parseLines(window, chunkStart, chunkStop, Integer.MAX_VALUE, block);
+				return block;
+			}));
+			start = chunkEnd;
+		}
+		
+		try {
+			for(int i = 0; i < tasks.size(); i++) {
+				ArrayList<Row> block = tasks.get(i).join();
+				program.addRows(block);
+				rowsRead += block.size();
+			}
+		} finally {
+			for(int i = 0; i < tasks.size(); i++) {
+				tasks.get(i).cancel(false);
+			}
+		}
+	}
+	
+	/**
+	 * Parses lines from start until end or until the maximum amount of rows is reached.
+	 * The end must be behind a line break or the end of the file.
+	 * @param buffer The buffer
+	 * @param start The start of the first line
+	 * @param end The end of the last line
+	 * @param maxRows The maximum amount of rows
+	 * @param rows The list for the parsed rows
+	 * @return The start of the next line
+	 */
+	private int parseLines(MappedByteBuffer buffer, int start, int end, int maxRows, ArrayList<Row> rows) {
+		int i = start;
+		while(i < end && rows.size() < maxRows) {
+			byte b = buffer.get(i);
+			if(b == '\n' || b == '\r') {
+				rows.add(parseRow(buffer, start, i));
+				if(b == '\r' && i + 1 < end && buffer.get(i + 1) == '\n') {
+					i++;
+				}
+				start = i + 1;
+			}
+			i++;
+		}
+		if(i == end && start < end) {
+			rows.add(parseRow(buffer, start, end)); // last line without line break
+			start = end;
+		}
+		return start;
+	}
+	
+	/**
+	 * Returns the position behind the last line break of the window.
+	 * A carriage return as last byte is not a line break, because the line feed could follow in the next window.
+	 * @param buffer The buffer
+	 * @param length The length of the window
+	 * @return The position behind the line break or 0 if there is no complete line
+	 */
+	private static int lastLineEnd(MappedByteBuffer buffer, int length) {
+		for(int i = length - 1; i >= 0; i--) {
+			byte b = buffer.get(i);
+			if(b == '\n' || b == '\r' && i < length - 1) {
+				return i + 1;
+			}
+		}
+		return 0;
+	}
+	
+	/**
+	 * Returns the start of the next line after position.
+	 * @param buffer The buffer
+	 * @param position The position
+	 * @param end The end of the last complete line
+	 * @return The start of the next line or end
+	 */
+	private static int nextLineStart(MappedByteBuffer buffer, int position, int end) {
+		for(int i = position; i < end; i++) {
+			byte b = buffer.get(i);
+			if(b == '\n') {
+				return i + 1;
+			}
+			if(b == '\r') {
+				return i + 1 < end && buffer.get(i + 1) == '\n' ? i + 2 : i + 1;
+			}
+		}
+		return end;
+	}
+	
+	/**
+	 * Returns the number of bytes read by the last call of read().
+	 * @return The number of bytes
+	 */
+	public long getBytesRead() {
+		return bytesRead;
+	}
+	
+	/**
+	 * Returns the number of rows read by the last call of read().
+	 * @return The number of rows
+	 */
+	public long getRowsRead() {
+		return rowsRead;
+	}
+	
+	/**
+	 * Parses a line into a row. The line is given by the bytes from start (inclusive) to end (exclusive) without line break.
+	 * @param buffer The buffer
+	 * @param start The start of the line
+	 * @param end The end of the line
+	 * @return The row
+	 */
+	private Row parseRow(MappedByteBuffer buffer, int start, int end) {
+		Row row = new Row();
+		
+		// Read comments
+		for(int i = start; i < end; i++) {
+			if(buffer.get(i) == ';') {
+				row.setComment(decode(buffer, i + 1, end));
+				end = i;  // Cut comment
+				break;
+			}
+		}
+		
+		// Split into fields
+		int i = start;
+		while(i < end) {
+			while(i < end && isWhitespace(buffer.get(i))) {
+				i++;
+			}
+			int tokenStart = i;
+			while(i < end && !isWhitespace(buffer.get(i))) {
+				i++;
+			}
+			if(i > tokenStart) {
+				Field field = parseField(buffer, tokenStart, i);
+				if(field != null) {
+					row.addField(field);
+				}
+			}
+		}
+		return row;
+	}
+	
+	/**
+	 * Parses a field like G1, X-12.5 or Z. If the field is no simple letter with a decimal number, the field is parsed by GCodeHelpers.parseField.
+	 * @param buffer The buffer
+	 * @param start The start of the field
+	 * @param end The end of the field
+	 * @return The field or null if the field is not valid
+	 */
+	private Field parseField(MappedByteBuffer buffer, int start, int end) {
+		char letter = (char) buffer.get(start);
+		if(letter >= 'a' && letter <= 'z' || letter >= 'A' && letter <= 'Z') {
+			if(end - start == 1) {
+				return new Field(letter);
+			}
+			
+			int i = start + 1;
+			boolean negative = false;
+			if(buffer.get(i) == '-' || buffer.get(i) == '+') {
+				negative = buffer.get(i) == '-';
+				i++;
+			}
+			
+			long integer = 0;
+			long fraction = 0;
+			int integerDigits = 0;
+			int fractionDigits = 0;
+			boolean roundUp = false;
+			boolean point = false;
+			boolean valid = i < end;
+			
+			for(; i < end && valid; i++) {
+				byte b = buffer.get(i);
+				if(b >= '0' && b <= '9') {
+					if(!point) {
+						integer = integer * 10 + (b - '0');
+						integerDigits++;
+						valid = integerDigits <= MAX_DIGITS;
+					} else if(fractionDigits < FixedPoint.DECIMALS) {
+						fraction = fraction * 10 + (b - '0');
+						fractionDigits++;
+					} else if(fractionDigits == FixedPoint.DECIMALS) {
+						roundUp = b >= '5';
+						fractionDigits++;
+					}
+				} else if(b == '.' && !point) {
+					point = true;
+				} else {
+					valid = false;
+				}
+			}
+			
+			if(valid && (integerDigits > 0 || fractionDigits > 0)) {
+				for(int j = Math.min(fractionDigits, FixedPoint.DECIMALS); j < FixedPoint.DECIMALS; j++) {
+					fraction *= 10;
+				}
+				long value = integer * FixedPoint.ONE + fraction + (roundUp ? 1 : 0);
+				return new Field(letter, negative ? -value : value);
+			}
+		}
+		
+		// Slow path for everything else
+		String field = decode(buffer, start, end);
+		try {
+			return GCodeHelpers.parseField(field);
+		} catch(NumberFormatException e) {
+			Main.log.log(Level.SEVERE, "Could not read parameter. Field skipped. {0}", new Object[] { e });
+		} catch(IllegalArgumentException e) {
+			Main.log.log(Level.SEVERE, "Could not read parameter. Field skipped. {0}", new Object[] { e });
+		}
+		return null;
+	}
+	
+	/**
+	 * Decodes the bytes from start to end to a String. Whitespace at the beginning and the end is removed.
+	 * @param buffer The buffer
+	 * @param start The start
+	 * @param end The end
+	 * @return The String
+	 */
+	private String decode(MappedByteBuffer buffer, int start, int end) {
+		while(start < end && (buffer.get(start) & 0xFF) <= ' ') {
+			start++;
+		}
+		while(end > start && (buffer.get(end - 1) & 0xFF) <= ' ') {
+			end--;
+		}
+		byte[] bytes = new byte[end - start];
+		for(int i = 0; i < bytes.length; i++) {
+			bytes[i] = buffer.get(start + i);
+		}
+		return new String(bytes, charset);
+	}
+	
+	/**
+	 * Checks if a byte is a whitespace between fields.
+	 * @param b The byte
+	 * @return True for space, tab, vertical tab and form feed
+	 */
+	private static boolean isWhitespace(byte b) {
+		return b == ' ' || b == '\t' || b == 0x0B || b == '\f';
+	}
+
+}
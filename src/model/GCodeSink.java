@@ -0,0 +1,46 @@
+/*********************************************************************\
+ * GCodeSink.java - xmlCam G-Code Generator                          *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+package model;
+
+import generator.Element;
+
+/**
+ * A sink for the output of the generator.
+ * The generator writes every complete G-Code row and every finished element to the sink. The Program is a sink which holds all rows for the GUI,
+ * the GCodeFileSink writes the rows directly to a file without keeping them in memory.
+ * @author Christian Kirsch
+ *
+ */
+public interface GCodeSink {
+	
+	/**
+	 * Writes a complete row at the end of the output.
+	 * @param row The row
+	 */
+	public void writeRow(Row row);
+	
+	/**
+	 * Adds an element to the output.
+	 * The element includes shapes and toolPathes derived from the shapes.
+	 * @param element The element
+	 */
+	public void addElement(Element element);
+
+}
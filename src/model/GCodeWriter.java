@@ -0,0 +1,164 @@
+/*********************************************************************\
+ * GCodeWriter.java - xmlCam G-Code Generator                        *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+package model;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * This class writes G-Code rows as text.
+ * The rows are appended to a reusable StringBuilder chunk. If the chunk is full, it is encoded into a byte buffer and written to the channel.
+ * So the time for writing grows linear with the program size and the memory is limited to the chunk and the buffer.
+ * The numbers of the fields are formatted from the fixed-point values without BigDecimal or double.
+ * @author Christian Kirsch
+ *
+ */
+public class GCodeWriter implements Closeable, Flushable {
+	
+	private static final int CHUNK_SIZE = 1 << 16;
+	
+	private WritableByteChannel channel;
+	private CharsetEncoder encoder;
+	private StringBuilder chunk;
+	private ByteBuffer buffer;
+	
+	/**
+	 * Constructs a writer for a file. An existing file will be overwritten.
+	 * The text is encoded with the default charset of the platform.
+	 * @param file The file
+	 * @throws IOException If the file could not be opened
+	 */
+	public GCodeWriter(File file) throws IOException {
+		this(FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE), Charset.defaultCharset());
+	}
+	
+	/**
+	 * Constructs a writer for a channel.
+	 * @param channel The channel
+	 * @param charset The charset of the text
+	 */
+	public GCodeWriter(WritableByteChannel channel, Charset charset) {
+		this.channel = channel;
+		this.encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+		this.chunk = new StringBuilder(CHUNK_SIZE + 256);
+		this.buffer = ByteBuffer.allocateDirect(CHUNK_SIZE * 2);
+	}
+	
+	/**
+	 * Writes a row as a line.
+	 * @param row The row
+	 * @throws IOException If the chunk could not be written
+	 */
+	public void writeRow(Row row) throws IOException {
+		row.appendTo(chunk).append('\n');
+		if(chunk.length() >= CHUNK_SIZE) {
+			writeChunk();
+		}
+	}
+	
+	/**
+	 * Writes all rows of a program.
+	 * @param program The program
+	 * @throws IOException If the program could not be written
+	 */
+	public void writeProgram(Program program) throws IOException {
+		for(int i = 0; i < program.sizeRow(); i++) {
+			writeRow(program.getRow(i));
+		}
+	}
+	
+	/**
+	 * Writes the chunk to the channel.
+	 */
+	@Override
+	public void flush() throws IOException {
+		writeChunk();
+	}
+	
+	/**
+	 * Writes the chunk to the channel and closes the channel.
+	 */
+	@Override
+	public void close() throws IOException {
+		try {
+			writeChunk();
+		} finally {
+			channel.close();
+		}
+	}
+	
+	/**
+	 * Encodes the chunk and writes it to the channel.
+	 * @throws IOException If the channel could not be written
+	 */
+	private void writeChunk() throws IOException {
+		CharBuffer chars = CharBuffer.wrap(chunk);
+		CoderResult result;
+		encoder.reset();
+		do {
+			result = encoder.encode(chars, buffer, true);
+			if(result.isOverflow()) {
+				drainBuffer();
+			}
+		} while(!result.isUnderflow());
+		while(encoder.flush(buffer).isOverflow()) {
+			drainBuffer();
+		}
+		drainBuffer();
+		chunk.setLength(0);
+	}
+	
+	/**
+	 * Writes the byte buffer to the channel.
+	 * @throws IOException If the channel could not be written
+	 */
+	private void drainBuffer() throws IOException {
+		buffer.flip();
+		while(buffer.hasRemaining()) {
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+	
+	/**
+	 * Returns all rows of the program as text, i.e. for the clipboard.
+	 * @param program The program
+	 * @return The G-Code
+	 */
+	public static String toString(Program program) {
+		StringBuilder out = new StringBuilder(program.sizeRow() * 32);
+		for(int i = 0; i < program.sizeRow(); i++) {
+			program.getRow(i).appendTo(out).append('\n');
+		}
+		return out.toString();
+	}
+
+}
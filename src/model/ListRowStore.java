@@ -0,0 +1,81 @@
+/*********************************************************************\
+ * ListRowStore.java - xmlCam G-Code Generator                       *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+package model;
+
+import java.util.ArrayList;
+
+/**
+ * This store holds the rows as a list of Row objects.
+ * The rows are returned without copy, so this store is fast for small programs which are edited in the GUI.
+ * @author Christian Kirsch
+ *
+ */
+public class ListRowStore implements RowStore {
+	
+	private ArrayList<Row> rows;
+	
+	/**
+	 * Constructs an empty store.
+	 */
+	public ListRowStore() {
+		this.rows = new ArrayList<Row>();
+	}
+
+	@Override
+	public int size() {
+		return rows.size();
+	}
+
+	@Override
+	public Row get(int index) {
+		return rows.get(index);
+	}
+
+	@Override
+	public void add(Row row) {
+		rows.add(row);
+	}
+
+	@Override
+	public void add(int index, Row row) {
+		rows.add(index, row);
+	}
+
+	@Override
+	public void set(int index, Row row) {
+		rows.set(index, row);
+	}
+
+	@Override
+	public void remove(int index) {
+		rows.remove(index);
+	}
+
+	@Override
+	public void removeRange(int from, int to) {
+		rows.subList(from, to).clear();
+	}
+
+	@Override
+	public void clear() {
+		rows.clear();
+	}
+
+}
@@ -19,18 +19,14 @@
 
 package model;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.ArrayList;
-import java.util.Scanner;
-import java.util.logging.Level;
+import java.util.List;
 
 import generator.Element;
-import main.Main;
+import view.ProgramModelEvent;
 import view.ProgramModelListener;
 
 /**
@@ -51,19 +47,35 @@ import view.ProgramModelListener;
  * @author Christian Kirsch
  *
  */
-public class Program {
+public class Program implements GCodeSink {
 
-	private ArrayList<Row> rows;
+	private RowStore rows;
 	private ArrayList<ProgramModelListener> listener;
 	private ArrayList<Element> elementList;
+	private int updateDepth;
+	private ArrayList<ProgramModelEvent> pendingEvents;
+	private int maxFieldSize;
+	private boolean maxFieldSizeValid;
 
 	/**
-	 * Constructs a empty program.
+	 * Constructs a empty program, which holds the rows as Row objects.
 	 */
 	public Program() {
-		this.rows = new ArrayList<Row>();
+		this(new ListRowStore());
+	}
+	
+	/**
+	 * Constructs a empty program with a specific storage for the rows.
+	 * @param rows The empty row store, i.e. a ColumnarRowStore for large programs
+	 */
+	public Program(RowStore rows) {
+		this.rows = rows;
 		this.listener = new ArrayList<ProgramModelListener>();
 		this.elementList = new ArrayList<Element>();
+		this.updateDepth = 0;
+		this.pendingEvents = new ArrayList<ProgramModelEvent>();
+		this.maxFieldSize = 0;
+		this.maxFieldSizeValid = true;
 	}
 
 	/**
@@ -72,7 +84,33 @@ public class Program {
 	 */
 	public void addRow(Row row) {
 		rows.add(row);
-		fireModelChanged();
+		rowGrown(row);
+		fireModelChanged(ProgramModelEvent.ROWS_INSERTED, rows.size() - 1, rows.size() - 1);
+	}
+	
+	/**
+	 * Writes a complete row at the end of the program.
+	 * @param row The new Row object
+	 */
+	@Override
+	public void writeRow(Row row) {
+		addRow(row);
+	}
+	
+	/**
+	 * Adds new rows at the end of the program. The listeners are informed once about all rows.
+	 * @param newRows The new Row objects
+	 */
+	public void addRows(List<Row> newRows) {
+		if(newRows.isEmpty()) {
+			return;
+		}
+		int first = rows.size();
+		for(int i = 0; i < newRows.size(); i++) {
+			rows.add(newRows.get(i));
+			rowGrown(newRows.get(i));
+		}
+		fireModelChanged(ProgramModelEvent.ROWS_INSERTED, first, rows.size() - 1);
 	}
 	
 	/**
@@ -82,7 +120,8 @@ public class Program {
 	 */
 	public void addRow(Row row, int rowIndex) {
 		rows.add(rowIndex, row);
-		fireModelChanged();
+		rowGrown(row);
+		fireModelChanged(ProgramModelEvent.ROWS_INSERTED, rowIndex, rowIndex);
 	}
 	
 	/**
@@ -101,7 +140,8 @@ public class Program {
 	 */
 	public void setRow(int rowIndex, Row row) {
 		rows.set(rowIndex, row);
-		fireModelChanged();
+		maxFieldSizeValid = false;
+		fireModelChanged(ProgramModelEvent.ROWS_UPDATED, rowIndex, rowIndex);
 	}
 	
 	/**
@@ -110,7 +150,8 @@ public class Program {
 	 */
 	public void removeRow(int rowIndex) {
 		rows.remove(rowIndex);
-		fireModelChanged();
+		maxFieldSizeValid = false;
+		fireModelChanged(ProgramModelEvent.ROWS_REMOVED, rowIndex, rowIndex);
 	}
 	
 	/**
@@ -119,10 +160,12 @@ public class Program {
 	 * @param amount The amount
 	 */
 	public void removeRows(int rowIndex, int amount) {
-		for(int i = 0; i < amount; i++) {
-			rows.remove(rowIndex);
+		if(amount <= 0) {
+			return;
 		}
-		fireModelChanged();
+		rows.removeRange(rowIndex, rowIndex + amount);
+		maxFieldSizeValid = false;
+		fireModelChanged(ProgramModelEvent.ROWS_REMOVED, rowIndex, rowIndex + amount - 1);
 	}
 	
 	/**
@@ -130,10 +173,14 @@ public class Program {
 	 * @param rowCollection Integer-array with all row numbers
 	 */
 	public void removeRows(int[] rowCollection) {
-		for(int i = rowCollection.length - 1; i >= 0; i--) {
-			rows.remove(rowCollection[i]);
+		beginUpdate();
+		try {
+			for(int i = rowCollection.length - 1; i >= 0; i--) {
+				removeRow(rowCollection[i]);
+			}
+		} finally {
+			endUpdate();
 		}
-		fireModelChanged();
 	}
 	
 	/**
@@ -142,8 +189,10 @@ public class Program {
 	 * @param comment The new comment.
 	 */
 	public void setComment(int rowIndex, String comment) {
-		rows.get(rowIndex).setComment(comment);
-		fireModelChanged();
+		Row row = rows.get(rowIndex);
+		row.setComment(comment);
+		rows.set(rowIndex, row);
+		fireModelChanged(ProgramModelEvent.ROWS_UPDATED, rowIndex, rowIndex);
 	}
 	
 	/**
@@ -151,8 +200,7 @@ public class Program {
 	 * @param comment The new comment.
 	 */
 	public void setComment(String comment) {
-		rows.get(rows.size() - 1).setComment(comment);
-		fireModelChanged();
+		setComment(rows.size() - 1, comment);
 	}
 	
 	/**
@@ -162,8 +210,10 @@ public class Program {
 	 * @param field the new Field
 	 */
 	public void setField(int rowIndex, int columnIndex, Field field) {
-		rows.get(rowIndex).setField(columnIndex, field);
-		fireModelChanged();
+		Row row = rows.get(rowIndex);
+		row.setField(columnIndex, field);
+		rows.set(rowIndex, row);
+		fireModelChanged(ProgramModelEvent.ROWS_UPDATED, rowIndex, rowIndex);
 	}
 	
 	/**
@@ -172,8 +222,11 @@ public class Program {
 	 * @param field The new Field.
 	 */
 	public void addField(int rowIndex, Field field) {
-		rows.get(rowIndex).addField(field);
-		fireModelChanged();
+		Row row = rows.get(rowIndex);
+		row.addField(field);
+		rows.set(rowIndex, row);
+		rowGrown(row);
+		fireModelChanged(ProgramModelEvent.ROWS_UPDATED, rowIndex, rowIndex);
 	}
 	
 	/**
@@ -181,8 +234,7 @@ public class Program {
 	 * @param field The new Field.
 	 */
 	public void addField(Field field) {
-		rows.get(rows.size() - 1).addField(field);
-		fireModelChanged();
+		addField(rows.size() - 1, field);
 	}
 	
 	/**
@@ -191,8 +243,11 @@ public class Program {
 	 * @param columnIndex
 	 */
 	public void removeField(int rowIndex, int columnIndex) {
-		rows.get(rowIndex).removeField(columnIndex);
-		fireModelChanged();
+		Row row = rows.get(rowIndex);
+		row.removeField(columnIndex);
+		rows.set(rowIndex, row);
+		maxFieldSizeValid = false;
+		fireModelChanged(ProgramModelEvent.ROWS_UPDATED, rowIndex, rowIndex);
 	}
 	
 	/**
@@ -202,8 +257,10 @@ public class Program {
 	 * @param letter The new command letter.
 	 */
 	public void setLetter(int rowIndex, int columnIndex, char letter) {
-		rows.get(rowIndex).getField(columnIndex).setLetter(letter);
-		fireModelChanged();
+		Row row = rows.get(rowIndex);
+		row.getField(columnIndex).setLetter(letter);
+		rows.set(rowIndex, row);
+		fireModelChanged(ProgramModelEvent.ROWS_UPDATED, rowIndex, rowIndex);
 	}
 	
 	/**
@@ -213,8 +270,10 @@ public class Program {
 	 * @param number The new command number.
 	 */
 	public void setNumber(int rowIndex, int columnIndex, BigDecimal number) {
-		rows.get(rowIndex).getField(columnIndex).setNumber(number);
-		fireModelChanged();
+		Row row = rows.get(rowIndex);
+		row.getField(columnIndex).setNumber(number);
+		rows.set(rowIndex, row);
+		fireModelChanged(ProgramModelEvent.ROWS_UPDATED, rowIndex, rowIndex);
 	}
 	
 	/**
@@ -223,22 +282,40 @@ public class Program {
 	 * @param columnIndex Field number.
 	 */
 	public void removeNumber(int rowIndex, int columnIndex) {
-		rows.get(rowIndex).getField(columnIndex).removeNumber();
-		fireModelChanged();
+		Row row = rows.get(rowIndex);
+		row.getField(columnIndex).removeNumber();
+		rows.set(rowIndex, row);
+		fireModelChanged(ProgramModelEvent.ROWS_UPDATED, rowIndex, rowIndex);
 	}
 	
 	/**
 	 * Returns the maximum size of fields in a row in the program.
+	 * The size is cached and only computed again after rows were removed or became smaller.
 	 * @return maximum size;
 	 */
 	public int getMaxFieldSize() {
-		int maxSize = 0;
-		for(int i = 0; i < rows.size(); i++) {
-			if(rows.get(i).size() > maxSize) {
-				maxSize = rows.get(i).size();
+		if(!maxFieldSizeValid) {
+			int maxSize = 0;
+			for(int i = 0; i < rows.size(); i++) {
+				int size = rows.get(i).size();
+				if(size > maxSize) {
+					maxSize = size;
+				}
 			}
+			maxFieldSize = maxSize;
+			maxFieldSizeValid = true;
+		}
+		return maxFieldSize;
+	}
+	
+	/**
+	 * Updates the cached maximum size of fields after a row was added or got a new field.
+	 * @param row The added or grown row
+	 */
+	private void rowGrown(Row row) {
+		if(maxFieldSizeValid && row.size() > maxFieldSize) {
+			maxFieldSize = row.size();
 		}
-		return maxSize;
 	}
 	
 	/**
@@ -262,9 +339,10 @@ public class Program {
 	 * The element includes shapes and toolPathes derived from the shapes.
 	 * @param element The element to be added.
 	 */
+	@Override
 	public void addElement(Element element) {
 		elementList.add(element);
-		fireModelChanged();
+		fireModelChanged(ProgramModelEvent.ELEMENTS_ADDED, elementList.size() - 1, elementList.size() - 1);
 	}
 	
 	/**
@@ -283,7 +361,26 @@ public class Program {
 	public void clear() {
 		this.rows.clear();
 		this.elementList.clear();
-		fireModelChanged();
+		this.maxFieldSize = 0;
+		this.maxFieldSizeValid = true;
+		fireModelChanged(new ProgramModelEvent(this, ProgramModelEvent.CLEARED));
+	}
+	
+	/**
+	 * Replaces the rows and elements of this program by those of another program, i.e. a program generated in the background.
+	 * The listeners are informed once. The other program is empty afterwards.
+	 * @param program The program with the new content
+	 */
+	public void replace(Program program) {
+		this.rows = program.rows;
+		this.elementList = program.elementList;
+		this.maxFieldSize = program.maxFieldSize;
+		this.maxFieldSizeValid = program.maxFieldSizeValid;
+		program.rows = new ListRowStore();
+		program.elementList = new ArrayList<Element>();
+		program.maxFieldSize = 0;
+		program.maxFieldSizeValid = true;
+		fireModelChanged(new ProgramModelEvent(this, ProgramModelEvent.CHANGED));
 	}
 	
 	/**
@@ -310,11 +407,9 @@ public class Program {
 	 * @throws IOException
 	 */
 	public void writeToFile(File file) throws IOException {
-		file.createNewFile();
-		FileWriter filewriter = new FileWriter(file);
-		filewriter.write(this.toString());
-		filewriter.flush();
-		filewriter.close();
+		try (GCodeWriter writer = new GCodeWriter(file)) {
+			writer.writeProgram(this);
+		}
 	}
 	
 	/**
@@ -329,19 +424,17 @@ public class Program {
 	
 	/**
 	 * Reads from a G-Code text file and loads it into the model.
+	 * The file is read memory-mapped by the GCodeReader and the rows are appended in batches.
 	 * @param file File-Object..
 	 * @throws IOException
 	 */
 	public void readFromFile(File file) throws IOException {		
-		String rowBuffer;
-		
-		BufferedReader bufferedReader = new BufferedReader(new FileReader(file));
-		
-		while((rowBuffer = bufferedReader.readLine()) != null) {
-			readFromRow(rowBuffer);
+		beginUpdate();
+		try {
+			new GCodeReader(file).read(this);
+		} finally {
+			endUpdate();
 		}
-		bufferedReader.close();
-		fireModelChanged();
 	}
 	
 	/**
@@ -349,53 +442,105 @@ public class Program {
 	 * @param line The String with the G-Code
 	 */
 	public void readFromRow(String line) {
-		Row row = new Row();
-		Field field;
-		
-		// Read comments
-		int index = line.indexOf(';');
-		if(index > -1) {      // Found a comment
-			row.setComment(line.substring(index + 1).trim());
-			line = line.substring(0, index);   // Cut comment
+		this.addRow(GCodeHelpers.parseRow(line));
+	}
+	
+	/**
+	 * Starts an update of the program. The listeners are not informed about changes until the update ends.
+	 * Updates could be nested, the listeners are informed once when the outermost update ends.
+	 * Every call must be followed by a call of endUpdate(), best in a finally block.
+	 */
+	public void beginUpdate() {
+		updateDepth++;
+	}
+	
+	/**
+	 * Ends an update of the program. If the outermost update ends, all registered listeners will be informed
+	 * about the changes during the update. Subsequent changes are merged, so i.e. all appended rows are reported by one single event.
+	 */
+	public void endUpdate() {
+		if(updateDepth == 0) {
+			throw new IllegalStateException("endUpdate() without beginUpdate().");
 		}
-		
-		Scanner textLine = new Scanner(line);    // Split into fields
-		
-		while(textLine.hasNext()) {
-			String fieldBuffer = new String(textLine.next());
-			
-			try {						
-				field = GCodeHelpers.parseField(fieldBuffer);
-				row.addField(field);
-			} catch(NumberFormatException e) {
-				Main.log.log(Level.SEVERE, "Could not read parameter. Field skipped. {0}", new Object[] { e });
-			} catch(IllegalArgumentException e) {
-				Main.log.log(Level.SEVERE, "Could not read parameter. Field skipped. {0}", new Object[] { e });
+		updateDepth--;
+		if(updateDepth == 0) {
+			ArrayList<ProgramModelEvent> events = new ArrayList<ProgramModelEvent>(pendingEvents);
+			pendingEvents.clear();
+			for(int i = 0; i < events.size(); i++) {
+				fireModelChanged(events.get(i));
 			}
-		}	
+		}
+	}
 	
-		this.addRow(row);
-		textLine.close();	
+	/**
+	 * This method will invoke if a change of a range of rows or elements appears.
+	 * @param type The type of the change
+	 * @param first The first affected index
+	 * @param last The last affected index
+	 */
+	private void fireModelChanged(int type, int first, int last) {
+		fireModelChanged(new ProgramModelEvent(this, type, first, last));
 	}
 	
 	/**
 	 * This method will invoke if a change in the ProgramModel appears and will inform all registered listeners.
+	 * During an update the event is merged into the pending events and fired at the end of the update.
+	 * @param event The event
 	 */
-	private void fireModelChanged() {
+	private void fireModelChanged(ProgramModelEvent event) {
+		if(updateDepth > 0) {
+			addPendingEvent(event);
+			return;
+		}
 		for(int i = 0; i < listener.size(); i++) {
-			listener.get(i).modelChanged(this);
+			listener.get(i).modelChanged(event);
 		}
 	}
 	
+	/**
+	 * Adds an event to the pending events of an update.
+	 * Row events and element events are merged independently. If an event could not be merged with the previous event of its kind,
+	 * all pending events are replaced by one CHANGED event.
+	 * An event after a pending CLEARED also gives one CHANGED event. The events are fired at the end of the update, when all rows exist,
+	 * so a CLEARED followed by ROWS_INSERTED would let the listeners count the new rows twice.
+	 * @param event The event
+	 */
+	private void addPendingEvent(ProgramModelEvent event) {
+		if(event.getType() == ProgramModelEvent.CLEARED || event.getType() == ProgramModelEvent.CHANGED) {
+			pendingEvents.clear();
+			pendingEvents.add(event);
+			return;
+		}
+		
+		if(pendingEvents.size() == 1 && pendingEvents.get(0).getType() == ProgramModelEvent.CHANGED) {
+			return;
+		}
+		if(pendingEvents.size() == 1 && pendingEvents.get(0).getType() == ProgramModelEvent.CLEARED) {
+			pendingEvents.set(0, new ProgramModelEvent(this, ProgramModelEvent.CHANGED));
+			return;
+		}
+		
+		for(int i = pendingEvents.size() - 1; i >= 0; i--) {
+			ProgramModelEvent pending = pendingEvents.get(i);
+			if(pending.isRowEvent() == event.isRowEvent()) {
+				ProgramModelEvent merged = pending.merge(event);
+				if(merged == null) {
+					pendingEvents.clear();
+					pendingEvents.add(new ProgramModelEvent(this, ProgramModelEvent.CHANGED));
+				} else {
+					pendingEvents.set(i, merged);
+				}
+				return;
+			}
+		}
+		pendingEvents.add(event);
+	}
+	
 	/**
 	 * Output of the whole program.
 	 */
 	public String toString() {
-		String out = new String();
-		for(int i = 0; i < rows.size(); i++) {
-			out += rows.get(i) + "\n";
-		}
-		return out;
+		return GCodeWriter.toString(this);
 	}
 	
 }
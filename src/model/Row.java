@@ -65,7 +65,7 @@ public class Row {
 	 * Adds a field at the end of the row.
 	 * @param field The new field
 	 */
-	protected void addField(Field field) {
+	public void addField(Field field) {
 		commands.add(field);
 	}
 	
@@ -135,17 +135,25 @@ public class Row {
 	}
 	
 	/**
-	 * Returns the complete line as a String.
+	 * Appends the complete line to a StringBuilder without line break.
+	 * @param out The StringBuilder
+	 * @return The StringBuilder
 	 */
-	public String toString() {
-		String out = new String();
+	public StringBuilder appendTo(StringBuilder out) {
 		for(int i = 0; i < commands.size(); i++) {
-			out += commands.get(i) + " ";
+			commands.get(i).appendTo(out).append(' ');
 		}
 		if(comment != null) {
-			out += "; " + comment;
+			out.append("; ").append(comment);
 		}
 		return out;
 	}
 	
+	/**
+	 * Returns the complete line as a String.
+	 */
+	public String toString() {
+		return appendTo(new StringBuilder(64)).toString();
+	}
+	
 }
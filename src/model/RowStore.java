@@ -0,0 +1,82 @@
+/*********************************************************************\
+ * RowStore.java - xmlCam G-Code Generator                           *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+package model;
+
+/**
+ * The storage of the rows of a program.
+ * The ListRowStore holds Row objects, the ColumnarRowStore holds the fields in primitive arrays and needs much less memory for large programs.
+ * A store may return a new Row object for every call of get(), so changes of a row must always be written back with set().
+ * @author Christian Kirsch
+ *
+ */
+public interface RowStore {
+	
+	/**
+	 * Returns the amount of rows.
+	 * @return The amount
+	 */
+	public int size();
+	
+	/**
+	 * Returns the row at index.
+	 * @param index The row index
+	 * @return The row
+	 */
+	public Row get(int index);
+	
+	/**
+	 * Adds a row at the end.
+	 * @param row The row
+	 */
+	public void add(Row row);
+	
+	/**
+	 * Inserts a row at index.
+	 * @param index The row index
+	 * @param row The row
+	 */
+	public void add(int index, Row row);
+	
+	/**
+	 * Replaces the row at index.
+	 * @param index The row index
+	 * @param row The new row
+	 */
+	public void set(int index, Row row);
+	
+	/**
+	 * Removes the row at index.
+	 * @param index The row index
+	 */
+	public void remove(int index);
+	
+	/**
+	 * Removes the rows from index from (inclusive) to index to (exclusive).
+	 * @param from The first row index
+	 * @param to The row index behind the last row
+	 */
+	public void removeRange(int from, int to);
+	
+	/**
+	 * Removes all rows.
+	 */
+	public void clear();
+
+}
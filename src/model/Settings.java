@@ -65,6 +65,30 @@ public class Settings {
 	 */
 	private File userDir;
 	
+	/**
+	 * Computes the toolpathes of the elements in parallel.
+	 */
+	private boolean parallelGeneration;
+	
+	/**
+	 * Stores the rows of the program in primitive arrays instead of Row objects.
+	 */
+	private boolean columnarProgram;
+	private boolean optimizeTravel;
+	private boolean groupTools;
+	private double arcTolerance;
+	private double simplifyTolerance;
+	
+	/**
+	 * The directory of the toolpath cache on disk. Null if the cache is disabled.
+	 */
+	private File toolPathCacheDir;
+	
+	/**
+	 * The maximum size of the toolpath cache in MB.
+	 */
+	private int toolPathCacheSize;
+	
 	/**
 	 * Reads the user settings from the file settings.yaml. The file shall be located in the main folder.
 	 * If an error occurs, the default setting will be loaded.
@@ -154,6 +178,107 @@ public class Settings {
 				setUserDirDefault("Could not find standard-dir parameter in settings file. ");
 			}
 	    	
+	    	if (map.containsKey("parallel-generation")) {
+	    		try {
+	    			parallelGeneration = (boolean) map.get("parallel-generation");
+	    			Main.log.log(Level.FINE, "Set parallel-generation successfully to " + parallelGeneration + ".");
+	    		} catch (ClassCastException e) {
+	    			setParallelGenerationDefault("Wrong parameter in settings for parallel-generation. ");
+	    		}
+			} else {
+				setParallelGenerationDefault("Could not find parallel-generation parameter in settings file. ");
+			}
+	    	
+	    	if (map.containsKey("columnar-program")) {
+	    		try {
+	    			columnarProgram = (boolean) map.get("columnar-program");
+	    			Main.log.log(Level.FINE, "Set columnar-program successfully to " + columnarProgram + ".");
+	    		} catch (ClassCastException e) {
+	    			setColumnarProgramDefault("Wrong parameter in settings for columnar-program. ");
+	    		}
+			} else {
+				setColumnarProgramDefault("Could not find columnar-program parameter in settings file. ");
+			}
+	    	
+	    	if (map.containsKey("optimize-travel")) {
+	    		try {
+	    			optimizeTravel = (boolean) map.get("optimize-travel");
+	    			Main.log.log(Level.FINE, "Set optimize-travel successfully to " + optimizeTravel + ".");
+	    		} catch (ClassCastException e) {
+	    			setOptimizeTravelDefault("Wrong parameter in settings for optimize-travel. ");
+	    		}
+			} else {
+				setOptimizeTravelDefault("Could not find optimize-travel parameter in settings file. ");
+			}
+	    	
+	    	if (map.containsKey("group-tools")) {
+	    		try {
+	    			groupTools = (boolean) map.get("group-tools");
+	    			Main.log.log(Level.FINE, "Set group-tools successfully to " + groupTools + ".");
+	    		} catch (ClassCastException e) {
+	    			setGroupToolsDefault("Wrong parameter in settings for group-tools. ");
+	    		}
+			} else {
+				setGroupToolsDefault("Could not find group-tools parameter in settings file. ");
+			}
+	    	
+	    	if (map.containsKey("arc-tolerance")) {
+	    		try {
+	    			arcTolerance = ((Number) map.get("arc-tolerance")).doubleValue();
+	    			if(arcTolerance < 0) {
+	    				setArcToleranceDefault("arc-tolerance must be greater or equal 0. ");
+	    			} else {
+	    				Main.log.log(Level.FINE, "Set arc-tolerance successfully to " + arcTolerance + ".");
+	    			}
+	    		} catch (ClassCastException | NullPointerException e) {
+	    			setArcToleranceDefault("Wrong parameter in settings for arc-tolerance. ");
+	    		}
+			} else {
+				setArcToleranceDefault("Could not find arc-tolerance parameter in settings file. ");
+			}
+	    	
+	    	if (map.containsKey("simplify-tolerance")) {
+	    		try {
+	    			simplifyTolerance = ((Number) map.get("simplify-tolerance")).doubleValue();
+	    			if(simplifyTolerance < 0) {
+	    				setSimplifyToleranceDefault("simplify-tolerance must be greater or equal 0. ");
+	    			} else {
+	    				Main.log.log(Level.FINE, "Set simplify-tolerance successfully to " + simplifyTolerance + ".");
+	    			}
+	    		} catch (ClassCastException | NullPointerException e) {
+	    			setSimplifyToleranceDefault("Wrong parameter in settings for simplify-tolerance. ");
+	    		}
+			} else {
+				setSimplifyToleranceDefault("Could not find simplify-tolerance parameter in settings file. ");
+			}
+	    	
+	    	if (map.containsKey("toolpath-cache")) {
+	    		String dir = map.get("toolpath-cache") != null ? String.valueOf(map.get("toolpath-cache")).trim() : "";
+	    		if(dir.isEmpty()) {
+	    			setToolPathCacheDirDefault("toolpath-cache is empty. ");
+	    		} else {
+	    			toolPathCacheDir = new File(dir);
+	    			Main.log.log(Level.FINE, "Set toolpath-cache successfully to " + toolPathCacheDir + ".");
+	    		}
+			} else {
+				setToolPathCacheDirDefault("Could not find toolpath-cache parameter in settings file. ");
+			}
+	    	
+	    	if (map.containsKey("toolpath-cache-size")) {
+	    		try {
+	    			toolPathCacheSize = (int) map.get("toolpath-cache-size");
+	    			if(toolPathCacheSize < 1) {
+	    				setToolPathCacheSizeDefault("toolpath-cache-size must be greater than 0. ");
+	    			} else {
+	    				Main.log.log(Level.FINE, "Set toolpath-cache-size successfully to " + toolPathCacheSize + " MB.");
+	    			}
+	    		} catch (ClassCastException e) {
+	    			setToolPathCacheSizeDefault("Wrong parameter in settings for toolpath-cache-size. ");
+	    		}
+			} else {
+				setToolPathCacheSizeDefault("Could not find toolpath-cache-size parameter in settings file. ");
+			}
+	    	
 		} catch (FileNotFoundException e) {
 			Main.log.log(Level.SEVERE, "Failed to load settings.yaml. {0}", new Object[] { e });
 			setAllDefaults("Set all defaults. ");
@@ -170,6 +295,10 @@ public class Settings {
 		setGridStepDefault(message);
 		setFontSizeDefault(message);
 		setUserDirDefault(message);
+		setParallelGenerationDefault(message);
+		setColumnarProgramDefault(message);
+		setToolPathCacheDirDefault(message);
+		setToolPathCacheSizeDefault(message);
 	}
 
 	/**
@@ -220,6 +349,70 @@ public class Settings {
 		Main.log.log(Level.FINE, message + "Set standard user directory for XML and G-Code to default value " + userDir);
 	}
 
+	/**
+	 * Set default for parallel generation.
+	 */
+	private void setParallelGenerationDefault(String message) {
+		parallelGeneration = false;
+		Main.log.log(Level.FINE, message + "Set parallel generation to default value " + parallelGeneration + ".");
+	}
+
+	/**
+	 * Set default for columnar program.
+	 */
+	private void setColumnarProgramDefault(String message) {
+		columnarProgram = false;
+		Main.log.log(Level.FINE, message + "Set columnar program to default value " + columnarProgram + ".");
+	}
+
+	/**
+	 * Set default for the optimization of the travel.
+	 */
+	private void setOptimizeTravelDefault(String message) {
+		optimizeTravel = false;
+		Main.log.log(Level.FINE, message + "Set optimize travel to default value " + optimizeTravel + ".");
+	}
+
+	/**
+	 * Set default for the grouping of the elements by tool.
+	 */
+	private void setGroupToolsDefault(String message) {
+		groupTools = false;
+		Main.log.log(Level.FINE, message + "Set group tools to default value " + groupTools + ".");
+	}
+
+	/**
+	 * Set default for the tolerance of the arc fitting.
+	 */
+	private void setArcToleranceDefault(String message) {
+		arcTolerance = 0;
+		Main.log.log(Level.FINE, message + "Set arc tolerance to default value " + arcTolerance + ".");
+	}
+
+	/**
+	 * Set default for the tolerance of the simplification of the toolpathes.
+	 */
+	private void setSimplifyToleranceDefault(String message) {
+		simplifyTolerance = 0;
+		Main.log.log(Level.FINE, message + "Set simplify tolerance to default value " + simplifyTolerance + ".");
+	}
+
+	/**
+	 * Set default for the toolpath cache directory. The cache is disabled.
+	 */
+	private void setToolPathCacheDirDefault(String message) {
+		toolPathCacheDir = null;
+		Main.log.log(Level.FINE, message + "Toolpath cache is disabled.");
+	}
+
+	/**
+	 * Set default for the toolpath cache size.
+	 */
+	private void setToolPathCacheSizeDefault(String message) {
+		toolPathCacheSize = 256;
+		Main.log.log(Level.FINE, message + "Set toolpath cache size to default value " + toolPathCacheSize + " MB.");
+	}
+
 	public String getDialect() {
 		return dialect;
 	}
@@ -242,6 +435,110 @@ public class Settings {
 
 	public File getUserDir() {
 		return userDir;
-	}	
+	}
+	
+	public boolean isParallelGeneration() {
+		return parallelGeneration;
+	}
+	
+	/**
+	 * Overrides the setting from settings.yaml, i.e. by a command line option.
+	 * @param parallelGeneration true to compute the toolpathes in parallel
+	 */
+	public void setParallelGeneration(boolean parallelGeneration) {
+		this.parallelGeneration = parallelGeneration;
+	}
+	
+	public boolean isColumnarProgram() {
+		return columnarProgram;
+	}
+	
+	/**
+	 * Overrides the setting from settings.yaml, i.e. by a command line option.
+	 * @param columnarProgram true to store the rows in primitive arrays
+	 */
+	public void setColumnarProgram(boolean columnarProgram) {
+		this.columnarProgram = columnarProgram;
+	}
+	
+	public boolean isOptimizeTravel() {
+		return optimizeTravel;
+	}
+	
+	/**
+	 * Overrides the setting from settings.yaml, i.e. by a command line option.
+	 * @param optimizeTravel true to order the toolpathes of the same tool for a short travel
+	 */
+	public void setOptimizeTravel(boolean optimizeTravel) {
+		this.optimizeTravel = optimizeTravel;
+	}
+	
+	public boolean isGroupTools() {
+		return groupTools;
+	}
+	
+	/**
+	 * Overrides the setting from settings.yaml, i.e. by a command line option.
+	 * @param groupTools true to emit the elements grouped by tool
+	 */
+	public void setGroupTools(boolean groupTools) {
+		this.groupTools = groupTools;
+	}
+	
+	/**
+	 * Returns the tolerance for the replacement of segments by G2/G3 arcs.
+	 * @return The tolerance in mm, 0 if no arcs are fitted
+	 */
+	public double getArcTolerance() {
+		return arcTolerance;
+	}
+	
+	/**
+	 * Overrides the setting from settings.yaml, i.e. by a command line option.
+	 * @param arcTolerance The tolerance in mm, 0 to disable the arcs
+	 */
+	public void setArcTolerance(double arcTolerance) {
+		this.arcTolerance = arcTolerance;
+	}
+	
+	/**
+	 * Returns the tolerance for the simplification of the toolpathes, i.e. the maximum distance of a removed point to the simplified toolpath.
+	 * @return The tolerance in mm
+	 */
+	public double getSimplifyTolerance() {
+		return simplifyTolerance;
+	}
+	
+	/**
+	 * Overrides the setting from settings.yaml, i.e. by a command line option.
+	 * @param simplifyTolerance The tolerance in mm, 0 removes only equal and exactly collinear points
+	 */
+	public void setSimplifyTolerance(double simplifyTolerance) {
+		this.simplifyTolerance = simplifyTolerance;
+	}
+	
+	/**
+	 * Returns the directory of the toolpath cache.
+	 * @return The directory or null if the cache is disabled
+	 */
+	public File getToolPathCacheDir() {
+		return toolPathCacheDir;
+	}
+	
+	/**
+	 * Overrides the setting from settings.yaml, i.e. by a command line option.
+	 * @param toolPathCacheDir The directory or null to disable the cache
+	 */
+	public void setToolPathCacheDir(File toolPathCacheDir) {
+		this.toolPathCacheDir = toolPathCacheDir;
+	}
+	
+	/**
+	 * Returns the maximum size of the toolpath cache.
+	 * @return The size in MB
+	 */
+	public int getToolPathCacheSize() {
+		return toolPathCacheSize;
+	}
 	
 }
@@ -29,6 +29,10 @@ import java.util.ArrayList;
 public class ToolPath extends ArrayList<Point2D.Double> {
 	
 	private static final long serialVersionUID = 1L;
+	/**
+	 * A seam nearer to a vertex than this (in mm) is moved to the vertex, so the edge is not split.
+	 */
+	private static final double SEAM_TOLERANCE = 0.0001;
 	protected String name;
 	private boolean pocket;
 	
@@ -77,6 +81,24 @@ public class ToolPath extends ArrayList<Point2D.Double> {
 		return new BigDecimal(get(index).getY());
 	}
 	
+	/**
+	 * Returns the x value of the coordinate at the index of the toolPath as fixed-point number.
+	 * @param index The index
+	 * @return The x value
+	 */
+	public long getFixedX(int index) {
+		return FixedPoint.fromDouble(get(index).getX());
+	}
+	
+	/**
+	 * Returns the y value of the coordinate at the index of the toolPath as fixed-point number.
+	 * @param index The index
+	 * @return The y value
+	 */
+	public long getFixedY(int index) {
+		return FixedPoint.fromDouble(get(index).getY());
+	}
+	
 	/**
 	 * Returns the name of the toolPath.
 	 * @return The name
@@ -95,6 +117,96 @@ public class ToolPath extends ArrayList<Point2D.Double> {
 		}
 	}
 
+	/**
+	 * Returns true if the toolPath is a closed loop, i.e. the last point is the first point in G-Code resolution.
+	 * @return true if closed
+	 */
+	public boolean isClosed() {
+		int last = size() - 1;
+		return last > 1 && getFixedX(0) == getFixedX(last) && getFixedY(0) == getFixedY(last);
+	}
+	
+	/**
+	 * Returns the point of the closed toolPath, which is nearest to a position. This is the best start point (the seam) for the loop.
+	 * @param x The x coordinate of the position
+	 * @param y The y coordinate of the position
+	 * @return The point, a vertex or a point on an edge
+	 */
+	public Point2D.Double getSeam(double x, double y) {
+		Point2D.Double seam = new Point2D.Double();
+		findSeam(x, y, seam);
+		return seam;
+	}
+	
+	/**
+	 * Returns a copy of the closed toolPath, which starts and ends at the seam for a position. The direction of the loop is not changed.
+	 * If the seam is on an edge, the edge is split at the seam. The toolPath itself is not changed, because it can be shared with a cache.
+	 * @param x The x coordinate of the position
+	 * @param y The y coordinate of the position
+	 * @return The rotated copy or this toolPath, if it starts already at the seam or is not closed
+	 */
+	public ToolPath rotate(double x, double y) {
+		if(!isClosed()) {
+			return this;
+		}
+		Point2D.Double seam = new Point2D.Double();
+		int edge = findSeam(x, y, seam);
+		int n = size() - 1; // The last point is the first point
+		int start;
+		boolean split = false;
+		if(seam.distance(get(edge)) < SEAM_TOLERANCE) {
+			start = edge;
+		} else if(seam.distance(get(edge + 1)) < SEAM_TOLERANCE) {
+			start = (edge + 1) % n;
+		} else {
+			start = (edge + 1) % n;
+			split = true;
+		}
+		if(start == 0 && !split) {
+			return this;
+		}
+		
+		ToolPath rotated = new ToolPath(name, pocket);
+		if(split) {
+			rotated.addPoint(seam);
+		}
+		for(int i = 0; i < n; i++) {
+			rotated.addPoint(get((start + i) % n));
+		}
+		rotated.addPoint(split ? seam : get(start));
+		return rotated;
+	}
+	
+	/**
+	 * Finds the nearest point of the closed toolPath to a position.
+	 * @param x The x coordinate of the position
+	 * @param y The y coordinate of the position
+	 * @param seam Set to the nearest point
+	 * @return The index of the edge with the nearest point, the edge goes from this index to the next
+	 */
+	private int findSeam(double x, double y, Point2D.Double seam) {
+		int edge = 0;
+		double best = Double.MAX_VALUE;
+		for(int i = 0; i < size() - 1; i++) {
+			Point2D.Double p0 = get(i);
+			Point2D.Double p1 = get(i + 1);
+			double dx = p1.getX() - p0.getX();
+			double dy = p1.getY() - p0.getY();
+			double length = dx * dx + dy * dy;
+			double t = length > 0 ? ((x - p0.getX()) * dx + (y - p0.getY()) * dy) / length : 0;
+			t = Math.max(0, Math.min(1, t));
+			double px = p0.getX() + t * dx;
+			double py = p0.getY() + t * dy;
+			double d = (px - x) * (px - x) + (py - y) * (py - y);
+			if(d < best) {
+				best = d;
+				edge = i;
+				seam.setLocation(px, py);
+			}
+		}
+		return edge;
+	}
+	
 	/**
 	 * Returns true if it is a pocket ToolPath
 	 * @return true
@@ -20,7 +20,7 @@
 package model;
 
 import java.math.BigDecimal;
-import java.util.ArrayList;
+import java.util.Arrays;
 
 import org.w3c.dom.Node;
 
@@ -35,7 +35,8 @@ public class Tuple {
 	public static final int BEZIER = 1;
 	public static final int SPLINE = 2;
 	
-	private ArrayList<Double> values;
+	private double[] values;
+	private int size;
 	private int type;
 
 	/**
@@ -54,10 +55,11 @@ public class Tuple {
 	 */
 	public Tuple(Node node, int type) {
 		String[] stringValues = node.getTextContent().split(",");
-		this.values = new ArrayList<Double>();
+		this.values = new double[stringValues.length];
 		for(int i = 0; i < stringValues.length; i++) {
-			values.add(Double.parseDouble(stringValues[i]));
+			values[i] = Double.parseDouble(stringValues[i]);
 		}
+		this.size = stringValues.length;
 		this.type = type;
 	}
 	
@@ -75,11 +77,8 @@ public class Tuple {
 	 * @param type The type of the node or tuple
 	 */
 	public Tuple(double[] values, int type) {
-		this.values = new ArrayList<Double>();
-		
-		for(int i = 0; i < values.length; i++) {
-			this.values.add(values[i]);
-		}
+		this.values = Arrays.copyOf(values, values.length);
+		this.size = values.length;
 		this.type = type;
 	}
 	
@@ -90,7 +89,28 @@ public class Tuple {
 	 * @return The value as a BigDecimal object
 	 */
 	public BigDecimal getValue(int index) {
-		return new BigDecimal(values.get(index));
+		return new BigDecimal(getDoubleValue(index));
+	}
+	
+	/**
+	 * Returns the value from the tuple at the specified position.
+	 * @param index The position of the value
+	 * @return The value
+	 */
+	public double getDoubleValue(int index) {
+		if(index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+		return values[index];
+	}
+	
+	/**
+	 * Returns the value from the tuple at the specified position as fixed-point number.
+	 * @param index The position of the value
+	 * @return The fixed-point number
+	 */
+	public long getFixedValue(int index) {
+		return FixedPoint.fromDouble(getDoubleValue(index));
 	}
 	
 	/**
@@ -102,7 +122,7 @@ public class Tuple {
 	public Tuple subList(int from, int to) throws ArrayIndexOutOfBoundsException {
 		double[] list = new double[to - from + 1];
 		for(int i = from; i <= to; i++) {
-			list[i] = values.get(i);
+			list[i - from] = getDoubleValue(i);
 		}
 		return new Tuple(list);
 	}
@@ -114,7 +134,8 @@ public class Tuple {
 	 * @param value The value
 	 */
 	public void setValue(int index, double value) {
-		values.set(index, value);
+		getDoubleValue(index);
+		values[index] = value;
 	}
 	
 	/**
@@ -123,7 +144,10 @@ public class Tuple {
 	 * @param value The value
 	 */
 	public void addValue(double value) {
-		values.add(value);
+		if(size == values.length) {
+			values = Arrays.copyOf(values, size * 2 + 1);
+		}
+		values[size++] = value;
 	}
 
 	/**
@@ -139,7 +163,7 @@ public class Tuple {
 	 * @return The size of values
 	 */
 	public int size() {
-		return this.values.size();
+		return this.size;
 	}
 	
 	/**
@@ -149,11 +173,11 @@ public class Tuple {
 	 * @return The euclidean distance
 	 */
 	public double distance(Tuple other) {
-		int n = Math.min(values.size(), other.size());
+		int n = Math.min(size, other.size());
 		double distance = 0;
 		
 		for(int i = 0; i < n;i ++) {
-			double difference = values.get(i) - other.getValue(i).doubleValue();
+			double difference = values[i] - other.getDoubleValue(i);
 			distance = Math.sqrt(Math.pow(difference, 2) + Math.pow(distance, 2));
 		}
 		return distance;
@@ -165,11 +189,11 @@ public class Tuple {
 	 * @return true if equal false if not
 	 */
 	public boolean equals(Tuple other) {
-		if(values.size() != other.size()) {
+		if(size != other.size()) {
 			return false;
 		}
-		for(int i = 0; i < values.size(); i++) {
-			if(values.get(i) != other.getValue(i).doubleValue()) {
+		for(int i = 0; i < size; i++) {
+			if(values[i] != other.getDoubleValue(i)) {
 				return false;
 			}
 		}
@@ -181,11 +205,11 @@ public class Tuple {
 	 */
 	public String toString() {
 		StringBuilder tuple = new StringBuilder("(");
-		for(int i = 0; i < values.size(); i++) {
+		for(int i = 0; i < size; i++) {
 			if(i > 0) {
 				tuple.append(",");
 			}
-			tuple.append(values.get(i));
+			tuple.append(values[i]);
 		}
 		tuple.append(")");
 		return tuple.toString();
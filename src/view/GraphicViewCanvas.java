@@ -42,6 +42,7 @@ public class GraphicViewCanvas extends JPanel implements ProgramModelListener {
 	private Environment env;
 	private boolean gridVisible, g0lineVisible, g1lineVisible, pointVisible, shapeVisible;
 	private GraphicView graphicView;
+	private GraphicViewMoves moves;
 	
 	/**
 	 * Constructs a new canvas.
@@ -56,6 +57,7 @@ public class GraphicViewCanvas extends JPanel implements ProgramModelListener {
 		this.g1lineVisible = true;
 		this.pointVisible = true;
 		this.shapeVisible = true;
+		this.moves = new GraphicViewMoves(env.getSettings().getWorkbench().getXMin(), env.getSettings().getWorkbench().getYMin());
 		
 		GraphicViewDragListener dragger = new GraphicViewDragListener(graphicView);
 		this.addMouseListener(dragger);
@@ -68,8 +70,6 @@ public class GraphicViewCanvas extends JPanel implements ProgramModelListener {
 	@Override
     public void paintComponent(Graphics g){
     	double x1 = env.getSettings().getWorkbench().getXMin(), y1 = env.getSettings().getWorkbench().getYMin(), x2 = 0, y2 = 0;
-    	int index = -1;
-    	boolean draw; // check if a line draw is needed for x and y. (i.e. a G0 Z6 does not need a draw)
     	super.paintComponent(g);
     	
     	Graphics2D g2 = (Graphics2D) g;
@@ -156,77 +156,33 @@ public class GraphicViewCanvas extends JPanel implements ProgramModelListener {
     		}
     	}
     	
-    	// Paint all G0 and G1 moves
-    	x1 = env.getSettings().getWorkbench().getXMin();
-    	y1 = env.getSettings().getWorkbench().getYMin() ;
-        for(int i = 0; i < env.getProgram().sizeRow(); i++) {
-        	draw = false;
-        	if(env.getProgram().getRow(i).getField(0).toString().equals("G0")) {
-	        		
-        		index = env.getProgram().getRow(i).getFieldIndex('X');
-        		if(index > -1) {
-        			x2 = env.getProgram().getRow(i).getField(index).getNumber().doubleValue();
-        			draw = true;
+    	// Paint all G0, G1 and the arc moves
+    	moves.update(env.getProgram());
+        for(int i = 0; i < moves.size(); i++) {
+        	x1 = moves.getX1(i);
+        	y1 = moves.getY1(i);
+        	x2 = moves.getX2(i);
+        	y2 = moves.getY2(i);
+        	if(!moves.isG1(i)) {
+        		if(moves.isDrawn(i) && g0lineVisible) {
+    				g2.setColor(Color.GREEN);
+    				g2.drawLine((int)(x1 * graphicView.getScale() - graphicView.getxBar().getValue() - workbenchTranslateX), 
+    						(int)(y1 * graphicView.getScale() - yScrollBarValueInv - workbenchTranslateY), 
+    						(int)(x2 * graphicView.getScale() - graphicView.getxBar().getValue() - workbenchTranslateX), 
+    						(int)(y2 * graphicView.getScale() - yScrollBarValueInv) - workbenchTranslateY);
         		}
-        		index = env.getProgram().getRow(i).getFieldIndex('Y');
-        		if(index > -1) {
-        			y2 = env.getProgram().getRow(i).getField(index).getNumber().doubleValue();
-        			draw = true;
-        		}
-        		if(draw) {
-        			if(g0lineVisible ) {
-        				g2.setColor(Color.GREEN);
-        				g2.drawLine((int)(x1 * graphicView.getScale() - graphicView.getxBar().getValue() - workbenchTranslateX), 
-        						(int)(y1 * graphicView.getScale() - yScrollBarValueInv - workbenchTranslateY), 
-        						(int)(x2 * graphicView.getScale() - graphicView.getxBar().getValue() - workbenchTranslateX), 
-        						(int)(y2 * graphicView.getScale() - yScrollBarValueInv) - workbenchTranslateY);
-        			}
-        			x1 = x2;
-                	y1 = y2;
-        		}
-        		
-        	} else if(env.getProgram().getRow(i).getField(0).toString().equals("G1")) {
-        		index = env.getProgram().getRow(i).getFieldIndex('X');
-        		if(index > -1) {
-        			x2 = env.getProgram().getRow(i).getField(index).getNumber().doubleValue();
-        			draw = true;
-        		}
-        		index = env.getProgram().getRow(i).getFieldIndex('Y');
-        		if(index > -1) {
-        			y2 = env.getProgram().getRow(i).getField(index).getNumber().doubleValue();
-        			draw = true;
-        		}
-        		
-    			if(pointVisible) {
+        	} else {
+    			if(pointVisible && moves.isPoint(i)) {
 	        		g2.setColor(Color.RED);
         			g2.drawOval((int)(x1 * graphicView.getScale() - graphicView.getxBar().getValue() - 2 - workbenchTranslateX), 
     						(int)(y1 * graphicView.getScale() - yScrollBarValueInv - 2 - workbenchTranslateY), 4, 4);
     			}
-        		if(draw) {
-        			if(g1lineVisible) {
-        				g2.setColor(Color.BLACK);
-        				g2.drawLine((int)(x1 * graphicView.getScale() - graphicView.getxBar().getValue() - workbenchTranslateX), 
-        						(int)(y1 * graphicView.getScale() - yScrollBarValueInv - workbenchTranslateY), 
-        						(int)(x2 * graphicView.getScale() - graphicView.getxBar().getValue() - workbenchTranslateX) , 
-        						(int)(y2 * graphicView.getScale() - yScrollBarValueInv - workbenchTranslateY));
-        			}
-        			x1 = x2;
-            		y1 = y2;
-            		
-            		// Draw the last point from G1 move but not the zero point
-           			/*try {
-	            		if(pointVisible && !programModel.getRow(i + 1).getField(0).toString().equals("G1")) {
-	    	        		g.setColor(Color.RED);
-	            			g.drawOval(GraphicViewHelpers.convertX(x1, graphicView.getScale(), graphicView.getxBar()) - 2, 
-	            						GraphicViewHelpers.convertY(y1, this.getHeight(), graphicView.getScale(), graphicView.getyBar()) - 2,
-	            						4, 4);
-	            		}
-           			} catch(IndexOutOfBoundsException e) {
-           					g.setColor(Color.RED);
-           					g.drawOval(GraphicViewHelpers.convertX(x1, graphicView.getScale(), graphicView.getxBar()) - 2, 
-            						GraphicViewHelpers.convertY(y1, this.getHeight(), graphicView.getScale(), graphicView.getyBar()) - 2,
-            						4, 4);
-           			}*/
+        		if(moves.isDrawn(i) && g1lineVisible) {
+    				g2.setColor(Color.BLACK);
+    				g2.drawLine((int)(x1 * graphicView.getScale() - graphicView.getxBar().getValue() - workbenchTranslateX), 
+    						(int)(y1 * graphicView.getScale() - yScrollBarValueInv - workbenchTranslateY), 
+    						(int)(x2 * graphicView.getScale() - graphicView.getxBar().getValue() - workbenchTranslateX) , 
+    						(int)(y2 * graphicView.getScale() - yScrollBarValueInv - workbenchTranslateY));
         		}
         	}
         }
@@ -323,6 +279,22 @@ public class GraphicViewCanvas extends JPanel implements ProgramModelListener {
 	 */
 	@Override
 	public void modelChanged(Program model) {
+		moves.clear();
+		this.repaint();
+	}
+	
+	/**
+	 * Gets invoked each time a change in G-Code program model occurs.
+	 * If rows were appended, only the new rows are read at the next paint. Otherwise the moves are read again from all rows.
+	 * @param event The event with the type and range of the change
+	 */
+	@Override
+	public void modelChanged(ProgramModelEvent event) {
+		if(event.getType() == ProgramModelEvent.ROWS_INSERTED && event.getFirst() >= moves.getRowCount()) {
+			// Appended rows are read at the next paint
+		} else if(event.getType() != ProgramModelEvent.ELEMENTS_ADDED) {
+			moves.clear();
+		}
 		this.repaint();
 	}
 
@@ -0,0 +1,260 @@
+/*********************************************************************\
+ * GraphicViewMoves.java - xmlCam G-Code Generator                   *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+package view;
+
+import java.util.Arrays;
+
+import model.Program;
+import model.Row;
+
+/**
+ * This class holds the G0 and G1 moves of the program as plain coordinates for the canvas.
+ * The moves are extracted once from the rows. If rows are appended to the program, only the new rows are read.
+ * Every move has a start point and an end point. If the row has no X or Y field, the move is not drawn as a line (i.e. G0 Z6).
+ * Arcs (G2, G3) are split into short G1 moves.
+ * @author Christian Kirsch
+ */
+public class GraphicViewMoves {
+	
+	private static final int INITIAL_CAPACITY = 256;
+	/**
+	 * The maximum angle of a move, when an arc is split.
+	 */
+	private static final double ARC_STEP = Math.PI / 36;
+	
+	private double startX, startY;
+	private double x, y;
+	private int rowCount;
+	private int size;
+	private boolean[] g1;
+	private boolean[] draw;
+	private boolean[] point;
+	private double[] coords; // x1, y1, x2, y2 for every move
+	
+	/**
+	 * Constructs an empty list of moves.
+	 * @param startX The x coordinate where the first move starts
+	 * @param startY The y coordinate where the first move starts
+	 */
+	public GraphicViewMoves(double startX, double startY) {
+		this.startX = startX;
+		this.startY = startY;
+		this.g1 = new boolean[INITIAL_CAPACITY];
+		this.draw = new boolean[INITIAL_CAPACITY];
+		this.point = new boolean[INITIAL_CAPACITY];
+		this.coords = new double[INITIAL_CAPACITY * 4];
+		clear();
+	}
+	
+	/**
+	 * Removes all moves.
+	 */
+	public void clear() {
+		this.x = startX;
+		this.y = startY;
+		this.rowCount = 0;
+		this.size = 0;
+	}
+	
+	/**
+	 * Reads the moves from the rows, which were appended to the program since the last call.
+	 * @param program The program model
+	 */
+	public void update(Program program) {
+		if(program.sizeRow() < rowCount) {
+			clear();
+		}
+		for(int i = rowCount; i < program.sizeRow(); i++) {
+			addRow(program.getRow(i));
+		}
+		rowCount = program.sizeRow();
+	}
+	
+	/**
+	 * Returns the number of rows read from the program.
+	 * @return The number of rows
+	 */
+	public int getRowCount() {
+		return rowCount;
+	}
+	
+	/**
+	 * Returns the number of moves.
+	 * @return The number of moves
+	 */
+	public int size() {
+		return size;
+	}
+	
+	/**
+	 * Checks if the move is a G1 move. Otherwise it is a G0 move.
+	 * @param index The index of the move
+	 * @return True for G1
+	 */
+	public boolean isG1(int index) {
+		return g1[index];
+	}
+	
+	/**
+	 * Checks if the move changes x or y and must be drawn as a line.
+	 * @param index The index of the move
+	 * @return True if a line must be drawn
+	 */
+	public boolean isDrawn(int index) {
+		return draw[index];
+	}
+	
+	/**
+	 * Checks if the move starts at a point of the program. The moves inside an arc start at a point on the arc.
+	 * @param index The index of the move
+	 * @return True if the start point is a point of the program
+	 */
+	public boolean isPoint(int index) {
+		return point[index];
+	}
+	
+	public double getX1(int index) {
+		return coords[index * 4];
+	}
+	
+	public double getY1(int index) {
+		return coords[index * 4 + 1];
+	}
+	
+	public double getX2(int index) {
+		return coords[index * 4 + 2];
+	}
+	
+	public double getY2(int index) {
+		return coords[index * 4 + 3];
+	}
+	
+	/**
+	 * Adds the move of a row, if the row is a G0, G1, G2 or G3 move.
+	 * @param row The row
+	 */
+	private void addRow(Row row) {
+		if(row.size() == 0) {
+			return;
+		}
+		
+		String command = row.getField(0).toString();
+		boolean isG1;
+		if(command.equals("G0")) {
+			isG1 = false;
+		} else if(command.equals("G1")) {
+			isG1 = true;
+		} else if(command.equals("G2") || command.equals("G3")) {
+			addArc(row, command.equals("G2"));
+			return;
+		} else {
+			return;
+		}
+		
+		double x2 = x, y2 = y;
+		boolean isDrawn = false;
+		int index = row.getFieldIndex('X');
+		if(index > -1) {
+			x2 = row.getField(index).getDoubleNumber();
+			isDrawn = true;
+		}
+		index = row.getFieldIndex('Y');
+		if(index > -1) {
+			y2 = row.getField(index).getDoubleNumber();
+			isDrawn = true;
+		}
+		
+		addMove(isG1, isDrawn, true, x2, y2);
+	}
+	
+	/**
+	 * Adds an arc as short G1 moves. The center is given by I and J relative to the start point.
+	 * If the end point is the start point, the arc is a full circle.
+	 * @param row The row
+	 * @param clockwise true for G2, false for G3
+	 */
+	private void addArc(Row row, boolean clockwise) {
+		double x2 = x, y2 = y, i = 0, j = 0;
+		int index = row.getFieldIndex('X');
+		if(index > -1) {
+			x2 = row.getField(index).getDoubleNumber();
+		}
+		index = row.getFieldIndex('Y');
+		if(index > -1) {
+			y2 = row.getField(index).getDoubleNumber();
+		}
+		index = row.getFieldIndex('I');
+		if(index > -1) {
+			i = row.getField(index).getDoubleNumber();
+		}
+		index = row.getFieldIndex('J');
+		if(index > -1) {
+			j = row.getField(index).getDoubleNumber();
+		}
+		
+		double centerX = x + i;
+		double centerY = y + j;
+		double radius = Math.sqrt(i * i + j * j);
+		double start = Math.atan2(y - centerY, x - centerX);
+		double sweep = Math.atan2(y2 - centerY, x2 - centerX) - start;
+		if(clockwise) {
+			sweep = -sweep;
+		}
+		while(sweep <= 1e-9) {
+			sweep += 2 * Math.PI;
+		}
+		
+		int steps = (int) Math.ceil(sweep / ARC_STEP);
+		for(int k = 1; k < steps; k++) {
+			double angle = start + (clockwise ? -sweep : sweep) * k / steps;
+			addMove(true, true, k == 1, centerX + radius * Math.cos(angle), centerY + radius * Math.sin(angle));
+		}
+		addMove(true, true, steps == 1, x2, y2);
+	}
+	
+	/**
+	 * Adds a move from the current position.
+	 * @param isG1 true for G1, false for G0
+	 * @param isDrawn true if the move changes x or y
+	 * @param isPoint true if the move starts at a point of the program
+	 * @param x2 The x coordinate of the end point
+	 * @param y2 The y coordinate of the end point
+	 */
+	private void addMove(boolean isG1, boolean isDrawn, boolean isPoint, double x2, double y2) {
+		if(size == g1.length) {
+			g1 = Arrays.copyOf(g1, size * 2);
+			draw = Arrays.copyOf(draw, size * 2);
+			point = Arrays.copyOf(point, size * 2);
+			coords = Arrays.copyOf(coords, size * 8);
+		}
+		g1[size] = isG1;
+		draw[size] = isDrawn;
+		point[size] = isPoint;
+		coords[size * 4] = x;
+		coords[size * 4 + 1] = y;
+		coords[size * 4 + 2] = x2;
+		coords[size * 4 + 3] = y2;
+		size++;
+		
+		x = x2;
+		y = y2;
+	}
+
+}
@@ -0,0 +1,150 @@
+/*********************************************************************\
+ * ProgramModelEvent.java - xmlCam G-Code Generator                  *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+package view;
+
+import model.Program;
+
+/**
+ * This event describes a change in the G-Code program model.
+ * The type tells what has changed. For changes at rows or elements the event carries the affected index range.
+ * The range is inclusive, so the first and the last index could be the same.
+ * <pre>
+ * ROWS_INSERTED	rows first..last are new
+ * ROWS_UPDATED	rows first..last have changed fields or comments
+ * ROWS_REMOVED	rows first..last were removed (indexes before the removal)
+ * ELEMENTS_ADDED	elements first..last are new
+ * CLEARED	all rows and elements were removed
+ * CHANGED	anything could have changed, the listener has to rebuild everything
+ * </pre>
+ * @author Christian Kirsch
+ */
+public class ProgramModelEvent {
+	
+	public static final int ROWS_INSERTED = 0;
+	public static final int ROWS_UPDATED = 1;
+	public static final int ROWS_REMOVED = 2;
+	public static final int ELEMENTS_ADDED = 3;
+	public static final int CLEARED = 4;
+	public static final int CHANGED = 5;
+	
+	private Program program;
+	private int type;
+	private int first;
+	private int last;
+	
+	/**
+	 * Constructs an event for a change without an index range (CLEARED or CHANGED).
+	 * @param program The program model, where the change occurs
+	 * @param type The type of the change
+	 */
+	public ProgramModelEvent(Program program, int type) {
+		this(program, type, -1, -1);
+	}
+	
+	/**
+	 * Constructs an event for a change of an index range.
+	 * @param program The program model, where the change occurs
+	 * @param type The type of the change
+	 * @param first The first affected index
+	 * @param last The last affected index
+	 */
+	public ProgramModelEvent(Program program, int type, int first, int last) {
+		this.program = program;
+		this.type = type;
+		this.first = first;
+		this.last = last;
+	}
+	
+	/**
+	 * Returns the program model, where the change occurs.
+	 * @return The program model
+	 */
+	public Program getProgram() {
+		return program;
+	}
+	
+	/**
+	 * Returns the type of the change.
+	 * @return The type
+	 */
+	public int getType() {
+		return type;
+	}
+	
+	/**
+	 * Returns the first affected row or element index.
+	 * @return The index or -1 if the event has no range
+	 */
+	public int getFirst() {
+		return first;
+	}
+	
+	/**
+	 * Returns the last affected row or element index.
+	 * @return The index or -1 if the event has no range
+	 */
+	public int getLast() {
+		return last;
+	}
+	
+	/**
+	 * Checks if the event is about rows.
+	 * @return True for ROWS_INSERTED, ROWS_UPDATED and ROWS_REMOVED
+	 */
+	public boolean isRowEvent() {
+		return type == ROWS_INSERTED || type == ROWS_UPDATED || type == ROWS_REMOVED;
+	}
+	
+	/**
+	 * Tries to merge a following event into this event, so that only one event must be fired.
+	 * Possible merges are subsequent insertions, removals and overlapping or adjacent updates, as well as updates within inserted rows.
+	 * @param next The following event
+	 * @return The merged event or null if the events could not be merged
+	 */
+	public ProgramModelEvent merge(ProgramModelEvent next) {
+		if(type == ROWS_INSERTED && next.type == ROWS_INSERTED && next.first == last + 1) {
+			return new ProgramModelEvent(program, type, first, next.last);
+		}
+		if(type == ROWS_INSERTED && next.type == ROWS_UPDATED && next.first >= first && next.last <= last) {
+			return this;
+		}
+		if(type == ROWS_UPDATED && next.type == ROWS_UPDATED && next.first <= last + 1 && next.last >= first - 1) {
+			return new ProgramModelEvent(program, type, Math.min(first, next.first), Math.max(last, next.last));
+		}
+		if(type == ROWS_REMOVED && next.type == ROWS_REMOVED) {
+			if(next.first == first) { // Removed again at the same position
+				return new ProgramModelEvent(program, type, first, last + next.last - next.first + 1);
+			}
+			if(next.last + 1 == first) { // Removed in front of the range
+				return new ProgramModelEvent(program, type, next.first, last);
+			}
+		}
+		if(type == ELEMENTS_ADDED && next.type == ELEMENTS_ADDED && next.first == last + 1) {
+			return new ProgramModelEvent(program, type, first, next.last);
+		}
+		return null;
+	}
+	
+	@Override
+	public String toString() {
+		return "ProgramModelEvent[type=" + type + ", first=" + first + ", last=" + last + "]";
+	}
+
+}
@@ -33,5 +33,15 @@ public interface ProgramModelListener {
 	 * @param model The program model, where the change occurs
 	 */
 	public void modelChanged(Program model);
+	
+	/**
+	 * Gets invoked if an model change occurs with the information what has changed.
+	 * The default implementation calls modelChanged(Program), so listeners which do not care about the kind of change only implement that method.
+	 * Listeners which can handle a change incrementally (i.e. only the inserted rows) override this method.
+	 * @param event The event with the type and the range of the change
+	 */
+	public default void modelChanged(ProgramModelEvent event) {
+		modelChanged(event.getProgram());
+	}
 
 }
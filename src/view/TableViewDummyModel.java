@@ -35,6 +35,7 @@ public class TableViewDummyModel extends AbstractTableModel implements ProgramMo
 	private static final long serialVersionUID = 1L;
 	private Program programModel;
 	private ArrayList<TableModelChangeListener> tableModelChangeListener;
+	private int columnCount;
 	
 	/**
 	 * Constructs a new table model.
@@ -43,6 +44,7 @@ public class TableViewDummyModel extends AbstractTableModel implements ProgramMo
 	public TableViewDummyModel(Program model) {	
 		this.programModel = model;
 		tableModelChangeListener = new ArrayList<TableModelChangeListener>();
+		columnCount = programModel.getMaxFieldSize() + 1; // +1 is for the comment
 	}
 	
 	/**
@@ -67,7 +69,38 @@ public class TableViewDummyModel extends AbstractTableModel implements ProgramMo
 	 */
 	@Override
 	public void modelChanged(Program model) {
-		this.fireTableChanged(null);
+		modelChanged(new ProgramModelEvent(model, ProgramModelEvent.CHANGED));
+	}
+	
+	/**
+	 * Gets invoked each time a change in G-Code program model occurs.
+	 * Only the affected rows are reported to the table. If the number of columns has changed, the whole table structure is rebuilt.
+	 * @param event The event with the type and range of the change
+	 */
+	@Override
+	public void modelChanged(ProgramModelEvent event) {
+		int columns = programModel.getMaxFieldSize() + 1; // +1 is for the comment
+		if(columns != columnCount) {
+			columnCount = columns;
+			this.fireTableStructureChanged();
+			return;
+		}
+		
+		switch(event.getType()) {
+		case ProgramModelEvent.ROWS_INSERTED:
+			this.fireTableRowsInserted(event.getFirst(), event.getLast());
+			break;
+		case ProgramModelEvent.ROWS_UPDATED:
+			this.fireTableRowsUpdated(event.getFirst(), event.getLast());
+			break;
+		case ProgramModelEvent.ROWS_REMOVED:
+			this.fireTableRowsDeleted(event.getFirst(), event.getLast());
+			break;
+		case ProgramModelEvent.ELEMENTS_ADDED:
+			break;
+		default:
+			this.fireTableDataChanged();
+		}
 	}
 
 	/**
@@ -76,7 +109,7 @@ public class TableViewDummyModel extends AbstractTableModel implements ProgramMo
 	 */
 	@Override
 	public int getColumnCount() {
-		return programModel.getMaxFieldSize() + 1; // +1 is for the comment
+		return columnCount;
 	}
 
 	/**
@@ -117,7 +150,7 @@ public class TableViewDummyModel extends AbstractTableModel implements ProgramMo
 	 */
 	@Override
 	public String getColumnName(int column) {
-		if(column == programModel.getMaxFieldSize()) {
+		if(column == columnCount - 1) {
 			return new String("Kommentar");
 		} else {
 			return super.getColumnName(column);
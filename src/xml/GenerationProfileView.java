@@ -0,0 +1,160 @@
+/*********************************************************************\
+ * GenerationProfileView.java - xmlCam G-Code Generator              *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+package xml;
+
+import java.awt.BorderLayout;
+import java.awt.Dimension;
+import java.awt.Window;
+import java.util.Locale;
+
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JScrollPane;
+import javax.swing.JTable;
+import javax.swing.table.AbstractTableModel;
+
+import controller.GenerationProfile;
+
+/**
+ * This class implements the dialog, which shows the profile of the last generation.
+ * Every element is a row of the table with the timings of the phases and the counts. The table can be sorted by clicking a column header.
+ * @author Christian Kirsch
+ *
+ */
+public class GenerationProfileView extends JDialog {
+
+	private static final long serialVersionUID = 1L;
+	
+	/**
+	 * Constructs the dialog for a profile.
+	 * @param owner The window of the application
+	 * @param profile The profile of the generation
+	 */
+	public GenerationProfileView(Window owner, GenerationProfile profile) {
+		super(owner, "Profil der G-Code-Generierung", ModalityType.MODELESS);
+		
+		JTable table = new JTable(new ProfileTableModel(profile));
+		table.setAutoCreateRowSorter(true);
+		table.setFillsViewportHeight(true);
+		add(new JScrollPane(table), BorderLayout.CENTER);
+		
+		StringBuilder summary = new StringBuilder();
+		summary.append(String.format(Locale.GERMAN, "%d Elemente in %.1f ms", profile.size(), profile.getWallTime() / 1e6));
+		for(int i = 0; i < GenerationProfile.PHASES.length; i++) {
+			summary.append(String.format(Locale.GERMAN, ", %s %.1f ms", GenerationProfile.PHASES[i], profile.getTotalTime(i) / 1e6));
+		}
+		if(profile.getToolChangesBefore() >= 0) {
+			summary.append(String.format(Locale.GERMAN, ", %d Werkzeugwechsel statt %d", profile.getToolChangesAfter(), profile.getToolChangesBefore()));
+		}
+		if(profile.getPointsBefore() >= 0) {
+			summary.append(String.format(Locale.GERMAN, ", %d Punkte statt %d", profile.getPointsAfter(), profile.getPointsBefore()));
+		}
+		if(profile.getTravelBefore() >= 0) {
+			summary.append(String.format(Locale.GERMAN, ", Leerfahrten %.1f mm statt %.1f mm", profile.getTravelAfter(), profile.getTravelBefore()));
+		}
+		add(new JLabel(summary.toString()), BorderLayout.SOUTH);
+		
+		setPreferredSize(new Dimension(1000, 500));
+		pack();
+		setLocationRelativeTo(owner);
+	}
+	
+	/**
+	 * The model of the table with one row for every element of the profile.
+	 */
+	private static class ProfileTableModel extends AbstractTableModel {
+		
+		private static final long serialVersionUID = 1L;
+		private static final String[] COLUMNS = { "Nr.", "Element", "Zeile", "Name", "Werkzeug", "Quelle", "extract (ms)", "execute (ms)", 
+				"purgePathes (ms)", "createGCode (ms)", "Gesamt (ms)", "Speicher (KB)", "Werkzeugpfade", "Punkte", "Zeilen" };
+		private static final String[] SOURCES = { "berechnet", "Cache", "Cache (Disk)" };
+		
+		private GenerationProfile profile;
+		
+		public ProfileTableModel(GenerationProfile profile) {
+			this.profile = profile;
+		}
+
+		@Override
+		public int getRowCount() {
+			return profile.size();
+		}
+
+		@Override
+		public int getColumnCount() {
+			return COLUMNS.length;
+		}
+		
+		@Override
+		public String getColumnName(int column) {
+			return COLUMNS[column];
+		}
+		
+		/**
+		 * Returns the class of the column, so the row sorter compares numbers as numbers.
+		 */
+		@Override
+		public Class<?> getColumnClass(int column) {
+			switch(column) {
+				case 0: case 2: case 12: case 13:
+					return Integer.class;
+				case 1: case 3: case 4: case 5:
+					return String.class;
+				case 11: case 14:
+					return Long.class;
+				default:
+					return Double.class;
+			}
+		}
+
+		@Override
+		public Object getValueAt(int rowIndex, int columnIndex) {
+			GenerationProfile.ElementProfile element = profile.get(rowIndex);
+			switch(columnIndex) {
+				case 0:
+					return element.getIndex() + 1;
+				case 1:
+					return element.getTag();
+				case 2:
+					return element.getLine();
+				case 3:
+					return element.getName();
+				case 4:
+					return element.getTool();
+				case 5:
+					return SOURCES[element.getSource()];
+				case 6: case 7: case 8: case 9:
+					return element.getTime(columnIndex - 6) / 1e6;
+				case 10:
+					return element.getTotalTime() / 1e6;
+				case 11:
+					return element.getAllocatedBytes() >= 0 ? element.getAllocatedBytes() / 1024 : -1;
+				case 12:
+					return element.getToolPathes();
+				case 13:
+					return element.getPoints();
+				default:
+					return element.getRows();
+			}
+		}
+		
+	}
+
+}
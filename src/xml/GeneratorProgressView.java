@@ -0,0 +1,85 @@
+/*********************************************************************\
+ * GeneratorProgressView.java - xmlCam G-Code Generator              *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+package xml;
+
+import java.awt.Dimension;
+
+import javax.swing.JProgressBar;
+import javax.swing.SwingUtilities;
+
+import controller.Generator;
+import controller.GeneratorProgressListener;
+
+/**
+ * This class implements the view that shows the progress of a generation in the background.
+ * The bar shows the position in the script and the text the current element, the emitted elements and the written G-Code rows.
+ * @author Christian Kirsch
+ *
+ */
+
+public class GeneratorProgressView extends JProgressBar implements GeneratorProgressListener {
+
+	private static final long serialVersionUID = 1L;
+	
+	public GeneratorProgressView() {
+		super(0, 1000);
+		this.setStringPainted(true);
+		this.setString(new String());
+		this.setPreferredSize(new Dimension(350, this.getPreferredSize().height));
+	}
+
+	/**
+	 * Gets invoked from the generator while the G-Code is generated.
+	 * The values are read on the thread of the generation and shown on the Swing event thread.
+	 * @param generator The generator
+	 */
+	@Override
+	public void progressChanged(Generator generator) {
+		int value = generator.getScriptLength() > 0 ? (int) (generator.getScriptPosition() * 1000 / generator.getScriptLength()) : 0;
+		String text = generator.getCurrentElement() == null ? "Starte" :
+			"<" + generator.getCurrentElement() + "> Zeile " + generator.getCurrentLine() + ", " + generator.getElementsDone() + " Elemente, " + generator.getRowsWritten() + " Zeilen";
+		SwingUtilities.invokeLater(() -> {
+			this.setValue(value);
+			this.setString(text);
+		});
+	}
+
+	/**
+	 * Gets invoked from the generator when the generation is finished.
+	 * @param generator The generator
+	 * @param success true if the whole script was processed
+	 */
+	@Override
+	public void generationFinished(Generator generator, boolean success) {
+		String text;
+		if(generator.isCancelled()) {
+			text = "Abgebrochen";
+		} else if(success) {
+			text = generator.getElementsDone() + " Elemente, " + generator.getRowsWritten() + " Zeilen";
+		} else {
+			text = "Fehler in Zeile " + generator.getCurrentLine();
+		}
+		SwingUtilities.invokeLater(() -> {
+			this.setValue(success ? 1000 : 0);
+			this.setString(text);
+		});
+	}
+
+}
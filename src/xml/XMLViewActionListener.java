@@ -21,44 +21,103 @@ package xml;
 
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.beans.PropertyChangeEvent;
 
-import javax.swing.JButton;
+import javax.swing.AbstractButton;
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.Document;
 
-import controller.Generator;
+import controller.BackgroundGenerator;
+import controller.GenerationProfile;
+import controller.GeneratorProgressListener;
 import model.Environment;
 
 /**
- * This class implements the controller for the button commands in the XMLView.
+ * This class implements the controller for the button commands in the XMLView and the live generation.
+ * The G-Code is generated in the background, so the editor is never blocked.
  * @author Christian Kirsch
  */
 
-public class XMLViewActionListener implements ActionListener {
+public class XMLViewActionListener implements ActionListener, DocumentListener {
 
 	private Environment env;
 	private XMLView editorPane;
+	/**
+	 * Generates the G-Code in the background. It keeps the caches of the elements, so only changed elements are computed again.
+	 */
+	private BackgroundGenerator generator;
 	
 	/**
 	 * Constructs a new listener.
+	 * The listener observes the document of the editorPane, also if the document is replaced when a file is opened.
 	 * @param programModel The model with the changeable items
 	 * @param editorPane The editorPane with the XML script
+	 * @param progressListener The listener for the progress of the generation or null
 	 */
-	public XMLViewActionListener(Environment env, XMLView editorPane) {
+	public XMLViewActionListener(Environment env, XMLView editorPane, GeneratorProgressListener progressListener) {
 		this.env = env;
 		this.editorPane = editorPane;
+		this.generator = new BackgroundGenerator(this.env, this.editorPane::getText);
+		this.generator.setProgressListener(progressListener);
+		this.editorPane.getDocument().addDocumentListener(this);
+		this.editorPane.addPropertyChangeListener("document", (PropertyChangeEvent e) -> {
+			if(e.getOldValue() != null) {
+				((Document) e.getOldValue()).removeDocumentListener(this);
+			}
+			if(e.getNewValue() != null) {
+				((Document) e.getNewValue()).addDocumentListener(this);
+			}
+			generator.scriptChanged();
+		});
 	}
 	
 	/**
-	 * Gets invoked by an action from the buttons of the XMLView.
+	 * Gets invoked by an action from the buttons of the XMLView or the live generation menu item.
 	 */
 	@Override
 	public void actionPerformed(ActionEvent actionEvent) {
-		JButton actionButton = (JButton) actionEvent.getSource();
+		AbstractButton actionButton = (AbstractButton) actionEvent.getSource();
 		
 		if(actionButton.getActionCommand() == "generate_gcode") {
-			Generator generator = new Generator(env, editorPane);
 			generator.generate();
+		} else if(actionButton.getActionCommand() == "cancel_gcode") {
+			generator.cancel();
+		} else if(actionButton.getActionCommand() == "live_gcode") {
+			generator.setLive(actionButton.isSelected());
+		} else if(actionButton.getActionCommand() == "profile_gcode") {
+			showProfile();
 		}
 		
 	}
 
+	/**
+	 * Shows the profile of the last generation in a dialog.
+	 */
+	private void showProfile() {
+		GenerationProfile profile = generator.getLastProfile();
+		if(profile == null) {
+			JOptionPane.showMessageDialog(editorPane, "Es wurde noch kein G-Code generiert.", "Profil", JOptionPane.INFORMATION_MESSAGE);
+			return;
+		}
+		new GenerationProfileView(SwingUtilities.getWindowAncestor(editorPane), profile).setVisible(true);
+	}
+
+	@Override
+	public void insertUpdate(DocumentEvent e) {
+		generator.scriptChanged();
+	}
+
+	@Override
+	public void removeUpdate(DocumentEvent e) {
+		generator.scriptChanged();
+	}
+
+	@Override
+	public void changedUpdate(DocumentEvent e) {
+		// Only attributes have changed, the script is the same
+	}
+
 }
@@ -0,0 +1,119 @@
+/*********************************************************************\
+ * ArcFitterTest.java - xmlCam G-Code Generator                      *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+
+package controller;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.Point2D;
+import java.util.Random;
+
+import org.junit.Test;
+
+import model.ToolPath;
+
+/**
+ * Tests that the arcs of the ArcFitter are within the tolerance to all points and segments, which they replace.
+ * @author Christian Kirsch
+ *
+ */
+public class ArcFitterTest {
+	
+	private static ToolPath createArc(double radius, double sweep, int segments, double noise, long seed) {
+		Random random = new Random(seed);
+		ToolPath toolPath = new ToolPath("arc");
+		for(int i = 0; i <= segments; i++) {
+			double angle = sweep * i / segments;
+			double r = radius + (random.nextDouble() * 2 - 1) * noise;
+			toolPath.addPoint(50 + r * Math.cos(angle), 50 + r * Math.sin(angle));
+		}
+		return toolPath;
+	}
+	
+	/**
+	 * Checks every arc against the points and the middle of the segments it replaces.
+	 */
+	private static void assertWithinTolerance(ToolPath toolPath, ArcFitter.Arc[] arcs, double tolerance) {
+		for(int i = 0; i < arcs.length; i++) {
+			ArcFitter.Arc arc = arcs[i];
+			if(arc == null) {
+				continue;
+			}
+			assertTrue(arc.getStart() <= i && i < arc.getEnd());
+			double radius = toolPath.get(arc.getStart()).distance(arc.getCenterX(), arc.getCenterY());
+			Point2D.Double p = toolPath.get(i);
+			Point2D.Double q = toolPath.get(i + 1);
+			assertTrue(Math.abs(q.distance(arc.getCenterX(), arc.getCenterY()) - radius) <= tolerance + 1e-9);
+			double mx = (p.getX() + q.getX()) / 2;
+			double my = (p.getY() + q.getY()) / 2;
+			assertTrue(Math.abs(Point2D.distance(mx, my, arc.getCenterX(), arc.getCenterY()) - radius) <= tolerance + 1e-9);
+			assertTrue(toolPath.get(arc.getStart()).distance(toolPath.get(arc.getEnd())) > 0);
+		}
+	}
+	
+	@Test
+	public void fitsExactArc() {
+		ToolPath toolPath = createArc(20, Math.PI, 180, 0, 1);
+		ArcFitter.Arc[] arcs = ArcFitter.fit(toolPath, 0.01);
+		assertNotNull(arcs);
+		assertTrue(arcs[0] != null && arcs[0] == arcs[arcs.length - 1]);
+		assertWithinTolerance(toolPath, arcs, 0.01);
+	}
+	
+	@Test
+	public void noisyArcStaysWithinTolerance() {
+		for(long seed = 0; seed < 20; seed++) {
+			ToolPath toolPath = createArc(15, 1.4 * Math.PI, 400, 0.004, seed);
+			ArcFitter.Arc[] arcs = ArcFitter.fit(toolPath, 0.01);
+			assertNotNull(arcs);
+			assertWithinTolerance(toolPath, arcs, 0.01);
+		}
+	}
+	
+	@Test
+	public void fullCircleIsSplit() {
+		ToolPath toolPath = createArc(10, 2 * Math.PI, 360, 0, 1);
+		ArcFitter.Arc[] arcs = ArcFitter.fit(toolPath, 0.01);
+		assertNotNull(arcs);
+		assertTrue(arcs[0] != arcs[arcs.length - 1]);
+		assertWithinTolerance(toolPath, arcs, 0.01);
+	}
+	
+	@Test
+	public void straightLineHasNoArcs() {
+		ToolPath toolPath = new ToolPath("line");
+		for(int i = 0; i <= 100; i++) {
+			toolPath.addPoint(i * 0.5, i * 0.25);
+		}
+		assertNull(ArcFitter.fit(toolPath, 0.01));
+	}
+	
+	@Test
+	public void zigzagHasNoArcs() {
+		ToolPath toolPath = new ToolPath("zigzag");
+		for(int i = 0; i <= 100; i++) {
+			toolPath.addPoint(i, i % 2 == 0 ? 0 : 1);
+		}
+		assertNull(ArcFitter.fit(toolPath, 0.01));
+	}
+
+}
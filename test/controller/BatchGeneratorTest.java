@@ -0,0 +1,185 @@
+/*********************************************************************\
+ * BatchGeneratorTest.java - xmlCam G-Code Generator                 *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+
+package controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import model.Environment;
+import model.GCodeDialect;
+import model.Program;
+import model.Settings;
+
+/**
+ * Tests the batch generation: all XML files of a directory are generated by a pool of workers, every G-Code file replaces the old file atomically
+ * and every result has the row count of its G-Code file.
+ * @author Christian Kirsch
+ *
+ */
+public class BatchGeneratorTest {
+	
+	private File dir;
+	private File outputDir;
+	private Settings settings;
+	private GCodeDialect dialect;
+	
+	@Before
+	public void setUp() throws IOException {
+		dir = Files.createTempDirectory("xmlcam-batch").toFile();
+		outputDir = new File(dir, "out");
+		settings = new Settings();
+		settings.readSettings();
+		settings.setToolPathCacheDir(null);
+		dialect = new GCodeDialect(settings);
+	}
+	
+	@After
+	public void tearDown() {
+		delete(dir);
+	}
+	
+	private static void delete(File file) {
+		File[] files = file.listFiles();
+		for(int i = 0; files != null && i < files.length; i++) {
+			delete(files[i]);
+		}
+		file.delete();
+	}
+	
+	/**
+	 * Creates a script with a number of elements depending on the index, so the files have different row counts.
+	 * @param index The index of the script
+	 * @param y The y coordinate of the line, which is not a number for an invalid script
+	 * @return The script
+	 */
+	private static String createScript(int index, String y) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<?xml version=\"1.0\"?>\n<program>\n<tools>\n<tool id=\"t1\" type=\"endmill\" diameter=\"2\"/>\n</tools>\n");
+		for(int i = 0; i <= index; i++) {
+			sb.append(String.format(Locale.ROOT, "<circle tool=\"t1\"><center x=\"%d\" y=\"%d\"/><radius value=\"%d\"/>", 20 + i * 30, 20 + index * 5, 5 + i));
+			sb.append("<depth start=\"0\" end=\"-1\" step=\"0.5\"/></circle>\n");
+		}
+		sb.append("<line tool=\"t1\"><point x=\"0\" y=\"").append(y).append("\"/><point x=\"50\" y=\"10\"/><depth start=\"0\" end=\"-1\" step=\"1\"/></line>\n");
+		sb.append("</program>\n");
+		return sb.toString();
+	}
+	
+	private void write(String name, String content) throws IOException {
+		Files.write(new File(dir, name).toPath(), content.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	private static String read(File file) throws IOException {
+		return new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8);
+	}
+	
+	/**
+	 * Generates a script serial into a program, as the graphical user interface does.
+	 */
+	private Program generate(String script) {
+		Program program = new Program();
+		Generator generator = new Generator(new Environment(settings, dialect, program), new StringReader(script));
+		assertTrue(generator.generate());
+		return program;
+	}
+	
+	private ArrayList<String> listOutput() {
+		String[] names = outputDir.list();
+		Arrays.sort(names);
+		return new ArrayList<String>(Arrays.asList(names));
+	}
+	
+	@Test
+	public void generatesAllFilesOfDirectory() throws IOException {
+		ArrayList<String> expected = new ArrayList<String>();
+		for(int i = 0; i < 6; i++) {
+			write("script" + i + ".xml", createScript(i, "10"));
+			expected.add("script" + i + ".gcode");
+		}
+		write("notes.txt", "Keine XML-Datei");
+		BatchGenerator batch = new BatchGenerator(settings, dialect, 3);
+		batch.addInput(dir);
+		batch.setOutputDir(outputDir);
+		assertEquals(6, batch.sizeInput());
+		
+		ArrayList<BatchGenerator.Result> results = batch.run();
+		assertEquals(6, results.size());
+		for(int i = 0; i < results.size(); i++) {
+			BatchGenerator.Result result = results.get(i);
+			assertEquals("script" + i + ".xml", result.getInputFile().getName());
+			assertTrue(result.isSuccess());
+			assertEquals(new File(outputDir, "script" + i + ".gcode"), result.getOutputFile());
+			assertEquals(i + 2, result.getElements());
+			
+			Program program = generate(createScript(i, "10"));
+			assertEquals(program.sizeRow(), result.getRows());
+			assertEquals(program.toString(), read(result.getOutputFile()));
+		}
+		// No temporary files are left in the output directory
+		assertEquals(expected, listOutput());
+	}
+	
+	@Test
+	public void failedFileKeepsOldOutput() throws IOException {
+		write("a.xml", createScript(2, "10"));
+		write("b.xml", createScript(2, "abc"));
+		outputDir.mkdirs();
+		File old = new File(outputDir, "b.gcode");
+		Files.write(old.toPath(), "; alt\n".getBytes(StandardCharsets.UTF_8));
+		BatchGenerator batch = new BatchGenerator(settings, dialect, 2);
+		batch.addInput(dir);
+		batch.setOutputDir(outputDir);
+		batch.setWriteFailed(false);
+		
+		ArrayList<BatchGenerator.Result> results = batch.run();
+		assertEquals(2, results.size());
+		assertTrue(results.get(0).isSuccess());
+		assertFalse(results.get(1).isSuccess());
+		assertNull(results.get(1).getOutputFile());
+		assertEquals("; alt\n", read(old));
+		assertEquals(Arrays.asList("a.gcode", "b.gcode"), listOutput());
+		
+		// By default the output of the failed generation replaces the old file with the rows up to the error
+		batch.setWriteFailed(true);
+		results = batch.run();
+		assertFalse(results.get(1).isSuccess());
+		assertEquals(old, results.get(1).getOutputFile());
+		String gcode = read(old);
+		assertFalse(gcode.startsWith("; alt"));
+		assertEquals(results.get(1).getRows(), gcode.split("\n").length);
+		assertEquals(Arrays.asList("a.gcode", "b.gcode"), listOutput());
+	}
+
+}
@@ -0,0 +1,148 @@
+/*********************************************************************\
+ * GeneratorTest.java - xmlCam G-Code Generator                      *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+
+package controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringReader;
+import java.util.Locale;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import model.Environment;
+import model.GCodeDialect;
+import model.Program;
+import model.Settings;
+
+/**
+ * Tests that the parallel generation writes the same G-Code as the serial generation, also with the ordering options.
+ * The settings are read from the settings.yaml in the working directory, the options under test are set on them.
+ * @author Christian Kirsch
+ *
+ */
+public class GeneratorTest {
+	
+	private static String script;
+	
+	/**
+	 * Creates a script with enough elements of all types, tools and feedrates, so the window of pending jobs is exceeded in parallel mode.
+	 */
+	@BeforeClass
+	public static void createScript() {
+		StringBuilder sb = new StringBuilder();
+		sb.append("<?xml version=\"1.0\"?>\n<program>\n<tools>\n");
+		sb.append("<tool id=\"t1\" type=\"ballend\" diameter=\"1.2\"/>\n<tool id=\"t2\" type=\"endmill\" diameter=\"2.5\"/>\n</tools>\n");
+		for(int i = 0; i < 24; i++) {
+			String tool = i % 3 == 0 ? "t2" : "t1";
+			if(i % 8 == 0) {
+				sb.append("<feedrate>").append(800 + i * 10).append("</feedrate>\n");
+			}
+			sb.append(String.format(Locale.ROOT, "<translate x=\"%d\" y=\"%d\">\n", (i * 37) % 300, (i * 53) % 300));
+			switch(i % 6) {
+			case 0:
+				sb.append("<circle tool=\"").append(tool).append("\" id=\"c").append(i).append("\"><center x=\"20\" y=\"20\"/><radius value=\"12\"/>")
+					.append("<depth start=\"0\" end=\"-1\" step=\"0.5\"/><options pocket=\"parallel\" offset=\"inset\"/></circle>\n");
+				break;
+			case 1:
+				sb.append("<rectangle tool=\"").append(tool).append("\"><point x=\"0\" y=\"0\"/><point x=\"30\" y=\"15\"/>")
+					.append("<depth start=\"0\" end=\"-1\" step=\"1\"/><options offset=\"outset\"/></rectangle>\n");
+				break;
+			case 2:
+				sb.append("<polyline tool=\"").append(tool).append("\"><point x=\"10\" y=\"50\"/><spline x=\"10\" y=\"100\"/>")
+					.append("<spline x=\"100\" y=\"100\"/><spline x=\"100\" y=\"10\"/><depth start=\"0\" end=\"-1\" step=\"1\"/></polyline>\n");
+				break;
+			case 3:
+				sb.append("<line tool=\"").append(tool).append("\" after=\"c").append(i - 3).append("\"><point x=\"0\" y=\"0\"/><point x=\"40\" y=\"10\"/>")
+					.append("<depth start=\"0\" end=\"-1\" step=\"0.5\"/></line>\n");
+				break;
+			case 4:
+				sb.append("<text tool=\"").append(tool).append("\"><content>xmlCAM ").append(i).append("</content><point x=\"0\" y=\"0\"/>")
+					.append("<depth start=\"0\" end=\"-1\" step=\"1\"/><options size=\"10\" flatness=\"0.1\"/></text>\n");
+				break;
+			default:
+				sb.append("<drill tool=\"").append(tool).append("\"><point x=\"5\" y=\"5\"/><depth start=\"0\" end=\"-2\"/></drill>\n");
+			}
+			sb.append("</translate>\n");
+		}
+		sb.append("</program>\n");
+		script = sb.toString();
+	}
+	
+	private static String generate(boolean parallel, boolean optimize, boolean group, double arcTolerance, double simplifyTolerance) {
+		Settings settings = new Settings();
+		settings.readSettings();
+		settings.setParallelGeneration(parallel);
+		settings.setOptimizeTravel(optimize);
+		settings.setGroupTools(group);
+		settings.setArcTolerance(arcTolerance);
+		settings.setSimplifyTolerance(simplifyTolerance);
+		settings.setToolPathCacheDir(null);
+		Program program = new Program();
+		Generator generator = new Generator(new Environment(settings, new GCodeDialect(settings), program), new StringReader(script));
+		assertTrue(generator.generate());
+		return program.toString();
+	}
+	
+	private static void assertSerialEqualsParallel(boolean optimize, boolean group, double arcTolerance, double simplifyTolerance) {
+		String serial = generate(false, optimize, group, arcTolerance, simplifyTolerance);
+		assertTrue(serial.length() > 0);
+		for(int i = 0; i < 3; i++) {
+			assertEquals(serial, generate(true, optimize, group, arcTolerance, simplifyTolerance));
+		}
+	}
+	
+	@Test
+	public void serialEqualsParallel() {
+		assertSerialEqualsParallel(false, false, 0, 0);
+	}
+	
+	@Test
+	public void serialEqualsParallelOptimized() {
+		assertSerialEqualsParallel(true, false, 0, 0);
+	}
+	
+	@Test
+	public void serialEqualsParallelGrouped() {
+		assertSerialEqualsParallel(false, true, 0, 0);
+	}
+	
+	@Test
+	public void serialEqualsParallelOptimizedAndGrouped() {
+		assertSerialEqualsParallel(true, true, 0, 0);
+	}
+	
+	@Test
+	public void serialEqualsParallelWithArcs() {
+		String gcode = generate(false, false, false, 0.01, 0);
+		assertTrue(gcode.contains("\nG2 ") || gcode.contains("\nG3 "));
+		assertSerialEqualsParallel(false, false, 0.01, 0);
+		assertSerialEqualsParallel(true, false, 0.01, 0);
+	}
+	
+	@Test
+	public void serialEqualsParallelWithSimplification() {
+		assertSerialEqualsParallel(false, false, 0, 0.05);
+		assertSerialEqualsParallel(true, true, 0.01, 0.05);
+	}
+
+}
@@ -0,0 +1,117 @@
+/*********************************************************************\
+ * TravelOptimizerTest.java - xmlCam G-Code Generator                *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+
+package controller;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests the TravelOptimizer, especially the Or-opt move of a segment of the tour.
+ * @author Christian Kirsch
+ *
+ */
+public class TravelOptimizerTest {
+	
+	private static TravelOptimizer.Stop[] createTour(int size) {
+		TravelOptimizer.Stop[] tour = new TravelOptimizer.Stop[size];
+		for(int i = 0; i < size; i++) {
+			tour[i] = new TravelOptimizer.Stop(i, i, 0, i, 0, false);
+		}
+		return tour;
+	}
+	
+	private static String indices(TravelOptimizer.Stop[] tour) {
+		StringBuilder sb = new StringBuilder();
+		for(int i = 0; i < tour.length; i++) {
+			sb.append(tour[i].getIndex());
+		}
+		return sb.toString();
+	}
+	
+	@Test
+	public void moveSegmentForward() {
+		TravelOptimizer.Stop[] tour = createTour(8);
+		TravelOptimizer.moveSegment(tour, 1, 2, 5);
+		assertEquals("03451267", indices(tour));
+	}
+	
+	@Test
+	public void moveSegmentBackward() {
+		TravelOptimizer.Stop[] tour = createTour(8);
+		TravelOptimizer.moveSegment(tour, 5, 3, 1);
+		assertEquals("01567234", indices(tour));
+	}
+	
+	@Test
+	public void moveSegmentToStart() {
+		TravelOptimizer.Stop[] tour = createTour(6);
+		TravelOptimizer.moveSegment(tour, 3, 2, -1);
+		assertEquals("340125", indices(tour));
+	}
+	
+	@Test
+	public void moveSegmentToEnd() {
+		TravelOptimizer.Stop[] tour = createTour(6);
+		TravelOptimizer.moveSegment(tour, 0, 3, 5);
+		assertEquals("345012", indices(tour));
+	}
+	
+	@Test
+	public void optimizeReturnsEveryStopOnce() {
+		Random random = new Random(42);
+		ArrayList<TravelOptimizer.Stop> stops = new ArrayList<TravelOptimizer.Stop>();
+		for(int i = 0; i < 200; i++) {
+			double x = random.nextDouble() * 400;
+			double y = random.nextDouble() * 400;
+			TravelOptimizer.Stop stop = new TravelOptimizer.Stop(i, x, y, x + 10, y, false);
+			if(i % 3 == 0) {
+				stop.setAlternative(new TravelOptimizer.Stop(i, x + 10, y, x, y, true));
+			}
+			stops.add(stop);
+		}
+		ArrayList<TravelOptimizer.Stop> tour = TravelOptimizer.optimize(stops, 0, 0);
+		assertEquals(stops.size(), tour.size());
+		HashSet<Integer> indices = new HashSet<Integer>();
+		for(int i = 0; i < tour.size(); i++) {
+			assertTrue(indices.add(tour.get(i).getIndex()));
+			assertTrue(!tour.get(i).isReversed() || tour.get(i).getIndex() % 3 == 0);
+		}
+		assertTrue(TravelOptimizer.getTravel(tour, 0, 0) < TravelOptimizer.getTravel(stops, 0, 0));
+	}
+	
+	@Test
+	public void optimizeFindsOrderOnLine() {
+		ArrayList<TravelOptimizer.Stop> stops = new ArrayList<TravelOptimizer.Stop>();
+		int[] order = { 5, 2, 8, 0, 9, 3, 7, 1, 6, 4 };
+		for(int i = 0; i < order.length; i++) {
+			stops.add(new TravelOptimizer.Stop(i, order[i] * 10, 0, order[i] * 10, 0, false));
+		}
+		ArrayList<TravelOptimizer.Stop> tour = TravelOptimizer.optimize(stops, 0, 0);
+		assertEquals(90, TravelOptimizer.getTravel(tour, 0, 0), 1e-9);
+	}
+
+}
@@ -0,0 +1,170 @@
+/*********************************************************************\
+ * PathSimplifierTest.java - xmlCam G-Code Generator                 *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+
+package generator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.Line2D;
+import java.awt.geom.Point2D;
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+import model.ToolPath;
+
+/**
+ * Tests that the PathSimplifier keeps every removed point within the tolerance and the ends of the toolpath.
+ * @author Christian Kirsch
+ *
+ */
+public class PathSimplifierTest {
+	
+	private static ToolPath createWalk(int size, boolean closed, long seed) {
+		Random random = new Random(seed);
+		ToolPath toolPath = new ToolPath("walk");
+		double x = 0;
+		double y = 0;
+		double angle = 0;
+		for(int i = 0; i < size; i++) {
+			toolPath.addPoint(x, y);
+			angle += (random.nextDouble() - 0.5) * 0.6;
+			x += Math.cos(angle) * 0.1;
+			y += Math.sin(angle) * 0.1;
+		}
+		if(closed) {
+			toolPath.add(toolPath.get(0));
+		}
+		return toolPath;
+	}
+	
+	/**
+	 * Checks that every point of the original toolpath is within the tolerance to the segment of the simplified toolpath, which replaces it.
+	 */
+	private static void assertWithinTolerance(ArrayList<Point2D.Double> original, ToolPath simplified, double tolerance) {
+		int segment = 0;
+		for(int i = 0; i < original.size(); i++) {
+			Point2D.Double p = original.get(i);
+			while(segment < simplified.size() - 1 && Line2D.ptSegDist(simplified.get(segment).getX(), simplified.get(segment).getY(),
+					simplified.get(segment + 1).getX(), simplified.get(segment + 1).getY(), p.getX(), p.getY()) > tolerance + 1e-9) {
+				segment++;
+			}
+			assertTrue("Point " + i + " is farther than the tolerance", segment < simplified.size() - 1 || p.equals(simplified.get(segment)));
+		}
+	}
+	
+	@Test
+	public void openPathWithinTolerance() {
+		for(long seed = 0; seed < 20; seed++) {
+			ToolPath toolPath = createWalk(2000, false, seed);
+			ArrayList<Point2D.Double> original = new ArrayList<Point2D.Double>(toolPath);
+			int count = PathSimplifier.simplify(toolPath, 0.05);
+			assertEquals(count, toolPath.size());
+			assertTrue(count < original.size());
+			assertEquals(original.get(0), toolPath.get(0));
+			assertEquals(original.get(original.size() - 1), toolPath.get(toolPath.size() - 1));
+			assertWithinTolerance(original, toolPath, 0.05);
+		}
+	}
+	
+	@Test
+	public void closedPathStaysClosed() {
+		ToolPath toolPath = new ToolPath("circle");
+		for(int i = 0; i < 720; i++) {
+			toolPath.addPoint(10 * Math.cos(i * Math.PI / 360), 10 * Math.sin(i * Math.PI / 360));
+		}
+		toolPath.add(toolPath.get(0));
+		ArrayList<Point2D.Double> original = new ArrayList<Point2D.Double>(toolPath);
+		PathSimplifier.simplify(toolPath, 0.01);
+		assertTrue(toolPath.isClosed());
+		assertTrue(toolPath.size() >= 4 && toolPath.size() < original.size());
+		assertWithinTolerance(original, toolPath, 0.01);
+	}
+	
+	@Test
+	public void pocketKeepsStepover() {
+		Random random = new Random(5);
+		double stepover = 2;
+		ToolPath toolPath = new ToolPath("pocket", true);
+		for(int line = 0; line < 10; line++) {
+			for(int i = 0; i <= 100; i++) {
+				double x = line % 2 == 0 ? i * 0.5 : 50 - i * 0.5;
+				toolPath.addPoint(x, line * stepover + (random.nextDouble() - 0.5) * 0.02);
+			}
+		}
+		ArrayList<Point2D.Double> original = new ArrayList<Point2D.Double>(toolPath);
+		PathSimplifier.simplifyPocket(toolPath, 1, stepover);
+		double tolerance = stepover * PathSimplifier.POCKET_TOLERANCE;
+		assertTrue(toolPath.size() < original.size() / 10);
+		assertWithinTolerance(original, toolPath, tolerance);
+		// Every line keeps its ends and no point moves towards the neighbouring lines by more than the limited tolerance
+		int ends = 0;
+		for(int i = 0; i < toolPath.size(); i++) {
+			Point2D.Double p = toolPath.get(i);
+			assertTrue(Math.abs(p.getY() - Math.round(p.getY() / stepover) * stepover) <= tolerance);
+			if(p.getX() == 0 || p.getX() == 50) {
+				ends++;
+			}
+		}
+		assertEquals(20, ends);
+	}
+	
+	@Test
+	public void zeroToleranceRemovesOnlyEqualAndCollinearPoints() {
+		ToolPath toolPath = new ToolPath("line");
+		toolPath.addPoint(0, 0);
+		toolPath.addPoint(0, 0);
+		toolPath.addPoint(1, 0);
+		toolPath.addPoint(2, 0);
+		toolPath.addPoint(2, 0.001);
+		toolPath.addPoint(3, 0.001);
+		PathSimplifier.simplify(toolPath, 0);
+		assertEquals(4, toolPath.size());
+		assertEquals(new Point2D.Double(2, 0), toolPath.get(1));
+		assertEquals(new Point2D.Double(2, 0.001), toolPath.get(2));
+	}
+	
+	@Test
+	public void cleanupRemovesNarrowAndCollinearPoints() {
+		ToolPath toolPath = new ToolPath("line");
+		toolPath.addPoint(0, 0);
+		toolPath.addPoint(0.005, 0);
+		toolPath.addPoint(1, 0);
+		toolPath.addPoint(2, 0);
+		toolPath.addPoint(2, 1);
+		PathSimplifier.cleanup(toolPath);
+		assertEquals(3, toolPath.size());
+		assertEquals(new Point2D.Double(0, 0), toolPath.get(0));
+		assertEquals(new Point2D.Double(2, 0), toolPath.get(1));
+		assertEquals(new Point2D.Double(2, 1), toolPath.get(2));
+	}
+	
+	@Test
+	public void cleanupKeepsShortPathes() {
+		ToolPath toolPath = new ToolPath("line");
+		toolPath.addPoint(0, 0);
+		toolPath.addPoint(0.001, 0);
+		PathSimplifier.cleanup(toolPath);
+		assertEquals(2, toolPath.size());
+	}
+
+}
@@ -0,0 +1,129 @@
+/*********************************************************************\
+ * GCodeReaderTest.java - xmlCam G-Code Generator                    *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+
+package model;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests that the GCodeReader, which parses the bytes of the file directly, reads the same rows as GCodeHelpers.parseRow.
+ * @author Christian Kirsch
+ *
+ */
+public class GCodeReaderTest {
+	
+	private static final String[] LINES = {
+		"G0 X10 Y-20.5 Z5",
+		"G1 X.5 Y-0.123456789 Z+3",
+		"G1 X1.0000005 Y-1.0000005 Z0.00000049",
+		"g1 x2 y3",
+		"M3 S1000",
+		"F1500 ; Set feedrate to 1500",
+		"; Only a comment",
+		"",
+		"   ",
+		"T1",
+		"G2 X1 Y2 I-0.5 J0.5",
+		"G1\tX7\tY8",
+		"M30 ; Ende \u00e4\u00f6\u00fc",
+		"G1 X123456789012 Y-99999999999.999999",
+		"G1 X1e3 Y2",
+		"G1 X1..2 Y-",
+	};
+	
+	/**
+	 * The number of lines at the beginning of LINES, which are parsed without errors.
+	 */
+	private static final int WELL_FORMED = 13;
+	
+	private static Program read(File file, boolean parallel) throws IOException {
+		Program program = new Program();
+		GCodeReader reader = new GCodeReader(file);
+		reader.setParallel(parallel);
+		reader.read(program);
+		return program;
+	}
+	
+	private static void assertSameRows(ArrayList<String> lines, Program program) {
+		assertEquals(lines.size(), program.sizeRow());
+		for(int i = 0; i < lines.size(); i++) {
+			Row expected = GCodeHelpers.parseRow(lines.get(i));
+			Row actual = program.getRow(i);
+			assertEquals("Line " + i + ": " + lines.get(i), expected.size(), actual.size());
+			for(int j = 0; j < expected.size(); j++) {
+				assertEquals("Line " + i + ": " + lines.get(i), expected.getField(j).getLetter(), actual.getField(j).getLetter());
+				assertEquals("Line " + i + ": " + lines.get(i), expected.getField(j).hasNumber(), actual.getField(j).hasNumber());
+				if(expected.getField(j).hasNumber()) {
+					assertEquals("Line " + i + ": " + lines.get(i), expected.getField(j).getFixedNumber(), actual.getField(j).getFixedNumber());
+				}
+			}
+			assertEquals("Line " + i + ": " + lines.get(i), expected.getComment(), actual.getComment());
+			assertEquals(expected.toString(), actual.toString());
+		}
+	}
+	
+	private static File write(ArrayList<String> lines) throws IOException {
+		File file = File.createTempFile("xmlcam-test", ".gcode");
+		file.deleteOnExit();
+		Files.write(file.toPath(), lines, Charset.defaultCharset());
+		return file;
+	}
+	
+	@Test
+	public void sameRowsAsParseRow() throws IOException {
+		ArrayList<String> lines = new ArrayList<String>();
+		for(int i = 0; i < LINES.length; i++) {
+			lines.add(LINES[i]);
+		}
+		File file = write(lines);
+		assertSameRows(lines, read(file, false));
+	}
+	
+	@Test
+	public void sameRowsInParallel() throws IOException {
+		Random random = new Random(7);
+		ArrayList<String> lines = new ArrayList<String>();
+		int size = 0;
+		while(size < 3 << 20) {
+			String line;
+			if(random.nextInt(10) == 0) {
+				line = LINES[random.nextInt(WELL_FORMED)];
+			} else {
+				line = String.format(java.util.Locale.ROOT, "G1 X%.6f Y%.6f Z%.3f ; Element %d", (random.nextDouble() - 0.5) * 800, 
+						(random.nextDouble() - 0.5) * 800, -random.nextDouble() * 5, lines.size());
+			}
+			lines.add(line);
+			size += line.length() + 1;
+		}
+		File file = write(lines);
+		assertSameRows(lines, read(file, true));
+		assertSameRows(lines, read(file, false));
+	}
+
+}
@@ -0,0 +1,103 @@
+/*********************************************************************\
+ * ToolPathTest.java - xmlCam G-Code Generator                       *
+ * Copyright (C) 2025, Christian Kirsch                              *
+ *                                                                   *
+ * This program is free software; you can redistribute it and/or     *
+ * modify it under the terms of the GNU General Public License as    *
+ * published by the Free Software Foundation; either version 3 of    *
+ * the License, or (at your option) any later version.               *
+ *                                                                   *
+ * This program is distributed in the hope that it will be useful,   *
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of    *
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the     *
+ * GNU General Public License for more details.                      *
+ *                                                                   *
+ * You should have received a copy of the GNU General Public License *
+ * along with this program; if not, write to the Free Software       *
+ * Foundation, Inc., 675 Mass Ave, Cambridge, MA 02139, USA.         *
+\*********************************************************************/
+
+
+package model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.awt.geom.Point2D;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests the seam of closed toolpathes: the loop starts at the point nearest to the tool and keeps its direction.
+ * @author Christian Kirsch
+ *
+ */
+public class ToolPathTest {
+	
+	private static ToolPath createSquare() {
+		ToolPath toolPath = new ToolPath("square");
+		toolPath.addPoint(0, 0);
+		toolPath.addPoint(10, 0);
+		toolPath.addPoint(10, 10);
+		toolPath.addPoint(0, 10);
+		toolPath.addPoint(0, 0);
+		return toolPath;
+	}
+	
+	private static void assertPoints(ToolPath toolPath, double... coordinates) {
+		assertEquals(coordinates.length / 2, toolPath.size());
+		for(int i = 0; i < toolPath.size(); i++) {
+			assertEquals(new Point2D.Double(coordinates[2 * i], coordinates[2 * i + 1]), toolPath.get(i));
+		}
+	}
+	
+	@Test
+	public void seamOnEdgeSplitsEdge() {
+		ToolPath square = createSquare();
+		assertEquals(new Point2D.Double(5, 0), square.getSeam(5, -3));
+		assertPoints(square.rotate(5, -3), 5, 0, 10, 0, 10, 10, 0, 10, 0, 0, 5, 0);
+		assertPoints(square, 0, 0, 10, 0, 10, 10, 0, 10, 0, 0);
+	}
+	
+	@Test
+	public void seamAtVertex() {
+		ToolPath square = createSquare();
+		assertEquals(new Point2D.Double(10, 10), square.getSeam(12, 11));
+		assertPoints(square.rotate(12, 11), 10, 10, 0, 10, 0, 0, 10, 0, 10, 10);
+	}
+	
+	@Test
+	public void seamAtStartKeepsToolPath() {
+		ToolPath square = createSquare();
+		assertSame(square, square.rotate(-1, -2));
+		ToolPath line = new ToolPath("line");
+		line.addPoint(0, 0);
+		line.addPoint(10, 0);
+		line.addPoint(10, 10);
+		assertSame(line, line.rotate(10, 0));
+	}
+	
+	@Test
+	public void seamIsNearestPoint() {
+		Random random = new Random(3);
+		ToolPath circle = new ToolPath("circle");
+		for(int i = 0; i < 64; i++) {
+			circle.addPoint(20 * Math.cos(i * Math.PI / 32), 20 * Math.sin(i * Math.PI / 32));
+		}
+		circle.add(circle.get(0));
+		for(int i = 0; i < 100; i++) {
+			double x = (random.nextDouble() - 0.5) * 100;
+			double y = (random.nextDouble() - 0.5) * 100;
+			Point2D.Double seam = circle.getSeam(x, y);
+			for(int j = 0; j < circle.size(); j++) {
+				assertTrue(seam.distance(x, y) <= circle.get(j).distance(x, y) + 1e-9);
+			}
+			ToolPath rotated = circle.rotate(x, y);
+			assertTrue(rotated.isClosed());
+			assertTrue(rotated.get(0).distance(seam) < 1e-3);
+		}
+	}
+
+}